@@ -38,6 +38,8 @@ import org.ASUX.yaml.YAMLPath;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import java.util.regex.*;
 
@@ -67,6 +69,22 @@ public abstract class AbstractYamlEntryProcessor {
 
     private YAMLPath yp = null;
 
+    /** # of end2end matches, so far.  See {@link #getMatchCount()} */
+    private long matchCount = 0;
+
+    /** <p>Compiled java.util.regex.Pattern for each YAML-Path element (example: 'paths', '.*', '[0-9]') - shared across all instances and threads.</p>
+     *  <p>The same few path-elements are matched against every single key of the YAML (and across every iteration of a 'foreach' in a batch-file).  So, compile each just once.</p>
+     */
+    private static final ConcurrentHashMap<String, Pattern> PATTERNCACHE = new ConcurrentHashMap<>();
+    private static final int PATTERNCACHE_MAXSIZE = 10000; // just in case, some long-running program keeps generating new YAML-Paths
+
+    private static final Pattern ARRAYINDEXPATTERN = Pattern.compile( "\\[?[0-9][0-9]*\\]?" );
+
+    /** <p>If Not-null, end2end matches are pushed out to this sink, instead of being buffered until the end.  Only the read, list and table commands honor this.</p>
+     *  <p>Set this via {@link #setOutputSink}.</p>
+     */
+    protected MatchOutputSink outputSink = null;
+
     /** The only Constructor.
      *  @param _verbose Whether you want deluge of debug-output onto System.out
      *  @param _showStats Whether you want a final summary onto console / System.out
@@ -82,6 +100,83 @@ public abstract class AbstractYamlEntryProcessor {
 
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
 
+    /** <p>Stream each end2end match into _sink, instead of buffering all matches in memory (till the entire YAML is searched).</p>
+     *  <p>Only {@link ReadYamlEntry}, {@link ListYamlEntry} and {@link TableYamlQuery} honor this.  When a sink is set, their getOutput() will stay empty.</p>
+     *  @param _sink Nullable.  If null, matches are buffered (which is the default behavior)
+     */
+    public void setOutputSink( final MatchOutputSink _sink ) {
+        this.outputSink = _sink;
+    }
+
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+
+    /**
+     * @param _regexp a YAML-Path element (which YAMLPath class has already validated as a proper regular-expression)
+     * @return the compiled version (from cache, if previously compiled)
+     * @throws java.util.regex.PatternSyntaxException - should Not happen, per precautions in YAMLPath class
+     */
+    protected static Pattern compiledPattern( final String _regexp ) {
+        final Pattern p = PATTERNCACHE.get( _regexp );
+        if ( p != null ) return p;
+        if ( PATTERNCACHE.size() >= PATTERNCACHE_MAXSIZE )
+            PATTERNCACHE.clear();
+        return PATTERNCACHE.computeIfAbsent( _regexp, Pattern::compile );
+    }
+
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+
+    /** <p>Sub-classes that modify the YAML (Delete, Insert &amp; Replace) should override this to return true.</p>
+     *  <p>If true, as {@link #recursiveSearch} walks down the YAML, it remembers where each frozen Map/List (see {@link PersistentYAMLTree}) along the way sits (within which parent, under which key/index).  Nothing is copied during the walk.
+     *  The Maps passed to the callbacks below could therefore be frozen.  Before modifying one of them, sub-classes must get a modifiable version via {@link #writable}.</p>
+     *  @return false by default
+     */
+    protected boolean mutatesInput() {
+        return false;
+    }
+
+    /** frozen-node (visited by the walk) -&gt; each { parent-Map-or-ArrayList, key-or-index } it sits at.  Only if this.mutatesInput() */
+    private final IdentityHashMap< Object, ArrayList<Object[]> > frozenNodeLocations = new IdentityHashMap<>();
+    /** frozen-node -&gt; the modifiable copy that has replaced it (at all its locations).  So that many writes within the same node thaw it just once. */
+    private final IdentityHashMap< Object, Object > thawedNodes = new IdentityHashMap<>();
+
+    /** if this.mutatesInput() and _child is frozen, remembers that _child sits within _parent (under _keyOrIndex) - for {@link #writable} */
+    private void rememberLocation( final Object _parent, final Object _keyOrIndex, final Object _child ) {
+        if (  !  this.mutatesInput()  ||  !  PersistentYAMLTree.isFrozen( _child ) ) return;
+        this.frozenNodeLocations.computeIfAbsent( _child, k -> new ArrayList<>( 1 ) ).add( new Object[] { _parent, _keyOrIndex } );
+    }
+
+    /** <p>Path-copying - done only when something is actually about to be written.</p>
+     *  <p>If _map is frozen, it (and every frozen ancestor, up to the top-level Map) is replaced by a modifiable shallow-copy, whose children remain the shared frozen nodes.  Otherwise, _map itself is returned.</p>
+     *  @param _map a Map that was passed to one of the callbacks (during this instance's {@link #searchYamlForPattern})
+     *  @return a modifiable version of _map, that is now part of the YAML-tree passed to {@link #searchYamlForPattern}
+     */
+    @SuppressWarnings("unchecked")
+    protected LinkedHashMap<String, Object> writable( final LinkedHashMap<String, Object> _map ) {
+        return (LinkedHashMap<String, Object>) this.writableNode( _map );
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object writableNode( final Object _node ) {
+        if ( ! PersistentYAMLTree.isFrozen( _node ) ) return _node;
+        final Object alreadyThawed = this.thawedNodes.get( _node );
+        if ( alreadyThawed != null ) return alreadyThawed;
+        final ArrayList<Object[]> locations = this.frozenNodeLocations.get( _node );
+        if ( locations == null ) // the top-level Map itself is frozen.  CmdInvoker always passes a modifiable top-level Map.
+            throw new IllegalStateException( CLASSNAME +": writable(): this frozen YAML was Not reached via searchYamlForPattern(), or is the top-level Map itself" );
+        final Object thawed = ( _node instanceof FrozenLinkedHashMap ) ? PersistentYAMLTree.thaw( (LinkedHashMap<String, Object>) _node ) : PersistentYAMLTree.thaw( (ArrayList<?>) _node );
+        this.thawedNodes.put( _node, thawed );
+        for ( Object[] loc: locations ) { // a frozen node shared at many locations (like a YAML-anchor) stays shared, exactly as a modifiable one would
+            final Object parent = this.writableNode( loc[0] );
+            if ( parent instanceof LinkedHashMap )
+                ((LinkedHashMap<String, Object>) parent).put( (String) loc[1], thawed ); // Not a structural-modification of parent (the key exists already)
+            else
+                ((ArrayList<Object>) parent).set( (Integer) loc[1], thawed );
+        }
+        return thawed;
+    }
+
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+
     /** <p>This function will be called when a partial match of a YAML path-expression happens.</p>
      * <p>Example: if the YAML-Path-regexp is <code>paths.*.*.responses.200.description</code></p>
      * <p>This function will be called for: <code>paths./pet   paths./pet.put   paths./pet.put.responses paths./pet.put.responses.200</code></p>
@@ -161,6 +256,7 @@ public abstract class AbstractYamlEntryProcessor {
                 throws YAMLPath.YAMLPathException, Exception
     {
         final LinkedList<String> end2EndPaths = new LinkedList<>();
+        final long matchesBefore = this.matchCount;
         this.yp = new YAMLPath( this.verbose, _yamlPathStr, _delim );
         boolean retval = false;
         if ( YAMLPath.ROOTLEVEL.equals( this.yp.getRaw() ) ) {
@@ -170,11 +266,22 @@ public abstract class AbstractYamlEntryProcessor {
             if ( this.verbose ) System.out.println( CLASSNAME +": searchYamlForPattern("+ _yamlPathStr +"):  invoking this.recursiveSearch().. .." );
             retval = this.recursiveSearch( _map, this.yp, end2EndPaths );
         }
-        atEndOfInput( _map, this.yp );
+        try {
+            atEndOfInput( _map, this.yp );
+        } finally {
+            this.frozenNodeLocations.clear();
+            this.thawedNodes.clear();
+        }
 //  ???? What should be done if atEndOfInput returns false.. ??? by the sub-classes?
+        BatchProfiler.addMatches( this.matchCount - matchesBefore );
         return retval;
     }
 
+    /** @return # of end2end matches (for all invocations of {@link #searchYamlForPattern} on this instance) */
+    public long getMatchCount() {
+        return this.matchCount;
+    }
+
     /**
      * A convenience function, to cut down on code-size within recursiveSearch() below.. especially avoiding the SuppressWarnings("unchecked")
      * If null, you'll get an empty NEW LinkedList<String> object.
@@ -230,7 +337,7 @@ public abstract class AbstractYamlEntryProcessor {
                 hasThisYamlLineLiterallyMatched = false; // redundant
                 hasThisYamlLineMatched = true;
             } else {
-                final Pattern yamlPElemPatt = java.util.regex.Pattern.compile(yamlPathElemStr); // This should Not throw, per precautions in YAMLPath class
+                final Pattern yamlPElemPatt = compiledPattern( yamlPathElemStr ); // This should Not throw, per precautions in YAMLPath class
                 hasThisYamlLineLiterallyMatched = yamlPElemPatt.matcher(key).matches();
                 hasThisYamlLineMatched = hasThisYamlLineLiterallyMatched;
             }
@@ -262,6 +369,7 @@ public abstract class AbstractYamlEntryProcessor {
                     aMatchFound = true;
 
                     // let sub-classes determine what to do here
+                    this.matchCount ++;
                     final boolean callbkRet3 = onEnd2EndMatch(_map, _yamlPath, key, null, cloneOfE2EPaths); // location #1 for end2end match
                     if ( ! callbkRet3 ) continue; // Pretend as if match failed.
                     _end2EndPaths.removeLast();
@@ -288,6 +396,7 @@ public abstract class AbstractYamlEntryProcessor {
 
                     @SuppressWarnings("unchecked")
                     final LinkedHashMap<String, Object> rhs2 = (LinkedHashMap<String, Object>) rhs;
+                    this.rememberLocation( _map, key, rhs2 );
                     aMatchFound = this.recursiveSearch( rhs2, lookForwardYAMLPath, cloneOfE2EPaths); // recursion call
                     // we do Not know how deep the recursion is.
                     // once recursion call returns, we happily go back to the UNTOUCHED _yamlPath & to _end2EndPaths  - which is still intact for use by the FOR loop.
@@ -319,7 +428,7 @@ public abstract class AbstractYamlEntryProcessor {
                             bMatchAny = true;
                             bLetsIterate = true;
                         } else {
-                            if ( lookForwardYAMLPath.get().matches( "\\[?[0-9][0-9]*\\]?" ) ) {
+                            if ( ARRAYINDEXPATTERN.matcher( lookForwardYAMLPath.get() ).matches() ) {
                                 // Clearly.. We should definitely check out each item in the array 
                                 // Make 'nonStarLookFwdYAMLPath' point to the YAML-Path-Pattern-element !!!that exists RIGHT AFTER!!! the 0
                                 nonStarLookFwdYAMLPath = YAMLPath.deepClone(lookForwardYAMLPath); // to keep _yamlPath intact as we recurse in & out of sub-yaml-elements
@@ -334,7 +443,9 @@ public abstract class AbstractYamlEntryProcessor {
                     }
                     // by reaching here, we're sure that nonStarLookFwdYAMLPath, upcomingPathElem, bLetsIterate & bMatchAny have valid values.
 
-                    ArrayList arr = (ArrayList) rhs;
+                    @SuppressWarnings("unchecked")
+                    final ArrayList<Object> arr = (ArrayList<Object>) rhs;
+                    this.rememberLocation( _map, key, arr );
 
                     // ATTENTION: if bLetsIterate === false, we'll NOT be entering this loop.
                     for ( int ix=0;  bLetsIterate && ix < arr.size(); ix ++ ) {
@@ -345,12 +456,13 @@ public abstract class AbstractYamlEntryProcessor {
                         // otherwise variable 'upcomingPathElem' will point to CURRENT yaml-element.
                         if ( this.verbose ) System.out.println(CLASSNAME +": bWildcard="+ bWildcard +" bMatchAny="+ bMatchAny +" upcomingPathElem="+ upcomingPathElem +" ix="+ix );
 
-                        if ( bWildcard || bMatchAny || Integer.valueOf(ix).toString().matches(upcomingPathElem) ) {
+                        if ( bWildcard || bMatchAny || compiledPattern( upcomingPathElem ).matcher( Integer.toString(ix) ).matches() ) {
                             if (   !   nonStarLookFwdYAMLPath.hasNext() ) {
                                 // yeah! We found a !!!full!!! end2end match!  Reason:- No more recursion is feasible.
                                 final LinkedList<String> clone222OfE2EPaths = this.clone( cloneOfE2EPaths ); // to keep _yamlPath intact as we ITERATE thru this ARRAY LIST.
                                 clone222OfE2EPaths.add("["+ix+"]"); // add the index like [1] into the discovered yaml-path
                                 // let sub-classes determine what to do here
+                                this.matchCount ++;
                                 final boolean callbkRet6 = onEnd2EndMatch(_map, lookForwardYAMLPath, key, null, clone222OfE2EPaths); // location #2 for end2end match
                                 // we do Not know how deep the recursion is.
                                 // once recursion call returns, we happily go back to the UNTOUCHED _yamlPath & to _end2EndPaths  - which is still intact for use by the FOR loop.
@@ -373,6 +485,7 @@ public abstract class AbstractYamlEntryProcessor {
 
                             @SuppressWarnings("unchecked")
                             final LinkedHashMap<String, Object> lhmp2 = (LinkedHashMap<String, Object>) o;
+                            this.rememberLocation( arr, ix, lhmp2 );
 
                             // Let's prepare for recursion .. clone all modifiaable-variables being passed.
                             final YAMLPath recursionYamlPath = YAMLPath.deepClone( nonStarLookFwdYAMLPath );
@@ -402,6 +515,7 @@ public abstract class AbstractYamlEntryProcessor {
 
                         // yeah! We found a full end2end match!  Also, No more recursion is feasible.
                         // let sub-classes determine what to do here
+                        this.matchCount ++;
                         final boolean callbkRet5 = onEnd2EndMatch(_map, _yamlPath, key, null, cloneOfE2EPaths); // location #2 for end2end match
                         if ( this.verbose ) System.out.println(CLASSNAME +": callbkRet5="+callbkRet5+" End2End Match#2 @ YAML-File: "+ key +": "+ rhsStr.substring(0,rhsStr.length()>121?120:rhsStr.length()));
                         if ( ! callbkRet5 ) continue; // Pretend as if match failed and continue to next peer YAML element.
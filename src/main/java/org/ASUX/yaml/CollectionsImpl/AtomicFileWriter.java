@@ -0,0 +1,222 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/** <p>A java.io.Writer for output-files that never leaves a half-written (truncated) file behind.</p>
+ *  <p>All content is written (as UTF-8, thru a large buffer, via a java.nio.channels.FileChannel) into a temporary file - in the SAME folder as the final file.
+ *  Only when {@link #close} is invoked, is that temporary file atomically renamed to the final file-name.
+ *  So, readers of the final file will either see the previous (complete) content or the new (complete) content.  That makes in-place edits (where input and output are the same file) safe.</p>
+ *  <p>If anything goes wrong before that, invoke {@link #abort} - to delete the temporary file and leave the final file untouched.</p>
+ *  <p>Whether the content (and the rename) is also fsync'd to disk (so that it survives a power-failure/OS-crash, at the cost of a disk-flush per file), is opt-in.  See {@link TuningOptions#fsyncOutputFiles()}.</p>
+ *  <p>Note: com.esotericsoftware.yamlbeans.YamlWriter closes the java.io.Writer it was given - so its close() will also commit this file.  Additional calls to close() are harmless.</p>
+ */
+public class AtomicFileWriter extends java.io.Writer {
+
+    public static final String CLASSNAME = AtomicFileWriter.class.getName();
+
+    private static final int CHARBUFSIZE = 32 * 1024;
+    private static final int BYTEBUFSIZE = 64 * 1024;
+
+    private final Path finalFile;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final boolean fsync;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                                                .onMalformedInput( CodingErrorAction.REPLACE )
+                                                .onUnmappableCharacter( CodingErrorAction.REPLACE );
+    private final CharBuffer charbuf = CharBuffer.allocate( CHARBUFSIZE );
+    private final ByteBuffer bytebuf = ByteBuffer.allocateDirect( BYTEBUFSIZE );
+
+    private boolean isClosed = false;
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * @param _filename the final file-name (any existing file by that name will be replaced at {@link #close})
+     * @throws IOException if the temporary file can Not be created in the same folder as _filename
+     */
+    public AtomicFileWriter( final String _filename ) throws IOException {
+        this.finalFile = Paths.get( _filename ).toAbsolutePath();
+        final Path folder = this.finalFile.getParent();
+        // Not using Files.createTempFile(), as that creates files with rw------- permissions (the final-file should have the usual permissions, per user's umask)
+        this.tempFile = folder.resolve( "."+ this.finalFile.getFileName() +"."+ Long.toHexString( System.nanoTime() ) +".tmp" );
+        this.channel = FileChannel.open( this.tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE );
+        try {
+            if ( Files.exists( this.finalFile ) ) // keep the permissions of the file that we are replacing.
+                Files.setPosixFilePermissions( this.tempFile, Files.getPosixFilePermissions( this.finalFile ) );
+        } catch ( UnsupportedOperationException | IOException e ) {
+            // Not a POSIX file-system.  Ignore.
+        }
+        this.fsync = TuningOptions.fsyncOutputFiles();
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    @Override
+    public void write( final char[] _cbuf, final int _off, final int _len ) throws IOException {
+        if ( this.isClosed ) throw new IOException( CLASSNAME +": write(): already closed/aborted: "+ this.finalFile );
+        int off = _off;
+        int remaining = _len;
+        while ( remaining > 0 ) {
+            final int n = Math.min( remaining, this.charbuf.remaining() );
+            this.charbuf.put( _cbuf, off, n );
+            off += n;
+            remaining -= n;
+            if ( ! this.charbuf.hasRemaining() )
+                this.encodeAndDrain( false );
+        }
+    }
+
+    @Override
+    public void write( final String _s, final int _off, final int _len ) throws IOException {
+        if ( this.isClosed ) throw new IOException( CLASSNAME +": write(): already closed/aborted: "+ this.finalFile );
+        int off = _off;
+        int remaining = _len;
+        while ( remaining > 0 ) {
+            final int n = Math.min( remaining, this.charbuf.remaining() );
+            this.charbuf.put( _s, off, off + n );
+            off += n;
+            remaining -= n;
+            if ( ! this.charbuf.hasRemaining() )
+                this.encodeAndDrain( false );
+        }
+    }
+
+    /** Pushes buffered content into the temporary file.  This does NOT make the content visible under the final file-name (only {@link #close} does that). */
+    @Override
+    public void flush() throws IOException {
+        if ( this.isClosed ) return;
+        this.encodeAndDrain( false );
+    }
+
+    /**
+     * Commit: writes out whatever is buffered, fsyncs the temporary file (only if {@link TuningOptions#fsyncOutputFiles()}), and atomically renames it to the final file-name.
+     * @throws IOException if any of the above fails (in which case the temporary file is deleted, and the final file is left untouched)
+     */
+    @Override
+    public void close() throws IOException {
+        if ( this.isClosed ) return;
+        try {
+            this.encodeAndDrain( true );
+            if ( this.fsync )
+                this.channel.force( true );
+            this.channel.close();
+            this.isClosed = true;
+            try {
+                Files.move( this.tempFile, this.finalFile, StandardCopyOption.ATOMIC_MOVE );
+            } catch ( java.nio.file.AtomicMoveNotSupportedException e ) {
+                Files.move( this.tempFile, this.finalFile, StandardCopyOption.REPLACE_EXISTING );
+            }
+            if ( this.fsync )
+                this.fsyncFolder();
+        } catch ( IOException e ) {
+            this.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Discard everything written so far.  The temporary file is deleted, and the final file is left untouched.  Safe to call multiple times, and after {@link #close}.
+     */
+    public void abort() {
+        try {
+            if ( this.channel.isOpen() ) this.channel.close();
+        } catch ( IOException e ) {
+            // ignore.  We're trying to clean up.
+        }
+        this.isClosed = true;
+        try {
+            Files.deleteIfExists( this.tempFile );
+        } catch ( IOException e ) {
+            System.err.println( CLASSNAME +": abort(): failed to delete temporary file "+ this.tempFile +" due to "+ e );
+        }
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    private void encodeAndDrain( final boolean _endOfInput ) throws IOException {
+        this.charbuf.flip();
+        while ( true ) {
+            final CoderResult cr = this.encoder.encode( this.charbuf, this.bytebuf, _endOfInput );
+            if ( cr.isOverflow() ) {
+                this.drain();
+                continue;
+            }
+            break; // underflow: all of charbuf consumed (except maybe the 1st half of a surrogate-pair)
+        }
+        if ( _endOfInput ) {
+            while ( this.encoder.flush( this.bytebuf ).isOverflow() )
+                this.drain();
+        }
+        this.charbuf.compact();
+        this.drain();
+    }
+
+    private void drain() throws IOException {
+        this.bytebuf.flip();
+        while ( this.bytebuf.hasRemaining() )
+            this.channel.write( this.bytebuf );
+        this.bytebuf.clear();
+    }
+
+    /** So that the rename itself survives a crash.  Not supported on all platforms (example: Windows).  So, best-effort only. */
+    private void fsyncFolder() {
+        try ( FileChannel dir = FileChannel.open( this.finalFile.getParent(), StandardOpenOption.READ ) ) {
+            dir.force( true );
+        } catch ( IOException e ) {
+            // ignore.
+        }
+    }
+
+}
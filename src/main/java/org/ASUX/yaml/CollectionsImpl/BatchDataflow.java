@@ -0,0 +1,200 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import org.ASUX.common.Tuple;
+
+import org.ASUX.yaml.BatchFileGrammer;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/** <p>A static (i.e., without running anything) analysis of a batch-file: which '@file' references does it read, and which does it write.</p>
+ *  <p>The references are: 'useAsInput @x.yaml', 'saveTo @x.yaml' / 'saveTo !label', '@file' as a parameter to a yaml-command or print, and the properties-file of a 'properties' line.</p>
+ *  <p>Each '@file' that is read but never written by the batch-file, can safely be read ahead of time.  See {@link #getIndependentFileReads()} and {@link FilePrefetcher} - which reads &amp; parses those files concurrently.
+ *  Everything else (the YAML that flows from one line to the next, the properties, the !labels) is a single chain - as almost every line reads and writes it.  So, there's nothing more to analyze.</p>
+ *  <p>File-names are normalized (see {@link #normalize}), so that '@./x.yaml' and '@x.yaml' are the same file.</p>
+ *  <p>The analysis only needs the BatchFileGrammer's methods to step thru the lines.  So, always pass in a COPY (see {@link BatchPlan#newCursor()}) - as its line-pointer is moved to the end.</p>
+ */
+public class BatchDataflow {
+
+    public static final String CLASSNAME = BatchDataflow.class.getName();
+
+    private static final int MAXLINES = 100000; // sanity limit
+
+    private int lineCount = 0;
+
+    /** normalized names of '@file' references that are read / written */
+    private final Set<String> fileReads = new LinkedHashSet<>();
+    private final Set<String> fileWrites = new LinkedHashSet<>();
+
+    /** true if some step may write to files that can Not be determined statically (example: nested batch-files, or macros within a saveTo) */
+    private boolean hasUnknownWrites = false;
+
+    /** '@*file.yaml' references (every document, read lazily).  These are Not prefetched.  See {@link StreamingSequence} */
+    private final Set<String> streamedFiles = new LinkedHashSet<>();
+
+    private BatchDataflow() {}
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @param _cursor a COPY of the BatchFileGrammer (it's read till the end)
+     * @return null if the batch-file could Not be analyzed (for whatever reason).  It's never an error, as this analysis is only an optimization.
+     */
+    public static BatchDataflow analyze( final boolean _verbose, final BatchFileGrammer _cursor ) {
+        final BatchDataflow dataflow = new BatchDataflow();
+        try {
+            while ( _cursor.hasNextLine() && dataflow.lineCount < MAXLINES ) {
+                final String line = _cursor.nextLineOrNull();
+                if ( line == null ) break;
+                _cursor.determineCmdType();
+                dataflow.classify( _cursor );
+                dataflow.lineCount ++;
+            }
+            if ( dataflow.lineCount >= MAXLINES ) return null;
+        } catch( Exception e ) {
+            if ( _verbose ) System.out.println( CLASSNAME +": analyze(): skipping dataflow-analysis, due to: "+ e );
+            return null;
+        }
+        if ( _verbose ) System.out.println( CLASSNAME +": analyze(): "+ dataflow );
+        return dataflow;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @return normalized names (see {@link #normalize}) of the YAML/JSON files that are read by the batch-file - but never written to by it.  Empty, if the batch-file (may) write to files that can Not be determined statically.
+     */
+    public Set<String> getIndependentFileReads() {
+        final Set<String> retval = new LinkedHashSet<>();
+        if ( this.hasUnknownWrites ) return retval;
+        for ( String r: this.fileReads )
+            if ( ! this.fileWrites.contains( r ) && ! this.streamedFiles.contains( r ) && ( r.endsWith(".yaml") || r.endsWith(".json") ) )
+                retval.add( r );
+        return retval;
+    }
+
+    public String toString() {
+        return CLASSNAME +": lines="+ this.lineCount +", unknown-writes="+ this.hasUnknownWrites +", independent file-reads="+ this.getIndependentFileReads();
+    }
+
+    /**
+     * @param _file a file-name, exactly as within the batch-file (Not prefixed with '@')
+     * @return the absolute &amp; normalized path (example: 'a/./b/../x.yaml' becomes '/current/working/dir/a/x.yaml').  _file itself, if it's Not a valid path.
+     */
+    public static String normalize( final String _file ) {
+        try {
+            return java.nio.file.Paths.get( _file ).toAbsolutePath().normalize().toString();
+        } catch( java.nio.file.InvalidPathException | java.io.IOError e ) {
+            return _file;
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private void classify( final BatchFileGrammer _cursor ) {
+        final String line = _cursor.currentLine();
+
+        if ( _cursor.isForEachLine() || _cursor.isEndLine() )
+            return;
+
+        final Tuple<String,String> kv = _cursor.getPropertyKV();
+        if ( kv != null ) {
+            this.addReference( "@"+ kv.val, false );
+            return;
+        }
+
+        final String saveTo = _cursor.getSaveTo();
+        if ( saveTo != null ) {
+            this.addReference( saveTo, true );
+            return;
+        }
+
+        final String useAsInput = _cursor.getUseAsInput();
+        if ( useAsInput != null ) {
+            this.addReference( useAsInput, false );
+            return;
+        }
+
+        if ( _cursor.getPrintExpr() != null ) {
+            for ( String token: tokens( line ) ) this.addReference( token, false );
+            return;
+        }
+
+        final String cmd = _cursor.getCommand();
+        if ( cmd != null && ( cmd.equals("yaml") || cmd.equals("aws.sdk") ) ) {
+            for ( String token: tokens( line ) ) {
+                if ( token.equals("--batch") ) this.hasUnknownWrites = true; // nested batch-file.  Can't tell what it'll write.
+                this.addReference( token, false );
+            }
+            return;
+        }
+
+        // Don't know what this line does.  So, assume the worst.
+        this.hasUnknownWrites = true;
+    }
+
+    /** records _token, if it's a '@file' reference (without any '?' for no-fail, nor any '*' for every-document).  Macros (${..}) can Not be resolved statically.  '!label' references are ignored. */
+    private void addReference( final String _token, final boolean _isWrite ) {
+        if ( _token == null ) return;
+        String t = _token.trim();
+        if ( t.length() >= 2 && ( t.charAt(0) == '\'' || t.charAt(0) == '"' ) && t.charAt( t.length()-1 ) == t.charAt(0) )
+            t = t.substring( 1, t.length()-1 );
+        if ( t.length() < 2 || t.charAt(0) != '@' ) return;
+        if ( t.contains("${") ) {
+            if ( _isWrite ) this.hasUnknownWrites = true;
+            return;
+        }
+        final boolean noFail = t.charAt(1) == '?';
+        final int prefixLen = noFail ? 2 : 1;
+        final boolean everyDocument = t.length() > prefixLen && t.charAt( prefixLen ) == '*'; // example: @*./multi-document.yaml
+        final String file = t.substring( everyDocument ? prefixLen + 1 : prefixLen );
+        if ( file.isEmpty() ) return;
+        final String ref = normalize( file );
+        if ( everyDocument ) this.streamedFiles.add( ref );
+        ( _isWrite ? this.fileWrites : this.fileReads ).add( ref );
+    }
+
+    private static String[] tokens( final String _line ) {
+        return ( _line == null ) ? new String[0] : _line.trim().split("\\s+");
+    }
+
+}
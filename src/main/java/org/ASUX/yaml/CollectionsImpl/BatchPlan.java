@@ -0,0 +1,101 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import org.ASUX.yaml.BatchFileGrammer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/** <p>The body of a 'foreach' block (within a batch-file), 'compiled' ONCE into an immutable image - from which a fresh {@link BatchFileGrammer} (with it's own line-pointer) is created for each iteration.</p>
+ *  <p>A BatchFileGrammer is stateful (it keeps track of the current line), so each iteration of 'foreach' needs a fresh copy of it.
+ *  BatchFileGrammer.deepClone() does that by serializing AND de-serializing the entire batch-file, for EVERY iteration.
+ *  This class serializes it just once (in the constructor), and each {@link #newCursor()} only de-serializes.</p>
+ *  <p>Note: Going further (a plan of pre-parsed commands executed by a program-counter) is Not feasible within this library, as the loop that parses &amp; executes each line is inside org.ASUX.yaml.BatchCmdProcessor.</p>
+ *  <p>Set the system-property {@link TuningOptions#COMPILEDBATCHPLANS} to "false" to revert to BatchFileGrammer.deepClone() per iteration.</p>
+ */
+public class BatchPlan {
+
+    public static final String CLASSNAME = BatchPlan.class.getName();
+
+    private final boolean verbose;
+    private final BatchFileGrammer original;
+    private final byte[] image; // null, if serialization is turned off or failed
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** The only Constructor.
+     *  @param _verbose Whether you want deluge of debug-output onto System.out
+     *  @param _batchCmds Not-Null.  This object is NOT modified (and Not retained beyond a fallback to BatchFileGrammer.deepClone()).
+     */
+    public BatchPlan( final boolean _verbose, final BatchFileGrammer _batchCmds ) {
+        this.verbose = _verbose;
+        this.original = _batchCmds;
+        byte[] bytes = null;
+        if ( TuningOptions.compiledBatchPlans() ) {
+            try {
+                final ByteArrayOutputStream bos = new ByteArrayOutputStream( 4096 );
+                try ( ObjectOutputStream oos = new ObjectOutputStream( bos ) ) {
+                    oos.writeObject( _batchCmds );
+                }
+                bytes = bos.toByteArray();
+            } catch( java.io.IOException e ) {
+                if ( this.verbose ) System.out.println( CLASSNAME +": constructor(): falling back to BatchFileGrammer.deepClone(), as serialization failed: "+ e );
+                bytes = null;
+            }
+        }
+        this.image = bytes;
+        if ( this.verbose ) System.out.println( CLASSNAME +": constructor(): compiled image is "+ ((bytes==null)?"absent":(bytes.length+" bytes")) );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @return a brand new BatchFileGrammer, exactly identical to the one passed to the constructor (as it was at that time).
+     * @throws Exception if de-serialization fails (or BatchFileGrammer.deepClone() fails)
+     */
+    public BatchFileGrammer newCursor() throws Exception {
+        if ( this.image == null )
+            return BatchFileGrammer.deepClone( this.original );
+        try ( ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( this.image ) ) ) {
+            return (BatchFileGrammer) ois.readObject();
+        }
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.IOException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** <p>Opt-in (see {@link TuningOptions#profileReport()}) profiler for batch-files.  Records - per yaml-command and per 'foreach'-iteration - the wall-time, CPU-time and bytes allocated (via java.lang.management.ThreadMXBean),
+ *  the # of end2end matches (see {@link AbstractYamlEntryProcessor}), the # of cache-hits (see {@link #addCacheHit}), and the # of YAML-nodes input &amp; output.</p>
+ *  <p>Counting the YAML-nodes never reads in lazy content: a {@link StreamingSequence} that is Not yet read in (or was drained by a 'foreach'), and a !label that's spilled to disk (see {@link LabelStore.LabelMap}), each count as just 1 node.</p>
+ *  <p>Each such span is identified by its "stack" (example: <code>batch;foreach;INSERT paths.*.get</code>).  All spans with the same stack are aggregated - specifically, all iterations of a 'foreach'.
+ *  Times are inclusive of nested spans.  The report also has the 'self' wall-time (excluding nested spans).</p>
+ *  <p>At the end of the (top-level) batch-file, {@link #writeReport} writes the aggregates as JSON - or if the report's file-name ends with '.folded', as "collapsed stacks" (one line per stack, with self wall-time in microseconds) that flame-graph tools accept as-is.</p>
+ *  <p>When NOT enabled, {@link #begin} returns null and everything else is a no-op.  Spans are tracked per-thread, so parallel 'foreach' iterations (see {@link TuningOptions#foreachParallelism()}) are fine.  See {@link #adopt}.</p>
+ */
+public final class BatchProfiler {
+
+    public static final String CLASSNAME = BatchProfiler.class.getName();
+
+    /** One in-flight span.  Obtained via {@link #begin}, and must be passed to {@link #end} (within a finally block) */
+    public static final class Span {
+        final String stack;
+        final long startWall;
+        final long startCpu;
+        final long startAlloc;
+        final long nodesIn;
+        long matches = 0;
+        long cacheHits = 0;
+        long childWall = 0;
+        Span( final String _stack, final long _nodesIn ) {
+            this.stack = _stack;
+            this.nodesIn = _nodesIn;
+            this.startAlloc = allocatedBytes();
+            this.startCpu = cpuTime();
+            this.startWall = System.nanoTime();
+        }
+    }
+
+    private static final class Aggregate {
+        final LongAdder count = new LongAdder();
+        final LongAdder wallNanos = new LongAdder();
+        final LongAdder selfWallNanos = new LongAdder();
+        final LongAdder cpuNanos = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+        final LongAdder matches = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        final LongAdder nodesIn = new LongAdder();
+        final LongAdder nodesOut = new LongAdder();
+    }
+
+    private static final ThreadMXBean THREADMX = ManagementFactory.getThreadMXBean();
+    private static final boolean CPUTIME_SUPPORTED = THREADMX.isCurrentThreadCpuTimeSupported();
+    private static final boolean ALLOCATEDBYTES_SUPPORTED = ( THREADMX instanceof com.sun.management.ThreadMXBean )
+                                        && ((com.sun.management.ThreadMXBean) THREADMX).isThreadAllocatedMemorySupported();
+
+    private static final ConcurrentHashMap<String, Aggregate> AGGREGATES = new ConcurrentHashMap<>();
+    private static final ThreadLocal< ArrayDeque<Span> > STACK = ThreadLocal.withInitial( ArrayDeque::new );
+    /** see {@link #adopt} */
+    private static final ThreadLocal<String> ADOPTED = new ThreadLocal<>();
+
+    private BatchProfiler() {} // static methods only
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** @return true if {@link TuningOptions#profileReport()} is set */
+    public static boolean isEnabled() {
+        return TuningOptions.profileReport() != null;
+    }
+
+    /**
+     * Starts a new span, nested within whatever span is currently in-flight on this thread.
+     * @param _name Example: 'foreach' or 'INSERT paths.*.get'.  Do Not include any ';' characters.
+     * @param _input Nullable.  The YAML input (just to count its nodes)
+     * @return null if profiling is Not enabled.  Otherwise, pass it to {@link #end}
+     */
+    public static Span begin( final String _name, final Object _input ) {
+        if ( ! isEnabled() ) return null;
+        final ArrayDeque<Span> stack = STACK.get();
+        final Span parent = stack.peek();
+        final String parentStack = ( parent != null ) ? parent.stack : ADOPTED.get();
+        final String name = _name.replace( ';', ',' );
+        final Span span = new Span( ( parentStack == null ) ? name : parentStack +";"+ name, countNodes( _input ) );
+        stack.push( span );
+        return span;
+    }
+
+    /**
+     * Ends the span, and adds it to the aggregate for its stack.
+     * @param _span Nullable (a no-op, if null)
+     * @param _output Nullable.  The YAML output (just to count its nodes)
+     */
+    public static void end( final Span _span, final Object _output ) {
+        if ( _span == null ) return;
+        final long wall = System.nanoTime() - _span.startWall;
+        final long cpu = cpuTime() - _span.startCpu;
+        final long alloc = allocatedBytes() - _span.startAlloc;
+
+        final ArrayDeque<Span> stack = STACK.get();
+        stack.remove( _span ); // normally, it's at the top.  But if some nested span was never ended (exceptions), don't let that corrupt this thread's stack.
+        final Span parent = stack.peek();
+        if ( parent != null ) parent.childWall += wall;
+
+        final Aggregate agg = AGGREGATES.computeIfAbsent( _span.stack, k -> new Aggregate() );
+        agg.count.increment();
+        agg.wallNanos.add( wall );
+        agg.selfWallNanos.add( Math.max( 0, wall - _span.childWall ) );
+        agg.cpuNanos.add( Math.max( 0, cpu ) );
+        agg.allocatedBytes.add( Math.max( 0, alloc ) );
+        agg.matches.add( _span.matches );
+        agg.cacheHits.add( _span.cacheHits );
+        agg.nodesIn.add( _span.nodesIn );
+        agg.nodesOut.add( countNodes( _output ) );
+    }
+
+    /**
+     * Adds to the # of matches of the span currently in-flight on this thread (if any).  See AbstractYamlEntryProcessor.searchYamlForPattern()
+     * @param _matches # of end2end matches
+     */
+    public static void addMatches( final long _matches ) {
+        final Span span = ( isEnabled() ) ? STACK.get().peek() : null;
+        if ( span != null ) span.matches += _matches;
+    }
+
+    /**
+     * Adds 1 to the # of cache-hits of the span currently in-flight on this thread (if any).  See CommandMemo.get(), StepCheckpoints.load() and FilePrefetcher.take()
+     */
+    public static void addCacheHit() {
+        final Span span = ( isEnabled() ) ? STACK.get().peek() : null;
+        if ( span != null ) span.cacheHits ++;
+    }
+
+    /**
+     * @return the stack of the span in-flight on this thread, or null.  Pass this to {@link #adopt} on another thread
+     */
+    public static String currentStack() {
+        final Span span = ( isEnabled() ) ? STACK.get().peek() : null;
+        return ( span != null ) ? span.stack : ADOPTED.get();
+    }
+
+    /**
+     * So that spans on a worker-thread (example: a parallel 'foreach' iteration) nest under the span (on the thread) that created the work.
+     * @param _stack Nullable.  As returned by {@link #currentStack()} on the other thread.  Pass null when the work is done, as thread-pools re-use threads.
+     */
+    public static void adopt( final String _stack ) {
+        if ( _stack == null ) ADOPTED.remove();
+        else ADOPTED.set( _stack );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Writes out (to the file named by {@link TuningOptions#profileReport()}) everything aggregated so far, and then resets all the aggregates.
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @throws IOException if the report could Not be written
+     */
+    public static void writeReport( final boolean _verbose ) throws IOException {
+        final String fileName = TuningOptions.profileReport();
+        if ( fileName == null ) return;
+        final TreeMap<String, Aggregate> sorted = new TreeMap<>( AGGREGATES );
+        AGGREGATES.clear();
+        final AtomicFileWriter w = new AtomicFileWriter( fileName ); // always UTF-8, and never leaves a truncated report behind.  See AtomicFileWriter.java
+        try {
+            if ( fileName.endsWith(".folded") ) {
+                for ( Map.Entry<String, Aggregate> e: sorted.entrySet() )
+                    w.write( e.getKey().replace( ' ', '_' ) +" "+ ( e.getValue().selfWallNanos.sum() / 1000 ) +"\n" );
+            } else {
+                JSONMapperRegistry.writeStreaming( w, toReport( sorted ) );
+            }
+            w.close(); // this commits the file
+        } catch ( IOException | RuntimeException e ) {
+            w.abort();
+            throw e;
+        }
+        if ( _verbose ) System.out.println( CLASSNAME +": writeReport(): wrote "+ sorted.size() +" entries into "+ fileName );
+    }
+
+    private static LinkedHashMap<String, Object> toReport( final TreeMap<String, Aggregate> _sorted ) {
+        final ArrayList<Object> steps = new ArrayList<>();
+        for ( Map.Entry<String, Aggregate> e: _sorted.entrySet() ) {
+            final Aggregate a = e.getValue();
+            final LinkedHashMap<String, Object> step = new LinkedHashMap<>();
+            step.put( "stack", e.getKey() );
+            step.put( "count", a.count.sum() );
+            step.put( "wallMicros", a.wallNanos.sum() / 1000 );
+            step.put( "selfWallMicros", a.selfWallNanos.sum() / 1000 );
+            step.put( "cpuMicros", CPUTIME_SUPPORTED ? (Object) ( a.cpuNanos.sum() / 1000 ) : "unsupported" );
+            step.put( "allocatedBytes", ALLOCATEDBYTES_SUPPORTED ? (Object) a.allocatedBytes.sum() : "unsupported" );
+            step.put( "matches", a.matches.sum() );
+            step.put( "cacheHits", a.cacheHits.sum() );
+            step.put( "nodesIn", a.nodesIn.sum() );
+            step.put( "nodesOut", a.nodesOut.sum() );
+            steps.add( step );
+        }
+        final LinkedHashMap<String, Object> caches = new LinkedHashMap<>();
+        caches.put( "YAMLTreeCloner", YAMLTreeCloner.getStats() );
+        caches.put( "SharedPayload", SharedPayload.getStats() );
+        caches.put( "PersistentYAMLTree", PersistentYAMLTree.getStats() );
+        caches.put( "FilePrefetcher", FilePrefetcher.getStats() );
+        caches.put( "CommandMemo", CommandMemo.getStats() );
+        caches.put( "StepCheckpoints", StepCheckpoints.getStats() );
+        caches.put( "LabelStore", LabelStore.getStats() );
+        caches.put( "StreamingSequence", StreamingSequence.getStats() );
+        caches.put( "ForeachAccumulator", ForeachAccumulator.getStats() );
+        caches.put( "MacroYamlProcessor", MacroYamlProcessor.getStats() );
+
+        final LinkedHashMap<String, Object> report = new LinkedHashMap<>();
+        report.put( "steps", steps );
+        report.put( "caches", caches );
+        return report;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private static long cpuTime() {
+        return CPUTIME_SUPPORTED ? THREADMX.getCurrentThreadCpuTime() : 0; // -1 for virtual-threads (in some JDKs).  See end()
+    }
+
+    @SuppressWarnings("deprecation") // Thread.getId() - as Thread.threadId() is Java 19+
+    private static long allocatedBytes() {
+        if ( ! ALLOCATEDBYTES_SUPPORTED ) return 0;
+        return ((com.sun.management.ThreadMXBean) THREADMX).getThreadAllocatedBytes( Thread.currentThread().getId() );
+    }
+
+    /** @return # of Maps, Lists and scalars within _o (a shared sub-tree is counted wherever it appears).  Lazy content is Not read in - it counts as 1.  See class-description */
+    static long countNodes( final Object _o ) {
+        if ( _o instanceof StreamingSequence && ! ((StreamingSequence) _o).isMaterialized() ) {
+            return 1;
+        } else if ( _o instanceof LabelStore.LabelMap ) {
+            final LinkedHashMap<String,Object> onHeap = ((LabelStore.LabelMap) _o).onHeapContent();
+            return ( onHeap != null ) ? countNodes( onHeap ) : 1;
+        } else if ( _o instanceof Map ) {
+            long n = 1;
+            for ( Object v: ((Map<?,?>) _o).values() ) n += countNodes( v );
+            return n;
+        } else if ( _o instanceof List ) {
+            long n = 1;
+            for ( Object v: (List<?>) _o ) n += countNodes( v );
+            return n;
+        } else {
+            return ( _o == null ) ? 0 : 1;
+        }
+    }
+
+}
@@ -39,6 +39,7 @@ import org.ASUX.common.Macros;
 
 import org.ASUX.yaml.Enums;
 import org.ASUX.yaml.MemoryAndContext;
+import org.ASUX.yaml.YAML_Libraries;
 import org.ASUX.yaml.BatchFileGrammer;
 import org.ASUX.yaml.CmdLineArgs;
 import org.ASUX.yaml.CmdLineArgsBasic;
@@ -47,6 +48,7 @@ import org.ASUX.yaml.CmdLineArgsBatchCmd;
 import java.util.regex.*;
 
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Iterator;
@@ -55,6 +57,9 @@ import java.util.LinkedHashMap;
 import java.util.Properties;
 import java.util.Set;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import static org.junit.Assert.*;
 
 /**
@@ -92,6 +97,12 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
 
     // private MemoryAndContext memoryAndContext = null;
 
+    /** needed to create the worker-instances for a parallel 'foreach'.  See {@link #processFOREACH_Parallel} */
+    private final boolean offline;
+
+    /** true if this instance is running ONE iteration of a parallel 'foreach'.  If so, any 'foreach' nested within is run sequentially */
+    private boolean isParallelIteration = false;
+
     //==============================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
@@ -102,6 +113,7 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
      */
     public BatchYamlProcessor( final boolean _verbose, final boolean _showStats, final boolean _offline ) {
         super( _verbose, _showStats, _offline, null );
+        this.offline = _offline;
     }
 
     // private BatchYamlProcessor() { this.verbose = false;    this.showStats = true;  } // Do Not use this.
@@ -172,7 +184,9 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
      */
     @Override
     protected LinkedHashMap<String,Object> deepClone( LinkedHashMap<String,Object> _map ) throws Exception {
-        return org.ASUX.common.Utils.deepClone( _map );
+        if ( TuningOptions.persistentTrees() )
+            return PersistentYAMLTree.snapshot( _map ); // shares all unchanged sub-trees with previous snapshots.  See PersistentYAMLTree.java
+        return YAMLTreeCloner.deepClone( _map ); // shares all the Strings, instead of serializing the entire tree.  See YAMLTreeCloner.java
     }
 
     //==============================================================================
@@ -201,10 +215,10 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
         final String HDR = CLASSNAME +": processBatch(recursion="+ _bInRecursion +","+ _batchCmds.getCmdType().toString() +"): ";
         LinkedHashMap<String,Object> inputMap = null;
         // LinkedHashMap<String, Object> tempOutputMap = null; // it's immediately re-initialized within WHILE-Loop below.
-        final Tools tools = new Tools( this.verbose );
 
         if ( this.verbose ) System.out.println( HDR +" @ BEGINNING recursion="+ _bInRecursion +" & _input="+ ((_input!=null)?_input.toString():"null") +"]" );
-        final Properties forLoopProps = this.allProps.get( FOREACH_PROPERTIES );
+        // FOREACH_ITER_VALUE is rendered as a YAML-string ONLY if/when it's referenced.  See LazyForLoopProperties.java
+        final LazyForLoopProperties forLoopProps = LazyForLoopProperties.installInto( this.verbose, this.allProps, FOREACH_PROPERTIES, FOREACH_ITER_VALUE );
         final Properties globalVariables = this.allProps.get( BatchFileGrammer.GLOBALVARIABLES );
 
         if ( _input == null ) { // if the user specified /dev/null as --inputfile via command line, then _input===null
@@ -214,7 +228,7 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
             @SuppressWarnings("unchecked")
             final LinkedHashMap<String, Object> map = (LinkedHashMap<String, Object>) _input;
             inputMap = map;
-            forLoopProps.setProperty( FOREACH_ITER_VALUE, tools.Map2YAMLString(inputMap) );
+            forLoopProps.setLazyValue( inputMap ); // instead of: forLoopProps.setProperty( FOREACH_ITER_VALUE, tools.Map2YAMLString(inputMap) );
         // } else if ( _input instanceof String ) {
         //     // WARNING: THIS IS NOT NEGOTIABLE .. I do NOT (can NOT) have an Input-Map (non-Scalar) as parameter !!!!!!!!!!!!!!!!!!!!!
         //     // so, we start off this function with an EMPTY 'inputMap'
@@ -224,7 +238,41 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
             throw new BatchFileException( HDR + " INTERNAL ERROR: _input is Neither Map nor String:  while processing "+ _batchCmds.getState() +" .. unknown object of type ["+ _input.getClass().getName() +"]" );
         }
 
-        return super.processBatch( _bInRecursion, _batchCmds, inputMap );
+        if ( _bInRecursion )
+            return super.processBatch( _bInRecursion, _batchCmds, inputMap );
+
+        // Top-level batch-file: read (ahead of time) all those files, that the batch-file reads but never writes.  See BatchDataflow.java
+        final java.util.Set<String> prefetched = new java.util.LinkedHashSet<>();
+        if ( TuningOptions.dataflowPrefetch() ) {
+            final BatchDataflow dataflow = BatchDataflow.analyze( this.verbose, new BatchPlan( this.verbose, _batchCmds ).newCursor() );
+            if ( dataflow != null ) {
+                if ( this.showStats && ! this.verbose ) System.out.println( dataflow );
+                prefetched.addAll( dataflow.getIndependentFileReads() );
+                final CmdInvoker cmdinvoker = (CmdInvoker) this.memoryAndContext.getContext();
+                FilePrefetcher.start( this.verbose, prefetched, cmdinvoker.getYamlLibrary(), Math.max( 2, TuningOptions.foreachParallelism() ) );
+            }
+        }
+        final BatchProfiler.Span span = BatchProfiler.begin( "batch", inputMap ); // null, unless profiling.  See BatchProfiler.java
+        LinkedHashMap<String, Object> output = null;
+        try {
+            output = super.processBatch( _bInRecursion, _batchCmds, inputMap );
+            return output;
+        } finally {
+            if ( ! prefetched.isEmpty() ) {
+                FilePrefetcher.clear( prefetched );
+                if ( this.showStats ) System.out.println( FilePrefetcher.getStats() );
+            }
+            if ( span != null ) {
+                BatchProfiler.end( span, output );
+                if ( BatchProfiler.currentStack() == null ) { // Not a batch-file nested (via 'yaml --batch') within another
+                    try {
+                        BatchProfiler.writeReport( this.verbose );
+                    } catch( java.io.IOException e ) { // do Not hide the batch-file's own outcome, because of the profiler
+                        System.err.println( HDR +" failed to write profiler-report: "+ e );
+                    }
+                }
+            }
+        }
     }
 
     //-----------------------------------------------------------------------------
@@ -253,6 +301,14 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
         // if ( _o == null )
         //     return new LinkedHashMap<String, Object>();
         final Output output = new Output( this.verbose );
+
+        // A lazily-read list (example: '@*multi-document.yaml') is consumed one element at a time, WITHOUT first reading in all of it.  See StreamingSequence.java
+        final Object actual = output.getTheActualObject( _o );
+        if ( actual instanceof StreamingSequence && ((StreamingSequence) actual).isLazy() ) {
+            if ( this.verbose ) System.out.println( HDR +" streaming over "+ _batchCmds.getState() +" one element at a time." );
+            return processFOREACH_Step2( _batchCmds, ((StreamingSequence) actual).drain(), -1 );
+        }
+
         final Output.OutputType typ = output.getWrappedObjectType( _o );
 
         if ( this.verbose ) System.out.println( CLASSNAME +" processFOREACHCmdForObject(): BEFORE STARTING SWITCH-stmt.. re: "+ _batchCmds.getState() +" object of type ["+ _o.getClass().getName() +"] = "+ typ.toString() );
@@ -260,18 +316,18 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
         switch(typ) {
             case Type_ArrayList:
                 final ArrayList<String> arr = output.getArrayList( _o );
-                return processFOREACH_Step2( _batchCmds, arr );
+                return processFOREACH_Step2( _batchCmds, arr.iterator(), arr.size() );
                 // break;
             case Type_LinkedList:
                 final LinkedList<String> lst = output.getLinkedList( _o );
-                return processFOREACH_Step2( _batchCmds, lst );
+                return processFOREACH_Step2( _batchCmds, lst.iterator(), lst.size() );
                 // break;
             case Type_KVPairs:  // PLURAL;  Note the 's' character @ end.  This is Not KVPair (singular)
                 ArrayList< Tuple< String,String > > kvpairs = output.getKVPairs( _o );
                 // final LinkedHashMap<String, Object> outpMap1 = this.process Batch( true, BatchFileGrammer.deepClone(_batchCmds), map );
                 // Note: KVPairs means a LinkedHashMap - with NO elements at Depth 2 or more!  It really must be a VERY MOST SHALLOW LinkedHashMap containing just "String":"String" elements in it.
                 // Then, yes it kind of makes sense to iterate over KVPairs.
-                return processFOREACH_Step2( _batchCmds, kvpairs );
+                return processFOREACH_Step2( _batchCmds, kvpairs.iterator(), kvpairs.size() );
                 // break;
 
             case Type_KVPair:  // singular;  No 's' character @ end.  This is Not KVPairs
@@ -293,60 +349,199 @@ public class BatchYamlProcessor extends org.ASUX.yaml.BatchCmdProcessor< LinkedH
     }
 
     //-------------------------------------------------------------------------
-    private LinkedHashMap<String, Object>  processFOREACH_Step2( final BatchFileGrammer _batchCmds, final java.util.List<?> coll )
+    /**
+     *  The iterations are run strictly as _itr hands out the elements.  So, _itr need NOT be backed by an in-memory collection.
+     *  @param _itr the elements to iterate over
+     *  @param _size # of elements, or -1 if NOT known ahead of time (example: a {@link StreamingSequence})
+     */
+    private LinkedHashMap<String, Object>  processFOREACH_Step2( final BatchFileGrammer _batchCmds, final Iterator<?> _itr, final int _size )
                 throws BatchYamlProcessor.BatchFileException, Macros.MacroException, java.io.FileNotFoundException, java.io.IOException, Exception
     {
-        final String HDR = CLASSNAME +": processFOREACH_Step2(): ";
         assertTrue( _batchCmds != null );
-        assertTrue( coll != null );
+        final BatchPlan plan = new BatchPlan( this.verbose, _batchCmds ); // the loop-body is serialized just once.  Instead of BatchFileGrammer.deepClone(_batchCmds) per iteration.
+        return this.processFOREACH_Step3( plan, _itr, _size );
+    }
+
+    /**
+     *  Runs the loop-body (_plan) for each element of _itr - either sequentially, or (see {@link TuningOptions#foreachParallelism()}) concurrently.
+     *  @param _plan the loop-body.  Each iteration gets its own {@link BatchPlan#newCursor()}
+     *  @param _itr the elements to iterate over
+     *  @param _size # of elements, or -1 if NOT known ahead of time (example: a {@link StreamingSequence})
+     */
+    LinkedHashMap<String, Object>  processFOREACH_Step3( final BatchPlan _plan, final Iterator<?> _itr, final int _size )
+                throws BatchYamlProcessor.BatchFileException, Macros.MacroException, java.io.FileNotFoundException, java.io.IOException, Exception
+    {
+        final String HDR = CLASSNAME +": processFOREACH_Step3(): ";
+        assertTrue( _plan != null );
+        assertTrue( _itr != null );
+
+        // Each iteration's output is merged in (per TuningOptions.foreachMerge()) as soon as that iteration is done, and then let go of.  See ForeachAccumulator.java
+        final ForeachAccumulator accumulator = new ForeachAccumulator( this.verbose, TuningOptions.foreachMerge() );
+
+        // All the 'foreach' variables (FOREACH_INDEX, FOREACH_ITER_KEY, FOREACH_ITER_VALUE) set within this loop, revert to their previous values (example: those of an outer loop) at the end.
+        final LazyForLoopProperties forLoopProps = LazyForLoopProperties.installInto( this.verbose, this.allProps, FOREACH_PROPERTIES, FOREACH_ITER_VALUE );
+
+        forLoopProps.pushFrame();
+        try {
+            final int parallelism = this.isParallelIteration ? 1 : TuningOptions.foreachParallelism(); // No nested parallelism.
+            if ( parallelism > 1 && ( _size > 1 || _size < 0 ) ) {
+                if ( this.verbose ) System.out.println( HDR +" running "+ ((_size<0)?"all":""+_size) +" iterations with parallelism="+ parallelism );
+                return this.processFOREACH_Parallel( _plan, _itr, _size, parallelism, accumulator );
+            }
+
+            for ( int ix=0;  nextElementExists( _itr ); ix ++ ) {
+                final Object o = _itr.next();
+                final LinkedHashMap<String, Object> retMap = this.processOneIteration( _plan, o, ix );
+                accumulator.merge( retMap, ix );
+            } // for arr.size()
+
+            return accumulator.getOutput();
+        } finally {
+            forLoopProps.popFrame();
+        }
+    }
 
-        LinkedHashMap<String, Object> tempOutputMap = new LinkedHashMap<String, Object>();
+    //-------------------------------------------------------------------------
+    /** Waits for the earliest iteration still within _futures, and merges its output into _accumulator.  If that iteration failed, re-throws its failure. */
+    private static void mergeIteration( final ArrayDeque< Future< LinkedHashMap<String, Object> > > _futures, final ForeachAccumulator _accumulator ) throws Exception {
+        final Future< LinkedHashMap<String, Object> > f = _futures.peekFirst();
+        final LinkedHashMap<String, Object> retMap;
+        try {
+            retMap = f.get();
+        } catch( ExecutionException e ) {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof Exception ) throw (Exception) cause;
+            throw e;
+        }
+        _futures.pollFirst();
+        _accumulator.merge( retMap, _accumulator.getIterationsMerged() );
+    }
+
+    //-------------------------------------------------------------------------
+    /** A lazy iterator (see {@link StreamingSequence}) reports a failure to read its source (example: YAML syntax error within a document) as a RuntimeException.  This re-throws the actual problem. */
+    private static boolean nextElementExists( final Iterator<?> _itr ) throws Exception {
+        try {
+            return _itr.hasNext();
+        } catch( IllegalStateException e ) {
+            if ( e.getCause() instanceof Exception ) throw (Exception) e.getCause();
+            throw e;
+        }
+    }
 
+    //-------------------------------------------------------------------------
+    /** One iteration of a 'foreach' loop.  Sets up the 'foreach' related variables, and then runs the loop-body on the iteration's input. */
+    private LinkedHashMap<String, Object>  processOneIteration( final BatchPlan _plan, final Object o, final int ix )
+                throws BatchYamlProcessor.BatchFileException, Macros.MacroException, java.io.FileNotFoundException, java.io.IOException, Exception
+    {
         final Output output = new Output( this.verbose );
         final Properties forLoopProps = this.allProps.get( FOREACH_PROPERTIES );
-        final String prevForLoopIndex = forLoopProps.getProperty( FOREACH_INDEX );
-
-        Iterator itr = coll.iterator();
-        for ( int ix=0;  itr.hasNext(); ix ++ ) {
-            final Object o = itr.next();
-            final Output.OutputType typ = output.getWrappedObjectType( o );
-
-            forLoopProps.setProperty( FOREACH_INDEX, ""+ix ); // to be used by all commands INSIDE the 'foreach' block-inside-batchfile
-            if ( this.verbose ) System.out.println( CLASSNAME +" processFORECHForArray(): @@@@@@@@@@@@@@@@@ foreach/Array-index #"+ ix +" : Object's type ="+ o.getClass().getName() +" and it's toString()=["+ o +"]" );
-            if ( this.verbose ) System.out.println( CLASSNAME +" processFORECHForArray(): SWITCH's Type="+ typ.toString() );
-
-            switch(typ) {
-                case Type_String:
-                    final LinkedHashMap<String, Object> retMap6 = this.processBatch( true, BatchFileGrammer.deepClone(_batchCmds), output.wrapAnObject_intoLinkedHashMap( o ) );
-                    tempOutputMap.putAll( retMap6 );
-                    break;
-                case Type_KVPair:  // singular;  No 's' character @ end.  This is Not KVPairs
-                    @SuppressWarnings("unchecked")
-                    final Tuple< String,String > kvpair = ( Tuple< String,String > ) o;
-                    forLoopProps.setProperty( FOREACH_ITER_KEY, kvpair.key ); // to be used by all commands INSIDE the 'foreach' block-inside-batchfile
-                    final LinkedHashMap<String, Object> retMap7 = this.processBatch( true, BatchFileGrammer.deepClone(_batchCmds), output.wrapAnObject_intoLinkedHashMap( kvpair.val ) );
-                    tempOutputMap.putAll( retMap7 );
-                    break;
-                case Type_LinkedHashMap:
-                    @SuppressWarnings("unchecked")
-                    final LinkedHashMap<String, Object> map = (LinkedHashMap<String, Object>) o;
-                    final LinkedHashMap<String, Object> retMap8 = this.processBatch( true, BatchFileGrammer.deepClone(_batchCmds), map );
-                    tempOutputMap.putAll( retMap8 );
-                    break;
-                case Type_KVPairs:  // PLURAL;  Note the 's' character @ end.  This is Not KVPair (singular)
-                case Type_ArrayList: // array of arrays?  What am I going to do?  What does such a data structure mean? In what real-world use-case scenario?
-                case Type_LinkedList:
-                case Type_Unknown:
-                default:
-                    throw new BatchFileException( CLASSNAME +": processFORECHForArray(): ERROR: Un-implemented logic.  Not sure what this means: Array of Arrays! In "+ _batchCmds.getState() +" .. trying to iterate over object ["+ o +"]");
-            } // end switch
-    
-        } // for arr.size()
-
-        if ( prevForLoopIndex != null ) // if there was an outer FOREACH within the batch file, restore it's index.
-            forLoopProps.setProperty( FOREACH_INDEX, prevForLoopIndex );
-
-        return tempOutputMap;
+        final Output.OutputType typ = output.getWrappedObjectType( o );
+
+        final BatchProfiler.Span span = BatchProfiler.begin( "foreach", null ); // null, unless profiling.  All iterations are aggregated.  See BatchProfiler.java
+        LinkedHashMap<String, Object> retMap = null;
+        try {
+            retMap = this.processOneIteration_Step2( _plan, o, ix, forLoopProps, output, typ );
+            return retMap;
+        } finally {
+            BatchProfiler.end( span, retMap );
+        }
+    }
+
+    private LinkedHashMap<String, Object>  processOneIteration_Step2( final BatchPlan _plan, final Object o, final int ix, final Properties forLoopProps, final Output output, final Output.OutputType typ )
+                throws BatchYamlProcessor.BatchFileException, Macros.MacroException, java.io.FileNotFoundException, java.io.IOException, Exception
+    {
+        forLoopProps.setProperty( FOREACH_INDEX, ""+ix ); // to be used by all commands INSIDE the 'foreach' block-inside-batchfile
+        if ( this.verbose ) System.out.println( CLASSNAME +" processFORECHForArray(): @@@@@@@@@@@@@@@@@ foreach/Array-index #"+ ix +" : Object's type ="+ o.getClass().getName() +" and it's toString()=["+ o +"]" );
+        if ( this.verbose ) System.out.println( CLASSNAME +" processFORECHForArray(): SWITCH's Type="+ typ.toString() );
+
+        switch(typ) {
+            case Type_String:
+                return this.processBatch( true, _plan.newCursor(), output.wrapAnObject_intoLinkedHashMap( o ) );
+            case Type_KVPair:  // singular;  No 's' character @ end.  This is Not KVPairs
+                @SuppressWarnings("unchecked")
+                final Tuple< String,String > kvpair = ( Tuple< String,String > ) o;
+                forLoopProps.setProperty( FOREACH_ITER_KEY, kvpair.key ); // to be used by all commands INSIDE the 'foreach' block-inside-batchfile
+                return this.processBatch( true, _plan.newCursor(), output.wrapAnObject_intoLinkedHashMap( kvpair.val ) );
+            case Type_LinkedHashMap:
+                @SuppressWarnings("unchecked")
+                final LinkedHashMap<String, Object> map = (LinkedHashMap<String, Object>) o;
+                return this.processBatch( true, _plan.newCursor(), map );
+            case Type_KVPairs:  // PLURAL;  Note the 's' character @ end.  This is Not KVPairs
+            case Type_ArrayList: // array of arrays?  What am I going to do?  What does such a data structure mean? In what real-world use-case scenario?
+            case Type_LinkedList:
+            case Type_Unknown:
+            default:
+                throw new BatchFileException( CLASSNAME +": processFORECHForArray(): ERROR: Un-implemented logic.  Not sure what this means: Array of Arrays! Trying to iterate over object ["+ o +"]");
+        } // end switch
+    }
+
+    //-------------------------------------------------------------------------
+    /**
+     *  <p>Opt-in (see {@link TuningOptions#foreachParallelism()}): runs the iterations of a 'foreach' concurrently, with at most _parallelism iterations in-flight - on platform-threads or virtual-threads (see {@link BoundedExecutor}).</p>
+     *  <p>Each iteration gets its own isolated copy of the {@link CmdInvoker} - and so, its own MemoryAndContext and its own 'foreach' variables (FOREACH_INDEX, FOREACH_ITER_KEY ..).
+     *  The CmdInvoker is serialized just once per loop (see {@link CmdInvoker#deepCloneImage}), and each iteration's copy is de-serialized from that image.
+     *  If {@link TuningOptions#labelMemoryMB()} is set, the labels are Not part of that image - just references to them (see {@link LabelStore.Snapshot}).  So, each iteration reads in only those labels that it uses.
+     *  Each iteration also gets its own copy of its element (if that is YAML content) - so, the loop-body can Not modify the input of this 'foreach', nor any sub-tree that's shared (example: YAML anchors/aliases) with another iteration's element.
+     *  So, this is ONLY for loop-bodies that produce output with keys that are distinct from other iterations'.
+     *  Specifically: anything saved into memory (saveTo !label) within the loop-body is Not visible after the loop, nor to any other iteration.</p>
+     *  <p>The outputs are merged in iteration-order (exactly like the sequential loop does) - see {@link ForeachAccumulator}.
+     *  At most _parallelism iterations are either in-flight or done-but-Not-yet-merged.  So, at most that many isolated copies (and iteration-outputs) exist at any time, even if the earliest iteration is slow.
+     *  If any iteration fails, the failure of the EARLIEST such iteration is re-thrown, and the remaining iterations are cancelled.</p>
+     */
+    private LinkedHashMap<String, Object>  processFOREACH_Parallel( final BatchPlan _plan, final Iterator<?> _itr, final int _size, final int _parallelism, final ForeachAccumulator _accumulator )
+                throws BatchYamlProcessor.BatchFileException, Macros.MacroException, java.io.FileNotFoundException, java.io.IOException, Exception
+    {
+        final String HDR = CLASSNAME +": processFOREACH_Parallel(): ";
+        final org.ASUX.yaml.CmdInvoker context = this.memoryAndContext.getContext();
+        if ( ! ( context instanceof CmdInvoker ) )
+            throw new BatchFileException( HDR +" INTERNAL ERROR: MemoryAndContext's context is Not a "+ CmdInvoker.class.getName() +", but ["+ ((context==null)?"null":context.getClass().getName()) +"]" );
+        final YAML_Libraries yamlLibrary = ((CmdInvoker) context).getYamlLibrary();
+
+        final ArrayDeque< Future< LinkedHashMap<String, Object> > > futures = new ArrayDeque<>(); // the iterations Not yet merged into _accumulator, in iteration-order.
+        final String profilerStack = BatchProfiler.currentStack(); // so that each iteration's timings nest under this 'foreach'.  See BatchProfiler.java
+        try ( LabelStore.Snapshot labels = LabelStore.newSnapshot();
+              BoundedExecutor pool = new BoundedExecutor( this.verbose, _parallelism, TuningOptions.virtualThreads() ) ) {
+            // serialized HERE (on this thread, while the parent's MemoryAndContext is Not changing), so every iteration starts with the identical MemoryAndContext.
+            // Labels held by LabelStore are written out by reference.  So, an iteration reads in only those labels that it uses.  See LabelStore.Snapshot
+            final byte[] contextImage = labels.capture( () -> CmdInvoker.deepCloneImage( (CmdInvoker) context ) );
+            if ( this.verbose ) System.out.println( HDR +" each iteration's copy of MemoryAndContext is de-serialized from an image of "+ contextImage.length +" bytes" );
+            int ix = 0;
+            while ( nextElementExists( _itr ) ) {
+                // Not more than _parallelism iterations (in-flight + done-but-Not-merged).  So, a lazy _itr is read no faster than the iterations are merged.
+                while ( futures.size() >= _parallelism )
+                    mergeIteration( futures, _accumulator );
+                final Object o = _itr.next();
+                final int iterationNum = ix ++;
+                futures.add( pool.submit( () -> {
+                    final CmdInvoker isolatedInvoker = CmdInvoker.deepClone( contextImage, yamlLibrary );
+                    final BatchYamlProcessor worker = this.newParallelWorker();
+                    worker.isParallelIteration = true;
+                    worker.setMemoryAndContext( isolatedInvoker.getMemoryAndContext() );
+                    final Object element = ( o instanceof LinkedHashMap ) ? YAMLTreeCloner.deepClone( o ) : o; // the loop-body may modify its input in-place.
+                    BatchProfiler.adopt( profilerStack );
+                    try {
+                        return worker.processOneIteration( _plan, element, iterationNum );
+                    } finally {
+                        BatchProfiler.adopt( null );
+                    }
+                }));
+                // merge whichever of the earliest iterations are done, so that their outputs are let go of right away.
+                while ( ! futures.isEmpty() && futures.peekFirst().isDone() )
+                    mergeIteration( futures, _accumulator );
+            }
+
+            while ( ! futures.isEmpty() )
+                mergeIteration( futures, _accumulator );
+            return _accumulator.getOutput();
+        } finally {
+            for ( Future< LinkedHashMap<String, Object> > f: futures )
+                f.cancel( true ); // no-op for the iterations that have completed.
+        }
+    }
+
+    /** @return a new instance of this class, to run ONE iteration of a parallel 'foreach'.  See {@link #processFOREACH_Parallel} */
+    BatchYamlProcessor newParallelWorker() {
+        return new BatchYamlProcessor( this.verbose, this.showStats, this.offline );
     }
 
     //-----------------------------------------------------------------------------
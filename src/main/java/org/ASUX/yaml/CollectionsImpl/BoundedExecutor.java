@@ -0,0 +1,134 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/** <p>An executor for running batch-file work (example: iterations of a 'foreach') concurrently, with a hard limit on how many tasks are in-flight at any time.</p>
+ *  <p>{@link #submit} BLOCKS the caller till one of the in-flight tasks completes.  So, the caller can prepare each task's (possibly large) input lazily, one at a time - instead of all of them upfront.</p>
+ *  <p>Two flavors:</p><ol>
+ *  <li>Platform threads (the default): a fixed pool of maxConcurrency threads.</li>
+ *  <li>Virtual threads (opt-in via {@link TuningOptions#virtualThreads()}; needs Java 21 or later): a new virtual-thread per task.  Blocking file-reads/writes (like getDataFromReference/saveDataIntoReference) then cost almost nothing, and thousands of tasks can be in-flight.
+ *      On older JVMs, this silently falls back to platform threads.</li>
+ *  </ol>
+ *  <p>This library is compiled for older JVMs too.  So, the Java-21 API is looked up via reflection.</p>
+ */
+public class BoundedExecutor implements AutoCloseable {
+
+    public static final String CLASSNAME = BoundedExecutor.class.getName();
+
+    private final boolean verbose;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final boolean isVirtual;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** The only Constructor.
+     *  @param _verbose Whether you want deluge of debug-output onto System.out
+     *  @param _maxConcurrency how many tasks can be in-flight at any time (at least 1)
+     *  @param _preferVirtualThreads true to use virtual-threads (if the JVM supports them)
+     */
+    public BoundedExecutor( final boolean _verbose, final int _maxConcurrency, final boolean _preferVirtualThreads ) {
+        this.verbose = _verbose;
+        final int max = Math.max( 1, _maxConcurrency );
+        this.permits = new Semaphore( max );
+        final ExecutorService virtual = _preferVirtualThreads ? newVirtualThreadPerTaskExecutor( _verbose ) : null;
+        this.isVirtual = ( virtual != null );
+        this.executor = this.isVirtual ? virtual : Executors.newFixedThreadPool( max );
+        if ( this.verbose ) System.out.println( CLASSNAME +": constructor(): maxConcurrency="+ max +" virtual-threads="+ this.isVirtual );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Waits till fewer than maxConcurrency tasks are in-flight, and then submits _task.
+     * @param <T> whatever _task returns
+     * @param _task Not-Null
+     * @return the Future for _task
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public <T> Future<T> submit( final Callable<T> _task ) throws InterruptedException {
+        this.permits.acquire();
+        try {
+            return this.executor.submit( () -> {
+                try {
+                    return _task.call();
+                } finally {
+                    this.permits.release();
+                }
+            });
+        } catch( RuntimeException e ) { // example: RejectedExecutionException
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /** @return true if tasks run on virtual-threads */
+    public boolean isVirtual() {
+        return this.isVirtual;
+    }
+
+    /** Interrupts all running tasks (if any) and releases the threads. */
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @return java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor() on Java 21 or later.  null otherwise.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor( final boolean _verbose ) {
+        try {
+            final java.lang.reflect.Method m = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            return (ExecutorService) m.invoke( null );
+        } catch( ReflectiveOperationException | RuntimeException e ) {
+            if ( _verbose ) System.out.println( CLASSNAME +": newVirtualThreadPerTaskExecutor(): Not available on this JVM ("+ System.getProperty("java.version") +"): "+ e );
+            return null;
+        }
+    }
+
+}
@@ -102,7 +102,7 @@ public class Cmd {
     {
         CmdLineArgsBasic cmdLineArgsBasic = null;
         CmdLineArgs cmdlineargs = null;
-        final java.io.StringWriter stdoutSurrogate = new java.io.StringWriter();
+        AtomicFileWriter outputFileWriter = null; // if we fail midway, we must NOT leave a truncated output-file behind.
 
         try {
             cmdLineArgsBasic = new CmdLineArgsBasic();
@@ -148,97 +148,68 @@ public class Cmd {
                     break; // do nothing for now.
             }
 
+            //======================================================================
+            // Opt-in: for read, list and table commands .. each match is written out as soon as it's found (instead of buffering ALL matches in memory).
+            // So, peak-memory does Not grow with the # of matches.  See TuningOptions.streamMatches()
+            StreamingYAMLSink streamingSink = null;
+            java.io.Writer streamingJavaWriter = null;
+            if ( TuningOptions.streamMatches() ) {
+                switch ( cmdLineArgsBasic.cmdType ) {
+                    case READ:
+                    case LIST:
+                    case TABLE:
+                        streamingJavaWriter = ( cmdlineargs.outputFilePath.equals("-") )
+                            ? new StdoutWriter()
+                            : ( outputFileWriter = new AtomicFileWriter(cmdlineargs.outputFilePath) );
+                        streamingSink = new StreamingYAMLSink( cmdlineargs.verbose, cmdinvoker.getYamlWriter(), streamingJavaWriter );
+                        cmdinvoker.setOutputSink( streamingSink );
+                        break;
+                    default:
+                        break; // all other commands need the entire output, before writing anything out.
+                }
+            }
+
             //======================================================================
             // run the command requested by user
             final Object output = cmdinvoker.processCommand( cmdlineargs, inputData );
             if (cmdLineArgsBasic.verbose) System.out.println( CLASSNAME + ": main(String[]): processing of entire command returned [" + (output==null?"null":output.getClass().getName()) + "]" );
 
+            if ( streamingSink != null ) {
+                // all matches have already been written out by the sink.  Nothing is buffered within 'output'.
+                streamingSink.close();
+                streamingJavaWriter.close(); // for STDOUT, this will just flush.  See StdoutWriter class below.
+                if (cmdLineArgsBasic.verbose) System.out.println( CLASSNAME + ": main(String[]): streamed "+ streamingSink.getCount() +" matches." );
+                return;
+            }
+
             //======================================================================
+            // Write DIRECTLY to STDOUT (via a large buffer), instead of first rendering the entire output into a java.lang.String.
+            // For GB-sized outputs of --delete and --replace commands, holding the output in memory (twice!) is the difference between working and OOM.
             final java.io.Writer javawriter = ( cmdlineargs.outputFilePath.equals("-") )
-                ? stdoutSurrogate // new java.io.FileWriter(TMP FILE)
-                : new java.io.FileWriter(cmdlineargs.outputFilePath);
+                ? new StdoutWriter()
+                : ( outputFileWriter = new AtomicFileWriter(cmdlineargs.outputFilePath) );
 
             final GenericYAMLWriter writer = cmdinvoker.getYamlWriter();
-            // writer.prepare( stdoutSurrogate, cmdlineargs.outputFilePath );
             writer.prepare( javawriter );
-
-            //======================================================================
-            // post completion of YAML processing
-            if ( output != null ) {
-                switch ( cmdLineArgsBasic.cmdType ) {
-                    case READ:
-                        @SuppressWarnings("unchecked")
-                        final LinkedList<Object> list = ( LinkedList<Object> ) output;
-                        writer.write( list );
-                        break;
-                    case LIST:
-                        @SuppressWarnings("unchecked")
-                        final ArrayList<String> arr = ( ArrayList<String> ) output;
-                        writer.write( arr );
-                        break;
-                    case TABLE:
-                        @SuppressWarnings("unchecked")
-                        final LinkedList< ArrayList<String> > list2 = ( LinkedList< ArrayList<String> > ) output;
-                        writer.write( list2 );
-                        break;
-                    case DELETE:
-                    case INSERT:
-                    case REPLACE:
-                    case MACRO:
-                    case BATCH:
-                        if (cmdLineArgsBasic.verbose) System.out.println( CLASSNAME + ": main(String[]): saving the final output " + output + "]" );
-                        if (cmdLineArgsBasic.verbose) System.out.println( CLASSNAME + ": main(String[]): final output is of type " + output.getClass().getName() + "]" );
-                        writer.write( output );
-                        break;
-                } // switch
-            } // if output != null
-
-            //======================================================================
-            // cleanup & close-out things.    This will actually do work for DELETE, INSERT, REPLACE and MACRO commands
-            if ( cmdlineargs.outputFilePath.equals("-") ) {
-                // if we're writing to STDOUT/System.out ..
-                if ( output == null ) System.out.println("null");
-                if ( writer != null ) writer.close(); // Yes! Even for stdout/System.out .. we need to call close(). This is driven by one the YAML libraries (eso teric soft ware)
-            } else {
-                if ( writer != null ) writer.close(); // close the actual file.
-            }
-            stdoutSurrogate.flush();
-
-            // Now since we have a surrogate for STDOUT for use by , let's dump its output onto STDOUT!
-            if ( cmdlineargs.outputFilePath.equals("-") ) {
-                if (cmdLineArgsBasic.verbose) System.out.println( CLASSNAME + ": main(String[]): dumpingh the final output to STDOUT" );
-                final String outputStr = stdoutSurrogate.toString();
-                try {
-                    // final java.io.InputStream istrm = new java.io.FileInputStream( TMP FILE );
-                    final java.io.Reader reader6 = new java.io.StringReader( outputStr );
-                    final java.util.Scanner scanner = new java.util.Scanner( reader6 );
-                    while (scanner.hasNextLine()) {
-                        System.out.println( scanner.nextLine() );
-                    }
-                // } catch (java.io.IOException e) {
-                //     e.printStackTrace(System.err);
-                //     System.err.println( CLASSNAME + ": openBatchFile(): Failure to read Command-output contents ["+ outputStr +"]" );
-                //     System.exit(102);
-                } catch (Exception e) {
-                    e.printStackTrace(System.err);
-                    System.err.println( CLASSNAME + ": openBatchFile(): Unknown Internal error: re: Command-output contents ["+ outputStr +"]" );
-                    System.exit(103);
-                }
-            }
+            writeOutput( cmdLineArgsBasic.cmdType, output, writer, javawriter, cmdlineargs.outputFilePath.equals("-"), cmdLineArgsBasic.verbose );
 
         } catch (YAMLPath.YAMLPathException e) {
+            if ( outputFileWriter != null ) outputFileWriter.abort();
             e.printStackTrace(System.err);
             System.err.println( "YAML-Path pattern is invalid.\nCmdline arguments provided are: " + cmdlineargs + ".\n"+ e );
             System.exit(8);
         } catch (java.io.FileNotFoundException e) {
+            if ( outputFileWriter != null ) outputFileWriter.abort();
             e.printStackTrace(System.err);
             System.err.println( "INPUT-File Not found: '" + cmdlineargs.inputFilePath + "'\nCmdline arguments provided are: " + cmdlineargs + ".\n"+ e );
             System.exit(8);
         } catch (java.io.IOException e) {
+            if ( outputFileWriter != null ) outputFileWriter.abort();
             e.printStackTrace(System.err);
             System.err.println( "OUTPUT-File Not found: '" + cmdlineargs.outputFilePath + "'\nCmdline arguments provided are: " + cmdlineargs + ".\nn"+ e );
             System.exit(7);
         } catch (Exception e) {
+            if ( outputFileWriter != null ) outputFileWriter.abort();
             e.printStackTrace(System.err);
             System.err.println( "Internal error: '" + cmdlineargs.outputFilePath + "'\nCmdline arguments provided are: " + cmdlineargs + ".\n"+ e );
             System.exit(6);
@@ -246,4 +217,101 @@ public class Cmd {
 
     }
 
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * <p>Writes out the output of the command, and closes both writers.</p>
+     * <p>If the output is null: for STDOUT, "null" is printed.  Either way, this throws a java.io.IOException - just like com.esotericsoftware.yamlbeans.YamlWriter's close() always did, when nothing was written.
+     * So, the exit-code is the same non-zero as always, and the output-file is NOT committed (see AtomicFileWriter.java).</p>
+     * @param _cmdType the command that produced _output
+     * @param _output Nullable. what {@link CmdInvoker#processCommand} returned
+     * @param _writer already prepare()'d to write into _javawriter
+     * @param _javawriter a {@link StdoutWriter} or an {@link AtomicFileWriter}
+     * @param _toStdout whether _javawriter is the STDOUT
+     * @param _verbose Whether you want deluge of debug-output onto System.out.
+     * @throws java.io.IOException if _output is null
+     * @throws Exception if the YAML libraries have any issues with ERRORs in the YAML, or writing fails
+     */
+    static void writeOutput( final CmdLineArgs.CMDTYPES _cmdType, final Object _output, final GenericYAMLWriter _writer, final java.io.Writer _javawriter, final boolean _toStdout, final boolean _verbose )
+                    throws Exception
+    {
+        if ( _output == null ) {
+            // Do NOT rely on the YAML-library's close() to fail (FastYAMLEmitter's does Not).  Whether STDOUT or an output-file, nothing else is written out.
+            if ( _toStdout ) {
+                _javawriter.write( "null" + System.lineSeparator() );
+                _javawriter.close(); // For STDOUT, this only flushes.  See StdoutWriter class below.
+            }
+            throw new IOException( CLASSNAME + ": writeOutput(): the "+ _cmdType +" command's output is null.  Nothing to write out." );
+        }
+
+        //======================================================================
+        // post completion of YAML processing
+        switch ( _cmdType ) {
+            case READ:
+                @SuppressWarnings("unchecked")
+                final LinkedList<Object> list = ( LinkedList<Object> ) _output;
+                _writer.write( list );
+                break;
+            case LIST:
+                @SuppressWarnings("unchecked")
+                final ArrayList<String> arr = ( ArrayList<String> ) _output;
+                _writer.write( arr );
+                break;
+            case TABLE:
+                @SuppressWarnings("unchecked")
+                final LinkedList< ArrayList<String> > list2 = ( LinkedList< ArrayList<String> > ) _output;
+                _writer.write( list2 );
+                break;
+            case DELETE:
+            case INSERT:
+            case REPLACE:
+            case MACRO:
+            case BATCH:
+                if ( _verbose ) {
+                    _javawriter.flush(); // whatever the YAML-library already wrote out, must appear BEFORE this debug-output
+                    System.out.println( CLASSNAME + ": writeOutput(): saving the final output " + _output + "]" );
+                    System.out.println( CLASSNAME + ": writeOutput(): final output is of type " + _output.getClass().getName() + "]" );
+                }
+                _writer.write( _output );
+                break;
+        } // switch
+
+        //======================================================================
+        // cleanup & close-out things.    This will actually do work for DELETE, INSERT, REPLACE and MACRO commands
+        if ( _toStdout ) {
+            // if we're writing to STDOUT/System.out ..
+            if ( _writer != null ) _writer.close(); // Yes! Even for stdout/System.out .. we need to call close(). This is driven by one the YAML libraries (eso teric soft ware)
+            _javawriter.close(); // For STDOUT, this only flushes.  See StdoutWriter class below.
+        } else {
+            if ( _writer != null ) _writer.close(); // close the actual file.
+            _javawriter.close(); // commits the output-file (unless the YAML-library's close() already did).  See AtomicFileWriter.java
+        }
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * <p>A large-buffered, explicitly-UTF-8 java.io.Writer directly over the STDOUT file-descriptor (bypassing System.out's PrintStream and its per-line flushing).</p>
+     * <p>The YAML libraries insist on closing the java.io.Writer they're given.  So, close() here will ONLY flush, and will NEVER close STDOUT.</p>
+     */
+    static class StdoutWriter extends java.io.BufferedWriter {
+        private static final int BUFSIZE = 64 * 1024;
+        StdoutWriter() {
+            this( new java.io.FileOutputStream( java.io.FileDescriptor.out ) );
+        }
+        /** @param _stdout what STDOUT is (this constructor is for testing) */
+        StdoutWriter( final java.io.OutputStream _stdout ) {
+            super( new java.io.OutputStreamWriter( _stdout, java.nio.charset.StandardCharsets.UTF_8 ), BUFSIZE );
+            System.out.flush(); // whatever was already printed (example: --verbose output) must appear BEFORE our output.
+        }
+        @Override
+        public void close() throws IOException {
+            this.flush();
+        }
+    }
+
 }
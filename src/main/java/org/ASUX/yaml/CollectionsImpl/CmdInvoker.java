@@ -106,9 +106,10 @@ public class CmdInvoker extends org.ASUX.yaml.CmdInvoker {
 
     // private static final String TMP FILE = System.getProperty("java.io.tmpdir") +"/STDOUT.txt";
 
-    private final Tools tools;
+    private final transient Tools tools; // transient: Not serializable (and Not needed) within a deepClone()
     private transient GenericYAMLScanner YAMLScanner;
     private transient GenericYAMLWriter YAMLWriter;
+    private transient MatchOutputSink outputSink = null;
 
     //=================================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
@@ -189,6 +190,26 @@ public class CmdInvoker extends org.ASUX.yaml.CmdInvoker {
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=================================================================================
 
+    /**
+     * <p>If set, the read, list and table commands will push each match into this sink - as soon as it is found - instead of returning them all at the end.</p>
+     * <p>In that case, {@link #processCommand} returns an EMPTY collection for those 3 commands.  All other commands ignore this.</p>
+     * @param _sink Nullable.  null restores the default (buffered) behavior
+     */
+    public void setOutputSink( final MatchOutputSink _sink ) {
+        this.outputSink = _sink;
+    }
+
+    /**
+     * @return the sink set via {@link #setOutputSink}, or null
+     */
+    public MatchOutputSink getOutputSink() {
+        return this.outputSink;
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
     /**
      *  This function is meant to be used by Cmd.main() and by BatchProcessor.java.  Read the code *FIRST*, to see if you can use this function too.
      *  @param _cmdLineArgs yes, everything passed as commandline arguments to the Java program / org.ASUX.yaml.Cmd
@@ -205,64 +226,120 @@ public class CmdInvoker extends org.ASUX.yaml.CmdInvoker {
     {
         assertTrue( _cmdLineArgs instanceof org.ASUX.yaml.CmdLineArgs );
         final org.ASUX.yaml.CmdLineArgs cmdLineArgs = (org.ASUX.yaml.CmdLineArgs) _cmdLineArgs;
+        if ( ! BatchProfiler.isEnabled() )
+            return this.processCommand_Step2( cmdLineArgs, _inputData );
+
+        // See BatchProfiler.java.  Each distinct command (and YAML-Path) is aggregated - across all iterations of a 'foreach'
+        final String name = cmdLineArgs.cmdType + ( ( cmdLineArgs.yamlRegExpStr == null ) ? "" : " "+ cmdLineArgs.yamlRegExpStr );
+        final BatchProfiler.Span span = BatchProfiler.begin( name, _inputData );
+        Object output = null;
+        try {
+            output = this.processCommand_Step2( cmdLineArgs, _inputData );
+            return output;
+        } finally {
+            BatchProfiler.end( span, output );
+        }
+    }
+
+    private Object processCommand_Step2 ( final org.ASUX.yaml.CmdLineArgs cmdLineArgs, final Object _inputData )
+                throws FileNotFoundException, IOException, Exception,
+                YAMLPath.YAMLPathException
+    {
         final String HDR = CLASSNAME + ": processCommand("+ cmdLineArgs.cmdType +"): ";
 
         assert( _inputData instanceof LinkedHashMap );
+        // Within a batch-file, the input could be a frozen snapshot (see PersistentYAMLTree.java).
+        // Delete/Insert/Replace modify the top-level Map in-place.  So, for those alone, get a modifiable shallow-copy (cheap - as all the children are shared).
+        // Nested frozen nodes are copied only if actually written into.  See AbstractYamlEntryProcessor#writable
         @SuppressWarnings("unchecked")
-        final LinkedHashMap<String, Object> _inputMap = (LinkedHashMap<String, Object>) _inputData;
+        LinkedHashMap<String, Object> inputMap = (LinkedHashMap<String, Object>) _inputData;
+        switch ( cmdLineArgs.cmdType ) {
+            case DELETE: case INSERT: case REPLACE:
+                // a batch-file's FOREACH_ITER_VALUE (if Not yet rendered) must be of the input as it was BEFORE this command.  See LazyForLoopProperties.java
+                LazyForLoopProperties.beforeInPlaceChange( ( this.memoryAndContext == null ) ? null : this.memoryAndContext.getAllPropsRef(), inputMap );
+                inputMap = PersistentYAMLTree.thaw( inputMap );
+                break;
+            default:                                    break;
+        }
+        final LinkedHashMap<String, Object> _inputMap = inputMap;
 
         // This entire CollectionsImpl library clearly is chained to the EsotericSoftware Yamlbeans library.
         // So, let's mae that explicit
         this.getYamlScanner().setYamlLibrary( YAML_Libraries.ESOTERICSOFTWARE_Library );
         this.getYamlWriter().setYamlLibrary( YAML_Libraries.ESOTERICSOFTWARE_Library );
 
+        // read, list and table are pure functions of their input.  So, if memoization is turned on, they may be skipped entirely.  See CommandMemo.java
+        final String memoKey = ( this.outputSink == null ) ? CommandMemo.withInputHash( CommandMemo.keyFor( cmdLineArgs ), _inputMap ) : null; // null means: do Not memoize
+        final Object memoized = CommandMemo.get( memoKey, _inputMap );
+        if ( memoized != null ) {
+            if ( cmdLineArgs.verbose ) System.out.println( HDR +" returning memoized output." );
+            return memoized;
+        }
+        // read, list, table and delete: re-use the output from a previous run, if the input is the same.  See StepCheckpoints.java
+        final String ckptKey = ( this.outputSink == null ) ? StepCheckpoints.keyFor( cmdLineArgs, _inputMap ) : null; // null means: No checkpoints
+        final Object checkpointed = StepCheckpoints.load( ckptKey, cmdLineArgs.verbose );
+        if ( checkpointed != null ) switch ( cmdLineArgs.cmdType ) {
+            case DELETE:    if ( replaceContents( _inputMap, checkpointed ) ) return _inputMap; // delete modifies its input in-place.  So must a checkpoint-hit.
+                            break; // a strange checkpoint.  Ignore it.
+            default:        return CommandMemo.put( memoKey, _inputMap, checkpointed );
+        }
+
         switch ( cmdLineArgs.cmdType ) {
         case READ:
             ReadYamlEntry readcmd = new ReadYamlEntry( cmdLineArgs.verbose, cmdLineArgs.showStats );
+            readcmd.setOutputSink( this.outputSink );
             readcmd.searchYamlForPattern( _inputMap, cmdLineArgs.yamlRegExpStr, cmdLineArgs.yamlPatternDelimiter );
             final LinkedList<Object> outputStr = readcmd.getOutput();
-            return outputStr;
+            return CommandMemo.put( memoKey, _inputMap, StepCheckpoints.save( ckptKey, outputStr, cmdLineArgs.verbose ) );
 
         case LIST:
             ListYamlEntry listcmd = new ListYamlEntry( cmdLineArgs.verbose, cmdLineArgs.showStats, YAMLPath.DEFAULTPRINTDELIMITER );
+            listcmd.setOutputSink( this.outputSink );
             listcmd.searchYamlForPattern( _inputMap, cmdLineArgs.yamlRegExpStr, cmdLineArgs.yamlPatternDelimiter );
             final ArrayList<String> outputStr2 = listcmd.getOutput();
-            return outputStr2;
+            return CommandMemo.put( memoKey, _inputMap, StepCheckpoints.save( ckptKey, outputStr2, cmdLineArgs.verbose ) );
 
         case DELETE:
             if ( cmdLineArgs.verbose ) System.out.println(CLASSNAME + ": processCommand(isDelCmd): about to start DELETE command");
             DeleteYamlEntry delcmd = new DeleteYamlEntry( cmdLineArgs.verbose, cmdLineArgs.showStats );
             delcmd.searchYamlForPattern( _inputMap, cmdLineArgs.yamlRegExpStr, cmdLineArgs.yamlPatternDelimiter );
-            return _inputMap;
+            return StepCheckpoints.save( ckptKey, _inputMap, cmdLineArgs.verbose );
 
         case TABLE:
             final CmdLineArgsTableCmd claTbl = (CmdLineArgsTableCmd) cmdLineArgs;
             if (claTbl.verbose) System.out.println(CLASSNAME + ": processCommand(isTableCmd):  claTbl.yamlRegExpStr="+ claTbl.yamlRegExpStr +" & tableColumns=[" + claTbl.tableColumns +"]" );
             TableYamlQuery tblcmd = new TableYamlQuery( claTbl.verbose, claTbl.showStats, claTbl.tableColumns, claTbl.yamlPatternDelimiter );
+            tblcmd.setOutputSink( this.outputSink );
             tblcmd.searchYamlForPattern( _inputMap, claTbl.yamlRegExpStr, claTbl.yamlPatternDelimiter );
             final LinkedList< ArrayList<String> > output = tblcmd.getOutput();
-            return output;
+            return CommandMemo.put( memoKey, _inputMap, StepCheckpoints.save( ckptKey, output, cmdLineArgs.verbose ) );
 
         case INSERT:
             final CmdLineArgsInsertCmd claIns = (CmdLineArgsInsertCmd) cmdLineArgs;
             if (claIns.verbose) System.out.println(CLASSNAME + ": processCommand(isInsertCmd):  claIns.yamlRegExpStr="+ claIns.yamlRegExpStr +" & loading @Insert-file: " + claIns.insertFilePath);
             final Object newContent = this.getDataFromReference( claIns.insertFilePath );
+            final String ckptKeyIns = StepCheckpoints.keyForReference( claIns, _inputMap, newContent );
+            final Object checkpointedIns = StepCheckpoints.load( ckptKeyIns, claIns.verbose );
+            if ( replaceContents( _inputMap, checkpointedIns ) ) return _inputMap; // insert modifies its input in-place.  So must a checkpoint-hit.
             if (claIns.verbose) System.out.println( CLASSNAME + ": processCommand(isInsertCmd): about to start INSERT command using: [" + newContent.toString() + "]");
             // Within a Batch-YAML context, the output of the previous line does NOT have to be a LinkedHashMap.
             // In such a case, an ArrayList or LinkedList object is converted into one -- by Tools.wrapAnObject_intoLinkedHashMap().
             // So, we will use the inverse-function Tools.getTheActualObject() to undo that.
             InsertYamlEntry inscmd = new InsertYamlEntry( claIns.verbose, claIns.showStats, new Output(this.verbose).getTheActualObject( newContent ) );
             inscmd.searchYamlForPattern( _inputMap, claIns.yamlRegExpStr, claIns.yamlPatternDelimiter );
-            return _inputMap;
+            return StepCheckpoints.save( ckptKeyIns, _inputMap, claIns.verbose );
 
         case REPLACE:
             final CmdLineArgsReplaceCmd claRepl = (CmdLineArgsReplaceCmd) cmdLineArgs;
             if (claRepl.verbose) System.out.println(CLASSNAME + ": processCommand(isReplaceCmd): loading @Replace-file: " + claRepl.replaceFilePath);
             final Object replContent = this.getDataFromReference( claRepl.replaceFilePath );
+            final String ckptKeyRepl = StepCheckpoints.keyForReference( claRepl, _inputMap, replContent );
+            final Object checkpointedRepl = StepCheckpoints.load( ckptKeyRepl, claRepl.verbose );
+            if ( replaceContents( _inputMap, checkpointedRepl ) ) return _inputMap; // replace modifies its input in-place.  So must a checkpoint-hit.
             if (claRepl.verbose) System.out.println( CLASSNAME + ": processCommand(isReplaceCmd): about to start CHANGE/REPLACE command using: [" + replContent.toString() + "]");
             ReplaceYamlEntry replcmd = new ReplaceYamlEntry( claRepl.verbose, claRepl.showStats, replContent );
             replcmd.searchYamlForPattern( _inputMap, claRepl.yamlRegExpStr, claRepl.yamlPatternDelimiter );
-            return _inputMap;
+            return StepCheckpoints.save( ckptKeyRepl, _inputMap, claRepl.verbose );
 
         case MACROYAML:
         case MACRO:
@@ -294,6 +371,18 @@ public class CmdInvoker extends org.ASUX.yaml.CmdInvoker {
                 }
             }
 
+            final String macroMemoKey = CommandMemo.withInputHash( CommandMemo.keyForMacro( claMacro, _inputMap, properties, this.memoryAndContext.getAllPropsRef() ), _inputMap ); // null means: do Not memoize
+            final Object memoizedMacro = CommandMemo.get( macroMemoKey, _inputMap );
+            if ( memoizedMacro != null ) {
+                if ( claMacro.verbose ) System.out.println( HDR +" returning memoized output." );
+                return memoizedMacro;
+            }
+            final String ckptKeyMacro = ( TuningOptions.checkpointDir() == null ) ? null
+                        : StepCheckpoints.keyForReference( claMacro, _inputMap, CommandMemo.referencedProperties( _inputMap, properties, this.memoryAndContext.getAllPropsRef() ) );
+            final Object checkpointedMacro = StepCheckpoints.load( ckptKeyMacro, claMacro.verbose );
+            if ( checkpointedMacro != null )
+                return CommandMemo.put( macroMemoKey, _inputMap, checkpointedMacro );
+
             if (claMacro.verbose) System.out.println( HDR +" about to start MACRO command using: [Props file [" + claMacro.propertiesFilePath + "]");
             final LinkedHashMap<String, Object> outpMap = new LinkedHashMap<>();
             switch ( cmdLineArgs.cmdType ) {
@@ -306,7 +395,7 @@ public class CmdInvoker extends org.ASUX.yaml.CmdInvoker {
             }
 
             // writer.write(outpMap); // The contents of java.util.LinkedHashMap<String, Object> has been updated with replacement strings. so, dump it.
-            return outpMap;
+            return CommandMemo.put( macroMemoKey, _inputMap, StepCheckpoints.save( ckptKeyMacro, outpMap, claMacro.verbose ) );
 
         case BATCH:
             final CmdLineArgsBatchCmd claBatch = (CmdLineArgsBatchCmd) cmdLineArgs;
@@ -320,13 +409,31 @@ public class CmdInvoker extends org.ASUX.yaml.CmdInvoker {
             return outpMap2;
 
         default:
-            final String es = CLASSNAME + ": processCommand(): Unimplemented command: " + _cmdLineArgs.toString();
+            final String es = CLASSNAME + ": processCommand(): Unimplemented command: " + cmdLineArgs.toString();
             System.err.println( es );
             throw new Exception( es );
         }
         // return null; // should Not reach here!
     }
 
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Delete, insert and replace modify their input in-place (and return it).  A checkpoint-hit (see {@link StepCheckpoints}) for such a command must do the same - as callers may hold on to the input.
+     * @param _inputMap the input to the command (modified in-place)
+     * @param _checkpointed Nullable.  What {@link StepCheckpoints#load} returned
+     * @return false if _checkpointed is null (or, Not a Map) - and _inputMap is left untouched
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean replaceContents( final LinkedHashMap<String, Object> _inputMap, final Object _checkpointed ) {
+        if ( ! ( _checkpointed instanceof LinkedHashMap ) ) return false;
+        _inputMap.clear();
+        _inputMap.putAll( (LinkedHashMap<String, Object>) _checkpointed );
+        return true;
+    }
+
     //==============================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
@@ -368,8 +475,8 @@ public class CmdInvoker extends org.ASUX.yaml.CmdInvoker {
      *  <p>This method needs to supplement org.ASUX.YAML.CmdInvoker.deepClone() as this subclass (org.ASUX.YAML.NodeImpl.CmdInvoker) has it's own transient instance-fields/variables.</p>
      *  <p>Such Transients are made Transients for only ONE-SINGLE REASON - they are NOT serializable).</p>
      *  <p>!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!! ATTENTION !!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!</p>
-     *  <p>So, after a deepClone() of CmdInvoker.java .. you'll need to call: </p>
-     *  <p> <code> clone.dumperopt = origObj.dumperopt; </code> <br>
+     *  <p>So, after a deepClone() of CmdInvoker.java .. the YAML-Scanner and YAML-Writer are re-created, for the same YAML-library as origObj's (exactly like <code>newCmdinvoker.setYamlLibrary( origObj.getYamlLibrary() )</code> within the batch-file processing).
+     *  The clone has No {@link MatchOutputSink} (see {@link #setOutputSink}).</p>
      *  @param origObj the non-null original to clone
      *  @return a properly cloned and re-initiated clone of the original (that works around instance-variables that are NOT serializable)
      *  @throws Exception when org.ASUX.common.Utils.deepClone clones the core of this class-instance 
@@ -377,6 +484,38 @@ public class CmdInvoker extends org.ASUX.yaml.CmdInvoker {
     public static CmdInvoker deepClone( final CmdInvoker origObj ) throws Exception {
         final org.ASUX.yaml.CmdInvoker newCmdInvk = org.ASUX.yaml.CmdInvoker.deepClone( origObj );
         final CmdInvoker newCmdinvoker = (CmdInvoker) newCmdInvk;
+        newCmdinvoker.setYamlLibrary( origObj.getYamlLibrary() ); // the transients YAMLScanner & YAMLWriter are null within the clone
+        return newCmdinvoker;
+    }
+
+    /**
+     *  <p>Same as {@link #deepClone(CmdInvoker)}, but split into 2 halves - for when many clones of the same original are needed (example: one per iteration of a parallel 'foreach').</p>
+     *  <p>This half serializes origObj just ONCE.  {@link #deepClone(byte[], YAML_Libraries)} then de-serializes a brand new clone from that image, as many times as needed.</p>
+     *  @param origObj the non-null original to clone.  Clones made from the image will NOT see any changes made to origObj after this.
+     *  @return the serialized image of origObj
+     *  @throws IOException if origObj can Not be serialized
+     */
+    public static byte[] deepCloneImage( final CmdInvoker origObj ) throws IOException {
+        final java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream( 64 * 1024 );
+        try ( java.io.ObjectOutputStream oos = new java.io.ObjectOutputStream( bos ) ) {
+            oos.writeObject( origObj );
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     *  The 2nd half of {@link #deepCloneImage(CmdInvoker)}.
+     *  @param _image what {@link #deepCloneImage(CmdInvoker)} returned
+     *  @param _l the YAML-library of the original (example: origObj.getYamlLibrary()), as the transient YAML-Scanner and YAML-Writer are Not within the image
+     *  @return a brand new clone, that does Not share anything (that's modifiable) with the original or with any other clone
+     *  @throws Exception if _image can Not be de-serialized
+     */
+    public static CmdInvoker deepClone( final byte[] _image, final YAML_Libraries _l ) throws Exception {
+        final CmdInvoker newCmdinvoker;
+        try ( java.io.ObjectInputStream ois = new java.io.ObjectInputStream( new java.io.ByteArrayInputStream( _image ) ) ) {
+            newCmdinvoker = (CmdInvoker) ois.readObject();
+        }
+        newCmdinvoker.setYamlLibrary( _l );
         return newCmdinvoker;
     }
 
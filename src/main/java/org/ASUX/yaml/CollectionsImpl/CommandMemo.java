@@ -0,0 +1,250 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/** <p>Opt-in (see {@link TuningOptions#memoCacheSize()}) memoization of the yaml-commands that are pure functions of their input: read, list, table and macroyaml.
+ *  Within a batch-file's 'foreach', the same input is often fed thru the same command repeatedly.</p>
+ *  <p>The key is: the command (and its normalized arguments), a structural hash of the input YAML (see {@link YAMLTreeHash}) and - for macroyaml - the values of just those properties that the input refers to (as ${ASUX::name}).
+ *  A hit is returned ONLY if the input is also {@link YAMLTreeHash#deepEquals} to the cached input.  So, a hash-collision can never return a wrong result.</p>
+ *  <p>The cached input is a frozen copy (see {@link PersistentYAMLTree#frozenCopy}) - which shares sub-trees with a frozen input - and so, is cheap to compare.
+ *  The output is copied (see {@link YAMLTreeCloner}) going in and coming out of the cache, as callers may modify what's returned.</p>
+ *  <p>Those copies cost O(document).  So, the 1st time a key is seen, just the key is remembered (and nothing is copied).  Only if the very same key comes around again - the only way there'll ever be a hit - are the input and output copied into the cache.
+ *  An input that is already frozen is never copied.</p>
+ *  <p>Least-recently-used entries (including those keys seen just once) are evicted, beyond {@link TuningOptions#memoCacheSize()} entries.</p>
+ */
+public final class CommandMemo {
+
+    public static final String CLASSNAME = CommandMemo.class.getName();
+
+    private static final int MAXMACRONAMES = 1000; // if more properties are referenced, don't bother memoizing.
+
+    private static final class Entry {
+        final Object input;
+        final Object output;
+        Entry( final Object _input, final Object _output ) { this.input = _input; this.output = _output; }
+    }
+
+    /** the key was seen just once.  See class-description */
+    private static final Entry SEENONCE = new Entry( null, null );
+
+    /** access-ordered, for LRU eviction */
+    private static final LinkedHashMap<String, Entry> CACHE = new LinkedHashMap<String, Entry>( 64, 0.75f, true ) {
+        private static final long serialVersionUID = 1L;
+        @Override protected boolean removeEldestEntry( final Map.Entry<String, Entry> _eldest ) {
+            return this.size() > TuningOptions.memoCacheSize();
+        }
+    };
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private CommandMemo() {} // static methods only
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _cmdLineArgs the command
+     * @return null, if memoization is off - or - if the command is Not one of read, list or table.  Otherwise, the key to pass to {@link #withInputHash}
+     */
+    public static String keyFor( final org.ASUX.yaml.CmdLineArgs _cmdLineArgs ) {
+        if ( TuningOptions.memoCacheSize() <= 0 ) return null;
+        switch ( _cmdLineArgs.cmdType ) {
+            case READ:
+            case LIST:
+                return _cmdLineArgs.cmdType +"\u0000"+ _cmdLineArgs.yamlRegExpStr +"\u0000"+ _cmdLineArgs.yamlPatternDelimiter;
+            case TABLE:
+                final org.ASUX.yaml.CmdLineArgsTableCmd claTbl = (org.ASUX.yaml.CmdLineArgsTableCmd) _cmdLineArgs;
+                return _cmdLineArgs.cmdType +"\u0000"+ claTbl.yamlRegExpStr +"\u0000"+ claTbl.yamlPatternDelimiter +"\u0000"+ claTbl.tableColumns;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param _cmdLineArgs the macroyaml command
+     * @param _input the YAML that macros are going to be evaluated in
+     * @param _props Nullable.  The properties-file (if any) provided to the macroyaml command
+     * @param _allProps all the Properties (of the batch-file), as passed to MacroYamlProcessor
+     * @return null, if memoization is off - or - if the properties referenced by _input could Not be determined.  Otherwise, the key to pass to {@link #withInputHash}
+     */
+    public static String keyForMacro( final org.ASUX.yaml.CmdLineArgsMacroCmd _cmdLineArgs, final Object _input, final Properties _props, final LinkedHashMap<String, Properties> _allProps ) {
+        if ( TuningOptions.memoCacheSize() <= 0 ) return null;
+        final String referenced = referencedProperties( _input, _props, _allProps );
+        return ( referenced == null ) ? null : _cmdLineArgs.cmdType +"\u0000"+ referenced;
+    }
+
+    /**
+     * The values of just those properties that _input refers to (as ${ASUX::name}) - directly, or indirectly via other properties.  Macros in _input can Not evaluate to anything else.
+     * @param _input the YAML that macros are going to be evaluated in
+     * @param _props Nullable.  The properties-file (if any) provided to the macroyaml command
+     * @param _allProps Nullable.  All the Properties (of the batch-file), as passed to MacroYamlProcessor
+     * @return a string (Not human-readable) that changes whenever any of those properties change.  null if the macros within _input could Not be parsed (example: nested macros)
+     */
+    public static String referencedProperties( final Object _input, final Properties _props, final LinkedHashMap<String, Properties> _allProps ) {
+        final StringBuilder sb = new StringBuilder();
+        final LinkedHashSet<String> names = new LinkedHashSet<>();
+        final ArrayDeque<String> pending = new ArrayDeque<>();
+        if ( ! collectMacroNames( _input, pending ) ) return null;
+        // properties can refer to other properties.  So, include those too.
+        while ( ! pending.isEmpty() ) {
+            final String name = pending.pop();
+            if ( ! names.add( name ) ) continue;
+            if ( names.size() > MAXMACRONAMES ) return null;
+            sb.append( "\u0000" ).append( name );
+            if ( _props != null ) {
+                final String v = _props.getProperty( name );
+                sb.append( "\u0000" ).append( v );
+                if ( ! collectMacroNames( v, pending ) ) return null;
+            }
+            if ( _allProps != null ) for ( Map.Entry<String, Properties> e: _allProps.entrySet() ) {
+                final String v = ( e.getValue() == null ) ? null : e.getValue().getProperty( name );
+                sb.append( "\u0000" ).append( e.getKey() ).append( '=' ).append( v );
+                if ( ! collectMacroNames( v, pending ) ) return null;
+            }
+        }
+        return sb.toString();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Appends the structural hash of _input (see {@link YAMLTreeHash#hash}) to _key.  Invoke this just once per command (Not once for {@link #get} and again for {@link #put}), as hashing walks the entire input.
+     * @param _key Nullable (in which case, this returns null).  See {@link #keyFor} and {@link #keyForMacro}
+     * @param _input the YAML input to the command
+     * @return null if _key is null.  Otherwise, the key to pass to {@link #get} and {@link #put}
+     */
+    public static String withInputHash( final String _key, final Object _input ) {
+        if ( _key == null ) return null;
+        return _key +"\u0000"+ YAMLTreeHash.hash( _input );
+    }
+
+    /**
+     * @param _fullKey Nullable (in which case, this returns null).  See {@link #withInputHash}
+     * @param _input the YAML input to the command (the very same that was passed to {@link #withInputHash})
+     * @return null if there is No cached output for this command and input.  Else, a COPY of the cached output
+     * @throws Exception if the cached output could Not be copied
+     */
+    public static Object get( final String _fullKey, final Object _input ) throws Exception {
+        if ( _fullKey == null ) return null;
+        final Entry e;
+        synchronized( CACHE ) {
+            e = CACHE.get( _fullKey );
+        }
+        if ( e == null || e == SEENONCE || ! YAMLTreeHash.deepEquals( e.input, _input ) ) {
+            MISSES.increment();
+            return null;
+        }
+        HITS.increment();
+        BatchProfiler.addCacheHit();
+        return YAMLTreeCloner.deepClone( e.output );
+    }
+
+    /**
+     * @param _fullKey Nullable (in which case, this does nothing).  See {@link #withInputHash}
+     * @param _input the YAML input to the command (as it was BEFORE the command ran).  If already frozen (see {@link PersistentYAMLTree}), it's cached as-is - Not copied.  If _fullKey was Not seen before, it's Not cached at all.  See class-description
+     * @param _output the output of the command.  If _fullKey was Not seen before, it's Not cached at all.
+     * @return _output (as is)
+     * @throws Exception if _input or _output could Not be copied
+     */
+    public static Object put( final String _fullKey, final Object _input, final Object _output ) throws Exception {
+        if ( _fullKey == null || _output == null ) return _output;
+        synchronized( CACHE ) {
+            if ( ! CACHE.containsKey( _fullKey ) ) { // 1st time: just remember the key.  Nothing is copied.
+                CACHE.put( _fullKey, SEENONCE );
+                return _output;
+            }
+        }
+        final Object frozenInput = PersistentYAMLTree.isFrozen( _input ) ? _input : PersistentYAMLTree.frozenCopy( _input );
+        final Entry e = new Entry( frozenInput, YAMLTreeCloner.deepClone( _output ) );
+        synchronized( CACHE ) {
+            CACHE.put( _fullKey, e );
+        }
+        return _output;
+    }
+
+    /** Empties the cache */
+    public static void clear() {
+        synchronized( CACHE ) {
+            CACHE.clear();
+        }
+    }
+
+    /** @return a one-line summary (since JVM started) */
+    public static String getStats() {
+        final int size;
+        synchronized( CACHE ) {
+            size = CACHE.size();
+        }
+        return CLASSNAME +": hits="+ HITS.sum() +", misses="+ MISSES.sum() +", entries="+ size;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** @return false if some macro could Not be parsed (example: nested macros) */
+    private static boolean collectMacroNames( final Object _o, final ArrayDeque<String> _names ) {
+        if ( _o instanceof Map ) {
+            for ( Map.Entry<?,?> e: ((Map<?,?>) _o).entrySet() )
+                if ( ! collectMacroNames( e.getKey(), _names ) || ! collectMacroNames( e.getValue(), _names ) ) return false;
+        } else if ( _o instanceof List ) {
+            for ( Object o: (List<?>) _o )
+                if ( ! collectMacroNames( o, _names ) ) return false;
+        } else if ( _o instanceof String ) {
+            final String s = (String) _o;
+            int ix = s.indexOf( "${ASUX::" );
+            while ( ix >= 0 ) {
+                final int end = s.indexOf( '}', ix );
+                if ( end < 0 ) return false;
+                final String name = s.substring( ix + 8, end );
+                if ( name.contains( "${" ) ) return false;
+                _names.add( name );
+                ix = s.indexOf( "${ASUX::", end );
+            }
+        }
+        return true;
+    }
+
+}
@@ -79,6 +79,13 @@ public class DeleteYamlEntry extends AbstractYamlEntryProcessor {
         return true;
     }
 
+    //-------------------------------------
+    /** This command modifies the YAML in-place.  See {@link AbstractYamlEntryProcessor#mutatesInput} */
+    @Override
+    protected boolean mutatesInput() {
+        return true;
+    }
+
     //-------------------------------------
     /** This function will be called when a full/end2end match of a YAML path-expression happens.
      * See details and warnings in @see AbstractYamlEntryProcessor#onEnd2EndMatch()
@@ -119,7 +126,7 @@ public class DeleteYamlEntry extends AbstractYamlEntryProcessor {
         for (Tuple< String, LinkedHashMap<String, Object> > tpl: this.keys2bRemoved ) {
             final String rhsStr = tpl.val.toString();
             if ( this.verbose ) System.out.println( CLASSNAME +": atEndOfInput(): atEndOfInput: "+ tpl.key +": "+ rhsStr.substring(0,rhsStr.length()>121?120:rhsStr.length()));
-            tpl.val.remove(tpl.key);
+            this.writable( tpl.val ).remove(tpl.key); // path-copying, if tpl.val is a frozen snapshot.  See AbstractYamlEntryProcessor#writable
         }
         // java's forEach never works if you are altering anything within the Lambda body
         // this.keys2bRemoved.forEach( tpl -> {tpl.val.remove(tpl.key); });
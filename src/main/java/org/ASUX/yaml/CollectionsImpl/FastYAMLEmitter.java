@@ -0,0 +1,666 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.Map;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.HashMap;
+
+/** <p>A YAML emitter that is purpose-built for the only object-trees this library ever produces: java.util.LinkedHashMap, java.util.ArrayList, java.util.LinkedList and java.lang.String (plus simple scalars like Integer/Boolean that come from JSON-input).</p>
+ *  <p>com.esotericsoftware.yamlbeans.YamlWriter is a general-purpose Java-Beans serializer.  For every single node, it looks up bean-metadata, class-tags and per-class configuration - and then hands off an "event" to its Emitter (a state-machine, with a queue of look-ahead events).
+ *  This class walks the tree directly, and writes straight to the java.io.Writer, with a pre-computed buffer of spaces for indentation and a table-driven single-pass check to decide how to quote each scalar.</p>
+ *  <p>The output is byte-for-byte identical to what {@link GenericYAMLWriter} produces with the com.esotericsoftware.yamlbeans.YamlWriter (version 1.17), configured via {@link GenericYAMLWriter#SHARED_YAMLCONFIG}.
+ *  Every rule below (when to quote, when to wrap, where a space goes) is a line-by-line port of yamlbeans' Emitter, EmitterWriter and ScalarAnalysis classes - quirks included.  See FastYAMLEmitterTest, which compares the two.</p>
+ *  <p>Unlike com.esotericsoftware.yamlbeans.YamlWriter (which queues up ALL the documents until close()), {@link #write} writes out each document right away.  So, anchors are computed per document.
+ *  A Map/List shared across 2 documents is written out in full within each (yamlbeans would write an alias to an anchor in the previous document, which is Not valid YAML).</p>
+ *  <p>This emitter is opt-in.  See {@link TuningOptions#fastYamlEmitter()}.</p>
+ * @see GenericYAMLWriter
+ */
+public class FastYAMLEmitter {
+
+    public static final String CLASSNAME = FastYAMLEmitter.class.getName();
+
+    /** Same as com.esotericsoftware.yamlbeans.emitter.EmitterConfig's default indent-size */
+    public static final int INDENT_SIZE = 3;
+
+    /** Same as com.esotericsoftware.yamlbeans.emitter.EmitterConfig's default wrap-column */
+    public static final int WRAP_COLUMN = 100;
+
+    /** Same as com.esotericsoftware.yamlbeans.emitter.Emitter: keys this long (or longer) are written as a complex-key (with '?' indicator) */
+    private static final int MAX_SIMPLE_KEY_LENGTH = 1024;
+
+    private static final char[] SPACES = new char[ 256 ];
+    static { java.util.Arrays.fill( SPACES, ' ' ); }
+
+    //-------------------------------------
+    // bit-flags returned by analyzeScalar()
+    private static final int EMPTY                  = 0x01; // null.  Note: "" is NOT empty (as per yamlbeans)
+    private static final int MULTILINE              = 0x02;
+    private static final int ALLOW_BLOCK_PLAIN      = 0x04;
+    private static final int ALLOW_SINGLE_QUOTED    = 0x08;
+    private static final int ALLOW_BLOCK            = 0x10; // literal style '|'
+
+    // character-classes for the first 128 chars, used by analyzeScalar()
+    private static final byte[] CHARCLASS = new byte[ 128 ];
+    private static final byte PLAINSAFE         = 0; // nothing special about it .. anywhere within a scalar
+    private static final byte LEADING_INDICATOR = 1; // # , [ ] { } & * ! | > ' " % @ `
+    private static final byte QM_OR_COLON       = 2; // ? :
+    private static final byte DASH              = 3;
+    private static final byte SPACE             = 4;
+    private static final byte LINEBREAK         = 5;
+    private static final byte SPECIAL           = 6; // control characters (except TAB and NEWLINE), DEL
+    private static final byte TAB               = 7;
+    private static final byte CR_OR_NUL         = 8; // special AND counts as whitespace for '#' and ':'
+    static {
+        for ( int ch = 0; ch < 128; ch ++ )
+            CHARCLASS[ch] = ( ch < 0x20 || ch == 0x7F ) ? SPECIAL : PLAINSAFE;
+        for ( char ch: "#,[]{}&*!|>'\"%@`".toCharArray() )
+            CHARCLASS[ch] = LEADING_INDICATOR;
+        CHARCLASS['?'] = QM_OR_COLON;
+        CHARCLASS[':'] = QM_OR_COLON;
+        CHARCLASS['-'] = DASH;
+        CHARCLASS[' '] = SPACE;
+        CHARCLASS['\n'] = LINEBREAK;
+        CHARCLASS['\t'] = TAB;
+        CHARCLASS['\r'] = CR_OR_NUL;
+        CHARCLASS['\0'] = CR_OR_NUL;
+    }
+
+    //-------------------------------------
+    private final boolean verbose;
+    private final java.io.Writer javawriter;
+    private final String lineSeparator = System.getProperty( "line.separator" ); // just like yamlbeans
+
+    private final IdentityHashMap<Object,Integer> referenceCount = new IdentityHashMap<>();
+    /** Must be a HashMap (NOT an IdentityHashMap), exactly like within com.esotericsoftware.yamlbeans.YamlWriter.  A Map/List that equals() an anchored one gets the same anchor (yes, really) */
+    private final HashMap<Object,String> anchoredObjects = new HashMap<>();
+    private int nextAnchor = 1;
+    private boolean anchorFrozenNodes = false;
+    private boolean firstDocument = true;
+
+    // emitter state.  Names match those of yamlbeans' Emitter and EmitterWriter, so that the two can be compared line-by-line
+    private int indent = -1; // -1 === None
+    private int column = 0;
+    private boolean whitespace = true;
+    private boolean indentation = true;
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * The only constructor
+     * @param _verbose  Whether you want deluge of debug-output onto System.out.
+     * @param _javawriter StringWriter or FileWriter (cannot be null).  Will be closed by {@link #close}.  Just like yamlbeans, it's wrapped within a java.io.BufferedWriter (unless it already is one)
+     */
+    public FastYAMLEmitter( final boolean _verbose, final java.io.Writer _javawriter ) {
+        this.verbose = _verbose;
+        this.javawriter = ( _javawriter instanceof java.io.BufferedWriter ) ? _javawriter : new java.io.BufferedWriter( _javawriter );
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * <p>Frozen Maps/Lists (see {@link PersistentYAMLTree}) are shared across multiple locations on purpose (see {@link SharedPayload}).  So by default, they do NOT get anchors/aliases - they are written out in full at every location.</p>
+     * <p>All other Maps/Lists that are referenced more than once still get anchors/aliases.</p>
+     * @param _b true if frozen Maps/Lists should get anchors/aliases too (see {@link TuningOptions#anchorSharedPayloads()}).  Must be invoked before {@link #write}
+     */
+    public void setAnchorFrozenNodes( final boolean _b ) {
+        this.anchorFrozenNodes = _b;
+    }
+
+    /**
+     * Writes out _output as the next YAML-document, right away (and flushes the java.io.Writer, just like yamlbeans does at the end of each document).  Anchors/aliases are computed within this document only.
+     * @param _output a java.util.Map, a java.util.Collection or a scalar (String, Integer, Boolean..)
+     * @throws Exception if the java.io.Writer has issues, or if the object-tree contains an object that is Not a java.util.Map, a java.util.Collection or a scalar
+     */
+    public void write( final Object _output ) throws Exception {
+        if ( this.verbose ) System.out.println( CLASSNAME + ": write(): writing document of type " + ((_output==null)?"null":_output.getClass().getName()) );
+        this.countObjectReferences( _output );
+        try {
+            this.writeDocument( _output );
+        } finally {
+            this.referenceCount.clear();
+        }
+        this.javawriter.flush();
+    }
+
+    /**
+     * Closes the java.io.Writer.  All the documents were already written out by {@link #write}.
+     * @throws Exception if the java.io.Writer has issues
+     */
+    public void close() throws Exception {
+        this.anchoredObjects.clear();
+        this.javawriter.close();
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /** Same as com.esotericsoftware.yamlbeans.Beans.isScalar() */
+    private static boolean isScalar( final Object o ) {
+        return o == null || o instanceof String || o instanceof Integer || o instanceof Boolean || o instanceof Long || o instanceof Double
+                || o instanceof Float || o instanceof Short || o instanceof Byte || o instanceof Character;
+    }
+
+    private static boolean isEmptyCollection( final Object o ) {
+        return ( o instanceof Map && ((Map<?,?>) o).isEmpty() ) || ( o instanceof Collection && ((Collection<?>) o).isEmpty() );
+    }
+
+    /** Whether _o is exempt from anchors/aliases.  See {@link #setAnchorFrozenNodes} */
+    private boolean isNeverAnchored( final Object _o ) {
+        return ! this.anchorFrozenNodes && PersistentYAMLTree.isFrozen( _o ); // everything beneath is frozen too (or a private copy).  So, never anchored.
+    }
+
+    /** Only java.util.Map and java.util.Collection objects (that are referenced more than once) get an anchor.  Scalars never do.  Just like yamlbeans, Map-keys are NOT counted. */
+    private void countObjectReferences( final Object _o ) {
+        if ( isScalar( _o ) ) return;
+        if ( this.isNeverAnchored( _o ) ) return;
+        final Integer count = this.referenceCount.get( _o );
+        if ( count != null ) {
+            this.referenceCount.put( _o, count + 1 );
+            return;
+        }
+        this.referenceCount.put( _o, 1 );
+        if ( _o instanceof Collection ) {
+            for ( Object item: (Collection<?>) _o ) this.countObjectReferences( item );
+        } else if ( _o instanceof Map ) {
+            for ( Object value: ((Map<?,?>) _o).values() ) this.countObjectReferences( value );
+        }
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    private void writeDocument( final Object _root ) throws Exception {
+        // See yamlbeans' Emitter.expectDocumentStart() and checkEmptyDocument()
+        final boolean implicit = this.firstDocument && ! "".equals( _root );
+        this.firstDocument = false;
+        if ( ! implicit ) {
+            this.writeIndent( this.indent );
+            this.writeIndicator( "--- ", true, true, false );
+        }
+        this.writeNode( _root, false, false );
+        this.writeIndent( this.indent ); // end of document
+    }
+
+    //==============================================================================
+
+    /** Combination of yamlbeans' YamlWriter.writeValue() and Emitter.expectNode() */
+    private void writeNode( final Object _o, final boolean _mappingContext, final boolean _simpleKeyContext ) throws Exception
+    {
+        if ( isScalar( _o ) ) {
+            this.writeScalar( (_o == null) ? null : String.valueOf( _o ), _simpleKeyContext );
+            return;
+        }
+        if ( !( _o instanceof Map || _o instanceof Collection ) )
+            throw new Exception( CLASSNAME + ": writeNode(): Unsupported object of type ["+ _o.getClass().getName() +"].  Unset "+ TuningOptions.FASTYAMLEMITTER +" to use com.esotericsoftware.yamlbeans.YamlWriter instead." );
+
+        // anchors & aliases
+        String anchor = null;
+        if ( ! this.isNeverAnchored( _o ) ) {
+            anchor = this.anchoredObjects.isEmpty() ? null : this.anchoredObjects.get( _o ); // isEmpty() check: to avoid computing hashCode() of entire sub-trees, in the common case
+            final Integer count = this.referenceCount.get( _o );
+            if ( count == null ) {
+                if ( anchor == null )
+                    throw new Exception( CLASSNAME + ": writeNode(): Anchor is not specified for alias (example: a Map/List used as a key of a Map)." );
+                this.writeIndicator( "*"+ anchor, true, false, false );
+                return;
+            }
+            if ( count > 1 ) {
+                this.referenceCount.remove( _o );
+                if ( anchor == null ) {
+                    anchor = String.valueOf( this.nextAnchor ++ );
+                    this.anchoredObjects.put( _o, anchor );
+                }
+            }
+        }
+        if ( anchor != null )
+            this.writeIndicator( "&"+ anchor, true, false, false );
+
+        if ( isEmptyCollection( _o ) ) { // flow-style: '{}' or '[]'
+            final boolean isMap = _o instanceof Map;
+            this.writeIndicator( isMap ? "{" : "[", true, true, false );
+            this.writeIndicator( isMap ? "}" : "]", false, false, false );
+            return;
+        }
+
+        if ( _o instanceof Map ) {
+            final int savedIndent = this.indent;
+            this.indent = ( this.indent < 0 ) ? 0 : this.indent + INDENT_SIZE;
+            for ( Map.Entry<?,?> entry: ((Map<?,?>) _o).entrySet() ) {
+                this.writeIndent( this.indent );
+                if ( this.isSimpleKey( entry.getKey() ) ) {
+                    this.writeNode( entry.getKey(), true, true );
+                    this.writeIndicator( ": ", false, true, false );
+                } else {
+                    this.writeIndicator( "?", true, false, true );
+                    this.writeNode( entry.getKey(), true, false );
+                    this.writeIndent( this.indent );
+                    this.writeIndicator( ": ", true, true, true );
+                }
+                this.writeNode( entry.getValue(), true, false );
+            }
+            this.indent = savedIndent;
+
+        } else {
+            final boolean indentless = _mappingContext && ! this.indentation;
+            final int savedIndent = this.indent;
+            this.indent = ( this.indent < 0 ) ? 0 : ( indentless ? this.indent : this.indent + INDENT_SIZE );
+            for ( Object item: (Collection<?>) _o ) {
+                this.writeIndent( this.indent );
+                this.writeIndicator( "-", true, false, true );
+                this.writeNode( item, false, false );
+            }
+            this.indent = savedIndent;
+        }
+    }
+
+    //==============================================================================
+
+    /** See yamlbeans' Emitter.checkSimpleKey() */
+    private boolean isSimpleKey( final Object _key ) {
+        if ( isScalar( _key ) ) {
+            if ( _key == null ) return false; // empty
+            final String s = String.valueOf( _key );
+            if ( s.length() >= MAX_SIMPLE_KEY_LENGTH ) return false;
+            final int flags = analyzeScalar( s );
+            return ( flags & (EMPTY | MULTILINE) ) == 0;
+        }
+        return isEmptyCollection( _key ); // written as '{}' or '[]'
+    }
+
+    //==============================================================================
+
+    /** See yamlbeans' Emitter.expectScalar(), chooseScalarStyle() and processScalar() */
+    private void writeScalar( final String _s, final boolean _simpleKeyContext ) throws Exception
+    {
+        final int flags = analyzeScalar( _s );
+        final boolean empty = ( flags & EMPTY ) != 0;
+        final boolean multiline = ( flags & MULTILINE ) != 0;
+
+        final int savedIndent = this.indent;
+        this.indent = ( this.indent < 0 ) ? INDENT_SIZE : this.indent + INDENT_SIZE;
+        final boolean split = ! _simpleKeyContext;
+        if ( ( ! _simpleKeyContext || ( ! empty && ! multiline ) ) && ( flags & ALLOW_BLOCK_PLAIN ) != 0 ) {
+            this.writePlain( _s, split );
+        } else if ( ( flags & ALLOW_SINGLE_QUOTED ) != 0 && ! ( _simpleKeyContext && multiline ) ) {
+            this.writeSingleQuoted( _s, split );
+        } else if ( multiline && ( flags & ALLOW_BLOCK ) != 0 ) {
+            this.writeLiteral( _s );
+        } else {
+            this.writeDoubleQuoted( _s, split );
+        }
+        this.indent = savedIndent;
+    }
+
+    //==============================================================================
+
+    /** Same as yamlbeans' ScalarAnalysis: NUL, SPACE, TAB, CR, NEWLINE and NEL */
+    private static boolean isNullBlankTabOrLineBreak( final String _s, final int _ix ) {
+        if ( _ix >= _s.length() ) return true;
+        final char ch = _s.charAt( _ix );
+        return ch == '\0' || ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n' || ch == '\u0085';
+    }
+
+    /**
+     * <p>Single pass over the scalar, to figure out which YAML-quoting-styles are permissible.  Identical rules as yamlbeans' ScalarAnalysis.analyze() (with escapeUnicode = true, the default).</p>
+     * <p>Non-ASCII characters are treated as special characters (so, they will be escaped within double-quotes) - just like yamlbeans does by default.</p>
+     * @return bit-flags (see EMPTY, MULTILINE, ALLOW_*)
+     */
+    private static int analyzeScalar( final String scalar ) {
+        if ( scalar == null )
+            return EMPTY | ALLOW_BLOCK_PLAIN | ALLOW_SINGLE_QUOTED;
+        final int len = scalar.length();
+        if ( len <= 0 )
+            return 0; // only double-quoted: ""
+
+        boolean blockIndicators = scalar.equals( "---" ) || scalar.equals( "..." );
+        boolean lineBreaks = false;
+        boolean specialCharacters = false;
+        boolean inlineBreaks = false;
+        boolean inlineBreaksSpaces = false, mixedBreaksSpaces = false;
+        boolean leadingSpaces = false, leadingBreaks = false, trailingSpaces = false, trailingBreaks = false;
+
+        boolean preceededBySpace = true;
+        boolean spaces = false, breaks = false, mixed = false, leading = false;
+
+        for ( int index = 0; index < len; index ++ ) {
+            final char ch = scalar.charAt( index );
+            final byte cc = ( ch < 128 ) ? CHARCLASS[ch] : SPECIAL;
+            final boolean followedBySpace = isNullBlankTabOrLineBreak( scalar, index + 1 );
+
+            // Check for indicators.
+            if ( index == 0 ) {
+                if ( cc == LEADING_INDICATOR ) blockIndicators = true;
+                else if ( cc == QM_OR_COLON && followedBySpace ) blockIndicators = true;
+                else if ( cc == DASH && followedBySpace ) blockIndicators = true;
+            } else {
+                if ( ch == ':' && followedBySpace ) blockIndicators = true;
+                else if ( ch == '#' && preceededBySpace ) blockIndicators = true;
+            }
+
+            // Check for line breaks, special, and unicode characters.
+            final boolean isBreak = ( cc == LINEBREAK || ch == '\u0085' );
+            if ( isBreak ) lineBreaks = true;
+            if ( cc == SPECIAL || cc == CR_OR_NUL ) specialCharacters = true;
+
+            // Spaces, line breaks, and how they are mixed.
+            if ( cc == SPACE || isBreak ) {
+                if ( spaces && breaks ) {
+                    if ( cc != SPACE ) mixed = true;
+                } else if ( spaces ) {
+                    if ( cc != SPACE ) { breaks = true; mixed = true; }
+                } else if ( breaks ) {
+                    if ( cc == SPACE ) spaces = true;
+                } else {
+                    leading = ( index == 0 );
+                    if ( cc == SPACE ) spaces = true; else breaks = true;
+                }
+            } else if ( spaces || breaks ) {
+                if ( leading ) {
+                    if ( spaces && breaks ) mixedBreaksSpaces = true;
+                    else if ( spaces ) leadingSpaces = true;
+                    else leadingBreaks = true;
+                } else {
+                    if ( mixed ) mixedBreaksSpaces = true;
+                    else if ( spaces && breaks ) inlineBreaksSpaces = true;
+                    else if ( breaks ) inlineBreaks = true;
+                }
+                spaces = breaks = mixed = leading = false;
+            }
+
+            // Series of whitespaces reach the end.
+            if ( ( spaces || breaks ) && index == len - 1 ) {
+                if ( spaces && breaks ) mixedBreaksSpaces = true;
+                else if ( spaces ) { trailingSpaces = true; if ( leading ) leadingSpaces = true; }
+                else { trailingBreaks = true; if ( leading ) leadingBreaks = true; }
+                spaces = breaks = mixed = leading = false;
+            }
+
+            // Prepare for the next character.
+            preceededBySpace = ( cc == SPACE || cc == TAB || cc == CR_OR_NUL || isBreak );
+        }
+
+        boolean allowBlockPlain = true;
+        boolean allowSingleQuoted = true;
+        boolean allowBlock = true;
+        if ( leadingSpaces || leadingBreaks || trailingSpaces ) allowBlock = allowBlockPlain = false;
+        if ( trailingBreaks ) allowBlockPlain = allowSingleQuoted = false;
+        if ( inlineBreaksSpaces || inlineBreaks ) allowBlockPlain = allowSingleQuoted = false;
+        if ( mixedBreaksSpaces || specialCharacters ) allowBlock = allowBlockPlain = allowSingleQuoted = false;
+        if ( lineBreaks ) allowBlockPlain = false;
+        if ( blockIndicators ) allowBlockPlain = false;
+
+        return ( lineBreaks ? MULTILINE : 0 ) | ( allowBlockPlain ? ALLOW_BLOCK_PLAIN : 0 ) | ( allowSingleQuoted ? ALLOW_SINGLE_QUOTED : 0 ) | ( allowBlock ? ALLOW_BLOCK : 0 );
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+    // Everything below is a port of yamlbeans' EmitterWriter
+
+    private void writeRaw( final String _s, final int _start, final int _end ) throws java.io.IOException {
+        this.column += _end - _start;
+        this.javawriter.write( _s, _start, _end - _start );
+    }
+
+    private void writeRaw( final String _s ) throws java.io.IOException {
+        this.column += _s.length();
+        this.javawriter.write( _s );
+    }
+
+    private void writeIndicator( final String _indicator, final boolean _needWhitespace, final boolean _whitespace, final boolean _indentation ) throws java.io.IOException {
+        if ( _needWhitespace && ! this.whitespace ) {
+            this.column ++;
+            this.javawriter.write( ' ' );
+        }
+        this.whitespace = _whitespace;
+        this.indentation = this.indentation && _indentation;
+        this.writeRaw( _indicator );
+    }
+
+    private void writeIndent( final int _indent ) throws java.io.IOException {
+        final int ind = ( _indent < 0 ) ? 0 : _indent;
+        if ( ! this.indentation || this.column > ind || ( this.column == ind && ! this.whitespace ) )
+            this.writeLineBreak( null );
+        if ( this.column < ind ) {
+            this.whitespace = true;
+            int n = ind - this.column;
+            while ( n > 0 ) {
+                final int chunk = Math.min( n, SPACES.length );
+                this.javawriter.write( SPACES, 0, chunk );
+                n -= chunk;
+            }
+            this.column = ind;
+        }
+    }
+
+    private void writeLineBreak( final String _data ) throws java.io.IOException {
+        this.whitespace = true;
+        this.indentation = true;
+        this.column = 0;
+        this.javawriter.write( ( _data == null ) ? this.lineSeparator : _data );
+    }
+
+    /** writes each character of text[_start.._end) as a line-break.  See yamlbeans' EmitterWriter */
+    private void writeLineBreaks( final String text, final int _start, final int _end ) throws java.io.IOException {
+        for ( int i = _start; i < _end; i ++ ) {
+            final char br = text.charAt( i );
+            this.writeLineBreak( ( br == '\n' ) ? null : String.valueOf( br ) );
+        }
+    }
+
+    //==============================================================================
+
+    private void writePlain( final String text, final boolean split ) throws java.io.IOException {
+        if ( text == null || text.length() <= 0 ) return;
+        if ( ! this.whitespace ) {
+            this.column ++;
+            this.javawriter.write( ' ' );
+        }
+        this.whitespace = false;
+        this.indentation = false;
+        boolean spaces = false;
+        boolean breaks = false;
+        int start = 0;
+        final int len = text.length();
+        for ( int end = 0; end <= len; end ++ ) {
+            final char ch = ( end < len ) ? text.charAt( end ) : '\0';
+            if ( spaces ) {
+                if ( ch != ' ' ) {
+                    if ( start + 1 == end && this.column > WRAP_COLUMN && split ) {
+                        this.writeIndent( this.indent );
+                        this.whitespace = false;
+                        this.indentation = false;
+                    } else {
+                        this.writeRaw( text, start, end );
+                    }
+                    start = end;
+                }
+            } else if ( breaks ) {
+                if ( ch != '\n' && ch != '\u0085' ) {
+                    if ( text.charAt( start ) == '\n' ) this.writeLineBreak( null );
+                    this.writeLineBreaks( text, start, end );
+                    this.writeIndent( this.indent );
+                    this.whitespace = false;
+                    this.indentation = false;
+                    start = end;
+                }
+            } else if ( ch == '\0' || ch == ' ' || ch == '\n' || ch == '\u0085' ) {
+                this.writeRaw( text, start, end );
+                start = end;
+            }
+            if ( ch != '\0' ) {
+                spaces = ( ch == ' ' );
+                breaks = ( ch == '\n' || ch == '\u0085' );
+            }
+        }
+    }
+
+    //==============================================================================
+
+    private void writeSingleQuoted( final String text, final boolean split ) throws java.io.IOException {
+        this.writeIndicator( "'", true, false, false );
+        boolean spaces = false;
+        boolean breaks = false;
+        int start = 0;
+        final int len = text.length();
+        for ( int end = 0; end <= len; end ++ ) {
+            final char ch = ( end < len ) ? text.charAt( end ) : '\0';
+            if ( spaces ) {
+                if ( ch == '\0' || ch != ' ' ) {
+                    if ( start + 1 == end && this.column > WRAP_COLUMN && split && start != 0 && end != len ) {
+                        this.writeIndent( this.indent );
+                    } else {
+                        this.writeRaw( text, start, end );
+                    }
+                    start = end;
+                }
+            } else if ( breaks ) {
+                if ( ch == '\0' || ( ch != '\n' && ch != '\u0085' ) ) {
+                    this.writeLineBreaks( text, start, end );
+                    this.writeIndent( this.indent );
+                    start = end;
+                }
+            } else if ( ( ch == '\0' || ( ch != '\n' && ch != '\u0085' ) ) && start < end ) {
+                this.writeRaw( text, start, end );
+                start = end;
+            }
+            if ( ch == '\'' ) {
+                this.writeRaw( "''" );
+                start = end + 1;
+            }
+            if ( ch != '\0' ) {
+                spaces = ( ch == ' ' );
+                breaks = ( ch == '\n' || ch == '\u0085' );
+            }
+        }
+        this.writeIndicator( "'", false, false, false );
+    }
+
+    //==============================================================================
+
+    /** Note: the chomping-indicator is based on the 2nd-last character only - just like yamlbeans */
+    private void writeLiteral( final String text ) throws java.io.IOException {
+        final char secondLast = text.charAt( text.length() - 2 );
+        final String chomp = ( secondLast == '\n' || secondLast == '\u0085' ) ? "" : "-";
+        this.writeIndicator( "|" + chomp, true, false, false );
+        this.writeIndent( this.indent );
+        boolean breaks = false;
+        int start = 0;
+        final int len = text.length();
+        for ( int end = 0; end <= len; end ++ ) {
+            final char ch = ( end < len ) ? text.charAt( end ) : '\0';
+            if ( breaks ) {
+                if ( ch == '\0' || ( ch != '\n' && ch != '\u0085' ) ) {
+                    this.writeLineBreaks( text, start, end );
+                    if ( ch != '\0' ) this.writeIndent( this.indent );
+                    start = end;
+                }
+            } else if ( ch == '\0' || ch == '\n' || ch == '\u0085' ) {
+                this.javawriter.write( text, start, end - start ); // yamlbeans does NOT update the column here
+                if ( ch == '\0' ) this.writeLineBreak( null );
+                start = end;
+            }
+            if ( ch != '\0' ) breaks = ( ch == '\n' || ch == '\u0085' );
+        }
+    }
+
+    //==============================================================================
+
+    private static String escapeReplacement( final int ch ) {
+        switch ( ch ) {
+            case '\0':      return "0";
+            case '\u0007':  return "a";
+            case '\u0008':  return "b";
+            case '\u0009':  return "t";
+            case '\n':      return "n";
+            case '\u000B':  return "v";
+            case '\u000C':  return "f";
+            case '\r':      return "r";
+            case '\u001B':  return "e";
+            case '"':       return "\"";
+            case '\\':      return "\\";
+            case 0x85:      return "N";
+            case 0xA0:      return "_";
+            default:        return null;
+        }
+    }
+
+    private void writeDoubleQuoted( final String _text, final boolean split ) throws java.io.IOException {
+        final String text = ( _text == null ) ? "" : _text;
+        this.writeIndicator( "\"", true, false, false );
+        int start = 0;
+        final int len = text.length();
+        for ( int end = 0; end <= len; end ++ ) {
+            final int ch = ( end < len ) ? text.codePointAt( end ) : 0; // codePointAt() - and yet, advancing one char at a time - just like yamlbeans
+            if ( ch == 0 || ch == '"' || ch == '\\' || ch == '\u0085' || ch < 0x20 || ch > 0x7E ) {
+                if ( start < end ) {
+                    this.writeRaw( text, start, end );
+                    start = end;
+                }
+                if ( ch != 0 ) {
+                    final String repl = escapeReplacement( ch );
+                    final String data;
+                    if ( repl != null ) {
+                        data = "\\" + repl;
+                    } else {
+                        final String hex = Integer.toString( ch, 16 );
+                        data = "\\u" + "000".substring( Math.min( 3, hex.length() - 1 ) ) + hex;
+                    }
+                    this.writeRaw( data );
+                    start = end + 1;
+                }
+            }
+            if ( 0 < end && end < len - 1 && ( ch == ' ' || start <= end ) && this.column + ( end - start ) > WRAP_COLUMN && split ) {
+                final String data = ( start < end ) ? text.substring( start, end ) + "\\" : "\\";
+                if ( start < end ) start = end;
+                this.writeRaw( data );
+                this.writeIndent( this.indent );
+                this.whitespace = false;
+                this.indentation = false;
+                if ( text.charAt( start ) == ' ' ) {
+                    this.writeRaw( "\\" );
+                }
+            }
+        }
+        this.writeIndicator( "\"", false, false, false );
+    }
+
+}
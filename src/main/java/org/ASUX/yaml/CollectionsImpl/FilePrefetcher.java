@@ -0,0 +1,158 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import org.ASUX.yaml.YAML_Libraries;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/** <p>Reads &amp; parses YAML/JSON files concurrently, ahead of the batch-file line that needs them.  Only those files that {@link BatchDataflow} determined are NOT written by the batch-file.</p>
+ *  <p>{@link InputsOutputs#getDataFromReference} first checks here (via {@link #take}).  Each prefetched file is handed out just ONCE - any further reads of the same file are done as usual.</p>
+ *  <p>Results and errors are identical to NOT prefetching:</p><ol>
+ *  <li>If the file was modified (timestamp or size) after it was prefetched, the prefetched content is discarded.</li>
+ *  <li>If prefetching failed (example: file does Not exist, or it has a syntax error), nothing is reported.  The file is read again, at the same point as always - and THAT reports the error, as always.</li>
+ *  </ol>
+ *  <p>Opt-in via {@link TuningOptions#dataflowPrefetch()}.</p>
+ */
+public final class FilePrefetcher {
+
+    public static final String CLASSNAME = FilePrefetcher.class.getName();
+
+    private static final class Entry {
+        final Future<Object> future;
+        final long lastModified;
+        final long length;
+        final YAML_Libraries yamlLibrary;
+        Entry( final Future<Object> _f, final long _lm, final long _len, final YAML_Libraries _lib ) { this.future = _f; this.lastModified = _lm; this.length = _len; this.yamlLibrary = _lib; }
+    }
+
+    private static final ConcurrentHashMap<String, Entry> PREFETCHED = new ConcurrentHashMap<>();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder DISCARDED = new LongAdder();
+
+    private FilePrefetcher() {} // static methods only
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Starts reading &amp; parsing _files in the background (on daemon threads).  Returns immediately.
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @param _files names of YAML/JSON files (Not prefixed with '@').  Relative or absolute - see {@link BatchDataflow#normalize}
+     * @param _yamlLibrary the YAML-library to parse YAML-files with (JSON-files are always parsed with Jackson)
+     * @param _parallelism how many files to read concurrently
+     */
+    public static void start( final boolean _verbose, final Collection<String> _files, final YAML_Libraries _yamlLibrary, final int _parallelism ) {
+        if ( _files.isEmpty() ) return;
+        final ExecutorService pool = Executors.newFixedThreadPool( Math.max( 1, Math.min( _parallelism, _files.size() ) ), r -> {
+            final Thread t = new Thread( r, CLASSNAME );
+            t.setDaemon( true );
+            return t;
+        });
+        for ( String f: _files ) {
+            final File file = new File( f );
+            final Future<Object> future = pool.submit( () -> parse( f, _yamlLibrary ) );
+            PREFETCHED.put( BatchDataflow.normalize( f ), new Entry( future, file.lastModified(), file.length(), _yamlLibrary ) );
+        }
+        pool.shutdown(); // the threads go away, once all the files are done.
+        if ( _verbose ) System.out.println( CLASSNAME +": start(): prefetching "+ _files );
+    }
+
+    /**
+     * @param _srcFile name of the YAML/JSON file (Not prefixed with '@'), exactly as within the batch-file
+     * @param _yamlLibrary the YAML-library that the caller would have parsed the file with.  If different from what it was prefetched with, the prefetched content is discarded.
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @return the parsed content (LinkedHashMap) if it was prefetched successfully, and the file has NOT changed since.  Otherwise null.
+     */
+    public static Object take( final String _srcFile, final YAML_Libraries _yamlLibrary, final boolean _verbose ) {
+        if ( PREFETCHED.isEmpty() ) return null;
+        final Entry e = PREFETCHED.remove( BatchDataflow.normalize( _srcFile ) ); // so that './x.yaml' and 'x.yaml' are the same file
+        if ( e == null ) return null;
+        try {
+            final Object o = e.future.get();
+            final File file = new File( _srcFile );
+            if ( file.lastModified() != e.lastModified || file.length() != e.length || ( _srcFile.endsWith(".yaml") && _yamlLibrary != e.yamlLibrary ) ) {
+                if ( _verbose ) System.out.println( CLASSNAME +": take(): discarding, as file (or YAML-library) changed since prefetched: "+ _srcFile );
+                DISCARDED.increment();
+                return null;
+            }
+            HITS.increment();
+            BatchProfiler.addCacheHit();
+            return o;
+        } catch( Exception ex ) { // InterruptedException, ExecutionException ..
+            if ( _verbose ) System.out.println( CLASSNAME +": take(): prefetch failed for "+ _srcFile +" .. will read it again. "+ ex );
+            DISCARDED.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Discards whatever of _files was prefetched (and Not yet taken).  Invoke when the batch-file is done.
+     * @param _files same as what was passed to {@link #start} (Not everything prefetched, as a batch-file can invoke another batch-file)
+     */
+    public static void clear( final Collection<String> _files ) {
+        for ( String f: _files ) {
+            final Entry e = PREFETCHED.remove( BatchDataflow.normalize( f ) );
+            if ( e != null ) e.future.cancel( true );
+        }
+    }
+
+    /** @return a one-line summary (since JVM started) */
+    public static String getStats() {
+        return CLASSNAME +": prefetched files used="+ HITS.sum() +", discarded (changed or failed)="+ DISCARDED.sum();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** Same parsing as {@link InputsOutputs#getDataFromReference} does for '@file.json' and '@file.yaml' */
+    private static Object parse( final String _srcFile, final YAML_Libraries _yamlLibrary ) throws Exception {
+        try ( FileInputStream fs = new FileInputStream( _srcFile ) ) {
+            if ( _srcFile.endsWith(".json") )
+                return JSONMapperRegistry.readMap( fs );
+            final GenericYAMLScanner scanner = new GenericYAMLScanner( false );
+            scanner.setYamlLibrary( _yamlLibrary );
+            return scanner.load( new java.io.InputStreamReader( fs ) ).getMap();
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/** <p>Merges the outputs of each iteration of a 'foreach' into the loop's output - one iteration at a time, as soon as that iteration completes.
+ *  Nothing of an iteration is retained, other than what's merged into the loop's output.</p>
+ *  <p>What happens when 2 iterations output the same (top-level) key, is per {@link TuningOptions#foreachMerge()}:</p><ol>
+ *  <li><code>last-wins</code> (the default) - the later iteration's value replaces the earlier one's.  Exactly like it has always been.</li>
+ *  <li><code>first-wins</code> - the earlier iteration's value is kept.</li>
+ *  <li><code>deep-merge</code> - if both values are Maps, they're merged recursively (key by key, in the same manner).  If both are Lists, the later iteration's elements are appended.  Otherwise, last-wins.</li>
+ *  <li><code>error</code> - the 'foreach' fails, unless both values are identical (see {@link YAMLTreeHash#deepEquals}).</li>
+ *  </ol>
+ *  <p>deep-merge NEVER modifies any iteration's output.  Where an earlier iteration's Map/List needs to be modified, it is first copied (once).</p>
+ */
+public final class ForeachAccumulator {
+
+    public static final String CLASSNAME = ForeachAccumulator.class.getName();
+
+    public enum ConflictPolicy { LAST_WINS, FIRST_WINS, DEEP_MERGE, ERROR }
+
+    private static final LongAdder ITERATIONS_MERGED = new LongAdder();
+    private static final LongAdder CONFLICTS = new LongAdder();
+
+    private final boolean verbose;
+    private final ConflictPolicy policy;
+    private final LinkedHashMap<String, Object> output = new LinkedHashMap<String, Object>();
+    /** deep-merge only: the Maps/Lists within {@link #output} that were created here (and so, can be modified here) */
+    private final Set<Object> owned = Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>() );
+    private int iterationsMerged = 0;
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @param _policy one of: last-wins, first-wins, deep-merge, error (case-insensitive).  null means last-wins.
+     * @throws Exception if _policy is none of the above
+     */
+    public ForeachAccumulator( final boolean _verbose, final String _policy ) throws Exception {
+        this.verbose = _verbose;
+        this.policy = parse( _policy );
+    }
+
+    /**
+     * @param _policy one of: last-wins, first-wins, deep-merge, error (case-insensitive).  null means last-wins.
+     * @return the corresponding value
+     * @throws Exception if _policy is none of the above
+     */
+    public static ConflictPolicy parse( final String _policy ) throws Exception {
+        if ( _policy == null ) return ConflictPolicy.LAST_WINS;
+        switch( _policy.trim().toLowerCase() ) {
+            case "last-wins":   return ConflictPolicy.LAST_WINS;
+            case "first-wins":  return ConflictPolicy.FIRST_WINS;
+            case "deep-merge":  return ConflictPolicy.DEEP_MERGE;
+            case "error":       return ConflictPolicy.ERROR;
+            default:
+                throw new Exception( CLASSNAME +": parse(): Invalid value ["+ _policy +"] for system-property "+ TuningOptions.FOREACHMERGE +".  Valid values are: last-wins, first-wins, deep-merge, error" );
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Merges ONE iteration's output.  Must be invoked in iteration-order.
+     * @param _iterationOutput the output of the loop-body (can be null)
+     * @param _ix the iteration # (for error messages)
+     * @throws BatchYamlProcessor.BatchFileException if the policy is <code>error</code>, and _iterationOutput has a key that an earlier iteration output a different value for
+     */
+    public void merge( final LinkedHashMap<String, Object> _iterationOutput, final int _ix ) throws BatchYamlProcessor.BatchFileException {
+        this.iterationsMerged ++;
+        if ( _iterationOutput == null ) return;
+        ITERATIONS_MERGED.increment();
+        if ( this.policy == ConflictPolicy.LAST_WINS ) {
+            this.output.putAll( _iterationOutput );
+            return;
+        }
+        for ( Map.Entry<String, Object> e: _iterationOutput.entrySet() ) {
+            final String key = e.getKey();
+            if ( ! this.output.containsKey( key ) ) {
+                this.output.put( key, e.getValue() );
+                continue;
+            }
+            CONFLICTS.increment();
+            switch( this.policy ) {
+                case FIRST_WINS:
+                    break;
+                case DEEP_MERGE:
+                    this.output.put( key, this.deepMerge( this.output.get( key ), e.getValue() ) );
+                    break;
+                case ERROR:
+                    if ( ! YAMLTreeHash.deepEquals( this.output.get( key ), e.getValue() ) )
+                        throw new BatchYamlProcessor.BatchFileException( CLASSNAME +": merge(): ERROR: iteration #"+ _ix +" of 'foreach' output the key ["+ key +"], for which an earlier iteration output a different value.  See system-property "+ TuningOptions.FOREACHMERGE );
+                    break;
+                case LAST_WINS:
+                default:
+                    this.output.put( key, e.getValue() );
+            }
+        }
+        if ( this.verbose ) System.out.println( CLASSNAME +": merge(): after iteration #"+ _ix +" output has "+ this.output.size() +" keys." );
+    }
+
+    /** @return the merged output of all the iterations so far */
+    public LinkedHashMap<String, Object> getOutput() {
+        return this.output;
+    }
+
+    /** @return how many times {@link #merge} was invoked (which is the iteration # of the next iteration to merge) */
+    public int getIterationsMerged() {
+        return this.iterationsMerged;
+    }
+
+    /** @return a one-line summary, for the profile-report (see {@link BatchProfiler}) */
+    public static String getStats() {
+        return "iterationsMerged="+ ITERATIONS_MERGED.sum() +" conflicts="+ CONFLICTS.sum();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** @return the merged value.  _existing is modified ONLY if it was created here (see {@link #owned}) */
+    @SuppressWarnings("unchecked")
+    private Object deepMerge( final Object _existing, final Object _incoming ) {
+        if ( _existing instanceof Map && _incoming instanceof Map ) {
+            final Map<String, Object> target = this.ownedMap( (Map<String, Object>) _existing );
+            for ( Map.Entry<String, Object> e: ((Map<String, Object>) _incoming).entrySet() ) {
+                final Object prev = target.get( e.getKey() );
+                target.put( e.getKey(), ( prev == null ) ? e.getValue() : this.deepMerge( prev, e.getValue() ) );
+            }
+            return target;
+        } else if ( _existing instanceof List && _incoming instanceof List ) {
+            final List<Object> target = this.ownedList( (List<Object>) _existing );
+            target.addAll( (List<Object>) _incoming );
+            return target;
+        } else {
+            return _incoming;
+        }
+    }
+
+    private Map<String, Object> ownedMap( final Map<String, Object> _m ) {
+        if ( this.owned.contains( _m ) ) return _m;
+        final LinkedHashMap<String, Object> copy = new LinkedHashMap<String, Object>( _m ); // shallow.  Nested Maps/Lists are copied only if they too need to be modified.
+        this.owned.add( copy );
+        return copy;
+    }
+
+    private List<Object> ownedList( final List<Object> _l ) {
+        if ( this.owned.contains( _l ) ) return _l;
+        final ArrayList<Object> copy = new ArrayList<Object>( _l );
+        this.owned.add( copy );
+        return copy;
+    }
+
+}
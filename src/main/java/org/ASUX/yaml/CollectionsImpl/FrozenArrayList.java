@@ -0,0 +1,118 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/** <p>An immutable java.util.ArrayList&lt;Object&gt; - one (YAML-sequence) node of a frozen YAML-tree.  See {@link PersistentYAMLTree}.</p>
+ *  <p>It IS-A ArrayList, so that it can be passed to every API of this library (and to the YAML/JSON writers) unchanged.
+ *  Every method that would modify it throws java.lang.UnsupportedOperationException - including via iterators and subList().</p>
+ *  <p>Only {@link PersistentYAMLTree} creates instances of this class.  To get a modifiable copy, use {@link PersistentYAMLTree#thaw(ArrayList)} (or clone()).</p>
+ */
+public final class FrozenArrayList extends ArrayList<Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CLASSNAME = FrozenArrayList.class.getName();
+
+    /** ONLY for use by {@link YAMLTreeHash} - which caches the hash of this (immutable) node here.  0 means Not yet computed. */
+    transient volatile long treeHash = 0;
+
+    /** @param _initialCapacity see java.util.ArrayList constructor */
+    FrozenArrayList( final int _initialCapacity ) {
+        super( _initialCapacity );
+    }
+
+    /** ONLY for use by {@link PersistentYAMLTree}, while this node is being built */
+    void addWhileFreezing( final Object _o ) {
+        super.add( _o );
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    private UnsupportedOperationException frozen( final String _method ) {
+        return new UnsupportedOperationException( CLASSNAME +": "+ _method +"(): this YAML is a frozen snapshot.  Use PersistentYAMLTree.thaw() to get a modifiable copy." );
+    }
+
+    @Override public boolean add( final Object _o )                          { throw frozen( "add" ); }
+    @Override public void add( final int _ix, final Object _o )              { throw frozen( "add" ); }
+    @Override public boolean addAll( final Collection<?> _c )                { throw frozen( "addAll" ); }
+    @Override public boolean addAll( final int _ix, final Collection<?> _c ) { throw frozen( "addAll" ); }
+    @Override public Object set( final int _ix, final Object _o )            { throw frozen( "set" ); }
+    @Override public Object remove( final int _ix )                          { throw frozen( "remove" ); }
+    @Override public boolean remove( final Object _o )                       { throw frozen( "remove" ); }
+    @Override public boolean removeAll( final Collection<?> _c )             { throw frozen( "removeAll" ); }
+    @Override public boolean retainAll( final Collection<?> _c )             { throw frozen( "retainAll" ); }
+    @Override public boolean removeIf( final Predicate<? super Object> _p )  { throw frozen( "removeIf" ); }
+    @Override protected void removeRange( final int _from, final int _to )   { throw frozen( "removeRange" ); }
+    @Override public void clear()                                            { throw frozen( "clear" ); }
+    @Override public void replaceAll( final UnaryOperator<Object> _op )      { throw frozen( "replaceAll" ); }
+    @Override public void sort( final Comparator<? super Object> _c )        { throw frozen( "sort" ); }
+
+    @Override public Iterator<Object> iterator()               { return this.listIterator( 0 ); }
+    @Override public ListIterator<Object> listIterator()       { return this.listIterator( 0 ); }
+    @Override public List<Object> subList( final int _from, final int _to ) { return Collections.unmodifiableList( super.subList( _from, _to ) ); }
+
+    @Override
+    public ListIterator<Object> listIterator( final int _ix ) {
+        final ListIterator<Object> it = super.listIterator( _ix );
+        return new ListIterator<Object>() {
+            public boolean hasNext()     { return it.hasNext(); }
+            public Object next()         { return it.next(); }
+            public boolean hasPrevious() { return it.hasPrevious(); }
+            public Object previous()     { return it.previous(); }
+            public int nextIndex()       { return it.nextIndex(); }
+            public int previousIndex()   { return it.previousIndex(); }
+            public void remove()         { throw frozen( "remove" ); }
+            public void set( Object _o ) { throw frozen( "set" ); }
+            public void add( Object _o ) { throw frozen( "add" ); }
+        };
+    }
+
+    /** @return a MODIFIABLE shallow copy (a plain java.util.ArrayList), same as {@link PersistentYAMLTree#thaw(ArrayList)} */
+    @Override
+    public Object clone() {
+        return new ArrayList<Object>( this );
+    }
+
+}
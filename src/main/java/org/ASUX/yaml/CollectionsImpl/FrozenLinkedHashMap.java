@@ -0,0 +1,116 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/** <p>An immutable java.util.LinkedHashMap&lt;String,Object&gt; - one node of a frozen YAML-tree.  See {@link PersistentYAMLTree}.</p>
+ *  <p>It IS-A LinkedHashMap, so that it can be passed to every API of this library (and to the YAML/JSON writers) unchanged.
+ *  Every method that would modify it throws java.lang.UnsupportedOperationException - including via keySet(), values() and entrySet() and their iterators.</p>
+ *  <p>Only {@link PersistentYAMLTree} creates instances of this class.  To get a modifiable copy, use {@link PersistentYAMLTree#thaw(LinkedHashMap)} (or clone()).</p>
+ */
+public final class FrozenLinkedHashMap extends LinkedHashMap<String,Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CLASSNAME = FrozenLinkedHashMap.class.getName();
+
+    /** A read-only view of the superclass's data, so that the Unmodifiable-wrappers from java.util.Collections can be used (without infinite recursion back into this class's overridden methods) */
+    private transient Map<String,Object> unmodifiableView = null;
+
+    /** ONLY for use by {@link YAMLTreeHash} - which caches the hash of this (immutable) node here.  0 means Not yet computed. */
+    transient volatile long treeHash = 0;
+
+    /** @param _initialCapacity see java.util.LinkedHashMap constructor */
+    FrozenLinkedHashMap( final int _initialCapacity ) {
+        super( _initialCapacity );
+    }
+
+    /** ONLY for use by {@link PersistentYAMLTree}, while this node is being built */
+    void putWhileFreezing( final String _key, final Object _val ) {
+        super.put( _key, _val );
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    private UnsupportedOperationException frozen( final String _method ) {
+        return new UnsupportedOperationException( CLASSNAME +": "+ _method +"(): this YAML is a frozen snapshot.  Use PersistentYAMLTree.thaw() to get a modifiable copy." );
+    }
+
+    private Map<String,Object> view() {
+        if ( this.unmodifiableView == null ) {
+            final Map<String,Object> raw = new AbstractMap<String,Object>() {
+                public Set<Map.Entry<String,Object>> entrySet() { return FrozenLinkedHashMap.super.entrySet(); }
+                public Set<String> keySet() { return FrozenLinkedHashMap.super.keySet(); }
+                public Collection<Object> values() { return FrozenLinkedHashMap.super.values(); }
+                public int size() { return FrozenLinkedHashMap.this.size(); }
+            };
+            this.unmodifiableView = Collections.unmodifiableMap( raw );
+        }
+        return this.unmodifiableView;
+    }
+
+    @Override public Set<Map.Entry<String,Object>> entrySet() { return this.view().entrySet(); }
+    @Override public Set<String> keySet()                     { return this.view().keySet(); }
+    @Override public Collection<Object> values()              { return this.view().values(); }
+
+    @Override public Object put( final String _k, final Object _v )                 { throw frozen( "put" ); }
+    @Override public void putAll( final Map<? extends String, ? extends Object> _m ) { throw frozen( "putAll" ); }
+    @Override public Object putIfAbsent( final String _k, final Object _v )         { throw frozen( "putIfAbsent" ); }
+    @Override public Object remove( final Object _k )                               { throw frozen( "remove" ); }
+    @Override public boolean remove( final Object _k, final Object _v )             { throw frozen( "remove" ); }
+    @Override public Object replace( final String _k, final Object _v )             { throw frozen( "replace" ); }
+    @Override public boolean replace( final String _k, final Object _o, final Object _n ) { throw frozen( "replace" ); }
+    @Override public void clear()                                                   { throw frozen( "clear" ); }
+    @Override public void replaceAll( final BiFunction<? super String, ? super Object, ? extends Object> _f ) { throw frozen( "replaceAll" ); }
+    @Override public Object compute( final String _k, final BiFunction<? super String, ? super Object, ? extends Object> _f ) { throw frozen( "compute" ); }
+    @Override public Object computeIfAbsent( final String _k, final Function<? super String, ? extends Object> _f ) { throw frozen( "computeIfAbsent" ); }
+    @Override public Object computeIfPresent( final String _k, final BiFunction<? super String, ? super Object, ? extends Object> _f ) { throw frozen( "computeIfPresent" ); }
+    @Override public Object merge( final String _k, final Object _v, final BiFunction<? super Object, ? super Object, ? extends Object> _f ) { throw frozen( "merge" ); }
+
+    /** @return a MODIFIABLE shallow copy (a plain java.util.LinkedHashMap), same as {@link PersistentYAMLTree#thaw(LinkedHashMap)} */
+    @Override
+    public Object clone() {
+        return new LinkedHashMap<String,Object>( this );
+    }
+
+}
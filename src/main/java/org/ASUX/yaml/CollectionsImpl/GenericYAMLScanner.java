@@ -46,6 +46,7 @@ import java.util.LinkedList;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.LinkedHashMap;
+import java.util.Iterator;
 
 import static org.junit.Assert.*;
 
@@ -57,6 +58,11 @@ public class GenericYAMLScanner {
 
     private YAML_Libraries sYAMLLibrary = YAML_Libraries.CollectionsImpl_Library;
 
+    /** <p>One shared (and effectively immutable) configuration for ALL instances of com.esotericsoftware.yamlbeans.YamlReader, instead of creating &amp; re-configuring one per {@link #load} call.</p>
+     *  <p>Do NOT modify this.  If you need a different configuration, create your own com.esotericsoftware.yamlbeans.YamlConfig.</p>
+     */
+    public static final com.esotericsoftware.yamlbeans.YamlConfig SHARED_YAMLCONFIG = new com.esotericsoftware.yamlbeans.YamlConfig();
+
     //=================================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=================================================================================
@@ -106,8 +112,8 @@ public class GenericYAMLScanner {
         switch ( this.getYamlLibrary() ) {
             case CollectionsImpl_Library:
             case ESOTERICSOFTWARE_Library:
-                final com.esotericsoftware.yamlbeans.YamlReader reader = new com.esotericsoftware.yamlbeans.YamlReader( _inreader );
-                this.defaultConfigurationForYamlReader( reader );
+                // the configuration is shared.  See SHARED_YAMLCONFIG.  defaultConfigurationForYamlReader() has nothing to add to it, at this time.
+                final com.esotericsoftware.yamlbeans.YamlReader reader = new com.esotericsoftware.yamlbeans.YamlReader( _inreader, SHARED_YAMLCONFIG );
                 if ( this.verbose ) System.out.println( CLASSNAME +" load(): about to read YAML using "+ this.getYamlLibrary() );
 
                 final LinkedHashMap inputDataObj = reader.read( LinkedHashMap.class ); // LinkedHashMap.class );
@@ -138,6 +144,61 @@ public class GenericYAMLScanner {
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
 
+    /**
+     * <p>Unlike {@link #load}, which loads just the 1st document, this is for a YAML stream with MANY documents (each starting with '---').</p>
+     * <p>Nothing is read yet.  The documents are read one at a time, as and when the returned list is iterated.  See {@link StreamingSequence}.
+     * So, a 'foreach' over a huge multi-document YAML file, needs memory for just one document at a time.</p>
+     * @param _inreader either a StringReader or a FileReader.  It is closed once all the documents have been read.
+     * @param _description used in error-messages (example: the file-name)
+     * @return a non-null list, whose elements are the documents (typically, a LinkedHashMap each)
+     * @throws Exception if the YAML-Library specified via {@link #setYamlLibrary} does Not support this.
+     */
+    public StreamingSequence loadAllDocuments( final java.io.Reader _inreader, final String _description ) throws Exception
+    {
+        if (this.verbose) System.out.println( CLASSNAME + ": loadAllDocuments(java.io.Reader): this.getYamlLibrary()="+ this.getYamlLibrary() );
+
+        switch ( this.getYamlLibrary() ) {
+            case CollectionsImpl_Library:
+            case ESOTERICSOFTWARE_Library:
+                // the configuration is shared.  See SHARED_YAMLCONFIG.
+                final com.esotericsoftware.yamlbeans.YamlReader reader = new com.esotericsoftware.yamlbeans.YamlReader( _inreader, SHARED_YAMLCONFIG );
+                final Iterator<Object> documents = new Iterator<Object>() {
+                    private Object nextDoc = null;
+                    private boolean done = false;
+                    public boolean hasNext() {
+                        if ( this.nextDoc != null ) return true;
+                        if ( this.done ) return false;
+                        try {
+                            this.nextDoc = reader.read(); // null, if there are no more documents
+                        } catch( com.esotericsoftware.yamlbeans.YamlException e ) {
+                            throw new IllegalStateException( CLASSNAME +": loadAllDocuments(): ERROR reading a YAML-document from "+ _description +": "+ e.getMessage(), e );
+                        }
+                        this.done = ( this.nextDoc == null );
+                        return ! this.done;
+                    }
+                    public Object next() {
+                        if ( ! this.hasNext() ) throw new java.util.NoSuchElementException( _description );
+                        final Object o = this.nextDoc;
+                        this.nextDoc = null;
+                        return o;
+                    }
+                };
+                return new StreamingSequence( documents, _inreader, _description );
+
+            case NodeImpl_Library:
+            case SNAKEYAML_Library:
+            case ASUXYAML_Library:
+            default:
+                final String es = CLASSNAME + ": loadAllDocuments(): Unimplemented YAML-Library: " + this.getYamlLibrary();
+                System.err.println( es );
+                throw new Exception( es );
+        } // switch
+    } //function
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
     public void defaultConfigurationForYamlReader( com.esotericsoftware.yamlbeans.YamlReader reader )
     {
         // reader.getConfig().readConfig.setClassLoader( Equals.class.getClassLoader() );
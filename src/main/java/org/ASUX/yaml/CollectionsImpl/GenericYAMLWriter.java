@@ -45,6 +45,7 @@ import java.io.InputStream;
 import java.util.LinkedList;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 
 import static org.junit.Assert.*;
@@ -60,11 +61,19 @@ public class GenericYAMLWriter {
     private boolean verbose;
 
     protected com.esotericsoftware.yamlbeans.YamlWriter esotericsoftwareWriter = null;
+    protected FastYAMLEmitter fastEmitter = null;
 
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
 
     private YAML_Libraries sYAMLLibrary = YAML_Libraries.CollectionsImpl_Library;
 
+    /** <p>One shared (and effectively immutable) configuration for ALL instances of com.esotericsoftware.yamlbeans.YamlWriter, instead of creating &amp; re-configuring one per {@link #prepare} call.</p>
+     *  <p>Do NOT modify this.  If you need a different configuration, create your own com.esotericsoftware.yamlbeans.YamlConfig.</p>
+     *  <p>It is shared across threads too (example: {@link Tools#Map2YAMLString} from a parallel 'foreach').  That's safe, because it is fully set up within this class's static-initializer (so, safely published), and from then on com.esotericsoftware.yamlbeans only ever READS it:
+     *  YamlWriter keeps all of its per-write state (anchors, reference-counts, default-value prototypes) in its own fields, and the Emitter only reads the EmitterConfig.  (Checked against yamlbeans 1.17.)</p>
+     */
+    public static final com.esotericsoftware.yamlbeans.YamlConfig SHARED_YAMLCONFIG = newDefaultYamlConfig();
+
     //=================================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //=================================================================================
@@ -117,11 +126,15 @@ public class GenericYAMLWriter {
         switch ( this.getYamlLibrary() ) {
             case CollectionsImpl_Library:
             case ESOTERICSOFTWARE_Library:
+                if ( TuningOptions.fastYamlEmitter() ) { // opt-in.  Same output as com.esotericsoftware.yamlbeans.YamlWriter below, but much faster.
+                    this.fastEmitter = new FastYAMLEmitter( this.verbose, _javawriter );
+                    this.fastEmitter.setAnchorFrozenNodes( TuningOptions.anchorSharedPayloads() );
+                    break;
+                }
                 // prepare for output: whether it goes to System.out -or- to an actual output-file.
-                this.esotericsoftwareWriter = new com.esotericsoftware.yamlbeans.YamlWriter( _javawriter );
+                // the configuration is shared (and was already set up exactly as per defaultConfigurationForEsotericsoftwareYamlWriter()).  See SHARED_YAMLCONFIG
+                this.esotericsoftwareWriter = new com.esotericsoftware.yamlbeans.YamlWriter( _javawriter, SHARED_YAMLCONFIG );
                 // WARNING!!! com.esotericsoftware.yamlbeans.YamlWriter takes over stdout, and it will STOP working for all System.out.println();
-
-                this.defaultConfigurationForEsotericsoftwareYamlWriter( this.esotericsoftwareWriter ); // , cmdLineArgs.quoteType
                 break;
 
             case NodeImpl_Library:
@@ -151,11 +164,16 @@ public class GenericYAMLWriter {
 
             case CollectionsImpl_Library:
             case ESOTERICSOFTWARE_Library:
-                if (this.esotericsoftwareWriter != null) {
+                if (this.esotericsoftwareWriter != null || this.fastEmitter != null) {
                     if ( _output instanceof LinkedHashMap || _output instanceof ArrayList || _output instanceof LinkedList || _output instanceof String ) {
                         if (this.verbose) System.out.println( CLASSNAME + ": write(): writing output " + _output + "]" );
                         if (this.verbose) System.out.println( CLASSNAME + ": write(): final output is of type " + _output.getClass().getName() + "]" );
-                        this.esotericsoftwareWriter.write( _output );
+                        if ( this.fastEmitter != null )
+                            this.fastEmitter.write( _output ); // see TuningOptions.fastYamlEmitter()
+                        else if ( TuningOptions.sharedPayloads() && ! TuningOptions.anchorSharedPayloads() )
+                            this.esotericsoftwareWriter.write( unshareFrozenNodes( _output, new IdentityHashMap<Object,Object>() ) );
+                        else
+                            this.esotericsoftwareWriter.write( _output );
                         // @SuppressWarnings("unchecked")
                         // final LinkedHashMap<String, Object> map = (LinkedHashMap<String, Object>) _output;
                         // this.esotericsoftwareWriter.write(map);
@@ -192,6 +210,9 @@ public class GenericYAMLWriter {
 
             case CollectionsImpl_Library:
             case ESOTERICSOFTWARE_Library:
+                if ( this.fastEmitter != null )
+                    this.fastEmitter.close();
+                this.fastEmitter = null;
                 if ( this.esotericsoftwareWriter != null )
                     esotericsoftwareWriter.close();
                 this.esotericsoftwareWriter = null;
@@ -208,26 +229,101 @@ public class GenericYAMLWriter {
         } // switch
     }
 
+    //==============================================================================
+
+    /** <p>com.esotericsoftware.yamlbeans.YamlWriter can Not skip anchors for specific objects.  When Insert/Replace commands share one frozen copy of the new content across many locations (see {@link SharedPayload}), YamlWriter would write the 2nd location onwards as '*1'.</p>
+     *  <p>So, every frozen node (see {@link PersistentYAMLTree}) is replaced by its own private copy - just like each location would have had, without {@link TuningOptions#sharedPayloads()}.
+     *  All the other nodes keep their identity (if they're shared, they're still shared - via _copies).  So, they get anchors/aliases exactly as before.</p>
+     *  <p>A node with No frozen node beneath it, is returned as-is (Not copied).</p>
+     *  @param _o the YAML content (or any node within)
+     *  @param _copies original-node -&gt; what it was replaced with (itself, if nothing beneath was frozen)
+     *  @return _o itself, or a copy in which the frozen nodes are private copies
+     */
+    @SuppressWarnings("unchecked")
+    private static Object unshareFrozenNodes( final Object _o, final IdentityHashMap<Object,Object> _copies ) throws Exception {
+        if ( PersistentYAMLTree.isFrozen( _o ) )
+            return YAMLTreeCloner.deepClone( _o ); // a plain LinkedHashMap/ArrayList, and a new one at every location
+        if ( ! ( _o instanceof Map || _o instanceof java.util.List ) )
+            return _o;
+        final Object done = _copies.get( _o );
+        if ( done != null ) return done;
+        _copies.put( _o, _o ); // YAML-trees have No cycles.  This is just in case.
+
+        Object retval = _o;
+        if ( _o instanceof LinkedHashMap ) {
+            final LinkedHashMap<String,Object> src = (LinkedHashMap<String,Object>) _o;
+            LinkedHashMap<String,Object> copy = null;
+            int count = 0;
+            for ( Map.Entry<String,Object> entry: src.entrySet() ) {
+                final Object child = entry.getValue();
+                final Object newChild = unshareFrozenNodes( child, _copies );
+                if ( newChild != child && copy == null ) {
+                    copy = new LinkedHashMap<String,Object>( Math.max( 16, (int) ( src.size() / 0.75f ) + 1 ) );
+                    for ( Map.Entry<String,Object> prev: src.entrySet() ) { // the 'count' entries BEFORE this one are unchanged
+                        if ( copy.size() >= count ) break;
+                        copy.put( prev.getKey(), prev.getValue() );
+                    }
+                }
+                if ( copy != null ) copy.put( entry.getKey(), newChild );
+                count ++;
+            }
+            if ( copy != null ) retval = copy;
+        } else if ( _o instanceof ArrayList || _o instanceof LinkedList ) {
+            final java.util.List<Object> src = (java.util.List<Object>) _o;
+            java.util.List<Object> copy = null;
+            for ( int ix=0; ix < src.size(); ix ++ ) {
+                final Object child = src.get( ix );
+                final Object newChild = unshareFrozenNodes( child, _copies );
+                if ( newChild != child && copy == null ) {
+                    copy = ( _o instanceof LinkedList ) ? new LinkedList<Object>() : new ArrayList<Object>( src.size() );
+                    copy.addAll( src.subList( 0, ix ) );
+                }
+                if ( copy != null ) copy.add( newChild );
+            }
+            if ( copy != null ) retval = copy;
+        }
+        _copies.put( _o, retval );
+        return retval;
+    }
+
     //==============================================================================
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
 
+    /**
+     * Applies this library's default configuration to the YamlWriter's configuration.  Note: {@link #prepare} no longer needs this, as it uses {@link #SHARED_YAMLCONFIG} (which already has this configuration).
+     * @param esotericsoftwareWriter Not-Null
+     * @throws Exception not thrown at this time
+     */
     public void defaultConfigurationForEsotericsoftwareYamlWriter( com.esotericsoftware.yamlbeans.YamlWriter esotericsoftwareWriter ) throws Exception
                                             // com.esotericsoftware.yamlbeans.YamlConfig.Quote qtyp
     {
         assert ( this.getYamlLibrary() == YAML_Libraries.CollectionsImpl_Library || this.getYamlLibrary() == YAML_Libraries.ESOTERICSOFTWARE_Library );
+        defaultConfiguration( esotericsoftwareWriter.getConfig() );
+    }
+
+    /**
+     * @return a new instance of com.esotericsoftware.yamlbeans.YamlConfig, with this library's default configuration
+     */
+    public static com.esotericsoftware.yamlbeans.YamlConfig newDefaultYamlConfig() {
+        final com.esotericsoftware.yamlbeans.YamlConfig config = new com.esotericsoftware.yamlbeans.YamlConfig();
+        defaultConfiguration( config );
+        return config;
+    }
 
-        // esotericsoftwareWriter.getConfig().writeConfig.setWriteRootTags(false); // Does NOTHING :-
-        esotericsoftwareWriter.getConfig().writeConfig.setWriteClassname(
+    private static void defaultConfiguration( final com.esotericsoftware.yamlbeans.YamlConfig _config )
+    {
+        // _config.writeConfig.setWriteRootTags(false); // Does NOTHING :-
+        _config.writeConfig.setWriteClassname(
                 com.esotericsoftware.yamlbeans.YamlConfig.WriteClassName.NEVER); // I hate !<pkg.className> within YAML files. So does AWS I believe.
-        // esotericsoftwareWriter.getConfig().writeConfig.setQuoteChar( qtyp );
-        // esotericsoftwareWriter.getConfig().writeConfig.setQuoteChar( com.esotericsoftware.yamlbeans.YamlConfig.Quote.NONE );
-        // esotericsoftwareWriter.getConfig().writeConfig.setQuoteChar( com.esotericsoftware.yamlbeans.YamlConfig.Quote.SINGLE );
-        // esotericsoftwareWriter.getConfig().writeConfig.setQuoteChar( com.esotericsoftware.yamlbeans.YamlConfig.Quote.DOUBLE );
-
-        // esotericsoftwareWriter.getConfig().setClassTag("Equals", Equals.class);
-        // esotericsoftwareWriter.getConfig().setClassTag("Or", Or.class);
-        // esotericsoftwareWriter.getConfig().setClassTag("Ref", Ref.class);
+        // _config.writeConfig.setQuoteChar( qtyp );
+        // _config.writeConfig.setQuoteChar( com.esotericsoftware.yamlbeans.YamlConfig.Quote.NONE );
+        // _config.writeConfig.setQuoteChar( com.esotericsoftware.yamlbeans.YamlConfig.Quote.SINGLE );
+        // _config.writeConfig.setQuoteChar( com.esotericsoftware.yamlbeans.YamlConfig.Quote.DOUBLE );
+
+        // _config.setClassTag("Equals", Equals.class);
+        // _config.setClassTag("Or", Or.class);
+        // _config.setClassTag("Ref", Ref.class);
     } // method
 
 }
@@ -82,7 +82,7 @@ public class InputsOutputs {
     //=================================================================================
 
     /**
-     * This functon takes a single parameter that is a javalang.String value - and, either detects it to be inline YAML/JSON, or a filename (must be prefixed with '@'), or a reference to something saved in {@link MemoryAndContext} within a Batch-file execution (must be prefixed with a '!')
+     * This functon takes a single parameter that is a javalang.String value - and, either detects it to be inline YAML/JSON, or a filename (must be prefixed with '@'; or with '@*' for a LIST of all the documents within a multi-document YAML-file, read lazily), or a reference to something saved in {@link MemoryAndContext} within a Batch-file execution (must be prefixed with a '!')
      * @param _src a javalang.String value - either inline YAML/JSON, or a filename (must be prefixed with '@'), or a reference to a property within a Batch-file execution (must be prefixed with a '!')
      * @param _memoryAndContext a non-null reference to {@link org.ASUX.yaml.MemoryAndContext}.  CmdInvoker can provide this reference.
      * @param _YAMLScanner a non-null reference to {@link GenericYAMLScanner}.  CmdInvoker can provide this reference.
@@ -117,7 +117,11 @@ public class InputsOutputs {
 
         if ( _src.startsWith("@") ) {
             final boolean isNoFailCommand = _src.charAt(1) == '?'; // example:  @?./perhaps/nonexistent/file.yaml
-            final String srcFile = _src.substring( isNoFailCommand ? 2 : 1 ); // get rid of the '@' and any optional '?' a the beginning
+            final int prefixLen = isNoFailCommand ? 2 : 1;
+            final boolean isEveryDocument = _src.length() > prefixLen && _src.charAt( prefixLen ) == '*'; // example:  @*./multi-document.yaml  or  @?*./multi-document.yaml
+            final String srcFile = _src.substring( isEveryDocument ? prefixLen + 1 : prefixLen ); // get rid of the '@' and any optional '?' and '*' a the beginning
+            final Object prefetched = isEveryDocument ? null : FilePrefetcher.take( srcFile, _YAMLScanner.getYamlLibrary(), _verbose ); // null, unless read ahead-of-time.  See BatchDataflow.java
+            if ( prefetched != null ) return prefetched;
             InputStream fs = null;
             try {
                 fs = new FileInputStream( srcFile );
@@ -127,14 +131,16 @@ public class InputsOutputs {
                 else
                     throw fe;
             }
-            if ( srcFile.endsWith(".json") ) {
+            if ( isEveryDocument ) {
+                if ( _verbose ) System.out.println( HDR +" detected a multi-document YAML-file provided via '@*'.  Documents will be read one at a time, as needed." );
+                // Typically followed by a 'foreach', which then needs memory for just one document at a time.  See StreamingSequence.java
+                return _YAMLScanner.loadAllDocuments( new java.io.InputStreamReader( fs ), srcFile );
+
+            } else if ( srcFile.endsWith(".json") ) {
                 if ( _verbose ) System.out.println( HDR +" detected a JSON-file provided via '@'." );
                 // http://tutorials.jenkov.com/java-json/jackson-objectmapper.html#read-map-from-json-string 
-                com.fasterxml.jackson.databind.ObjectMapper objMapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                objMapper.configure( com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true );
-                objMapper.configure( com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-                final com.fasterxml.jackson.databind.type.MapType type = objMapper.getTypeFactory().constructMapType( LinkedHashMap.class, String.class, Object.class );
-                final LinkedHashMap<String, Object> retMap2 = objMapper.readValue( fs, new com.fasterxml.jackson.core.type.TypeReference< LinkedHashMap<String,Object> >(){}  );
+                // The ObjectMapper is configured just ONCE (unquoted field names, single-quotes, LinkedHashMap) and shared.  See JSONMapperRegistry.java
+                final LinkedHashMap<String, Object> retMap2 = JSONMapperRegistry.readMap( fs );
                 fs.close();
                 if ( _verbose ) System.out.println( HDR +" jsonMap loaded BY OBJECTMAPPER into tempOutputMap =" + retMap2 );
                 return retMap2;
@@ -166,7 +172,7 @@ public class InputsOutputs {
             final boolean isNoFailCommand = _src.charAt(1) == '?'; // example:  !?perhapsNonexistentLabel
             final String savedMapLabel = _src.substring( isNoFailCommand ? 2 : 1 ); // get rid of the '!' and any optional '?' a the beginning
             // This can happen only within a BatchYaml-file context.  It only makes any sense (and will only work) within a BatchYaml-file context.
-            Object recalledContent = (_memoryAndContext != null) ? _memoryAndContext.getDataFromMemory( savedMapLabel ) : null;
+            Object recalledContent = (_memoryAndContext != null) ? _memoryAndContext.getDataFromMemory( savedMapLabel ) : null; // if saved via LabelStore.put() below, a LabelStore.LabelMap - which behaves just like the actual content
             if ( isNoFailCommand && recalledContent == null ) recalledContent = new LinkedHashMap<String, Object>();
             if (_verbose) System.out.println( HDR +"Memory returned =" + ((recalledContent==null)?"null":recalledContent.toString()) );
             return recalledContent;
@@ -240,22 +246,31 @@ public class InputsOutputs {
                 // tempOutputMap = new com.google.gson.Gson().fromJson(  reader1,
                 //                        new com.google.gson.reflect.TypeToken< LinkedHashMap<String, Object> >() {}.getType()   );
                 // http://tutorials.jenkov.com/java-json/jackson-objectmapper.html#read-map-from-json-string 
-                final com.fasterxml.jackson.databind.ObjectMapper objMapper = new com.fasterxml.jackson.databind.ObjectMapper();
                 // final InputStream fs = new FileInputStream( destFile );
-                final java.io.FileWriter filewr = new java.io.FileWriter( destFile );
-                objMapper.writeValue( filewr, _input );
-                // fs.close();
+                final AtomicFileWriter filewr = new AtomicFileWriter( destFile ); // never leaves a truncated file behind.  See AtomicFileWriter.java
+                try {
+                    JSONMapperRegistry.writeStreaming( filewr, _input ); // re-uses the one-and-only Jackson configuration.  See JSONMapperRegistry.java
+                    filewr.close();
+                } catch ( Exception e ) {
+                    filewr.abort();
+                    throw e;
+                }
                 if ( _verbose ) System.out.println( HDR +" JSON written was =" + _input );
                 return;
 
             } else if ( destFile.endsWith(".yaml") ) {
                 if ( _verbose ) System.out.println( HDR +" detected a YAML-file provided via '@'." );
                 // final GenericYAMLWriter yamlwriter = this.getYamlWriter();
-                final java.io.FileWriter filewr = new java.io.FileWriter( destFile );
-                _YAMLWriter.prepare( filewr );
-                _YAMLWriter.write( _input );
-                _YAMLWriter.close();
-                filewr.close();
+                final AtomicFileWriter filewr = new AtomicFileWriter( destFile ); // never leaves a truncated file behind.  See AtomicFileWriter.java
+                try {
+                    _YAMLWriter.prepare( filewr );
+                    _YAMLWriter.write( _input );
+                    _YAMLWriter.close();
+                    filewr.close(); // this commits the file (unless the YAML-library's close() already did)
+                } catch ( Exception e ) {
+                    filewr.abort();
+                    throw e;
+                }
                 if ( _verbose ) System.out.println( HDR +" YAML written was =" + _input );
                 return;
 
@@ -269,7 +284,8 @@ public class InputsOutputs {
             final String saveToMapName = _dest.startsWith("!") ?  _dest.substring(1) : _dest;
             if ( _memoryAndContext != null ) {
                 // This can happen only within a BatchYaml-file context.  It only makes any sense (and will only work) within a BatchYaml-file context.
-                _memoryAndContext.saveDataIntoMemory( saveToMapName, _input );  // remove '!' as the 1st character in the destination-reference provided
+                // If memory-budget for labels is set (see TuningOptions.labelMemoryMB()), large content is held by LabelStore (which may spill it to disk), and memory gets a LabelStore.LabelMap that reads thru to it.
+                _memoryAndContext.saveDataIntoMemory( saveToMapName, LabelStore.put( _input, _verbose ) );  // remove '!' as the 1st character in the destination-reference provided
                 if (_verbose) System.out.println( HDR +" saved into 'memoryAndContext'=" + _input );
             }
         } // outer if-else
@@ -143,6 +143,13 @@ public class InsertYamlEntry extends AbstractYamlEntryProcessor {
         return true;
     }
 
+    //-------------------------------------
+    /** This command modifies the YAML in-place.  See {@link AbstractYamlEntryProcessor#mutatesInput} */
+    @Override
+    protected boolean mutatesInput() {
+        return true;
+    }
+
     //-------------------------------------
     /** This function will be called when a full/end2end match of a YAML path-expression happens.
      * See details and warnings in {@link AbstractYamlEntryProcessor#onEnd2EndMatch}
@@ -219,6 +226,8 @@ public class InsertYamlEntry extends AbstractYamlEntryProcessor {
             // function returns here
         }
 
+        final SharedPayload payload = new SharedPayload( this.newData2bInserted );
+
         // first loop goes over Paths that already exist, in the sense the leaf-element exists, and we'll add a new Child element to that.
         for ( Tuple< String, LinkedHashMap<String, Object> > tpl: this.existingPathsForInsertion ) {
             final String rhsStr = tpl.val.toString();
@@ -226,7 +235,7 @@ public class InsertYamlEntry extends AbstractYamlEntryProcessor {
             // tpl.val.remove(tpl.key);
 
             // Now put in a new entry - with the replacement data!
-            tpl.val.put( tpl.key, org.ASUX.common.Utils.deepClone( this.newData2bInserted ) );
+            this.writable( tpl.val ).put( tpl.key, payload.next() ); // a cheap deep-clone, or one shared frozen copy.  See SharedPayload.java
             if ( this.verbose ) System.out.println( CLASSNAME +": atEndOfInput(): key=["+ tpl.key +"], it's new value="+ this.newData2bInserted.toString() );
             // If there are multiple matches.. then without deepclone, the YAML implementation libraries (like Eso teric Soft ware)
             // library, will use "&1" to define your 1st copy (in output) and put "*1" in
@@ -274,7 +283,7 @@ public class InsertYamlEntry extends AbstractYamlEntryProcessor {
             final String prefix = yp.getPrefix();
             final String suffix = yp.getSuffix();
             if ( this.verbose ) System.out.println( CLASSNAME +": atEndOfInput(): about to.. add the NEW path ["+ suffix +"]" );
-            Object prevchildelem = this.newData2bInserted;
+            Object prevchildelem = payload.next(); // Not this.newData2bInserted itself, else every new path shares it (and the output gets '&1' and '*1')
             for( int ix=yp.yamlElemArr.length - 1;   ix > yp.index() ; ix-- ) {
                 // ATTENTION !!!!!!!!!!!!!!!!!!!!!!!!!!!! This iterator / for-loop counts DOWN.
                 final LinkedHashMap<String, Object> newelem = new LinkedHashMap<>();
@@ -284,13 +293,15 @@ public class InsertYamlEntry extends AbstractYamlEntryProcessor {
             }
             if ( this.verbose ) System.out.println( CLASSNAME +": atEndOfInput(): Adding the final MISSING Path-elem @ ["+ yp.index() +"] = ["+ yp.yamlElemArr[ yp.index() ] +"]" );
             if ( this.verbose ) System.out.println( CLASSNAME +": atEndOfInput(): parent Map = ["+ lowestmap.toString() +"]" );
-            lowestmap.put(  yp.yamlElemArr[ yp.index() ],  prevchildelem );
+            this.writable( lowestmap ).put(  yp.yamlElemArr[ yp.index() ],  prevchildelem );
         }
 
         // java's forEach never works if you are altering anything within the Lambda body
         // this.existingPathsForInsertion.forEach( tpl -> {tpl.val.remove(tpl.key); });
         if ( this.showStats ) System.out.println( "count="+ (this.existingPathsForInsertion.size() + deepestNewPaths2bCreated.size()) );
         if ( this.showStats ) this.existingPathsForInsertion.forEach( tpl -> { System.out.println(tpl.key); } );
+        if ( this.showStats ) System.out.println( YAMLTreeCloner.getStats() );
+        if ( this.showStats ) System.out.println( SharedPayload.getStats() );
     }
 
     //==============================================================================
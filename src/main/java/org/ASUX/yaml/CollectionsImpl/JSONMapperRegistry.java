@@ -0,0 +1,145 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.InputStream;
+import java.io.Writer;
+import java.io.IOException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.MapType;
+
+/** <p>This class only contains a collection of static members, that hold the ONE-and-ONLY Jackson configuration used for all '@*.json' files.</p>
+ *  <p>Constructing a new com.fasterxml.jackson.databind.ObjectMapper (and re-discovering serializers, and re-building a TypeReference) for every single JSON file is expensive.
+ *  Within a Batch-file's foreach-loop, that cost was being paid on every iteration.</p>
+ *  <p>ObjectReader and ObjectWriter instances are immutable and thread-safe (per Jackson documentation), so they are created ONCE here and shared by everyone.</p>
+ *  @see InputsOutputs
+ */
+public class JSONMapperRegistry {
+
+    public static final String CLASSNAME = JSONMapperRegistry.class.getName();
+
+    /** Configured exactly once.  Do NOT re-configure this after class-initialization (that is Not thread-safe).  Use {@link #READER} and {@link #WRITER} instead. */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** The type of everything we read from '@*.json' files: LinkedHashMap&lt;String, Object&gt; (so that the order of keys in the JSON file is preserved) */
+    public static final MapType LINKEDHASHMAP_TYPE;
+
+    /** Immutable and thread-safe reader, which allows unquoted field-names and single-quotes (just like inline-JSON on the commandline) */
+    public static final ObjectReader READER;
+
+    /** Immutable and thread-safe writer */
+    public static final ObjectWriter WRITER;
+
+    static {
+        MAPPER.configure( JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true );
+        MAPPER.configure( JsonParser.Feature.ALLOW_SINGLE_QUOTES, true );
+        MAPPER.configure( JsonGenerator.Feature.AUTO_CLOSE_TARGET, false ); // the caller owns the java.io.Writer/OutputStream and will close it.
+        LINKEDHASHMAP_TYPE = MAPPER.getTypeFactory().constructMapType( LinkedHashMap.class, String.class, Object.class );
+        READER = MAPPER.readerFor( LINKEDHASHMAP_TYPE );
+        WRITER = MAPPER.writer();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private JSONMapperRegistry() {} // only static members in this class
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Reads the entire JSON content into a LinkedHashMap (preserving the order of keys).  The InputStream is Not closed by this method.
+     * @param _is Not-Null InputStream of the '@*.json' file
+     * @return a Not-Null java.util.LinkedHashMap&lt;String, Object&gt;
+     * @throws IOException any issues reading or parsing the JSON
+     */
+    public static LinkedHashMap<String, Object> readMap( final InputStream _is ) throws IOException
+    {
+        return READER.readValue( _is );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * <p>Streaming version of WRITER.writeValue(), specialized for the only types that this library creates (LinkedHashMap, ArrayList, LinkedList and String).</p>
+     * <p>Unlike the databind-path, this does NOT lookup a serializer for every single Object in the tree.  Anything else in the tree (java.util.Properties, Integer, ..) is handed over to {@link #WRITER}.</p>
+     * <p>The java.io.Writer is flushed, but NOT closed.</p>
+     * @param _javawriter Not-Null (ideally buffered) java.io.Writer
+     * @param _input the YAML/JSON content, as created by this library (LinkedHashMap / ArrayList / LinkedList / String)
+     * @throws IOException any issues writing the JSON
+     */
+    public static void writeStreaming( final Writer _javawriter, final Object _input ) throws IOException
+    {
+        final JsonGenerator gen = MAPPER.getFactory().createGenerator( _javawriter );
+        writeObject( gen, _input );
+        gen.flush();
+        gen.close(); // AUTO_CLOSE_TARGET is false.  So, _javawriter is still open.
+    }
+
+    private static void writeObject( final JsonGenerator _gen, final Object _o ) throws IOException
+    {
+        if ( _o == null ) {
+            _gen.writeNull();
+        } else if ( _o instanceof String ) {
+            _gen.writeString( (String) _o );
+        } else if ( _o instanceof LinkedHashMap ) {
+            _gen.writeStartObject();
+            for ( Map.Entry<?,?> e: ((Map<?,?>) _o).entrySet() ) {
+                _gen.writeFieldName( String.valueOf( e.getKey() ) );
+                writeObject( _gen, e.getValue() );
+            }
+            _gen.writeEndObject();
+        } else if ( _o instanceof List ) {
+            _gen.writeStartArray();
+            for ( Object o: (List<?>) _o )
+                writeObject( _gen, o );
+            _gen.writeEndArray();
+        } else {
+            WRITER.writeValue( _gen, _o );
+        }
+    }
+
+}
@@ -0,0 +1,633 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/** <p>Opt-in (see {@link TuningOptions#labelMemoryMB()}) memory-budget for what batch-files save into memory (<code>saveTo !label</code>).</p>
+ *  <p>Instead of the (large) YAML itself, MemoryAndContext holds a {@link LabelMap} - which IS-A java.util.LinkedHashMap, that reads (and writes) thru to the actual YAML.
+ *  So, anyone that gets a label from MemoryAndContext (incl. code outside this library) sees just another LinkedHashMap.</p>
+ *  <p>The actual YAML is on-heap, as long as the total (estimated) size of all labels is within budget.
+ *  Beyond that, the least-recently-used labels are written into a temporary folder (in a compact binary form: type-tagged, length-prefixed UTF-8) and dropped from the heap.  The next time such a label is used, it is transparently read back in.
+ *  A label read back from disk is always modifiable (i.e., Not a frozen snapshot - see {@link PersistentYAMLTree}).</p>
+ *  <p>Once MemoryAndContext no longer references a LabelMap (example: the label was overwritten), its content is discarded - and its file is deleted, once No copy of that label refers to it either.</p>
+ *  <p>Copies of MemoryAndContext (example: for a parallel 'foreach' - see {@link CmdInvoker#deepClone}) never share a label's content.
+ *  A label that's on-heap is copied as a plain LinkedHashMap - exactly as without this class.
+ *  A label that's spilled to disk is copied by reference: the copy is another LabelMap for the same (never modified) file, which reads its own content in from that file - only if/when the copy is used.  So, copying a MemoryAndContext does Not read back any spilled label.  Within a {@link Snapshot}, on-heap labels too are copied by reference.</p>
+ *  <p>Disk I/O is done while holding a lock on just that one label - Not on this entire store.</p>
+ *  <p>Only YAML content (a LinkedHashMap) of at least {@link #MINBYTES} (estimated) is held by this store.  Anything else is saved into MemoryAndContext as-is.</p>
+ *  <p>The files are in a temporary folder, and so, could be replaced by someone else.  When reading one back, every length within it is checked against the size of the file, and the nesting against {@link #MAXDEPTH}.
+ *  So, a corrupted (or crafted) file fails with a java.io.IOException - instead of exhausting the heap or the stack.  See also {@link YAMLTreeInputFilter}.</p>
+ */
+public final class LabelStore {
+
+    public static final String CLASSNAME = LabelStore.class.getName();
+
+    /** content smaller than this (estimated) is saved into MemoryAndContext as-is */
+    public static final long MINBYTES = 64 * 1024;
+
+    /** content nested deeper than this is never spilled (it stays on-heap).  And a file nested deeper than this is treated as corrupted.  See class-description */
+    public static final int MAXDEPTH = 1000;
+
+    /** <p>What gets saved into MemoryAndContext instead of the actual content.  Every method reads (and writes) thru to the actual content - reading it back from disk, if necessary.</p>
+     *  <p>Serialization (example: a deep-clone) of an on-heap label writes out the actual content.  So, what's read back is a plain java.util.LinkedHashMap copy.
+     *  Serialization of a spilled label writes out just a reference to its file.  So, what's read back is another LabelMap - with its own content, read in from that file when first used.</p>
+     */
+    public static final class LabelMap extends LinkedHashMap<String,Object> {
+        private static final long serialVersionUID = 1L;
+        private final transient Entry entry;
+        private LabelMap( final Entry _e ) { super( 1 ); this.entry = _e; }
+
+        private LinkedHashMap<String,Object> content() { return materialize( this.entry ); }
+        /** @return the content, if it's on-heap.  null if it's spilled to disk (this does Not read it back, nor count as a use of this label) */
+        LinkedHashMap<String,Object> onHeapContent() { return this.entry.value; }
+        private Object writeReplace() throws IOException {
+            final SpilledLabel byReference = shareIfSpilled( this.entry );
+            return ( byReference != null ) ? byReference : this.content();
+        }
+
+        @Override public int size()                                     { return this.content().size(); }
+        @Override public boolean isEmpty()                              { return this.content().isEmpty(); }
+        @Override public boolean containsKey( final Object _k )         { return this.content().containsKey( _k ); }
+        @Override public boolean containsValue( final Object _v )       { return this.content().containsValue( _v ); }
+        @Override public Object get( final Object _k )                  { return this.content().get( _k ); }
+        @Override public Object getOrDefault( final Object _k, final Object _d ) { return this.content().getOrDefault( _k, _d ); }
+        @Override public Set<Map.Entry<String,Object>> entrySet()       { return this.content().entrySet(); }
+        @Override public Set<String> keySet()                           { return this.content().keySet(); }
+        @Override public Collection<Object> values()                    { return this.content().values(); }
+        @Override public void forEach( final BiConsumer<? super String, ? super Object> _a ) { this.content().forEach( _a ); }
+
+        @Override public Object put( final String _k, final Object _v )                 { return this.content().put( _k, _v ); }
+        @Override public void putAll( final Map<? extends String, ? extends Object> _m ) { this.content().putAll( _m ); }
+        @Override public Object putIfAbsent( final String _k, final Object _v )         { return this.content().putIfAbsent( _k, _v ); }
+        @Override public Object remove( final Object _k )                               { return this.content().remove( _k ); }
+        @Override public boolean remove( final Object _k, final Object _v )             { return this.content().remove( _k, _v ); }
+        @Override public Object replace( final String _k, final Object _v )             { return this.content().replace( _k, _v ); }
+        @Override public boolean replace( final String _k, final Object _o, final Object _n ) { return this.content().replace( _k, _o, _n ); }
+        @Override public void clear()                                                   { this.content().clear(); }
+        @Override public void replaceAll( final BiFunction<? super String, ? super Object, ? extends Object> _f ) { this.content().replaceAll( _f ); }
+        @Override public Object compute( final String _k, final BiFunction<? super String, ? super Object, ? extends Object> _f ) { return this.content().compute( _k, _f ); }
+        @Override public Object computeIfAbsent( final String _k, final Function<? super String, ? extends Object> _f ) { return this.content().computeIfAbsent( _k, _f ); }
+        @Override public Object computeIfPresent( final String _k, final BiFunction<? super String, ? super Object, ? extends Object> _f ) { return this.content().computeIfPresent( _k, _f ); }
+        @Override public Object merge( final String _k, final Object _v, final BiFunction<? super Object, ? super Object, ? extends Object> _f ) { return this.content().merge( _k, _v, _f ); }
+
+        @Override public boolean equals( final Object _o )  { return this.content().equals( _o ); }
+        @Override public int hashCode()                     { return this.content().hashCode(); }
+        @Override public String toString()                  { return this.content().toString(); }
+        /** @return a plain (modifiable) shallow copy of the content, just like java.util.LinkedHashMap.clone() */
+        @Override public Object clone()                     { return new LinkedHashMap<String,Object>( this.content() ); }
+    }
+
+    /** The serialized form of a spilled {@link LabelMap}.  See {@link #shareIfSpilled} and {@link #adopt} */
+    private static final class SpilledLabel implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final long fileId;
+        private final long pinId;
+        private final long bytes;
+        private final boolean verbose;
+        SpilledLabel( final long _fileId, final long _pinId, final long _bytes, final boolean _verbose ) { this.fileId = _fileId; this.pinId = _pinId; this.bytes = _bytes; this.verbose = _verbose; }
+        private Object readResolve() throws ObjectStreamException { return adopt( this ); }
+    }
+
+    /** <p>For making many copies of the same MemoryAndContext (example: one per iteration of a parallel 'foreach'): serialize it just once via {@link #capture}, and de-serialize each copy from that.</p>
+     *  <p>Within {@link #capture}, even a label that's on-heap is written out by reference: its content (as of then) is written into a file just once, and each copy reads its own content in from that file - only if/when that copy uses that label.
+     *  Every file referred to, is kept till {@link #close} - so, copies can be de-serialized till then.</p>
+     */
+    public static final class Snapshot implements AutoCloseable {
+        private static final ThreadLocal<Snapshot> CURRENT = new ThreadLocal<>();
+        private final ArrayList<SpillFile> files = new ArrayList<>(); // guarded by LabelStore.class
+        private boolean closed = false;                              // guarded by LabelStore.class
+        private Snapshot() {}
+
+        /**
+         * @param _serializer serializes the MemoryAndContext (example: {@link CmdInvoker#deepCloneImage})
+         * @param <T> whatever _serializer returns
+         * @return whatever _serializer returns
+         * @throws Exception whatever _serializer throws
+         */
+        public <T> T capture( final Callable<T> _serializer ) throws Exception {
+            final Snapshot outer = CURRENT.get();
+            CURRENT.set( this );
+            try {
+                return _serializer.call();
+            } finally {
+                CURRENT.set( outer );
+            }
+        }
+
+        /** Lets go of all the files referred to within {@link #capture}.  De-serializing after this, fails. */
+        @Override
+        public void close() {
+            final ArrayList<Path> garbage = new ArrayList<>();
+            synchronized( LabelStore.class ) {
+                if ( this.closed ) return;
+                this.closed = true;
+                for ( SpillFile f: this.files ) release( f, garbage );
+                this.files.clear();
+            }
+            deleteFiles( garbage );
+        }
+    }
+
+    /** A file that a label was spilled into.  It is NEVER modified once written - so, the copies of a label (see {@link LabelMap}) can share it.  It's deleted once nothing refers to it. */
+    private static final class SpillFile {
+        final long id;
+        final Path path;
+        int refs = 1;   // guarded by LabelStore.class.  # of Entries + # of serialized SpilledLabels Not yet de-serialized
+        SpillFile( final long _id, final Path _path ) { this.id = _id; this.path = _path; }
+    }
+
+    private static final class LabelRef extends WeakReference<LabelMap> {
+        final Entry entry;
+        LabelRef( final LabelMap _label ) { super( _label, QUEUE ); this.entry = _label.entry; }
+    }
+
+    /** The monitor of each Entry guards its value, spilled and file.  Lock-order: an Entry first, LabelStore.class next - never the other way.
+     *  While the content is on-heap (value != null), file is null: the content may be modified in-place, and so, is re-written into a new file whenever it's spilled again.
+     */
+    private static final class Entry {
+        final long id;
+        final long bytes;
+        final boolean verbose;
+        volatile LinkedHashMap<String,Object> value;            // null, if spilled to disk
+        WeakReference<LinkedHashMap<String,Object>> spilled;    // what was spilled (in case someone still references it, it's Not read back from disk)
+        SpillFile file = null;                                  // null, unless spilled
+        volatile long lastUsed = System.nanoTime();
+        boolean resident = true;                                // guarded by LabelStore.class
+        boolean discarded = false;                              // guarded by LabelStore.class
+        Entry( final long _id, final LinkedHashMap<String,Object> _value, final long _bytes, final boolean _verbose ) { this.id = _id; this.value = _value; this.bytes = _bytes; this.verbose = _verbose; }
+    }
+
+    // all the following are guarded by LabelStore.class
+    private static final ReferenceQueue<LabelMap> QUEUE = new ReferenceQueue<>();
+    private static final HashMap<Long, LabelRef> LABELS = new HashMap<>();
+    private static long residentBytes = 0;
+    private static long nextId = 1;
+    private static final HashMap<Long, SpillFile> FILES = new HashMap<>();
+    private static final HashMap<Long, SpillFile> PINS = new HashMap<>();  // references held by serialized SpilledLabels, till they are de-serialized
+    private static long nextFileId = 1;
+    private static long nextPinId = 1; // 0 means: No pin.  The reference is held by a Snapshot instead.
+
+    private static final Object SPILLDIRLOCK = new Object();
+    private static Path spillDir = null; // guarded by SPILLDIRLOCK
+
+    private static final LongAdder SPILLED = new LongAdder();
+    private static final LongAdder RELOADED = new LongAdder();
+
+    private static final byte TAG_NULL = 'N', TAG_STRING = 'S', TAG_MAP = 'M', TAG_ARRAYLIST = 'L', TAG_LINKEDLIST = 'Q', TAG_JAVA = 'J';
+
+    /** thrown by encode(), if the content is nested deeper than {@link #MAXDEPTH} */
+    private static final class TooDeepException extends IOException {
+        private static final long serialVersionUID = 1L;
+        TooDeepException() { super( CLASSNAME +": encode(): content is nested deeper than "+ MAXDEPTH +" levels" ); }
+    }
+
+    private LabelStore() {} // static methods only
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _content what is being saved into a !label
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @return what to save into MemoryAndContext: _content itself, if this store is Not enabled (or _content is small, or is Not a LinkedHashMap).  Otherwise, a {@link LabelMap}
+     * @throws IOException if other labels had to be spilled to disk, and that failed
+     */
+    public static Object put( final Object _content, final boolean _verbose ) throws IOException {
+        final long budget = budget();
+        if ( budget <= 0 || ! ( _content instanceof LinkedHashMap ) || _content instanceof LabelMap ) return _content;
+        final long bytes = estimateBytes( _content );
+        if ( bytes < MINBYTES ) return _content;
+
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> content = (LinkedHashMap<String,Object>) _content;
+        final LabelMap label;
+        final ArrayList<Path> garbage = new ArrayList<>();
+        final ArrayList<Entry> victims;
+        synchronized( LabelStore.class ) {
+            expungeStaleEntries( garbage );
+            label = new LabelMap( new Entry( nextId ++, content, bytes, _verbose ) );
+            LABELS.put( label.entry.id, new LabelRef( label ) );
+            residentBytes += bytes;
+            victims = pickVictims( budget, label.entry );
+        }
+        deleteFiles( garbage );
+        spill( victims );
+        return label;
+    }
+
+    /** @return a one-line summary (since JVM started) */
+    public static String getStats() {
+        synchronized( LabelStore.class ) {
+            int resident = 0;
+            for ( LabelRef ref: LABELS.values() ) if ( ref.entry.resident ) resident ++;
+            return CLASSNAME +": labels="+ LABELS.size() +", on-heap="+ resident +" (~"+ ( residentBytes / 1024 ) +"KB), spilled to disk="+ SPILLED.sum() +", read back="+ RELOADED.sum();
+        }
+    }
+
+    /**
+     * @return a new (empty) Snapshot.  Must be closed, once No more copies are to be de-serialized from what it captured.
+     */
+    public static Snapshot newSnapshot() {
+        return new Snapshot();
+    }
+
+    /**
+     * ONLY for use by tests
+     * @param _label what {@link #put} returned
+     * @return true if _label is a {@link LabelMap} whose content is currently on-heap
+     */
+    static boolean isOnHeap( final Object _label ) {
+        return ( _label instanceof LabelMap ) && ((LabelMap) _label).entry.value != null;
+    }
+
+    /**
+     * ONLY for use by tests: forgets all labels created so far (they still work, but are never spilled again), so that each test starts with an empty store.
+     */
+    static void reset() {
+        final ArrayList<Path> garbage = new ArrayList<>();
+        synchronized( LabelStore.class ) {
+            expungeStaleEntries( garbage );
+            for ( LabelRef ref: LABELS.values() ) ref.entry.resident = false;
+            LABELS.clear();
+            residentBytes = 0;
+        }
+        deleteFiles( garbage );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private static long budget() {
+        return TuningOptions.labelMemoryMB() * 1024L * 1024L;
+    }
+
+    /** @return the actual content of _e - reading it back from disk, if necessary */
+    private static LinkedHashMap<String,Object> materialize( final Entry _e ) {
+        _e.lastUsed = System.nanoTime();
+        LinkedHashMap<String,Object> v = _e.value;
+        if ( v != null ) return v;
+        final ArrayList<Entry> victims;
+        final ArrayList<Path> garbage = new ArrayList<>();
+        try {
+            synchronized( _e ) {
+                v = _e.value;
+                if ( v != null ) return v;
+                v = ( _e.spilled == null ) ? null : _e.spilled.get();
+                if ( v == null ) {
+                    if ( _e.verbose ) System.out.println( CLASSNAME +": materialize(): reading label#"+ _e.id +" back from "+ _e.file.path );
+                    try ( DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( _e.file.path ), 64 * 1024 ) ) ) {
+                        @SuppressWarnings("unchecked")
+                        final LinkedHashMap<String,Object> decoded = (LinkedHashMap<String,Object>) decode( in, Files.size( _e.file.path ), 0 );
+                        v = decoded;
+                    }
+                    RELOADED.increment();
+                }
+                _e.spilled = null;
+                _e.value = v;
+                final SpillFile file = _e.file;
+                _e.file = null; // from now on, v can be modified in-place
+                synchronized( LabelStore.class ) {
+                    if ( file != null ) release( file, garbage );
+                    if ( ! _e.resident ) {
+                        _e.resident = true;
+                        residentBytes += _e.bytes;
+                    }
+                    victims = pickVictims( budget(), _e );
+                }
+            }
+            deleteFiles( garbage );
+            spill( victims );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( CLASSNAME +": materialize(): label#"+ _e.id +" could Not be read back from (or other labels could Not be spilled to) disk", e );
+        }
+        return v;
+    }
+
+    /** picks least-recently-used entries (except _keep) till within _budget, and marks them as Not resident.  Caller must hold the lock on LabelStore.class.  Caller must then {@link #spill} them, after releasing that lock. */
+    private static ArrayList<Entry> pickVictims( final long _budget, final Entry _keep ) {
+        final ArrayList<Entry> victims = new ArrayList<>();
+        while ( residentBytes > _budget ) {
+            Entry lru = null;
+            for ( LabelRef ref: LABELS.values() ) {
+                final Entry e = ref.entry;
+                if ( e.resident && e != _keep && ( lru == null || e.lastUsed < lru.lastUsed ) ) lru = e;
+            }
+            if ( lru == null ) break;
+            lru.resident = false;
+            residentBytes -= lru.bytes;
+            victims.add( lru );
+        }
+        return victims;
+    }
+
+    /** writes each of _victims into its file, and drops it from the heap - unless it was used again (or discarded) since it was picked.  Caller must NOT hold the lock on LabelStore.class */
+    private static void spill( final ArrayList<Entry> _victims ) throws IOException {
+        for ( Entry e: _victims ) {
+            synchronized( e ) {
+                synchronized( LabelStore.class ) {
+                    if ( e.resident || e.discarded ) continue;
+                }
+                final LinkedHashMap<String,Object> v = e.value;
+                if ( v == null ) continue;
+                final SpillFile file = newSpillFile(); // always a new file: the previous one (if any) may be shared with copies of this label, and the content may have been modified in-place since.
+                try {
+                    try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( file.path ), 64 * 1024 ) ) ) {
+                        encode( out, v, 0 );
+                    }
+                } catch( IOException ex ) {
+                    file.path.toFile().delete();
+                    synchronized( LabelStore.class ) { // keep it on-heap, after all.
+                        e.resident = true;
+                        residentBytes += e.bytes;
+                    }
+                    if ( ex instanceof TooDeepException ) {
+                        if ( e.verbose ) System.out.println( CLASSNAME +": spill(): keeping label#"+ e.id +" on-heap, as "+ ex.getMessage() );
+                        continue;
+                    }
+                    throw ex;
+                }
+                synchronized( LabelStore.class ) {
+                    FILES.put( file.id, file );
+                }
+                e.file = file;
+                if ( e.verbose ) System.out.println( CLASSNAME +": spill(): spilled label#"+ e.id +" (~"+ ( e.bytes / 1024 ) +"KB) into "+ file.path );
+                e.spilled = new WeakReference<>( v );
+                e.value = null;
+                SPILLED.increment();
+            }
+        }
+    }
+
+    private static SpillFile newSpillFile() throws IOException {
+        final long id;
+        synchronized( LabelStore.class ) {
+            id = nextFileId ++;
+        }
+        final Path dir;
+        synchronized( SPILLDIRLOCK ) {
+            if ( spillDir == null ) {
+                spillDir = Files.createTempDirectory( "org.ASUX.yaml.labels." );
+                spillDir.toFile().deleteOnExit();
+            }
+            dir = spillDir;
+        }
+        final Path file = dir.resolve( id +".bin" );
+        file.toFile().deleteOnExit();
+        return new SpillFile( id, file );
+    }
+
+    /** @return the serialized form of _e's LabelMap, if _e is spilled (or, if within {@link Snapshot#capture}).  Otherwise null (then, the actual content is serialized) */
+    private static SpilledLabel shareIfSpilled( final Entry _e ) throws IOException {
+        final Snapshot snapshot = Snapshot.CURRENT.get();
+        synchronized( _e ) {
+            final LinkedHashMap<String,Object> v = _e.value;
+            if ( v != null && snapshot == null ) return null;
+            SpillFile file = _e.file;
+            if ( v != null ) { // on-heap, and within Snapshot.capture().  So, write the content (as of now) into a file of its own.  The Snapshot holds the only reference to that file.
+                file = newSpillFile();
+                try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( file.path ), 64 * 1024 ) ) ) {
+                    encode( out, v, 0 );
+                } catch( IOException e ) {
+                    file.path.toFile().delete();
+                    if ( e instanceof TooDeepException ) return null; // the actual content is serialized instead
+                    throw e;
+                }
+                synchronized( LabelStore.class ) {
+                    FILES.put( file.id, file );
+                    snapshot.files.add( file );
+                }
+                if ( _e.verbose ) System.out.println( CLASSNAME +": shareIfSpilled(): wrote on-heap label#"+ _e.id +" into "+ file.path +" for a Snapshot" );
+                return new SpilledLabel( file.id, 0, _e.bytes, _e.verbose );
+            }
+            if ( file == null ) return null;
+            synchronized( LabelStore.class ) {
+                file.refs ++; // so that the file outlives _e, till the SpilledLabel is de-serialized (or, till the Snapshot is closed).  See adopt()
+                if ( snapshot != null ) {
+                    snapshot.files.add( file );
+                    return new SpilledLabel( file.id, 0, _e.bytes, _e.verbose );
+                }
+                final long pinId = nextPinId ++;
+                PINS.put( pinId, file );
+                return new SpilledLabel( file.id, pinId, _e.bytes, _e.verbose );
+            }
+        }
+    }
+
+    /** @return a new (spilled) LabelMap for the file that _serialized refers to.  Its content is read in from that file, only if/when it's used. */
+    private static LabelMap adopt( final SpilledLabel _serialized ) throws InvalidObjectException {
+        final ArrayList<Path> garbage = new ArrayList<>();
+        final LabelMap label;
+        synchronized( LabelStore.class ) {
+            expungeStaleEntries( garbage );
+            SpillFile file = PINS.remove( _serialized.pinId ); // the reference taken by shareIfSpilled(), now handed over to the new Entry
+            if ( file == null ) { // the same serialized form, de-serialized once again (or, what a Snapshot captured)
+                file = FILES.get( _serialized.fileId );
+                if ( file == null )
+                    throw new InvalidObjectException( CLASSNAME +": adopt(): the file of a spilled label (#"+ _serialized.fileId +") No longer exists, as nothing else refers to it." );
+                file.refs ++;
+            }
+            final Entry e = new Entry( nextId ++, null, _serialized.bytes, _serialized.verbose );
+            e.file = file;
+            e.resident = false;
+            label = new LabelMap( e );
+            LABELS.put( e.id, new LabelRef( label ) );
+        }
+        deleteFiles( garbage );
+        if ( _serialized.verbose ) System.out.println( CLASSNAME +": adopt(): label#"+ label.entry.id +" is a copy of the label spilled into "+ label.entry.file.path );
+        return label;
+    }
+
+    /** Caller must hold the lock on LabelStore.class.  Caller must then {@link #deleteFiles} _garbage, after releasing that lock. */
+    private static void release( final SpillFile _file, final ArrayList<Path> _garbage ) {
+        if ( -- _file.refs > 0 ) return;
+        FILES.remove( _file.id );
+        _garbage.add( _file.path );
+    }
+
+    /** discards entries whose LabelMaps are No longer referenced by anyone.  Caller must hold the lock on LabelStore.class.  Caller must then {@link #deleteFiles} _garbage, after releasing that lock. */
+    private static void expungeStaleEntries( final ArrayList<Path> _garbage ) {
+        LabelRef ref;
+        while ( ( ref = (LabelRef) QUEUE.poll() ) != null ) {
+            final Entry e = ref.entry;
+            LABELS.remove( e.id );
+            if ( e.resident ) residentBytes -= e.bytes;
+            e.resident = false;
+            e.discarded = true;
+            if ( e.file != null ) release( e.file, _garbage ); // its LabelMap is gone, and 'discarded' stops spill().  So, No one else is using e.file
+            e.file = null;
+        }
+    }
+
+    private static void deleteFiles( final ArrayList<Path> _files ) {
+        for ( Path f: _files ) f.toFile().delete();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+    /** @return a rough estimate of the heap used by _o (a shared sub-tree is counted wherever it appears) */
+    private static long estimateBytes( final Object _o ) {
+        if ( _o instanceof Map ) {
+            long n = 64;
+            for ( Map.Entry<?,?> e: ((Map<?,?>) _o).entrySet() )
+                n += 48 + estimateBytes( e.getKey() ) + estimateBytes( e.getValue() );
+            return n;
+        } else if ( _o instanceof List ) {
+            long n = 40;
+            for ( Object o: (List<?>) _o ) n += 8 + estimateBytes( o );
+            return n;
+        } else if ( _o instanceof String ) {
+            return 40 + ((String) _o).length();
+        } else {
+            return 16;
+        }
+    }
+
+    private static void encode( final DataOutputStream _out, final Object _o, final int _depth ) throws IOException {
+        if ( _depth > MAXDEPTH ) throw new TooDeepException();
+        if ( _o == null ) {
+            _out.writeByte( TAG_NULL );
+        } else if ( _o instanceof String ) {
+            _out.writeByte( TAG_STRING );
+            final byte[] b = ((String) _o).getBytes( StandardCharsets.UTF_8 );
+            _out.writeInt( b.length );
+            _out.write( b );
+        } else if ( _o instanceof LinkedHashMap ) {
+            final Map<?,?> map = (Map<?,?>) _o;
+            _out.writeByte( TAG_MAP );
+            _out.writeInt( map.size() );
+            for ( Map.Entry<?,?> e: map.entrySet() ) {
+                encode( _out, e.getKey(), _depth + 1 );
+                encode( _out, e.getValue(), _depth + 1 );
+            }
+        } else if ( _o instanceof ArrayList || _o instanceof LinkedList ) {
+            final List<?> list = (List<?>) _o;
+            _out.writeByte( ( _o instanceof LinkedList ) ? TAG_LINKEDLIST : TAG_ARRAYLIST );
+            _out.writeInt( list.size() );
+            for ( Object o: list ) encode( _out, o, _depth + 1 );
+        } else { // anything else (java.util.Properties, Integer, ..)
+            _out.writeByte( TAG_JAVA );
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( ObjectOutputStream oos = new ObjectOutputStream( bytes ) ) {
+                oos.writeObject( _o );
+            }
+            _out.writeInt( bytes.size() );
+            bytes.writeTo( _out );
+        }
+    }
+
+    /**
+     * @param _in what {@link #encode} wrote
+     * @param _fileBytes the size of the file.  Every element takes at least 1 byte of it.  So, No length within can be larger.
+     * @param _depth 0, for the top-level
+     * @return the content
+     * @throws IOException if the file is corrupted (including, any length larger than _fileBytes, or nesting deeper than {@link #MAXDEPTH})
+     */
+    static Object decode( final DataInputStream _in, final long _fileBytes, final int _depth ) throws IOException {
+        if ( _depth > MAXDEPTH ) throw new IOException( CLASSNAME +": decode(): corrupted file.  Nested deeper than "+ MAXDEPTH +" levels" );
+        final byte tag = _in.readByte();
+        switch ( tag ) {
+            case TAG_NULL: return null;
+            case TAG_STRING:
+                final byte[] b = new byte[ checkLength( _in.readInt(), _fileBytes ) ];
+                _in.readFully( b );
+                return new String( b, StandardCharsets.UTF_8 );
+            case TAG_MAP:
+                final int size = checkLength( _in.readInt(), _fileBytes / 2 ); // a key and a value, per entry
+                final LinkedHashMap<Object,Object> map = new LinkedHashMap<>( Math.max( 16, (int) ( size / 0.75f ) + 1 ) );
+                for ( int ix=0; ix < size; ix ++ ) {
+                    final Object k = decode( _in, _fileBytes, _depth + 1 );
+                    map.put( k, decode( _in, _fileBytes, _depth + 1 ) );
+                }
+                return map;
+            case TAG_ARRAYLIST:
+            case TAG_LINKEDLIST:
+                final int len = checkLength( _in.readInt(), _fileBytes );
+                final List<Object> list = ( tag == TAG_LINKEDLIST ) ? new LinkedList<>() : new ArrayList<>( len );
+                for ( int ix=0; ix < len; ix ++ ) list.add( decode( _in, _fileBytes, _depth + 1 ) );
+                return list;
+            case TAG_JAVA:
+                final byte[] serialized = new byte[ checkLength( _in.readInt(), _fileBytes ) ];
+                _in.readFully( serialized );
+                try ( ObjectInputStream ois = YAMLTreeInputFilter.newObjectInputStream( serialized ) ) { // these files are in a temporary folder.  So, never deserialize just anything.  See YAMLTreeInputFilter.java
+                    return ois.readObject();
+                } catch( ClassNotFoundException e ) {
+                    throw new IOException( CLASSNAME +": decode(): "+ e, e );
+                }
+            default:
+                throw new IOException( CLASSNAME +": decode(): corrupted file.  Unknown tag "+ tag );
+        }
+    }
+
+    private static int checkLength( final int _length, final long _max ) throws IOException {
+        if ( _length < 0 || _length > _max )
+            throw new IOException( CLASSNAME +": decode(): corrupted file.  Length "+ _length +" is Not within 0.."+ _max );
+        return _length;
+    }
+
+}
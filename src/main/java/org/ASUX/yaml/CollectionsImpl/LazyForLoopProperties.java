@@ -0,0 +1,392 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/** <p>The java.util.Properties used for the 'foreach' related variables within a batch-file (see {@link org.ASUX.yaml.BatchCmdProcessor#FOREACH_PROPERTIES}).</p>
+ *  <p>The only difference from a plain java.util.Properties: the value of {@link org.ASUX.yaml.BatchCmdProcessor#FOREACH_ITER_VALUE} is the entire input (rendered as a YAML string), and it is computed ONLY when it's referenced for the first time.
+ *  Most batch-files never reference it.  But, without this class, a 'foreach' over 10k items would render each item to a YAML string 10k times.</p>
+ *  <p>Since the rendering is deferred, the batch-commands that modify their input in-place (delete, insert, replace) must first invoke {@link #beforeInPlaceChange} - which renders any pending value right away.  So, the variable is always of the input as it was, when the variable was set.</p>
+ *  <p>It is also a stack of scopes: {@link #pushFrame()} at the start of a 'foreach', and {@link #popFrame()} at its end - which restores every variable that was set within (including the lazy value) to what it was before the 'foreach'.
+ *  Each frame remembers just the previous value of each variable that's set within it - the first time it's set.  So, pushing is O(1), and popping is O(# of distinct variables set), no matter how many iterations.</p>
+ *  <p>A parallel 'foreach' runs each iteration on its own isolated copy (see {@link CmdInvoker#deepCloneImage}) - and frames are Not copied (transient).  So, an iteration's frames (and values) never leak into another iteration, or back into the parent.</p>
+ *  <p>Locking: the pending lazy value and the frames are guarded by this object's monitor.  Every method that reads or writes them (incl. {@link #pushFrame()}, {@link #popFrame()} and every write of a variable) is synchronized.
+ *  It remains a java.util.Properties, as that's what org.ASUX.common.Macros.eval() needs.  So, reads of any other variable are lock-free (java.util.Properties is backed by a ConcurrentHashMap since Java 9).</p>
+ * @see BatchYamlProcessor
+ */
+public class LazyForLoopProperties extends Properties {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CLASSNAME = LazyForLoopProperties.class.getName();
+
+    private final boolean verbose;
+    private final String lazyKey;
+
+    /** the input-object whose YAML-rendering is yet to be computed (as value of 'lazyKey').  Null if nothing is pending. */
+    private transient LinkedHashMap<String,Object> pendingInput = null;
+
+    /** see {@link #pushFrame()}.  Lazily created, as most batch-files have No 'foreach' */
+    private transient ArrayDeque< HashMap<Object,Object> > frames = null;
+
+    /** within a frame: the variable did Not exist before the frame */
+    private static final Object ABSENT = new Object();
+
+    /** within a frame: the previous (yet to be rendered) lazy value */
+    private static final class PendingLazyValue {
+        final LinkedHashMap<String,Object> input;
+        PendingLazyValue( final LinkedHashMap<String,Object> _input ) { this.input = _input; }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _verbose Whether you want deluge of debug-output onto System.out.
+     * @param _lazyKey the property-name whose value is lazily computed.  Example: {@link org.ASUX.yaml.BatchCmdProcessor#FOREACH_ITER_VALUE}
+     */
+    public LazyForLoopProperties( final boolean _verbose, final String _lazyKey ) {
+        this.verbose = _verbose;
+        this.lazyKey = _lazyKey;
+    }
+
+    /**
+     * Makes sure that _allProps.get( _propsName ) is an instance of this class (copying over any existing properties).
+     * @param _verbose Whether you want deluge of debug-output onto System.out.
+     * @param _allProps the batch-processor's collection of all Properties (the same object that is passed to Macros.eval())
+     * @param _propsName Example: {@link org.ASUX.yaml.BatchCmdProcessor#FOREACH_PROPERTIES}
+     * @param _lazyKey Example: {@link org.ASUX.yaml.BatchCmdProcessor#FOREACH_ITER_VALUE}
+     * @return the instance of this class that is now within _allProps (Not null)
+     */
+    public static LazyForLoopProperties installInto( final boolean _verbose, final LinkedHashMap<String,Properties> _allProps, final String _propsName, final String _lazyKey ) {
+        final Properties existing = _allProps.get( _propsName );
+        if ( existing instanceof LazyForLoopProperties )
+            return (LazyForLoopProperties) existing;
+        final LazyForLoopProperties lazy = new LazyForLoopProperties( _verbose, _lazyKey );
+        if ( existing != null )
+            lazy.putAll( existing );
+        _allProps.put( _propsName, lazy ); // LinkedHashMap.put() on an existing key, does Not change the order of the keys.
+        return lazy;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * The value of 'lazyKey' (see constructor) will be the YAML-rendering of _input, but it will be computed ONLY when it's referenced for the first time.
+     * @param _input Not-Null.
+     */
+    public synchronized void setLazyValue( final LinkedHashMap<String,Object> _input ) {
+        this.rememberPrevious( this.lazyKey );
+        this.pendingInput = _input;
+        super.put( this.lazyKey, "" ); // so that the key shows up in keySet(), propertyNames() etc..
+    }
+
+    private synchronized void materialize() {
+        if ( this.pendingInput == null ) return;
+        final LinkedHashMap<String,Object> input = this.pendingInput;
+        this.pendingInput = null;
+        // Note: No caching of the rendered string (by identity of input), as the input could have been modified in-place since.
+        final String yamlString = this.render( input );
+        if ( this.verbose ) System.out.println( CLASSNAME +": materialize(): "+ this.lazyKey +" = ["+ yamlString +"]" );
+        super.put( this.lazyKey, yamlString );
+    }
+
+    private String render( final LinkedHashMap<String,Object> _input ) {
+        try {
+            return new Tools( this.verbose ).Map2YAMLString( _input );
+        } catch (Exception e) {
+            throw new RuntimeException( CLASSNAME +": render(): failed to render '"+ this.lazyKey +"' as YAML", e );
+        }
+    }
+
+    /** renders the pending value (if any) right now - and also those saved within frames (to be restored by {@link #popFrame()}) */
+    private synchronized void materializeAll() {
+        this.materialize();
+        if ( this.frames == null ) return;
+        for ( HashMap<Object,Object> frame: this.frames ) {
+            final Object prev = frame.get( this.lazyKey );
+            if ( prev instanceof PendingLazyValue )
+                frame.put( this.lazyKey, this.render( ((PendingLazyValue) prev).input ) );
+        }
+    }
+
+    /**
+     * <p>For the batch-commands that modify their input in-place (delete, insert, replace).  Invoke this BEFORE modifying _input.</p>
+     * <p>The lazy value (if still pending) is rendered right away - as _input could be (or be within) the very object it is of.  Not needed if _input is a frozen snapshot, as that's path-copied instead of modified (see {@link PersistentYAMLTree}).  So then, it stays lazy.</p>
+     * @param _allProps the batch-processor's collection of all Properties (null is ok, if Not within a batch-file).  Any instances of this class within, are affected.
+     * @param _input what is about to be modified in-place
+     */
+    public static void beforeInPlaceChange( final LinkedHashMap<String,Properties> _allProps, final Object _input ) {
+        if ( _allProps == null || PersistentYAMLTree.isFrozen( _input ) ) return;
+        for ( Properties props: _allProps.values() )
+            if ( props instanceof LazyForLoopProperties )
+                ((LazyForLoopProperties) props).materializeAll();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    @Override
+    public String getProperty( final String _key ) {
+        if ( this.lazyKey.equals( _key ) ) this.materialize();
+        return super.getProperty( _key );
+    }
+
+    @Override
+    public String getProperty( final String _key, final String _defaultValue ) {
+        if ( this.lazyKey.equals( _key ) ) this.materialize();
+        return super.getProperty( _key, _defaultValue );
+    }
+
+    @Override
+    public Object get( final Object _key ) {
+        if ( this.lazyKey.equals( _key ) ) this.materialize();
+        return super.get( _key );
+    }
+
+    @Override
+    public Object getOrDefault( final Object _key, final Object _defaultValue ) {
+        if ( this.lazyKey.equals( _key ) ) this.materialize();
+        return super.getOrDefault( _key, _defaultValue );
+    }
+
+    @Override
+    public synchronized Object put( final Object _key, final Object _value ) {
+        this.rememberPrevious( _key );
+        if ( this.lazyKey.equals( _key ) ) this.pendingInput = null; // explicitly set.  So, forget about the lazy value.
+        return super.put( _key, _value );
+    }
+
+    @Override
+    public synchronized Object remove( final Object _key ) {
+        this.rememberPrevious( _key );
+        if ( this.lazyKey.equals( _key ) ) this.pendingInput = null;
+        return super.remove( _key );
+    }
+
+    //-------------------------------------
+    // the other ways of writing a value: remember the previous value (for popFrame), and materialize first - as they could see the "" placeholder of the lazy value.
+    @Override
+    public synchronized Object putIfAbsent( final Object _key, final Object _value ) {
+        this.beforeWrite( _key );
+        return super.putIfAbsent( _key, _value );
+    }
+
+    @Override
+    public synchronized Object replace( final Object _key, final Object _value ) {
+        this.beforeWrite( _key );
+        return super.replace( _key, _value );
+    }
+
+    @Override
+    public synchronized boolean replace( final Object _key, final Object _oldValue, final Object _newValue ) {
+        this.beforeWrite( _key );
+        return super.replace( _key, _oldValue, _newValue );
+    }
+
+    @Override
+    public synchronized Object compute( final Object _key, final java.util.function.BiFunction<? super Object, ? super Object, ?> _func ) {
+        this.beforeWrite( _key );
+        return super.compute( _key, _func );
+    }
+
+    @Override
+    public synchronized Object computeIfPresent( final Object _key, final java.util.function.BiFunction<? super Object, ? super Object, ?> _func ) {
+        this.beforeWrite( _key );
+        return super.computeIfPresent( _key, _func );
+    }
+
+    @Override
+    public synchronized Object computeIfAbsent( final Object _key, final java.util.function.Function<? super Object, ?> _func ) {
+        this.beforeWrite( _key );
+        return super.computeIfAbsent( _key, _func );
+    }
+
+    @Override
+    public synchronized Object merge( final Object _key, final Object _value, final java.util.function.BiFunction<? super Object, ? super Object, ?> _func ) {
+        this.beforeWrite( _key );
+        return super.merge( _key, _value, _func );
+    }
+
+    private void beforeWrite( final Object _key ) {
+        this.rememberPrevious( _key );
+        if ( this.lazyKey.equals( _key ) ) this.materialize();
+    }
+
+    /** The copy has the same variables, but No frames */
+    @Override
+    public synchronized Object clone() {
+        final LazyForLoopProperties copy = (LazyForLoopProperties) super.clone();
+        copy.frames = null;
+        return copy;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** Starts a new scope (example: at the start of a 'foreach').  Must be followed by {@link #popFrame()} - in a finally block. */
+    public synchronized void pushFrame() {
+        if ( this.frames == null ) this.frames = new ArrayDeque<>();
+        this.frames.push( new HashMap<Object,Object>( 8 ) );
+    }
+
+    /** Ends the most recent scope: every variable set (or removed) since the matching {@link #pushFrame()} gets back its previous value (or is removed, if it did Not exist). */
+    public synchronized void popFrame() {
+        if ( this.frames == null || this.frames.isEmpty() )
+            throw new IllegalStateException( CLASSNAME +": popFrame(): No matching pushFrame()" );
+        final HashMap<Object,Object> frame = this.frames.pop();
+        for ( Map.Entry<Object,Object> e: frame.entrySet() ) {
+            final Object prev = e.getValue();
+            if ( this.lazyKey.equals( e.getKey() ) ) this.pendingInput = null;
+            if ( prev == ABSENT ) {
+                super.remove( e.getKey() );
+            } else if ( prev instanceof PendingLazyValue ) {
+                this.pendingInput = ((PendingLazyValue) prev).input;
+                super.put( this.lazyKey, "" );
+            } else {
+                super.put( e.getKey(), prev );
+            }
+        }
+        if ( this.verbose ) System.out.println( CLASSNAME +": popFrame(): restored "+ frame.keySet() );
+    }
+
+    /** if a frame is active, and _key has Not yet been set within it, remember _key's current value.  Caller must hold the lock on this object. */
+    private void rememberPrevious( final Object _key ) {
+        if ( this.frames == null || this.frames.isEmpty() ) return;
+        final HashMap<Object,Object> frame = this.frames.peek();
+        if ( frame.containsKey( _key ) ) return;
+        final Object prev;
+        if ( this.lazyKey.equals( _key ) && this.pendingInput != null )
+            prev = new PendingLazyValue( this.pendingInput ); // No need to render it now.
+        else
+            prev = super.get( _key );
+        frame.put( _key, ( prev == null ) ? ABSENT : prev );
+    }
+
+    //-------------------------------------
+    // bulk-access (and anything else that could see the "" placeholder of the lazy value): just materialize first.
+    @Override
+    public java.util.Set<java.util.Map.Entry<Object,Object>> entrySet() {
+        this.materialize();
+        return super.entrySet();
+    }
+
+    @Override
+    public java.util.Collection<Object> values() {
+        this.materialize();
+        return super.values();
+    }
+
+    @Override
+    public java.util.Enumeration<Object> elements() {
+        this.materialize();
+        return super.elements();
+    }
+
+    @Override
+    public java.util.Set<Object> keySet() {
+        this.materialize();
+        return super.keySet();
+    }
+
+    @Override
+    public java.util.Enumeration<Object> keys() {
+        this.materialize();
+        return super.keys();
+    }
+
+    @Override
+    public java.util.Enumeration<?> propertyNames() {
+        this.materialize();
+        return super.propertyNames();
+    }
+
+    @Override
+    public java.util.Set<String> stringPropertyNames() {
+        this.materialize();
+        return super.stringPropertyNames();
+    }
+
+    @Override
+    public void forEach( final java.util.function.BiConsumer<? super Object, ? super Object> _action ) {
+        this.materialize();
+        super.forEach( _action );
+    }
+
+    @Override
+    public boolean containsValue( final Object _value ) {
+        this.materialize();
+        return super.containsValue( _value );
+    }
+
+    @Override
+    public boolean contains( final Object _value ) {
+        this.materialize();
+        return super.contains( _value );
+    }
+
+    @Override
+    public synchronized boolean equals( final Object _o ) {
+        this.materialize();
+        return super.equals( _o );
+    }
+
+    @Override
+    public synchronized int hashCode() {
+        this.materialize();
+        return super.hashCode();
+    }
+
+    @Override
+    public synchronized String toString() {
+        this.materialize();
+        return super.toString();
+    }
+
+    /** When serialized (example: deepClone via org.ASUX.common.Utils.deepClone), the lazy value is computed first. */
+    private Object writeReplace() throws java.io.ObjectStreamException {
+        this.materialize();
+        return this;
+    }
+
+}
@@ -89,7 +89,9 @@ public class ListYamlEntry extends AbstractYamlEntryProcessor {
     /** This function will be called when a full/end2end match of a YAML path-expression happens.
      * See details and warnings in @see AbstractYamlEntryProcessor#onEnd2EndMatch()
      */
-    protected boolean onEnd2EndMatch(final LinkedHashMap<String, Object> _map, final YAMLPath _yamlPath, final String _key, final LinkedHashMap<String, Object> _parentMap, final LinkedList<String> _end2EndPaths) {
+    protected boolean onEnd2EndMatch(final LinkedHashMap<String, Object> _map, final YAMLPath _yamlPath, final String _key, final LinkedHashMap<String, Object> _parentMap, final LinkedList<String> _end2EndPaths)
+                    throws Exception
+    {
 
         this.count ++;
 
@@ -102,7 +104,10 @@ public class ListYamlEntry extends AbstractYamlEntryProcessor {
         for ( String s: _end2EndPaths ) {
             sss = (sss==null) ?   s    : sss + this.yamlPatternPRINTDelimiter + s;
         }
-        this.output.add( sss ); // could be a string or a java.util.LinkedHashMap<String, Object>
+        if ( this.outputSink != null )
+            this.outputSink.onMatch( sss ); // stream it out right away.  See setOutputSink()
+        else
+            this.output.add( sss ); // could be a string or a java.util.LinkedHashMap<String, Object>
         if ( this.verbose ) System.out.println( CLASSNAME +": onEnd2EndMatch(): _end2EndPaths = [" +sss +"]" );
         if ( this.showStats ) System.out.println( sss );
 
@@ -36,11 +36,18 @@ import org.ASUX.common.Macros;
 import org.ASUX.yaml.YAMLPath;
 
 // import java.util.Map;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.ArrayList;
 import java.util.Properties;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.*;
 
 /** <p>This abstract class was written to re-use code to query/traverse a YAML file.</p>
@@ -65,7 +72,30 @@ public class MacroYamlProcessor {
      */
 	public final boolean showStats;
 
-	private int changesMade = 0;
+	/** a LongAdder, as {@link TuningOptions#macroParallelism()} updates this from multiple threads */
+	private final LongAdder changesMade = new LongAdder();
+
+    /** <p>Within one (top-level) invocation of {@link #recursiveSearch}, the Properties do Not change.  So, each distinct string containing a macro is evaluated just once.</p>
+     *  <p>Cleared at the start of each top-level invocation.  Strings WITHOUT any macro are never evaluated (nor cached) - see {@link #macroEval}.</p>
+     */
+    private final ConcurrentHashMap<String,String> evaluated = new ConcurrentHashMap<>();
+    private int recursionDepth = 0;
+
+    /** # of keys/values changed (or dropped) by {@link #recursiveSearch_Expand} */
+    private final LongAdder changedNodes = new LongAdder();
+
+    /** A sub-tree with at least this many nodes (Maps, Lists and Strings) is expanded as a separate fork/join task.  See {@link TuningOptions#macroParallelism()} */
+    private static final int FORK_THRESHOLD = 2000;
+
+    /** Shared by all instances (and all threads) of this class.  Created lazily, and re-created only if {@link TuningOptions#macroParallelism()} changes.  See {@link #forkJoinPool(int)} */
+    private static ForkJoinPool forkJoinPool = null;
+
+    private static final int MAXEVALUATED = 100000; // beyond this many distinct strings, evaluate as always (without caching)
+    private static final LongAdder SKIPPED = new LongAdder();
+    private static final LongAdder EVALUATED = new LongAdder();
+    private static final LongAdder REUSED = new LongAdder();
+    private static final LongAdder SUBTREES_SHARED = new LongAdder();
+    private static final LongAdder CONTAINERS_COPIED = new LongAdder();
 
     /** The only Constructor.
      *  @param _verbose Whether you want deluge of debug-output onto System.out
@@ -88,18 +118,46 @@ public class MacroYamlProcessor {
 
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
 
-    private static final String macroEval( final boolean _verbose, final String _s,
+    /** <p>Every macro starts with '${'.  So, a string without '${' evaluates to itself.  Most strings within a YAML document are like that, and skip Macros.eval() altogether.</p>
+     *  <p>Otherwise, the result is cached (see {@link #evaluated}) for the rest of this top-level invocation of {@link #recursiveSearch}.</p>
+     */
+    private final String macroEval( final boolean _verbose, final String _s,
+                                    final Properties _props, final LinkedHashMap<String,Properties> _allProps )
+                                    throws Exception
+    {
+        if ( _s.indexOf( "${" ) < 0 ) {
+            SKIPPED.increment();
+            return _s;
+        }
+        final String cached = this.evaluated.get( _s );
+        if ( cached != null ) {
+            REUSED.increment();
+            return cached;
+        }
+        final String v2 = macroEval_Step2( _verbose, _s, _props, _allProps );
+        EVALUATED.increment();
+        if ( v2 != null && this.evaluated.size() < MAXEVALUATED ) this.evaluated.put( _s, v2 );
+        return v2;
+    }
+
+    private static final String macroEval_Step2( final boolean _verbose, final String _s,
                                     final Properties _props, final LinkedHashMap<String,Properties> _allProps )
                                     throws Exception
     {
         final String HDR = CLASSNAME + ": macroEval("+_s+"): ";
         final String v1 = org.ASUX.common.Macros.eval( _verbose, _s, _props );
         if ( _verbose ) System.out.println( HDR +" lookup #1 on Properties = ["+ v1 + "]" );
+        if ( v1.indexOf( "${" ) < 0 ) return v1; // nothing left for lookup #2
         final String v2 = org.ASUX.common.Macros.eval( _verbose, v1, _allProps );
         if ( _verbose ) System.out.println( HDR +" lookup #2 for LinkedHashMap<String,Properties> = ["+ v2 + "]" );
         return v2;
     }
 
+    /** @return a one-line summary, for the profile-report (see {@link BatchProfiler}) */
+    public static String getStats() {
+        return "skippedNoMacro="+ SKIPPED.sum() +" evaluated="+ EVALUATED.sum() +" reused="+ REUSED.sum() +" subtreesShared="+ SUBTREES_SHARED.sum() +" containersCopied="+ CONTAINERS_COPIED.sum();
+    }
+
 	//@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
 
     /** <p>This is a RECURSIVE-FUNCTION.  Make sure to pass in the right parameters.</p>
@@ -122,6 +180,30 @@ public class MacroYamlProcessor {
 
         if ( (_inpMap == null) || (_outpMap==null) ) return false;
 
+        if ( this.recursionDepth == 0 ) this.evaluated.clear(); // the Properties may have changed since the previous top-level invocation
+        this.recursionDepth ++;
+        try {
+            if ( TuningOptions.macroCopyOnWrite() ) {
+                // The output will share the unchanged sub-trees of its input.  Within a batch-file, _inpMap can be a !label's content itself (Not a copy).
+                // So, share those of a frozen snapshot of it (a no-op, if it's already frozen) - Not of the !label itself, which stays modifiable.  Whatever modifies the output afterwards copies just the paths it modifies.  See PersistentYAMLTree.java
+                final LinkedHashMap<String,Object> frozenInp = ( this.recursionDepth == 1 ) ? PersistentYAMLTree.snapshot( _inpMap ) : _inpMap;
+                return this.recursiveSearch_Expand( frozenInp, _outpMap, _props, _allProps, true, TuningOptions.macroParallelism() );
+            } else if ( TuningOptions.macroParallelism() > 1 )
+                return this.recursiveSearch_Expand( _inpMap, _outpMap, _props, _allProps, false, TuningOptions.macroParallelism() );
+            else
+                return this.recursiveSearch_Step2( _inpMap, _outpMap, _props, _allProps );
+        } finally {
+            this.recursionDepth --;
+        }
+    }
+
+    private boolean recursiveSearch_Step2(
+            final LinkedHashMap<String, Object> _inpMap,
+			final LinkedHashMap<String,Object> _outpMap,
+            final Properties _props,
+            final LinkedHashMap<String,Properties> _allProps
+    ) throws MacroYamlProcessor.MacroException, Exception {
+
         boolean bChangesMade = false;
 		// final Tools tool = new Tools( this.verbose );
 
@@ -182,7 +264,7 @@ public class MacroYamlProcessor {
 				// by rhsObj.toString(), I'm cloning the String object.. .. so both _inpMap and _outpMap do NOT share the same String object
 				final String asis = rhsObj.toString();
 				final String news = macroEval( this.verbose, asis, _props, _allProps );
-				if (   !    asis.equals(news) ) this.changesMade ++;
+				if (   !    asis.equals(news) ) this.changesMade.increment();
 				_outpMap.put( key, news );
 				// Well: If the key != keyAsIs .. then .. the resulting entry in YAML outputfile is something like '"key"' (that is, a single+double-quote problem)
 
@@ -195,9 +277,211 @@ public class MacroYamlProcessor {
 
         // Now that we looped thru all keys at current recursion level..
 		// .. for now nothing to do here.
-		if ( this.showStats ) System.out.println("# of changes made = "+ changesMade );
+		if ( this.showStats ) System.out.println("# of changes made = "+ changesMade.sum() );
 
         return bChangesMade;
     }
 
+	//@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+
+    /** <p>Opt-in alternative to {@link #recursiveSearch_Step2}, with the same output (including dropping key-only entries, whose value is null).</p>
+     *  <p>If _shareUnchanged (see {@link TuningOptions#macroCopyOnWrite()}), unchanged sub-trees of _inpMap are put into _outpMap as-is.  New Maps/Lists are created only along the paths to what changed.</p>
+     *  <p>If _parallelism &gt; 1 (see {@link TuningOptions#macroParallelism()}), sub-trees of at least {@link #FORK_THRESHOLD} nodes are expanded concurrently on a ForkJoinPool (shared by all invocations - see {@link #forkJoinPool(int)}).
+     *  Each Map/List is re-assembled in its original order, once all its children are done.</p>
+     *  <p>Note: that assumes org.ASUX.common.Macros.eval() is thread-safe.  It is: static methods that just read the Properties passed in (nobody modifies them while this runs) and build a new String.
+     *  If that ever changes, set {@link TuningOptions#MACROPARALLELISM} to 1.</p>
+     *  <p>Nothing here is kept in a data-attribute (other than the counters and {@link #evaluated} - all thread-safe), so that concurrent invocations do Not interfere with each other.</p>
+     *  @return true if anything within _inpMap changed
+     *  @throws MacroYamlProcessor.MacroException if _inpMap contains something other than Maps, Lists and Strings (even if it was encountered on another thread)
+     */
+    private boolean recursiveSearch_Expand(
+            final LinkedHashMap<String, Object> _inpMap,
+			final LinkedHashMap<String,Object> _outpMap,
+            final Properties _props,
+            final LinkedHashMap<String,Properties> _allProps,
+            final boolean _shareUnchanged,
+            final int _parallelism
+    ) throws MacroYamlProcessor.MacroException, Exception {
+        final long changedBefore = this.changedNodes.sum();
+        final Object newMap;
+        if ( _parallelism > 1 ) {
+            // Count the nodes just once (up front).  Only those sub-trees large enough to be forked off are remembered.
+            final IdentityHashMap<Object,Integer> largeSubTrees = new IdentityHashMap<>();
+            countNodes( _inpMap, largeSubTrees );
+            if ( this.verbose ) System.out.println( CLASSNAME +": recursiveSearch_Expand(): # of sub-trees large enough to fork = "+ largeSubTrees.size() );
+            // largeSubTrees is Not modified after this point.  So, it's safe to read from multiple threads (submit() makes it visible to them)
+            newMap = join( forkJoinPool( _parallelism ).submit( (Callable<Object>) () -> this.expandMap( _inpMap, _shareUnchanged, largeSubTrees, _props, _allProps ) ) );
+        } else {
+            newMap = this.expandMap( _inpMap, _shareUnchanged, null, _props, _allProps );
+        }
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> m = (LinkedHashMap<String,Object>) newMap;
+        _outpMap.putAll( m );
+        if ( this.showStats ) System.out.println("# of changes made = "+ changesMade.sum() );
+        return this.changedNodes.sum() > changedBefore;
+    }
+
+    /** @param _shareUnchanged see {@link #recursiveSearch_Expand}
+     *  @param _largeSubTrees see {@link #expandChildren}
+     *  @return _map itself if Nothing within it changed (and _shareUnchanged).  Otherwise, a new LinkedHashMap - whose unchanged values are those of _map (Not copies).
+     */
+    private Object expandMap( final LinkedHashMap<String, Object> _map, final boolean _shareUnchanged, final IdentityHashMap<Object,Integer> _largeSubTrees,
+                                final Properties _props, final LinkedHashMap<String,Properties> _allProps ) throws Exception {
+        final Object[] newValues = this.expandChildren( _map.values(), false, _shareUnchanged, _largeSubTrees, _props, _allProps );
+        LinkedHashMap<String, Object> newMap = null; // created only when the 1st change is detected (or, right away if Not shareUnchanged)
+        int ix = 0;
+        for ( java.util.Map.Entry<String, Object> e: _map.entrySet() ) {
+            final Object keyAsIs = e.getKey();
+            final Object rhsObj = e.getValue();
+            final String key = macroEval( this.verbose, keyAsIs.toString(), _props, _allProps );
+            final Object newRhs = newValues[ ix ];
+            final boolean keyChanged = ( rhsObj == null ) || ( ! key.equals( keyAsIs ) ); // recursiveSearch_Step2() drops key-only entries.  So, that's a change too.
+            if ( keyChanged ) this.changedNodes.increment();
+            if ( newMap == null && ( keyChanged || newRhs != rhsObj || ! _shareUnchanged ) ) {
+                newMap = new LinkedHashMap<>();
+                CONTAINERS_COPIED.increment();
+                int jx = 0;
+                for ( java.util.Map.Entry<String, Object> prev: _map.entrySet() ) { // the earlier entries, all unchanged
+                    if ( jx ++ >= ix ) break;
+                    newMap.put( prev.getKey(), prev.getValue() );
+                }
+            }
+            if ( newMap != null && newRhs != null )
+                newMap.put( key, newRhs );
+            ix ++;
+        }
+        if ( newMap == null ) {
+            SUBTREES_SHARED.increment();
+            return _map;
+        }
+        return newMap;
+    }
+
+    /** @param _shareUnchanged see {@link #recursiveSearch_Expand}
+     *  @param _largeSubTrees see {@link #expandChildren}
+     *  @return _arr itself if Nothing within it changed (and _shareUnchanged).  Otherwise, a new ArrayList - whose unchanged elements are those of _arr (Not copies).
+     */
+    private Object expandArray( final ArrayList<?> _arr, final boolean _shareUnchanged, final IdentityHashMap<Object,Integer> _largeSubTrees,
+                                final Properties _props, final LinkedHashMap<String,Properties> _allProps ) throws Exception {
+        final Object[] newElements = this.expandChildren( _arr, true, _shareUnchanged, _largeSubTrees, _props, _allProps );
+        ArrayList<Object> newarr = null; // created only when the 1st change is detected (or, right away if Not shareUnchanged)
+        for ( int ix=0; ix < newElements.length; ix ++ ) {
+            if ( newarr == null && ( newElements[ix] != _arr.get(ix) || ! _shareUnchanged ) ) {
+                newarr = new ArrayList<>( _arr.size() );
+                CONTAINERS_COPIED.increment();
+                newarr.addAll( _arr.subList( 0, ix ) ); // the earlier elements, all unchanged
+            }
+            if ( newarr != null ) newarr.add( newElements[ix] );
+        }
+        if ( newarr == null ) {
+            SUBTREES_SHARED.increment();
+            return _arr;
+        }
+        return newarr;
+    }
+
+    /** <p>Expands each of _children, in order.  Those that are large sub-trees are forked off as separate tasks (only if running within a ForkJoinPool), while this thread works on the rest.</p>
+     *  @param _areArrayElements true if _children are the elements of an ArrayList (as opposed to values within a Map)
+     *  @param _shareUnchanged see {@link #recursiveSearch_Expand}
+     *  @param _largeSubTrees null, if Nothing is to be forked off.  Otherwise, the sub-trees (anywhere within the YAML) that are large enough to be forked off - as determined ONCE by {@link #countNodes(Object, IdentityHashMap)}
+     *  @return the expanded children, in the same order as _children
+     */
+    private Object[] expandChildren( final Collection<?> _children, final boolean _areArrayElements, final boolean _shareUnchanged, final IdentityHashMap<Object,Integer> _largeSubTrees,
+                                final Properties _props, final LinkedHashMap<String,Properties> _allProps ) throws Exception {
+        final Object[] results = new Object[ _children.size() ];
+        final boolean mayFork = _largeSubTrees != null && results.length > 1 && ForkJoinTask.inForkJoinPool();
+        final ForkJoinTask<?>[] forked = mayFork ? new ForkJoinTask<?>[ results.length ] : null;
+        try {
+            int ix = 0;
+            for ( Object child: _children ) {
+                final int jx = ix ++;
+                if ( mayFork && _largeSubTrees.containsKey( child ) ) {
+                    forked[jx] = ForkJoinTask.adapt( (Callable<Object>) () -> results[jx] = this.expandChild( child, _areArrayElements, _shareUnchanged, _largeSubTrees, _props, _allProps ) ).fork();
+                } else {
+                    results[jx] = this.expandChild( child, _areArrayElements, _shareUnchanged, _largeSubTrees, _props, _allProps );
+                }
+            }
+            if ( forked != null )
+                for ( ForkJoinTask<?> f: forked )
+                    if ( f != null ) join( f ); // join() also makes results[] (written by the other thread) visible to this thread.
+            return results;
+        } finally {
+            if ( forked != null )
+                for ( ForkJoinTask<?> f: forked )
+                    if ( f != null ) f.cancel( false ); // no-op, for those that are done.
+        }
+    }
+
+    /** @throws MacroYamlProcessor.MacroException if _child is Not a Map, List or String (recursiveSearch_Step2() would System.exit() instead - but this may be running on a ForkJoinPool's thread) */
+    private Object expandChild( final Object _child, final boolean _isArrayElement, final boolean _shareUnchanged, final IdentityHashMap<Object,Integer> _largeSubTrees,
+                                final Properties _props, final LinkedHashMap<String,Properties> _allProps ) throws Exception {
+        if ( _child == null && ! _isArrayElement ) return null; // key-only entry within a Map.  Dropped by expandMap()
+        if ( _child instanceof LinkedHashMap ) {
+            @SuppressWarnings("unchecked")
+            final LinkedHashMap<String, Object> rhs = (LinkedHashMap<String, Object>) _child;
+            return this.expandMap( rhs, _shareUnchanged, _largeSubTrees, _props, _allProps );
+        } else if ( _child instanceof java.util.ArrayList && ! _isArrayElement ) {
+            return this.expandArray( (ArrayList<?>) _child, _shareUnchanged, _largeSubTrees, _props, _allProps );
+        } else if ( _child instanceof java.lang.String ) {
+            final String news = this.expandString( (String) _child, _props, _allProps );
+            if ( news != _child ) {
+                this.changedNodes.increment();
+                if ( ! _isArrayElement ) this.changesMade.increment(); // exactly as counted by recursiveSearch_Step2()
+            }
+            return news;
+        } else if ( _isArrayElement ) {
+            throw new MacroException( CLASSNAME +": recursiveSearch(): incomplete code #1: failure w Array-type '"+ ((_child==null)?"null":_child.getClass().getName()) +"'" ); // This is a serious failure. Shouldn't be happening.
+        } else {
+            throw new MacroException( CLASSNAME +": recursiveSearch(): incomplete code #2: failure w Type '"+ _child.getClass().getName() +"'" ); // This is a serious failure. Shouldn't be happening.
+        }
+    }
+
+    /** @return _s itself (same instance), if it has No macros - or if the macros evaluated to the same text */
+    private String expandString( final String _s, final Properties _props, final LinkedHashMap<String,Properties> _allProps ) throws Exception {
+        final String news = macroEval( this.verbose, _s, _props, _allProps );
+        return _s.equals( news ) ? _s : news;
+    }
+
+    /** <p>Counts the nodes within _o, in a single pass.  Each Map/List with at least {@link #FORK_THRESHOLD} nodes (within it) is put into _largeSubTrees.</p>
+     *  @return the # of Maps, Lists and scalars within _o (including _o)
+     */
+    private static int countNodes( final Object _o, final IdentityHashMap<Object,Integer> _largeSubTrees ) {
+        final Integer known = _largeSubTrees.get( _o ); // the same sub-tree, referenced more than once
+        if ( known != null ) return known;
+        int count = 1;
+        if ( _o instanceof java.util.Map ) {
+            for ( Object v: ((java.util.Map<?,?>) _o).values() )
+                count += countNodes( v, _largeSubTrees );
+        } else if ( _o instanceof java.util.List ) {
+            for ( Object v: (java.util.List<?>) _o )
+                count += countNodes( v, _largeSubTrees );
+        }
+        if ( count >= FORK_THRESHOLD ) _largeSubTrees.put( _o, count );
+        return count;
+    }
+
+    /** @return the ForkJoinPool shared by all instances of this class, with _parallelism threads.  Its threads are daemon-threads, and stay idle (for a while) in between macroyaml commands. */
+    private static synchronized ForkJoinPool forkJoinPool( final int _parallelism ) {
+        if ( forkJoinPool == null || forkJoinPool.getParallelism() != _parallelism ) {
+            if ( forkJoinPool != null ) forkJoinPool.shutdown(); // lets any tasks already submitted finish
+            forkJoinPool = new ForkJoinPool( _parallelism );
+        }
+        return forkJoinPool;
+    }
+
+    /** Waits for _task.  If it failed, re-throws the actual failure - example: a {@link MacroException}.
+     *  (ForkJoinTask wraps checked exceptions within a RuntimeException - and when re-thrown on another thread, wraps that once more.)
+     */
+    private static Object join( final ForkJoinTask<?> _task ) throws Exception {
+        try {
+            return _task.join();
+        } catch( RuntimeException e ) {
+            Throwable t = e;
+            while ( t.getClass() == RuntimeException.class && t.getCause() instanceof Exception )
+                t = t.getCause();
+            if ( t instanceof Exception ) throw (Exception) t;
+            throw e;
+        }
+    }
+
 }
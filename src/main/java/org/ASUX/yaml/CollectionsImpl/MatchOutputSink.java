@@ -0,0 +1,56 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+/** <p>A destination for the results of the read/query, list and table commands - one match at a time.</p>
+ *  <p>Without a sink, {@link ReadYamlEntry}, {@link ListYamlEntry} and {@link TableYamlQuery} buffer every single match (in a LinkedList/ArrayList), and {@link Cmd#main} writes that out only after the entire YAML has been searched.
+ *  With a sink (see {@link AbstractYamlEntryProcessor#setOutputSink}), each end2end match is pushed out as soon as it is found.</p>
+ *  <p>So, peak-memory no longer grows with the number of matches.  {@link Cmd#main} uses a sink only if {@link TuningOptions#streamMatches()} is turned on.</p>
+ * @see StreamingYAMLSink
+ */
+public interface MatchOutputSink {
+
+    /**
+     * Invoked once for every end2end match (in the same order as they'd have appeared in the buffered output).
+     * @param _match for the read-command: a String or a java.util.LinkedHashMap&lt;String, Object&gt;.  For the list-command: a String.  For the table-command: a java.util.ArrayList&lt;String&gt; (a single row)
+     * @throws Exception if the match could Not be written out (example: a java.io.IOException if the downstream pipe was closed)
+     */
+    public void onMatch( final Object _match ) throws Exception;
+
+    /**
+     * Invoked exactly once, after the last match.  Must Not close the underlying java.io.Writer (the caller owns that).
+     * @throws Exception if the final output could Not be written out
+     */
+    public void close() throws Exception;
+
+}
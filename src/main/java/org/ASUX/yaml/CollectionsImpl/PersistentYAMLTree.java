@@ -0,0 +1,172 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/** <p>Frozen (immutable), structurally-shared snapshots of the YAML object-trees this library works with (LinkedHashMap&lt;String,Object&gt; / ArrayList / String).</p>
+ *  <p>Batch-files save intermediate states (example: into a !label, or the input to each iteration of a 'foreach').  Without this class, each such save is a full deep-clone, i.e., O(entire YAML).</p>
+ *  <p>With this class (opt-in via {@link TuningOptions#persistentTrees()}):</p><ol>
+ *  <li>{@link #snapshot(LinkedHashMap)} creates a frozen copy: each Map/List node becomes a {@link FrozenLinkedHashMap} / {@link FrozenArrayList}.  A node that is ALREADY frozen is shared as-is (no copying, no walking beneath it).  The caller's tree is Not touched.</li>
+ *  <li>Within a batch-file, those snapshots are what flow onward: a !label that is recalled (useAsInput), or the input to each iteration of a 'foreach'.  So, the YAML that the next command works on is mostly frozen nodes.</li>
+ *  <li>Delete, Insert &amp; Replace commands only remember where the frozen nodes are, as they walk down the YAML.  Only when they actually write into a frozen node, is that node - and each of its frozen ancestors - replaced by a {@link #thaw(LinkedHashMap)}'ed shallow copy (whose children are still the shared frozen nodes).  That's path-copying.  See AbstractYamlEntryProcessor#writable.</li>
+ *  <li>So, the next snapshot() only needs to freeze those (few) thawed nodes.  Snapshot cost goes from O(entire YAML) to O(nodes along the paths written since the previous snapshot).</li>
+ *  </ol>
+ *  <p>Why not a HAMT (hash array mapped trie) + persistent vectors?  Every API of this library - the commands, the batch-processor in org.ASUX.yaml, the YAML/JSON readers and writers - is typed on java.util.LinkedHashMap and java.util.ArrayList.
+ *  Since the existing tree is already a tree of small Maps, freezing each Map-node as-is gives the same structural-sharing at the granularity of a YAML-node, without a foreign data-structure that needs converting at every API boundary.</p>
+ *  <p>MacroYamlProcessor does Not need any of this: it never modifies its input, and builds a new output-tree (or, with {@link TuningOptions#macroCopyOnWrite()}, new nodes only along the changed paths - sharing the rest with a frozen snapshot of its input).</p>
+ *  <p>Caution: any code OUTSIDE this library that modifies a nested Map/List (after a snapshot) will get a java.lang.UnsupportedOperationException.  That's why it's opt-in.</p>
+ */
+public final class PersistentYAMLTree {
+
+    public static final String CLASSNAME = PersistentYAMLTree.class.getName();
+
+    private static final LongAdder NODESFROZEN = new LongAdder();
+    private static final LongAdder SUBTREESSHARED = new LongAdder();
+    private static final LongAdder NODESTHAWED = new LongAdder();
+
+    private PersistentYAMLTree() {} // static methods only
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * @param _o Nullable
+     * @return true if _o is a {@link FrozenLinkedHashMap} or {@link FrozenArrayList}
+     */
+    public static boolean isFrozen( final Object _o ) {
+        return _o instanceof FrozenLinkedHashMap || _o instanceof FrozenArrayList;
+    }
+
+    /**
+     * Creates an immutable snapshot of _map - WITHOUT any side-effect on _map.  See class-level documentation for details.
+     * @param _map Nullable. If already frozen, it's returned as-is.
+     * @return a {@link FrozenLinkedHashMap} (null if _map is null)
+     * @throws Exception if org.ASUX.common.Utils.deepClone() fails, for any object that is Not a Map, List or immutable scalar
+     */
+    public static LinkedHashMap<String,Object> snapshot( final LinkedHashMap<String,Object> _map ) throws Exception {
+        if ( _map == null ) return null;
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> retval = (LinkedHashMap<String,Object>) freeze( _map, new IdentityHashMap<Object,Object>() );
+        return retval;
+    }
+
+    /**
+     * Like {@link #snapshot(LinkedHashMap)}, but for any YAML content (Map, List or scalar).
+     * @param _o Nullable. If already frozen, it's returned as-is.
+     * @return a {@link FrozenLinkedHashMap} or {@link FrozenArrayList} if _o is a Map or List.  Otherwise, a deep-clone of _o (i.e., _o itself, if it's a String)
+     * @throws Exception if org.ASUX.common.Utils.deepClone() fails, for any object that is Not a Map, List or immutable scalar
+     */
+    public static Object frozenCopy( final Object _o ) throws Exception {
+        return freezeChild( _o, new IdentityHashMap<Object,Object>() );
+    }
+
+    /**
+     * @param _map Nullable
+     * @return if _map is frozen, a modifiable shallow copy (whose children remain the shared, frozen nodes).  Otherwise, _map itself.
+     */
+    public static LinkedHashMap<String,Object> thaw( final LinkedHashMap<String,Object> _map ) {
+        if ( ! ( _map instanceof FrozenLinkedHashMap ) ) return _map;
+        NODESTHAWED.increment();
+        return new LinkedHashMap<String,Object>( _map );
+    }
+
+    /**
+     * @param _arr Nullable
+     * @return if _arr is frozen, a modifiable shallow copy (whose children remain the shared, frozen nodes).  Otherwise, _arr itself.
+     */
+    @SuppressWarnings("unchecked")
+    public static ArrayList<Object> thaw( final ArrayList<?> _arr ) {
+        if ( ! ( _arr instanceof FrozenArrayList ) ) return (ArrayList<Object>) _arr;
+        NODESTHAWED.increment();
+        return new ArrayList<Object>( _arr );
+    }
+
+    /**
+     * @return a one-line summary of all the freezing/thawing done so far (since JVM started)
+     */
+    public static String getStats() {
+        return CLASSNAME +": nodes frozen="+ NODESFROZEN.sum() +", frozen sub-trees shared (Not copied)="+ SUBTREESSHARED.sum() +", nodes thawed="+ NODESTHAWED.sum();
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /** This is a RECURSIVE function.  _alreadyFrozen ensures a node that appears multiple times within the tree, is frozen just once (just like a deep-clone would). */
+    @SuppressWarnings("unchecked")
+    private static Object freeze( final Object _o, final IdentityHashMap<Object,Object> _alreadyFrozen ) throws Exception {
+        if ( isFrozen( _o ) ) {
+            SUBTREESSHARED.increment();
+            return _o;
+        }
+        final Object prev = _alreadyFrozen.get( _o );
+        if ( prev != null ) return prev;
+
+        if ( _o instanceof LinkedHashMap ) {
+            final LinkedHashMap<String,Object> src = (LinkedHashMap<String,Object>) _o;
+            final FrozenLinkedHashMap frozen = new FrozenLinkedHashMap( Math.max( 16, (int) ( src.size() / 0.75f ) + 1 ) );
+            _alreadyFrozen.put( _o, frozen );
+            for ( Map.Entry<String,Object> entry: src.entrySet() )
+                frozen.putWhileFreezing( entry.getKey(), freezeChild( entry.getValue(), _alreadyFrozen ) );
+            NODESFROZEN.increment();
+            return frozen;
+
+        } else if ( _o instanceof ArrayList ) {
+            final ArrayList<Object> src = (ArrayList<Object>) _o;
+            final FrozenArrayList frozen = new FrozenArrayList( src.size() );
+            _alreadyFrozen.put( _o, frozen );
+            for ( Object child: src )
+                frozen.addWhileFreezing( freezeChild( child, _alreadyFrozen ) );
+            NODESFROZEN.increment();
+            return frozen;
+
+        } else {
+            // LinkedList, or anything else.  Rare within a YAML-tree.  So, simply a private (modifiable) copy.
+            return YAMLTreeCloner.deepClone( _o );
+        }
+    }
+
+    private static Object freezeChild( final Object _child, final IdentityHashMap<Object,Object> _alreadyFrozen ) throws Exception {
+        if ( _child instanceof Map || _child instanceof List )
+            return freeze( _child, _alreadyFrozen );
+        return YAMLTreeCloner.deepClone( _child ); // Strings and other immutable scalars are shared as-is (Not copied).
+    }
+
+}
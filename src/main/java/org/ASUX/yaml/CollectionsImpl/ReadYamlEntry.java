@@ -85,7 +85,9 @@ public class ReadYamlEntry extends AbstractYamlEntryProcessor {
     /** This function will be called when a full/end2end match of a YAML path-expression happens.
      * See details and warnings in @see AbstractYamlEntryProcessor#onEnd2EndMatch()
      */
-    protected boolean onEnd2EndMatch(final LinkedHashMap<String, Object> _map, final YAMLPath _yamlPath, final String _key, final LinkedHashMap<String, Object> _parentMap, final LinkedList<String> _end2EndPaths) {
+    protected boolean onEnd2EndMatch(final LinkedHashMap<String, Object> _map, final YAMLPath _yamlPath, final String _key, final LinkedHashMap<String, Object> _parentMap, final LinkedList<String> _end2EndPaths)
+                    throws Exception
+    {
 
         this.count ++;
         if ( this.verbose ) {
@@ -96,7 +98,10 @@ public class ReadYamlEntry extends AbstractYamlEntryProcessor {
         Object o = _map.get(_key);
         final String s = (o == null) ? "null" : o.toString();
         if ( this.verbose ) System.out.println( s );
-        this.output.add( o ); // could be a string or a java.util.LinkedHashMap&lt;String, Object&gt;
+        if ( this.outputSink != null )
+            this.outputSink.onMatch( o ); // stream it out right away.  See setOutputSink()
+        else
+            this.output.add( o ); // could be a string or a java.util.LinkedHashMap&lt;String, Object&gt;
 
         return true;
     }
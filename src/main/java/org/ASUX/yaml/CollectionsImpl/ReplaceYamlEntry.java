@@ -142,6 +142,13 @@ public class ReplaceYamlEntry extends AbstractYamlEntryProcessor {
         return true;
     }
 
+    //-------------------------------------
+    /** This command modifies the YAML in-place.  See {@link AbstractYamlEntryProcessor#mutatesInput} */
+    @Override
+    protected boolean mutatesInput() {
+        return true;
+    }
+
     //-------------------------------------
     /** This function will be called when a full/end2end match of a YAML path-expression happens.
      * See details and warnings in {@link AbstractYamlEntryProcessor#onEnd2EndMatch}
@@ -182,6 +189,7 @@ public class ReplaceYamlEntry extends AbstractYamlEntryProcessor {
     {
 
         if ( this.verbose ) System.out.println("count=" + this.keys2bRemoved.size() );
+        final SharedPayload payload = new SharedPayload( this.replacementData );
         for (Tuple< String, LinkedHashMap<String, Object> > tpl: this.keys2bRemoved ) {
             final String rhsStr = tpl.val.toString();
             if ( this.verbose ) System.out.println("atEndOfInput: "+ tpl.key +": "+ rhsStr.substring(0,rhsStr.length()>121?120:rhsStr.length()));
@@ -189,14 +197,17 @@ public class ReplaceYamlEntry extends AbstractYamlEntryProcessor {
             // tpl.val.remove(tpl.key);
 
             // Now put in a new entry - with the replacement data!
-            tpl.val.put( tpl.key, org.ASUX.common.Utils.deepClone(this.replacementData) );
+            this.writable( tpl.val ).put( tpl.key, payload.next() ); // a cheap deep-clone, or one shared frozen copy.  See SharedPayload.java
             // If there are multiple matches.. then without deepClone(), the Eso teric Soft ware
             // YAML library, will use "&1" to define your 1st copy (in output) and put "*1" in
             // all other locations this replacement text WAS SUPPOSED have been :-(
+            // For the shared frozen copy, GenericYAMLWriter & FastYAMLEmitter take care of that.  See TuningOptions.anchorSharedPayloads()
         }
         // java's forEach never works if you are altering anything within the Lambda body
         // this.keys2bRemoved.forEach( tpl -> {tpl.val.remove(tpl.key); });
         if ( this.showStats ) System.out.println( "count="+this.keys2bRemoved.size() );
+        if ( this.showStats ) System.out.println( YAMLTreeCloner.getStats() );
+        if ( this.showStats ) System.out.println( SharedPayload.getStats() );
 
         // This IF-Statement line below is Not outputting the entire YAML-Path.  So, I'm relying on onEnd2EndMatch() to do the job.
         // Not a squeeky clean design (as summary should be done at end only).. but it avoids having to add additional data structures
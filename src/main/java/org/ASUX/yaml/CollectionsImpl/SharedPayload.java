@@ -0,0 +1,84 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** <p>The new content that Insert and Replace commands put at EVERY matched location of the YAML.</p>
+ *  <p>By default, each location gets its own deep-clone (see {@link YAMLTreeCloner}).  So, memory grows as (# of matches) x (size of new content) - even though nobody modifies that content afterwards.</p>
+ *  <p>If {@link TuningOptions#sharedPayloads()}, the new content is frozen ONCE (see {@link PersistentYAMLTree#frozenCopy}), and that one instance is shared by all the matched locations.
+ *  If a later command (within a batch-file) does modify something beneath any of those locations, only the nodes along that path get copied (see {@link AbstractYamlEntryProcessor#mutatesInput}).</p>
+ *  <p>As for the YAML output: see {@link TuningOptions#anchorSharedPayloads()}.  By default, every location is written out in full (as before), instead of as '&amp;1' and '*1' anchors/aliases.</p>
+ */
+public class SharedPayload {
+
+    public static final String CLASSNAME = SharedPayload.class.getName();
+
+    private static final LongAdder SHARED = new LongAdder();
+    private static final LongAdder CLONED = new LongAdder();
+
+    private final Object original;
+    private final boolean share;
+    private Object frozen = null; // lazily created
+
+    /**
+     * @param _original the new content (a String, LinkedHashMap or ArrayList).  It is never modified by this class.
+     */
+    public SharedPayload( final Object _original ) {
+        this.original = _original;
+        this.share = TuningOptions.sharedPayloads();
+    }
+
+    /**
+     * @return the content to be put at the next matched location: either the one frozen instance (shared) or a brand-new deep-clone.
+     * @throws Exception if org.ASUX.common.Utils.deepClone() fails, for any object that is Not a Map, List or immutable scalar
+     */
+    public Object next() throws Exception {
+        if ( ! this.share ) {
+            CLONED.increment();
+            return YAMLTreeCloner.deepClone( this.original );
+        }
+        if ( this.frozen == null )
+            this.frozen = PersistentYAMLTree.frozenCopy( this.original );
+        SHARED.increment();
+        return this.frozen;
+    }
+
+    /**
+     * @return a one-line summary of how many locations shared the new content, versus got their own copy (since JVM started)
+     */
+    public static String getStats() {
+        return CLASSNAME +": locations sharing one frozen copy="+ SHARED.sum() +", locations given their own deep-clone="+ CLONED.sum();
+    }
+
+}
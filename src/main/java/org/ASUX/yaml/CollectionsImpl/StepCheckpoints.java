@@ -0,0 +1,309 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import java.security.MessageDigest;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/** <p>Opt-in (see {@link TuningOptions#checkpointDir()}) on-disk, content-addressed store of the output of each yaml-command - so that re-running a batch-file only re-executes the commands whose inputs changed (Make/Bazel style).</p>
+ *  <p>The key is a SHA-256 of: the command (and its normalized arguments), the input YAML's content, and the content of whatever the command refers to (the '@file' or '!label' for insert/replace; the referenced properties for macroyaml).
+ *  NOT the line-# within the batch-file.  So, the first command whose input differs (example: because a '@file' it inserts was edited) re-executes - and so does every command downstream of it (as their input differs too), while everything upstream is loaded from this store.</p>
+ *  <p>Each output is stored as a serialized java-object in <code>checkpointDir/ab/abcdef...ser</code> (written to a temporary file and then renamed, so a crash never leaves a partial checkpoint).
+ *  Any problem reading or writing a checkpoint is NOT an error - the command is simply executed as usual.</p>
+ *  <p>Only YAML-trees (and the few other classes in {@link YAMLTreeInputFilter#ALLOWED}) are ever deserialized from this folder.  Anything else is treated as an unreadable checkpoint.</p>
+ *  <p>The folder is kept within {@link TuningOptions#checkpointMaxMB()}: the least-recently-used checkpoints (by file last-modified time, which is updated whenever a checkpoint is used) are deleted.</p>
+ */
+public final class StepCheckpoints {
+
+    public static final String CLASSNAME = StepCheckpoints.class.getName();
+
+    /** change this, whenever the key or the file-format changes - so that old checkpoints are ignored */
+    private static final String FORMATVERSION = "1";
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+    private static final LongAdder EVICTED = new LongAdder();
+
+    /** the folder that {@link #bytesOnDisk} is for.  Both guarded by StepCheckpoints.class */
+    private static String scannedDir = null;
+    /** approx. total size of the checkpoints within {@link #scannedDir} (it's re-scanned whenever this exceeds the limit) */
+    private static long bytesOnDisk = 0;
+
+    private StepCheckpoints() {} // static methods only
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * For the commands that depend ONLY on their input: read, list, table and delete
+     * @param _cmdLineArgs the command
+     * @param _input the YAML input to the command (BEFORE the command runs)
+     * @return null if checkpoints are off, or if the command is something else.  Otherwise, the key to pass to {@link #load} and {@link #save}
+     * @throws Exception if SHA-256 is Not available
+     */
+    public static String keyFor( final org.ASUX.yaml.CmdLineArgs _cmdLineArgs, final Object _input ) throws Exception {
+        if ( TuningOptions.checkpointDir() == null ) return null;
+        switch ( _cmdLineArgs.cmdType ) {
+            case READ:
+            case LIST:
+            case DELETE:
+                return digest( _input, _cmdLineArgs.cmdType, _cmdLineArgs.yamlRegExpStr, _cmdLineArgs.yamlPatternDelimiter );
+            case TABLE:
+                final org.ASUX.yaml.CmdLineArgsTableCmd claTbl = (org.ASUX.yaml.CmdLineArgsTableCmd) _cmdLineArgs;
+                return digest( _input, claTbl.cmdType, claTbl.yamlRegExpStr, claTbl.yamlPatternDelimiter, claTbl.tableColumns );
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * For the commands that ALSO depend on some content they refer to: insert, replace and macroyaml
+     * @param _cmdLineArgs the command
+     * @param _input the YAML input to the command (BEFORE the command runs)
+     * @param _reference the content referred to: the new content for insert/replace, and {@link CommandMemo#referencedProperties} for macroyaml.  If null, this returns null.
+     * @return null if checkpoints are off, or if the command is something else.  Otherwise, the key to pass to {@link #load} and {@link #save}
+     * @throws Exception if SHA-256 is Not available
+     */
+    public static String keyForReference( final org.ASUX.yaml.CmdLineArgs _cmdLineArgs, final Object _input, final Object _reference ) throws Exception {
+        if ( TuningOptions.checkpointDir() == null || _reference == null ) return null;
+        switch ( _cmdLineArgs.cmdType ) {
+            case INSERT:
+            case REPLACE:
+            case MACROYAML:
+                return digest( _input, _cmdLineArgs.cmdType, _cmdLineArgs.yamlRegExpStr, _cmdLineArgs.yamlPatternDelimiter, _reference );
+            default:
+                return null;
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _key Nullable (in which case, this returns null)
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @return the output of the command, as checkpointed previously.  null if No such checkpoint (or it could Not be read)
+     */
+    public static Object load( final String _key, final boolean _verbose ) {
+        if ( _key == null ) return null;
+        final Path file = pathFor( _key );
+        if ( ! Files.isRegularFile( file ) ) {
+            MISSES.increment();
+            return null;
+        }
+        try ( ObjectInputStream ois = YAMLTreeInputFilter.newObjectInputStream( Files.readAllBytes( file ) ) ) {
+            final Object o = ois.readObject();
+            HITS.increment();
+            BatchProfiler.addCacheHit();
+            try { Files.setLastModifiedTime( file, FileTime.fromMillis( System.currentTimeMillis() ) ); } catch( IOException e ) { /* ignore. It's just for least-recently-used eviction */ }
+            if ( _verbose ) System.out.println( CLASSNAME +": load(): using checkpoint "+ file );
+            return o;
+        } catch( Exception e ) {
+            FAILURES.increment();
+            if ( _verbose ) System.out.println( CLASSNAME +": load(): ignoring unreadable checkpoint "+ file +" due to "+ e );
+            return null;
+        }
+    }
+
+    /**
+     * @param <T> the type of the output
+     * @param _key Nullable (in which case, this does nothing)
+     * @param _output the output of the command
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     * @return _output (as is)
+     */
+    public static <T> T save( final String _key, final T _output, final boolean _verbose ) {
+        if ( _key == null || _output == null ) return _output;
+        final Path file = pathFor( _key );
+        Path temp = null;
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( ObjectOutputStream oos = new ObjectOutputStream( bytes ) ) {
+                oos.writeObject( _output );
+            }
+            Files.createDirectories( file.getParent() );
+            temp = file.resolveSibling( "."+ file.getFileName() +"."+ Long.toHexString( System.nanoTime() ) +".tmp" );
+            Files.write( temp, bytes.toByteArray() );
+            Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            if ( _verbose ) System.out.println( CLASSNAME +": save(): checkpointed into "+ file );
+            evictBeyondLimit( file, bytes.size(), _verbose );
+        } catch( Exception e ) {
+            FAILURES.increment();
+            if ( _verbose ) System.out.println( CLASSNAME +": save(): failed to checkpoint into "+ file +" due to "+ e );
+            try { if ( temp != null ) Files.deleteIfExists( temp ); } catch( IOException e2 ) { /* ignore */ }
+        }
+        return _output;
+    }
+
+    /** @return a one-line summary (since JVM started) */
+    public static String getStats() {
+        return CLASSNAME +": checkpoints used="+ HITS.sum() +", Not found="+ MISSES.sum() +", failed to read/write="+ FAILURES.sum() +", evicted="+ EVICTED.sum();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * Deletes the least-recently-used checkpoints, if the folder has grown beyond {@link TuningOptions#checkpointMaxMB()} - down to 3/4th of that (so that this doesn't happen after every single save).
+     * The folder is scanned the first time (per JVM), and after that, only whenever the running total exceeds the limit.
+     * @param _justSaved the checkpoint that was just saved (it's never deleted)
+     * @param _justWritten how many bytes were just saved
+     * @param _verbose Whether you want deluge of debug-output onto System.out
+     */
+    private static synchronized void evictBeyondLimit( final Path _justSaved, final long _justWritten, final boolean _verbose ) {
+        final String dir = TuningOptions.checkpointDir();
+        final long limit = TuningOptions.checkpointMaxMB() * 1024L * 1024L;
+        if ( dir.equals( scannedDir ) ) {
+            bytesOnDisk += _justWritten;
+            if ( bytesOnDisk <= limit ) return;
+        }
+        final ArrayList<Object[]> files = new ArrayList<>(); // { Path, Long last-modified, Long size }
+        long total = 0;
+        try {
+            try ( Stream<Path> s = Files.walk( Paths.get( dir ), 2 ) ) {
+                for ( Iterator<Path> itr = s.iterator(); itr.hasNext(); ) {
+                    final Path p = itr.next();
+                    if ( ! p.getFileName().toString().endsWith( ".ser" ) || ! Files.isRegularFile( p ) ) continue;
+                    final long size = Files.size( p );
+                    files.add( new Object[] { p, Files.getLastModifiedTime( p ).toMillis(), size } );
+                    total += size;
+                }
+            }
+            if ( total > limit ) {
+                files.sort( ( a, b ) -> Long.compare( (Long) a[1], (Long) b[1] ) );
+                for ( Object[] f: files ) {
+                    if ( total <= limit / 4 * 3 ) break;
+                    if ( _justSaved.equals( f[0] ) ) continue;
+                    if ( Files.deleteIfExists( (Path) f[0] ) ) EVICTED.increment();
+                    total -= (Long) f[2];
+                }
+                if ( _verbose ) System.out.println( CLASSNAME +": evictBeyondLimit(): deleted least-recently-used checkpoints from "+ dir +".  Now ~"+ ( total / 1024 ) +"KB" );
+            }
+        } catch( IOException | java.io.UncheckedIOException e ) { // example: another process deleted a file, while we were scanning.  Try again after the next save.
+            FAILURES.increment();
+            if ( _verbose ) System.out.println( CLASSNAME +": evictBeyondLimit(): failed to scan "+ dir +" due to "+ e );
+            return;
+        }
+        scannedDir = dir;
+        bytesOnDisk = total;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private static Path pathFor( final String _key ) {
+        return Paths.get( TuningOptions.checkpointDir(), _key.substring( 0, 2 ), _key +".ser" );
+    }
+
+    private static String digest( final Object _input, final Object... _args ) throws Exception {
+        final MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+        update( md, FORMATVERSION );
+        for ( Object a: _args ) update( md, a );
+        update( md, _input );
+        final StringBuilder hex = new StringBuilder( 64 );
+        for ( byte b: md.digest() ) hex.append( String.format( "%02x", b ) );
+        return hex.toString();
+    }
+
+    /** a canonical (type-tagged and length-prefixed) encoding of _o, fed into _md */
+    private static void update( final MessageDigest _md, final Object _o ) {
+        if ( _o instanceof Map ) {
+            final Map<?,?> map = ( _o instanceof LinkedHashMap ) ? (Map<?,?>) _o : new TreeMap<>( stringKeys( (Map<?,?>) _o ) ); // java.util.Properties has No stable order
+            _md.update( (byte) 'M' );
+            updateInt( _md, map.size() );
+            for ( Map.Entry<?,?> e: map.entrySet() ) {
+                update( _md, e.getKey() );
+                update( _md, e.getValue() );
+            }
+        } else if ( _o instanceof List ) {
+            _md.update( (byte) ( ( _o instanceof LinkedList ) ? 'Q' : 'L' ) );
+            updateInt( _md, ((List<?>) _o).size() );
+            for ( Object o: (List<?>) _o ) update( _md, o );
+        } else if ( _o == null ) {
+            _md.update( (byte) 'N' );
+        } else {
+            if ( _o instanceof String ) {
+                _md.update( (byte) 'S' );
+            } else {
+                _md.update( (byte) 'O' );
+                updateBytes( _md, _o.getClass().getName().getBytes( StandardCharsets.UTF_8 ) );
+            }
+            updateBytes( _md, _o.toString().getBytes( StandardCharsets.UTF_8 ) );
+        }
+    }
+
+    private static TreeMap<String,Object> stringKeys( final Map<?,?> _map ) {
+        final TreeMap<String,Object> sorted = new TreeMap<>();
+        for ( Map.Entry<?,?> e: _map.entrySet() ) sorted.put( String.valueOf( e.getKey() ), e.getValue() );
+        return sorted;
+    }
+
+    private static void updateBytes( final MessageDigest _md, final byte[] _bytes ) {
+        updateInt( _md, _bytes.length );
+        _md.update( _bytes );
+    }
+
+    private static void updateInt( final MessageDigest _md, final int _i ) {
+        _md.update( (byte) ( _i >>> 24 ) );
+        _md.update( (byte) ( _i >>> 16 ) );
+        _md.update( (byte) ( _i >>> 8 ) );
+        _md.update( (byte) _i );
+    }
+
+}
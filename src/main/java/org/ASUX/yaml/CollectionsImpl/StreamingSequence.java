@@ -0,0 +1,260 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/** <p>A java.util.LinkedList whose elements are NOT read in, until someone needs them.  Example: every document within a (huge) multi-document YAML file (see {@link GenericYAMLScanner#loadAllDocuments}).</p>
+ *  <p>A 'foreach' (see {@link BatchYamlProcessor#processFOREACHCmd_Step1}) consumes the elements ONE AT A TIME, via {@link #drain()}.  So, memory stays constant no matter how many elements there are.  Of course, the outputs of the loop-body still accumulate (exactly as always).</p>
+ *  <p>Anyone else (example: --read, printing, saveTo !label, deepClone) sees a plain LinkedList.  That is, ALL the remaining elements are read in first (a.k.a. materialized), and from then on this is just a java.util.LinkedList.</p>
+ *  <p>Since the source can be read just once, using this object AFTER a 'foreach' has drained it, is an error (IllegalStateException).
+ *  So is using it after reading in its elements failed: the failure (example: a YAML syntax error) is thrown to whoever was reading them in - and after that, what was read in must Not pass off as the entire list.</p>
+ */
+public class StreamingSequence extends LinkedList<Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CLASSNAME = StreamingSequence.class.getName();
+
+    private static final LongAdder DRAINED = new LongAdder();
+    private static final LongAdder MATERIALIZED = new LongAdder();
+    private static final LongAdder ELEMENTS_STREAMED = new LongAdder();
+
+    /** null, once all the elements have been read in (or, drained) */
+    private transient Iterator<?> pending;
+    /** closes the underlying source (example: the file).  Invoked once the source is exhausted. */
+    private transient AutoCloseable closer;
+    private transient boolean drained = false;
+    /** why materialize() could Not read in all the elements (null, if it did) */
+    private transient RuntimeException failed = null;
+    private final String description;
+
+    /**
+     * @param _source the elements, in order.  Its next() may throw a RuntimeException, whose cause is the actual problem (example: YAML syntax error within the 3rd document)
+     * @param _closer (can be null) invoked once _source is exhausted, or if reading from it failed
+     * @param _description used in error-messages (example: the file-name)
+     */
+    public StreamingSequence( final Iterator<?> _source, final AutoCloseable _closer, final String _description ) {
+        super();
+        this.pending = _source;
+        this.closer = _closer;
+        this.description = _description;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @return true if NONE of the elements have been read in yet, and so {@link #drain()} will NOT hold on to any of them
+     */
+    public synchronized boolean isLazy() {
+        return this.pending != null;
+    }
+
+    /**
+     * @return true if ALL the elements have been read in (and NOT drained), and so, using this list reads nothing more from the source
+     */
+    public synchronized boolean isMaterialized() {
+        return this.pending == null && ! this.drained && this.failed == null;
+    }
+
+    /**
+     * <p>Hands out the elements one at a time, WITHOUT adding them to this list.  Can be invoked just once.</p>
+     * <p>If this list was already materialized (see class-description), this simply returns an iterator over the list.</p>
+     * <p>The returned iterator's next() throws a RuntimeException (whose cause is the actual problem) if reading from the source fails.</p>
+     * @return a non-null iterator
+     */
+    public synchronized Iterator<Object> drain() {
+        if ( this.pending == null ) {
+            this.assertNotDrained();
+            return super.iterator();
+        }
+        final Iterator<?> src = this.pending;
+        this.pending = null;
+        this.drained = true;
+        DRAINED.increment();
+        return new Iterator<Object>() {
+            private boolean closed = false;
+            public boolean hasNext() {
+                if ( this.closed ) return false;
+                final boolean b = nextOrClose( src );
+                if ( ! b ) { this.closed = true; closeSource(); }
+                return b;
+            }
+            public Object next() {
+                if ( ! this.hasNext() ) throw new NoSuchElementException( CLASSNAME +": drain(): no more elements within "+ description );
+                ELEMENTS_STREAMED.increment();
+                try {
+                    return src.next();
+                } catch( RuntimeException e ) {
+                    this.closed = true;
+                    closeSource();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /** @return a one-line summary, for the profile-report (see {@link BatchProfiler}) */
+    public static String getStats() {
+        return "drained="+ DRAINED.sum() +" materialized="+ MATERIALIZED.sum() +" elementsStreamed="+ ELEMENTS_STREAMED.sum();
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private boolean nextOrClose( final Iterator<?> _src ) {
+        try {
+            return _src.hasNext();
+        } catch( RuntimeException e ) {
+            this.closeSource();
+            throw e;
+        }
+    }
+
+    private void closeSource() {
+        final AutoCloseable c = this.closer;
+        this.closer = null;
+        if ( c == null ) return;
+        try {
+            c.close();
+        } catch( Exception e ) {
+            System.err.println( CLASSNAME +": closeSource(): IGNORING failure to close "+ this.description +": "+ e );
+        }
+    }
+
+    private void assertNotDrained() {
+        if ( this.failed != null )
+            throw new IllegalStateException( CLASSNAME +": Not all the contents of "+ this.description +" could be read in (see cause).  So, what was read in is Not the entire list.", this.failed );
+        if ( this.drained )
+            throw new IllegalStateException( CLASSNAME +": the contents of "+ this.description +" were already consumed by a 'foreach' (they are read just once, and NOT retained).  Save a copy (example: saveTo !label) BEFORE the 'foreach', if you need them later." );
+    }
+
+    /** Reads in ALL the remaining elements.  Invoked by every method of java.util.LinkedList (other than {@link #drain()}) */
+    private synchronized void materialize() {
+        if ( this.pending == null ) {
+            this.assertNotDrained();
+            return;
+        }
+        final Iterator<?> src = this.pending;
+        this.pending = null; // do this FIRST, as super.add() below must NOT come back in here.
+        MATERIALIZED.increment();
+        try {
+            while ( src.hasNext() )
+                super.add( src.next() );
+        } catch( RuntimeException e ) {
+            this.failed = e;
+            throw e;
+        } finally {
+            this.closeSource();
+        }
+    }
+
+    /** Serialized (example: by deepClone) as a plain java.util.LinkedList */
+    private Object writeReplace() {
+        this.materialize();
+        return new LinkedList<Object>( this );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+    // Everything below is plain java.util.LinkedList - after reading in all remaining elements.
+
+    @Override public boolean add( Object e ) { materialize(); return super.add( e ); }
+    @Override public void add( int index, Object e ) { materialize(); super.add( index, e ); }
+    @Override public boolean addAll( Collection<?> c ) { materialize(); return super.addAll( c ); }
+    @Override public boolean addAll( int index, Collection<?> c ) { materialize(); return super.addAll( index, c ); }
+    @Override public void addFirst( Object e ) { materialize(); super.addFirst( e ); }
+    @Override public void addLast( Object e ) { materialize(); super.addLast( e ); }
+    @Override public void clear() { materialize(); super.clear(); }
+    @Override public Object clone() { materialize(); return new LinkedList<Object>( this ); }
+    @Override public boolean contains( Object o ) { materialize(); return super.contains( o ); }
+    @Override public boolean containsAll( Collection<?> c ) { materialize(); return super.containsAll( c ); }
+    @Override public Iterator<Object> descendingIterator() { materialize(); return super.descendingIterator(); }
+    @Override public Object element() { materialize(); return super.element(); }
+    @Override public boolean equals( Object o ) { materialize(); return super.equals( o ); }
+    @Override public void forEach( Consumer<? super Object> action ) { materialize(); super.forEach( action ); }
+    @Override public Object get( int index ) { materialize(); return super.get( index ); }
+    @Override public Object getFirst() { materialize(); return super.getFirst(); }
+    @Override public Object getLast() { materialize(); return super.getLast(); }
+    @Override public int hashCode() { materialize(); return super.hashCode(); }
+    @Override public int indexOf( Object o ) { materialize(); return super.indexOf( o ); }
+    @Override public boolean isEmpty() { materialize(); return super.isEmpty(); }
+    @Override public Iterator<Object> iterator() { materialize(); return super.iterator(); }
+    @Override public int lastIndexOf( Object o ) { materialize(); return super.lastIndexOf( o ); }
+    @Override public ListIterator<Object> listIterator() { materialize(); return super.listIterator(); }
+    @Override public ListIterator<Object> listIterator( int index ) { materialize(); return super.listIterator( index ); }
+    @Override public boolean offer( Object e ) { materialize(); return super.offer( e ); }
+    @Override public boolean offerFirst( Object e ) { materialize(); return super.offerFirst( e ); }
+    @Override public boolean offerLast( Object e ) { materialize(); return super.offerLast( e ); }
+    @Override public Object peek() { materialize(); return super.peek(); }
+    @Override public Object peekFirst() { materialize(); return super.peekFirst(); }
+    @Override public Object peekLast() { materialize(); return super.peekLast(); }
+    @Override public Object poll() { materialize(); return super.poll(); }
+    @Override public Object pollFirst() { materialize(); return super.pollFirst(); }
+    @Override public Object pollLast() { materialize(); return super.pollLast(); }
+    @Override public Object pop() { materialize(); return super.pop(); }
+    @Override public void push( Object e ) { materialize(); super.push( e ); }
+    @Override public Object remove() { materialize(); return super.remove(); }
+    @Override public Object remove( int index ) { materialize(); return super.remove( index ); }
+    @Override public boolean remove( Object o ) { materialize(); return super.remove( o ); }
+    @Override public boolean removeAll( Collection<?> c ) { materialize(); return super.removeAll( c ); }
+    @Override public Object removeFirst() { materialize(); return super.removeFirst(); }
+    @Override public boolean removeFirstOccurrence( Object o ) { materialize(); return super.removeFirstOccurrence( o ); }
+    @Override public boolean removeIf( Predicate<? super Object> filter ) { materialize(); return super.removeIf( filter ); }
+    @Override public Object removeLast() { materialize(); return super.removeLast(); }
+    @Override public boolean removeLastOccurrence( Object o ) { materialize(); return super.removeLastOccurrence( o ); }
+    @Override public void replaceAll( UnaryOperator<Object> operator ) { materialize(); super.replaceAll( operator ); }
+    @Override public boolean retainAll( Collection<?> c ) { materialize(); return super.retainAll( c ); }
+    @Override public Object set( int index, Object e ) { materialize(); return super.set( index, e ); }
+    @Override public int size() { materialize(); return super.size(); }
+    @Override public void sort( Comparator<? super Object> c ) { materialize(); super.sort( c ); }
+    @Override public Spliterator<Object> spliterator() { materialize(); return super.spliterator(); }
+    @Override public java.util.List<Object> subList( int fromIndex, int toIndex ) { materialize(); return super.subList( fromIndex, toIndex ); }
+    @Override public Object[] toArray() { materialize(); return super.toArray(); }
+    @Override public <T> T[] toArray( T[] a ) { materialize(); return super.toArray( a ); }
+    @Override public String toString() { materialize(); return super.toString(); }
+
+}
@@ -0,0 +1,112 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.LinkedList;
+
+/** <p>This {@link MatchOutputSink} writes each match as the next item of a YAML-sequence, directly into a java.io.Writer - instead of buffering ALL the matches in memory.</p>
+ *  <p>Every item is rendered by the same {@link GenericYAMLWriter} (so, the same YAML library, configuration and {@link TuningOptions}) that renders the buffered java.util.LinkedList in {@link Cmd#main}.
+ *  Each item of a block-sequence is rendered independently of its peers, so the concatenated output is identical to writing the entire LinkedList in one shot.</p>
+ *  <p>The only exception: if the SAME java-object matches multiple times, the buffered-output would use YAML anchors/aliases ('&amp;1' and '*1'), while this sink writes a full copy each time.</p>
+ *  <p>The java.io.Writer is flushed just once, by {@link #close}.  Until then, the output goes out whenever the java.io.Writer's own buffer fills up.</p>
+ *  <p>This sink is opt-in.  See {@link TuningOptions#streamMatches()}.</p>
+ * @see MatchOutputSink
+ */
+public class StreamingYAMLSink implements MatchOutputSink {
+
+    public static final String CLASSNAME = StreamingYAMLSink.class.getName();
+
+    private final boolean verbose;
+    private final java.io.Writer javawriter;
+    private final GenericYAMLWriter yamlWriter;
+    private final java.io.StringWriter itemBuffer = new java.io.StringWriter(); // re-used for every match
+    private int count = 0;
+
+    /**
+     * The only constructor
+     * @param _verbose Whether you want deluge of debug-output onto System.out.
+     * @param _yamlWriter Not-Null.  The same instance that would have written out the buffered output (example: CmdInvoker.getYamlWriter()).  Must NOT be used for anything else, until {@link #close}
+     * @param _javawriter Not-Null.  Ideally a buffered java.io.Writer.  This class will flush it within {@link #close}, but will Not close it.
+     */
+    public StreamingYAMLSink( final boolean _verbose, final GenericYAMLWriter _yamlWriter, final java.io.Writer _javawriter ) {
+        this.verbose = _verbose;
+        this.yamlWriter = _yamlWriter;
+        this.javawriter = _javawriter;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /** Renders _list via the GenericYAMLWriter (which insists on closing whatever java.io.Writer it is given - hence the intermediate StringWriter) and appends it to the java.io.Writer */
+    private void render( final LinkedList<Object> _list ) throws Exception
+    {
+        this.itemBuffer.getBuffer().setLength( 0 );
+        this.yamlWriter.prepare( this.itemBuffer );
+        this.yamlWriter.write( _list );
+        this.yamlWriter.close();
+        final StringBuffer sb = this.itemBuffer.getBuffer();
+        if ( this.verbose ) {
+            this.javawriter.flush(); // so that the debug-output below does Not appear BEFORE the previous matches
+            System.out.println( CLASSNAME +": render(): #"+ this.count +" = ["+ sb +"]" );
+        }
+        this.javawriter.write( sb.toString() );
+    }
+
+    /** See {@link MatchOutputSink#onMatch} */
+    public void onMatch( final Object _match ) throws Exception
+    {
+        final LinkedList<Object> singleItem = new LinkedList<>();
+        singleItem.add( _match );
+        this.render( singleItem );
+        this.count ++;
+    }
+
+    /** See {@link MatchOutputSink#close} */
+    public void close() throws Exception
+    {
+        if ( this.count <= 0 ) {
+            // ZERO matches.  Write out an empty LinkedList, exactly like the buffered-output does.
+            this.render( new LinkedList<Object>() );
+        }
+        this.javawriter.flush();
+    }
+
+    /**
+     * @return how many matches were written out so far
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+}
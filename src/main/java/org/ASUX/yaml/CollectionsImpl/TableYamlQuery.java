@@ -153,7 +153,7 @@ public class TableYamlQuery extends AbstractYamlEntryProcessor {
         //-------------------------------------
         // local Class - so I can create a pasueod "local function"
         class PullTableElemsFromMap {
-            public void go(final Object _o, final String[] _tableColumns, final String _errmsg ) throws TableCmdException {
+            public void go(final Object _o, final String[] _tableColumns, final String _errmsg ) throws TableCmdException, Exception {
                 @SuppressWarnings("unchecked")
                 final LinkedHashMap<String, Object> map = ( LinkedHashMap<String, Object> ) _o;
                 final ArrayList<String> tablerow = new ArrayList<>();
@@ -168,7 +168,10 @@ public class TableYamlQuery extends AbstractYamlEntryProcessor {
                         throw new TableCmdException( _errmsg + "].  Can NOT find the columns "+ ix +" '"+ elem +"' provided to Table-query Command." );
                     }
                 } // for
-                output.add( tablerow ); // could be a string or a java.util.LinkedHashMap&lt;String, Object&gt;
+                if ( outputSink != null )
+                    outputSink.onMatch( tablerow ); // stream it out right away.  See setOutputSink()
+                else
+                    output.add( tablerow ); // could be a string or a java.util.LinkedHashMap&lt;String, Object&gt;
             } // go()
         } // local class PullTableElemsFromMap
         //-------------------------------------
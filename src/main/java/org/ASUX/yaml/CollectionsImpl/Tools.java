@@ -53,6 +53,9 @@ public class Tools {
 
     public static final String CLASSNAME = Tools.class.getName();
     private CmdInvoker cmdInvoker;
+
+    /** used by {@link #YAMLString2Map}, if {@link #setCmdInvoker} was never invoked.  GenericYAMLScanner is stateless (other than its choice of YAML-library), so it can be shared. */
+    private static final GenericYAMLScanner DEFAULT_SCANNER = new GenericYAMLScanner( false );
     private boolean verbose;
 
     //==============================================================================
@@ -84,14 +87,86 @@ public class Tools {
     //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
     //==============================================================================
 
-    /** Takes any JSON input - as a LinkedHashmap obtained from any Library - and exports it as YAML (to java.util.String), and then reads it back as YAML.
-     *  I need such a function, as I learned the hard way that libraries do NOT work 100% well.  Only file-formats are the workaorund/ way out.
-     *  I definitely "fgool-proof" method to ensure 'valid' YAML, for error-free processing by the entire org.ASUX.yaml library to work without any issues
+    /** <p>Takes any JSON input - as a LinkedHashmap obtained from any Library - and cleans it up, so that it looks EXACTLY like what the YAML library would have created, had it read the equivalent YAML.</p>
+     *  <p>I need such a function, as I learned the hard way that libraries do NOT work 100% well.</p>
+     *  <p>This used to be done by exporting it as YAML (to java.util.String), and then reading it back as YAML (see {@link #lintRemoverMapViaYAMLString}).  That's a full serialize + parse cycle.
+     *  Now, it's a single in-memory walk of the tree, that does the same cleanup:</p>
+     *  <ul><li>all scalars (Integer, Double, Boolean..) become java.lang.String (exactly as String.valueOf() would render them)</li>
+     *      <li>all keys become java.lang.String</li>
+     *      <li>every java.util.Map becomes a java.util.LinkedHashMap&lt;String, Object&gt; (in same order) and every java.util.Collection becomes a java.util.ArrayList</li>
+     *      <li>if the same Map/Collection appears multiple times within _map, the cleaned-up copy is shared too (just like YAML-anchors &amp; aliases would)</li>
+     *  </ul>
+     *  <p>If the tree contains anything else (example: a Java-bean, or a null/non-scalar map-key), this falls back to {@link #lintRemoverMapViaYAMLString} - so the outcome is whatever the YAML round-trip does.</p>
      *  @param _map a java.util.LinkedHashMap&lt;String, Object&gt; object, as generated by Jackson http://tutorials.jenkov.com/java-json/jackson-objectmapper.html#read-map-from-json-string
      *  @return a java.util.LinkedHashMap&lt;String, Object&gt; object that's definitely "kosher" for the entire org.ASUX.yaml library to work without any issues
      *  @throws Exception Any issue whatsoever when dealing with convering YAML/JSON content into Strings and back (as part of lintremoval)
      */
     public LinkedHashMap<String, Object> lintRemoverMap( final LinkedHashMap<String, Object> _map ) throws Exception
+    {
+        try {
+            @SuppressWarnings("unchecked")
+            final LinkedHashMap<String, Object> retMap = (LinkedHashMap<String, Object>) normalize( _map, new java.util.IdentityHashMap<Object,Object>() );
+            return retMap;
+        } catch (UnsupportedOperationException e) {
+            if ( this.verbose ) System.out.println( CLASSNAME + ": lintRemoverMap(): "+ e.getMessage() +".  So, falling back to lintRemoverMapViaYAMLString()" );
+            return this.lintRemoverMapViaYAMLString( _map );
+        }
+    } // function
+
+    /**
+     * Recursive helper to {@link #lintRemoverMap}
+     * @param _o anything within the JSON/YAML tree
+     * @param _alreadyDone original-Map/Collection -&gt; its cleaned-up copy.  So that shared references stay shared.
+     * @return the cleaned-up equivalent of _o
+     * @throws UnsupportedOperationException if _o is Not a Map, Collection, scalar or null
+     */
+    private static Object normalize( final Object _o, final java.util.IdentityHashMap<Object,Object> _alreadyDone )
+    {
+        if ( _o == null ) return null;
+        if ( _o instanceof String ) return _o;
+        if ( isScalar( _o ) ) return String.valueOf( _o );
+
+        final Object prev = _alreadyDone.get( _o );
+        if ( prev != null ) return prev;
+
+        if ( _o instanceof java.util.Map ) {
+            final java.util.Map<?,?> map = (java.util.Map<?,?>) _o;
+            final LinkedHashMap<String, Object> retMap = new LinkedHashMap<>( Math.max( 16, (int) ( map.size() / 0.75f ) + 1 ) );
+            _alreadyDone.put( _o, retMap );
+            for ( java.util.Map.Entry<?,?> entry: map.entrySet() ) {
+                final Object key = entry.getKey();
+                // YAMLBeans can Not write a null-key or a Map/Collection-key (it throws).  So, let the fallback (the actual round-trip) decide what happens.
+                if ( ! isScalar( key ) )
+                    throw new UnsupportedOperationException( "Unexpected map-key "+ ( (key == null) ? "null" : "of type "+ key.getClass().getName() ) );
+                retMap.put( String.valueOf( key ), normalize( entry.getValue(), _alreadyDone ) );
+            }
+            return retMap;
+        }
+        if ( _o instanceof java.util.Collection ) {
+            final java.util.Collection<?> coll = (java.util.Collection<?>) _o;
+            final ArrayList<Object> retArr = new ArrayList<>( coll.size() );
+            _alreadyDone.put( _o, retArr );
+            for ( Object item: coll )
+                retArr.add( normalize( item, _alreadyDone ) );
+            return retArr;
+        }
+        throw new UnsupportedOperationException( "Unexpected object of type "+ _o.getClass().getName() );
+    }
+
+    /** @return true if _o is a String, Number, Boolean or Character.  Note: null is Not a scalar. */
+    private static boolean isScalar( final Object _o ) {
+        return _o instanceof String || _o instanceof Number || _o instanceof Boolean || _o instanceof Character;
+    }
+
+    //==============================================================================
+
+    /** The original implementation of {@link #lintRemoverMap}: exports _map as YAML (to java.util.String), and then reads it back as YAML.
+     *  Only used as a fallback (for object-trees that have unusual content), and to double-check {@link #lintRemoverMap} (see ToolsLintTest under src/test/java).
+     *  @param _map a java.util.LinkedHashMap&lt;String, Object&gt; object, as generated by Jackson http://tutorials.jenkov.com/java-json/jackson-objectmapper.html#read-map-from-json-string
+     *  @return a java.util.LinkedHashMap&lt;String, Object&gt; object that's definitely "kosher" for the entire org.ASUX.yaml library to work without any issues
+     *  @throws Exception Any issue whatsoever when dealing with convering YAML/JSON content into Strings and back (as part of lintremoval)
+     */
+    public LinkedHashMap<String, Object> lintRemoverMapViaYAMLString( final LinkedHashMap<String, Object> _map ) throws Exception
     {
         // First write it to java.lang.String object... then, read it back into YAML, using the YamlReder class
         try {
@@ -121,14 +196,57 @@ public class Tools {
      */
     public String Map2YAMLString( final Object _yaml ) throws Exception
     {
-        final GenericYAMLWriter writer = new GenericYAMLWriter( this.verbose );
-        writer.setYamlLibrary( YAML_Libraries.ESOTERICSOFTWARE_Library );
-        final java.io.StringWriter javawriter = new java.io.StringWriter();
-        writer.prepare( javawriter );
-        writer.write( _yaml );
-        writer.close();
-        javawriter.close();
-        return javawriter.toString();
+        // Batch-files invoke this thousands of times.  So, re-use the writers (a small pool of them).  See ReusableWriters class below.
+        final java.util.concurrent.ArrayBlockingQueue<ReusableWriters> pool = this.verbose ? REUSABLE_WRITERS_VERBOSE : REUSABLE_WRITERS;
+        ReusableWriters reusable = pool.poll();
+        if ( reusable == null ) // pool is empty: all of them are in use (by other threads, or a re-entrant invocation)
+            reusable = new ReusableWriters( this.verbose );
+        final String retval = reusable.map2YAMLString( _yaml );
+        pool.offer( reusable ); // if the pool is already full, this one is simply dropped.  Note: Not done if there was an exception, as the writer could be in an unknown state.
+        return retval;
+    }
+
+    //-------------------------------------
+    /** A pool - rather than a ThreadLocal - since a parallel 'foreach' (on virtual-threads, or a ForkJoinPool) would otherwise end up with a new set of writers per task.  Sized to the # of CPUs, as that's how many can be in use at the same time. */
+    private static final int POOLSIZE = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+    private static final java.util.concurrent.ArrayBlockingQueue<ReusableWriters> REUSABLE_WRITERS = new java.util.concurrent.ArrayBlockingQueue<>( POOLSIZE );
+    private static final java.util.concurrent.ArrayBlockingQueue<ReusableWriters> REUSABLE_WRITERS_VERBOSE = new java.util.concurrent.ArrayBlockingQueue<>( POOLSIZE );
+
+    /** <p>The objects needed by {@link #Map2YAMLString} - kept in a pool (one pool per value of 'verbose'), and re-used across invocations.  An instance is used by only one thread at a time.</p>
+     *  <p>Note: com.esotericsoftware.yamlbeans.YamlWriter itself can Not be re-used (it's bound to one java.io.Writer), but its configuration is shared across ALL threads.  See {@link GenericYAMLWriter#SHARED_YAMLCONFIG} for why that's safe.</p>
+     */
+    private static class ReusableWriters {
+        /** if the YAML-string was huge, do Not hold on to that much memory (per pooled instance) */
+        private static final int MAXRETAINEDCHARS = 1024 * 1024;
+        final GenericYAMLWriter writer;
+        StringBuilderWriter javawriter = new StringBuilderWriter();
+        ReusableWriters( final boolean _verbose ) {
+            this.writer = new GenericYAMLWriter( _verbose );
+            this.writer.setYamlLibrary( YAML_Libraries.ESOTERICSOFTWARE_Library );
+        }
+        String map2YAMLString( final Object _yaml ) throws Exception {
+            this.javawriter.reset();
+            this.writer.prepare( this.javawriter );
+            this.writer.write( _yaml );
+            this.writer.close();
+            final String retval = this.javawriter.toString();
+            if ( this.javawriter.capacity() > MAXRETAINEDCHARS )
+                this.javawriter = new StringBuilderWriter();
+            return retval;
+        }
+    }
+
+    /** Like java.io.StringWriter, but backed by a (non-synchronized) java.lang.StringBuilder - which can be re-used via {@link #reset}.  close() does nothing. */
+    private static class StringBuilderWriter extends java.io.Writer {
+        private final StringBuilder sb = new StringBuilder( 1024 );
+        @Override public void write( final char[] _cbuf, final int _off, final int _len ) { this.sb.append( _cbuf, _off, _len ); }
+        @Override public void write( final String _s, final int _off, final int _len ) { this.sb.append( _s, _off, _off + _len ); }
+        @Override public void write( final int _c ) { this.sb.append( (char) _c ); }
+        @Override public void flush() {}
+        @Override public void close() {}
+        @Override public String toString() { return this.sb.toString(); }
+        void reset() { this.sb.setLength( 0 ); }
+        int capacity() { return this.sb.capacity(); }
     }
 
     //==============================================================================
@@ -152,7 +270,8 @@ public class Tools {
 
         try {
             final java.io.Reader reader3 = new java.io.StringReader( _yamlString );
-            final org.ASUX.common.Output.Object<?> outpObj = this.cmdInvoker.getYamlScanner().load( reader3 );
+            final GenericYAMLScanner scanner = ( this.cmdInvoker != null ) ? this.cmdInvoker.getYamlScanner() : DEFAULT_SCANNER;
+            final org.ASUX.common.Output.Object<?> outpObj = scanner.load( reader3 );
             final LinkedHashMap<String, Object> tempMap = outpObj.getMap();
             reader3.close();
             if ( this.verbose ) System.out.println( CLASSNAME + ": YAMLString2Map(): created new Map = " + tempMap.toString() +" " );
@@ -0,0 +1,268 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+/** <p>Opt-in performance tunables for this library, that are NOT (yet) command-line options.</p>
+ *  <p>Each is a Java system-property, whose name starts with {@link #PREFIX}.  Example: <code>java -Dorg.ASUX.yaml.CollectionsImpl.persistentTrees=true ...</code></p>
+ *  <p>They are read every time they're checked (cheap), so that a long-running JVM (like a batch-file run from within another program) can toggle them.</p>
+ */
+public final class TuningOptions {
+
+    public static final String CLASSNAME = TuningOptions.class.getName();
+
+    public static final String PREFIX = "org.ASUX.yaml.CollectionsImpl.";
+
+    /** See {@link PersistentYAMLTree}.  Default: false */
+    public static final String PERSISTENTTREES = PREFIX + "persistentTrees";
+
+    /** See {@link SharedPayload}.  Default: false (but implied by {@link #PERSISTENTTREES}) */
+    public static final String SHAREDPAYLOADS = PREFIX + "sharedPayloads";
+
+    /** See {@link BatchPlan}.  Default: true */
+    public static final String COMPILEDBATCHPLANS = PREFIX + "compiledBatchPlans";
+
+    /** See {@link #foreachParallelism()}.  Default: 1 */
+    public static final String FOREACHPARALLELISM = PREFIX + "foreachParallelism";
+
+    /** See {@link #virtualThreads()}.  Default: false */
+    public static final String VIRTUALTHREADS = PREFIX + "virtualThreads";
+
+    /** See {@link #anchorSharedPayloads()}.  Default: false */
+    public static final String ANCHORSHAREDPAYLOADS = PREFIX + "anchorSharedPayloads";
+
+    /** See {@link #dataflowPrefetch()}.  Default: false */
+    public static final String DATAFLOWPREFETCH = PREFIX + "dataflowPrefetch";
+
+    /** See {@link #profileReport()}.  Default: Not set */
+    public static final String PROFILEREPORT = PREFIX + "profileReport";
+
+    /** See {@link #memoCacheSize()}.  Default: 0 */
+    public static final String MEMOCACHESIZE = PREFIX + "memoCacheSize";
+
+    /** See {@link #checkpointDir()}.  Default: Not set */
+    public static final String CHECKPOINTDIR = PREFIX + "checkpointDir";
+
+    /** See {@link #checkpointMaxMB()}.  Default: 1024 */
+    public static final String CHECKPOINTMAXMB = PREFIX + "checkpointMaxMB";
+
+    /** See {@link #labelMemoryMB()}.  Default: 0 */
+    public static final String LABELMEMORYMB = PREFIX + "labelMemoryMB";
+
+    /** See {@link #foreachMerge()}.  Default: last-wins */
+    public static final String FOREACHMERGE = PREFIX + "foreachMerge";
+
+    /** See {@link #macroCopyOnWrite()}.  Default: false */
+    public static final String MACROCOPYONWRITE = PREFIX + "macroCopyOnWrite";
+
+    /** See {@link #macroParallelism()}.  Default: 1 */
+    public static final String MACROPARALLELISM = PREFIX + "macroParallelism";
+
+    /** See {@link #fastYamlEmitter()}.  Default: false */
+    public static final String FASTYAMLEMITTER = PREFIX + "fastYamlEmitter";
+
+    /** See {@link #streamMatches()}.  Default: false */
+    public static final String STREAMMATCHES = PREFIX + "streamMatches";
+
+    /** See {@link #fsyncOutputFiles()}.  Default: false */
+    public static final String FSYNCOUTPUTFILES = PREFIX + "fsyncOutputFiles";
+
+    private TuningOptions() {} // static methods only
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * Whether batch-files should snapshot the YAML (example: saving to a !label, or the input of each iteration of a 'foreach') using frozen, structurally-shared trees (see {@link PersistentYAMLTree}) instead of full deep-clones.
+     * @return true if system-property {@link #PERSISTENTTREES} is set to "true"
+     */
+    public static boolean persistentTrees() {
+        return Boolean.getBoolean( PERSISTENTTREES );
+    }
+
+    /**
+     * Whether Insert and Replace commands should share ONE frozen copy of the new content across ALL matched locations, instead of a deep-clone per location.  See {@link SharedPayload}.
+     * @return true if system-property {@link #SHAREDPAYLOADS} (or {@link #PERSISTENTTREES}) is set to "true"
+     */
+    public static boolean sharedPayloads() {
+        return Boolean.getBoolean( SHAREDPAYLOADS ) || persistentTrees();
+    }
+
+    /**
+     * Whether the body of a 'foreach' block is serialized just once, instead of once per iteration.  See {@link BatchPlan}.
+     * @return false ONLY if system-property {@link #COMPILEDBATCHPLANS} is set to "false"
+     */
+    public static boolean compiledBatchPlans() {
+        return ! "false".equalsIgnoreCase( System.getProperty( COMPILEDBATCHPLANS ) );
+    }
+
+    /**
+     * <p>How many iterations of a 'foreach' (within a batch-file) may run concurrently.  1 (the default) means sequentially, as always.</p>
+     * <p>ONLY for loop-bodies that are independent of each other.  See BatchYamlProcessor.processFOREACH_Parallel() for what that means.</p>
+     * <p>This is the limit on how many iterations are in-flight at any time - whether on platform-threads or on virtual-threads (see {@link #virtualThreads()}).</p>
+     * @return value of system-property {@link #FOREACHPARALLELISM} (1, if Not set or Not a positive integer)
+     */
+    public static int foreachParallelism() {
+        return Math.max( 1, Integer.getInteger( FOREACHPARALLELISM, 1 ) );
+    }
+
+    /**
+     * Whether concurrent batch-file work (see {@link #foreachParallelism()}) should run on virtual-threads (Java 21 or later), instead of a fixed pool of platform threads.  See {@link BoundedExecutor}.
+     * With virtual-threads, {@link #foreachParallelism()} can be in the thousands.
+     * @return true if system-property {@link #VIRTUALTHREADS} is set to "true"
+     */
+    public static boolean virtualThreads() {
+        return Boolean.getBoolean( VIRTUALTHREADS );
+    }
+
+    /**
+     * Whether a batch-file is analyzed (before running it) for the files its lines read and write (see {@link BatchDataflow}), so that the YAML/JSON files that it reads (but never writes) are read &amp; parsed concurrently, ahead of time (see {@link FilePrefetcher}).
+     * Uses {@link #foreachParallelism()} threads (minimum 2).
+     * @return true if system-property {@link #DATAFLOWPREFETCH} is set to "true"
+     */
+    public static boolean dataflowPrefetch() {
+        return Boolean.getBoolean( DATAFLOWPREFETCH );
+    }
+
+    /**
+     * The file into which {@link BatchProfiler} writes its per-command and per-'foreach'-iteration timings, at the end of each (top-level) batch-file.  JSON - unless the file-name ends with '.folded' (flame-graph "collapsed stacks").
+     * @return value of system-property {@link #PROFILEREPORT}, or null if Not set (which means: No profiling)
+     */
+    public static String profileReport() {
+        final String s = System.getProperty( PROFILEREPORT );
+        return ( s == null || s.trim().isEmpty() ) ? null : s.trim();
+    }
+
+    /**
+     * How many outputs of the read, list, table and macroyaml commands to memoize (least-recently-used are evicted).  See {@link CommandMemo}.
+     * @return value of system-property {@link #MEMOCACHESIZE} (0, the default, means No memoization)
+     */
+    public static int memoCacheSize() {
+        return Math.max( 0, Integer.getInteger( MEMOCACHESIZE, 0 ) );
+    }
+
+    /**
+     * The folder for on-disk checkpoints of each yaml-command's output, so that re-running a batch-file only re-executes the commands whose inputs changed.  See {@link StepCheckpoints}.
+     * @return value of system-property {@link #CHECKPOINTDIR}, or null if Not set (which means: No checkpoints)
+     */
+    public static String checkpointDir() {
+        final String s = System.getProperty( CHECKPOINTDIR );
+        return ( s == null || s.trim().isEmpty() ) ? null : s.trim();
+    }
+
+    /**
+     * The maximum size (in megabytes) of {@link #checkpointDir()}.  Beyond it, the least-recently-used checkpoints are deleted.  See {@link StepCheckpoints}.
+     * @return value of system-property {@link #CHECKPOINTMAXMB} (1024, if Not set or Not a positive integer)
+     */
+    public static long checkpointMaxMB() {
+        final long mb = Long.getLong( CHECKPOINTMAXMB, 1024 );
+        return ( mb > 0 ) ? mb : 1024;
+    }
+
+    /**
+     * The heap-budget (in megabytes) for large content that batch-files save into memory (<code>saveTo !label</code>).  Beyond it, least-recently-used labels are spilled to disk.  See {@link LabelStore}.
+     * @return value of system-property {@link #LABELMEMORYMB} (0, the default, means No budget - everything stays on-heap)
+     */
+    public static long labelMemoryMB() {
+        return Math.max( 0, Long.getLong( LABELMEMORYMB, 0 ) );
+    }
+
+    /**
+     * What happens when 2 iterations of a 'foreach' output the same key: last-wins, first-wins, deep-merge or error.  See {@link ForeachAccumulator}.
+     * @return value of system-property {@link #FOREACHMERGE}, or null if Not set (which means: last-wins, as always)
+     */
+    public static String foreachMerge() {
+        final String s = System.getProperty( FOREACHMERGE );
+        return ( s == null || s.trim().isEmpty() ) ? null : s.trim();
+    }
+
+    /**
+     * <p>Whether the macroyaml command returns the input's sub-trees as-is (instead of copies), wherever nothing within them contained a macro.  New Maps/Lists are created ONLY along the paths to the values that changed.</p>
+     * <p>The output then shares those sub-trees with the input.  Within a batch-file, the input can be a !label's content (<code>useAsInput !label</code>) - which is NOT a copy.
+     * So, the macroyaml command shares those of a frozen snapshot of its input (see {@link PersistentYAMLTree}), Not the input itself.  The !label stays as-is (and modifiable), while whatever modifies the output afterwards (example: delete or replace) copies just the paths it modifies.</p>
+     * <p>Taking that snapshot is itself a copy of the input, unless the input is already frozen.  So, this pays off mostly along with {@link #persistentTrees()}, whose !labels and 'foreach' inputs are already frozen.
+     * And, code outside this library that modifies the output in-place afterwards, fails (as parts of it are frozen).  That's why it's opt-in.</p>
+     * @return true if system-property {@link #MACROCOPYONWRITE} is set to "true"
+     */
+    public static boolean macroCopyOnWrite() {
+        return Boolean.getBoolean( MACROCOPYONWRITE );
+    }
+
+    /**
+     * How many threads the macroyaml command may use, to expand (large) sub-trees of the YAML concurrently.  1 (the default) means on the calling thread, as always.
+     * The output is identical either way.  See MacroYamlProcessor.recursiveSearch_Expand().
+     * This assumes org.ASUX.common.Macros.eval() is thread-safe (it is stateless, and just reads the Properties).
+     * @return value of system-property {@link #MACROPARALLELISM} (1, if Not set or Not a positive integer)
+     */
+    public static int macroParallelism() {
+        return Math.max( 1, Integer.getInteger( MACROPARALLELISM, 1 ) );
+    }
+
+    /**
+     * <p>Whether YAML-output is written by {@link FastYAMLEmitter} instead of com.esotericsoftware.yamlbeans.YamlWriter.  The output is the same, byte for byte (see FastYAMLEmitterTest).</p>
+     * <p>The only exception: a Map/List that is shared across 2 or more YAML-documents (within the same output) is written out in full within each document, as aliases can Not refer to an anchor in another document.</p>
+     * @return true if system-property {@link #FASTYAMLEMITTER} is set to "true"
+     */
+    public static boolean fastYamlEmitter() {
+        return Boolean.getBoolean( FASTYAMLEMITTER );
+    }
+
+    /**
+     * <p>Whether the read, list and table commands (when run from the command-line) write out each match as soon as it's found, instead of buffering ALL the matches in memory.  See {@link StreamingYAMLSink}.</p>
+     * <p>Peak-memory then does Not grow with the # of matches.  The output is the same, except when the SAME object matches more than once (it's written out in full each time, instead of as an alias).</p>
+     * @return true if system-property {@link #STREAMMATCHES} is set to "true"
+     */
+    public static boolean streamMatches() {
+        return Boolean.getBoolean( STREAMMATCHES );
+    }
+
+    /**
+     * Whether output-files (the '-o' file of the command-line, and 'saveTo @file' within batch-files) are fsync'd to disk before being renamed into place.  See {@link AtomicFileWriter}.
+     * Either way, a half-written file is never left behind.  fsync additionally makes sure the new content survives a power-failure/OS-crash - at the cost of a disk-flush per file.
+     * @return true if system-property {@link #FSYNCOUTPUTFILES} is set to "true"
+     */
+    public static boolean fsyncOutputFiles() {
+        return Boolean.getBoolean( FSYNCOUTPUTFILES );
+    }
+
+    /**
+     * <p>Frozen content (see {@link PersistentYAMLTree}) can legitimately appear at multiple locations within the same YAML.
+     * By default, such content is written out in full at every location - exactly like the output WITHOUT any of these tunables.</p>
+     * <p>If this is true, the 2nd location onwards is written out as an alias ('*1') of the 1st location ('&amp;1'), which is compact but Not what most YAML-consumers (like AWS CloudFormation) expect.</p>
+     * @return true if system-property {@link #ANCHORSHAREDPAYLOADS} is set to "true"
+     */
+    public static boolean anchorSharedPayloads() {
+        return Boolean.getBoolean( ANCHORSHAREDPAYLOADS );
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/** <p>A deep-cloner that is specialized for the object-trees this library works with: java.util.LinkedHashMap, java.util.ArrayList, java.util.LinkedList and java.lang.String.</p>
+ *  <p>org.ASUX.common.Utils.deepClone() is generic: it serializes the entire object-tree into a byte-array and de-serializes it back.  So, every single String gets copied too.
+ *  Instead, this class walks the tree (iteratively - so no stack-overflow for deep YAML), creates pre-sized copies of the Maps and Lists, and SHARES all the Strings (and other immutable scalars like Integer/Boolean) with the original.</p>
+ *  <p>Just like serialization, if the same Map/List appears multiple times within the tree, the clone will also have one copy that appears multiple times.</p>
+ *  <p>Anything else (example: org.ASUX.common.Tuple) is cloned via org.ASUX.common.Utils.deepClone().</p>
+ *  <p>See {@link #getStats()} for how much copying was avoided (across all invocations, since JVM started).</p>
+ */
+public final class YAMLTreeCloner {
+
+    public static final String CLASSNAME = YAMLTreeCloner.class.getName();
+
+    private static final LongAdder CONTAINERSCOPIED = new LongAdder();
+    private static final LongAdder SCALARSSHARED = new LongAdder();
+    private static final LongAdder CHARSSHARED = new LongAdder();
+    private static final LongAdder FALLBACKS = new LongAdder();
+
+    /** approx. per-String overhead (object-header + fields + the char/byte-array's header) that a serialization-based clone would have allocated */
+    private static final int STRINGOVERHEADBYTES = 40;
+
+    private YAMLTreeCloner() {} // static methods only
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * Full deep-clone of _o, in which the Maps &amp; Lists are new copies, but all Strings (and other immutable scalars) are shared with _o.
+     * @param <T> typically LinkedHashMap&lt;String,Object&gt;, but can be anything
+     * @param _o Nullable
+     * @return the deep-clone (null if _o is null)
+     * @throws Exception if org.ASUX.common.Utils.deepClone() fails, for any object that is Not a Map, List or immutable scalar
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T deepClone( final T _o ) throws Exception
+    {
+        if ( isImmutable( _o ) ) {
+            countShared( _o );
+            return _o;
+        }
+        if ( ! isContainer( _o ) ) {
+            FALLBACKS.increment();
+            return org.ASUX.common.Utils.deepClone( _o );
+        }
+
+        final IdentityHashMap<Object,Object> alreadyCloned = new IdentityHashMap<>();
+        final ArrayDeque<Object[]> pending = new ArrayDeque<>(); // pairs of { original, empty-copy-yet-to-be-filled }
+        final Object root = newEmptyCopy( _o, alreadyCloned, pending );
+
+        while ( ! pending.isEmpty() ) {
+            final Object[] pair = pending.pop();
+            if ( pair[0] instanceof Map ) {
+                final Map<Object,Object> src = (Map<Object,Object>) pair[0];
+                final Map<Object,Object> dest = (Map<Object,Object>) pair[1];
+                for ( Map.Entry<Object,Object> entry: src.entrySet() )
+                    dest.put( cloneKey( entry.getKey() ), cloneChild( entry.getValue(), alreadyCloned, pending ) );
+            } else {
+                final Collection<Object> src = (Collection<Object>) pair[0];
+                final Collection<Object> dest = (Collection<Object>) pair[1];
+                for ( Object item: src )
+                    dest.add( cloneChild( item, alreadyCloned, pending ) );
+            }
+        }
+        return (T) root;
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    /**
+     * @return a one-line summary of all the deep-cloning done so far (since JVM started)
+     */
+    public static String getStats() {
+        final long chars = CHARSSHARED.sum();
+        final long strings = SCALARSSHARED.sum();
+        return CLASSNAME +": containers copied="+ CONTAINERSCOPIED.sum() +", scalars shared (Not copied)="+ strings
+                    +", chars shared="+ chars +", approx. bytes of cloning avoided="+ getBytesAvoided() +", fallbacks to Utils.deepClone()="+ FALLBACKS.sum();
+    }
+
+    /**
+     * @return approx. how many bytes would have been allocated for copies of Strings, if org.ASUX.common.Utils.deepClone() was used instead (since JVM started)
+     */
+    public static long getBytesAvoided() {
+        return CHARSSHARED.sum() + STRINGOVERHEADBYTES * SCALARSSHARED.sum();
+    }
+
+    //=================================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //=================================================================================
+
+    private static boolean isImmutable( final Object _o ) {
+        return _o == null || _o instanceof String || _o instanceof Integer || _o instanceof Long || _o instanceof Double || _o instanceof Boolean
+                || _o instanceof Float || _o instanceof Short || _o instanceof Byte || _o instanceof Character
+                || _o instanceof java.math.BigInteger || _o instanceof java.math.BigDecimal;
+    }
+
+    private static boolean isContainer( final Object _o ) {
+        return _o instanceof LinkedHashMap || _o instanceof ArrayList || _o instanceof LinkedList;
+    }
+
+    private static void countShared( final Object _o ) {
+        if ( _o == null ) return;
+        SCALARSSHARED.increment();
+        if ( _o instanceof String )
+            CHARSSHARED.add( ((String) _o).length() );
+    }
+
+    private static Object cloneKey( final Object _key ) throws Exception {
+        if ( isImmutable( _key ) ) return _key; // always the case for YAML/JSON
+        FALLBACKS.increment();
+        return org.ASUX.common.Utils.deepClone( _key );
+    }
+
+    private static Object cloneChild( final Object _o, final IdentityHashMap<Object,Object> _alreadyCloned, final ArrayDeque<Object[]> _pending ) throws Exception {
+        if ( isImmutable( _o ) ) {
+            countShared( _o );
+            return _o;
+        }
+        if ( isContainer( _o ) ) {
+            final Object prev = _alreadyCloned.get( _o );
+            return ( prev != null ) ? prev : newEmptyCopy( _o, _alreadyCloned, _pending );
+        }
+        FALLBACKS.increment();
+        return org.ASUX.common.Utils.deepClone( _o );
+    }
+
+    /** creates an empty (but pre-sized) copy of _o, and remembers that it still needs to be filled */
+    private static Object newEmptyCopy( final Object _o, final IdentityHashMap<Object,Object> _alreadyCloned, final ArrayDeque<Object[]> _pending ) {
+        final Object copy;
+        if ( _o instanceof LinkedHashMap ) {
+            final int sz = ((Map<?,?>) _o).size();
+            copy = new LinkedHashMap<Object,Object>( Math.max( 16, (int) ( sz / 0.75f ) + 1 ) );
+        } else if ( _o instanceof ArrayList ) {
+            copy = new ArrayList<Object>( ((Collection<?>) _o).size() );
+        } else {
+            copy = new LinkedList<Object>();
+        }
+        CONTAINERSCOPIED.increment();
+        _alreadyCloned.put( _o, copy );
+        _pending.push( new Object[] { _o, copy } );
+        return copy;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/** <p>A structural (content-based) 64-bit hash of a YAML-tree, and a matching order-sensitive equality check.</p>
+ *  <p>Unlike LinkedHashMap.hashCode() and equals(), the ORDER of the keys matters here - as 2 YAMLs with the same keys in different order are output differently.</p>
+ *  <p>Frozen nodes (see {@link PersistentYAMLTree}) are immutable.  So, their hash is computed just once and cached within the node.
+ *  Since frozen snapshots share all unchanged sub-trees, re-hashing a slightly modified snapshot only walks the modified path.</p>
+ *  @see CommandMemo
+ */
+public final class YAMLTreeHash {
+
+    public static final String CLASSNAME = YAMLTreeHash.class.getName();
+
+    private static final long MAPSEED = 0x9E3779B97F4A7C15L;
+    private static final long LISTSEED = 0xC2B2AE3D27D4EB4FL;
+    private static final long LINKEDLISTSEED = 0x165667B19E3779F9L;
+
+    private YAMLTreeHash() {} // static methods only
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _o Nullable.  Typically a LinkedHashMap&lt;String,Object&gt;
+     * @return a 64-bit hash, that depends on the content of _o (including the order of keys and list-items), and NOT on object-identity
+     */
+    public static long hash( final Object _o ) {
+        if ( _o instanceof FrozenLinkedHashMap ) {
+            final FrozenLinkedHashMap frozen = (FrozenLinkedHashMap) _o;
+            long h = frozen.treeHash;
+            if ( h == 0 ) frozen.treeHash = h = hashMap( frozen );
+            return h;
+        } else if ( _o instanceof FrozenArrayList ) {
+            final FrozenArrayList frozen = (FrozenArrayList) _o;
+            long h = frozen.treeHash;
+            if ( h == 0 ) frozen.treeHash = h = hashList( frozen, LISTSEED );
+            return h;
+        } else if ( _o instanceof Map ) {
+            return hashMap( (Map<?,?>) _o );
+        } else if ( _o instanceof List ) {
+            return hashList( (List<?>) _o, ( _o instanceof LinkedList ) ? LINKEDLISTSEED : LISTSEED );
+        } else if ( _o == null ) {
+            return 1;
+        } else {
+            return mix( ( (long) _o.getClass().getName().hashCode() << 32 ) ^ ( _o.hashCode() & 0xFFFFFFFFL ) ^ ( (long) _o.toString().length() << 48 ) );
+        }
+    }
+
+    /**
+     * Order-sensitive deep-equality.  Frozen and non-frozen nodes with the same content are equal.
+     * @param _a Nullable
+     * @param _b Nullable
+     * @return true if _a and _b have the same content (in the same order)
+     */
+    public static boolean deepEquals( final Object _a, final Object _b ) {
+        if ( _a == _b ) return true;
+        if ( _a == null || _b == null ) return false;
+        if ( PersistentYAMLTree.isFrozen( _a ) && PersistentYAMLTree.isFrozen( _b ) && hash( _a ) != hash( _b ) ) return false; // cheap, as cached
+
+        if ( _a instanceof Map && _b instanceof Map ) {
+            final Map<?,?> a = (Map<?,?>) _a;
+            final Map<?,?> b = (Map<?,?>) _b;
+            if ( a.size() != b.size() ) return false;
+            final Iterator<? extends Map.Entry<?,?>> itrB = b.entrySet().iterator();
+            for ( Map.Entry<?,?> ea: a.entrySet() ) {
+                final Map.Entry<?,?> eb = itrB.next();
+                if ( ! Objects.equals( ea.getKey(), eb.getKey() ) ) return false;
+                if ( ! deepEquals( ea.getValue(), eb.getValue() ) ) return false;
+            }
+            return true;
+        } else if ( _a instanceof List && _b instanceof List ) {
+            if ( ( _a instanceof LinkedList ) != ( _b instanceof LinkedList ) ) return false;
+            final List<?> a = (List<?>) _a;
+            final List<?> b = (List<?>) _b;
+            if ( a.size() != b.size() ) return false;
+            final Iterator<?> itrB = b.iterator();
+            for ( Object oa: a )
+                if ( ! deepEquals( oa, itrB.next() ) ) return false;
+            return true;
+        } else if ( _a instanceof Map || _b instanceof Map || _a instanceof List || _b instanceof List ) {
+            return false;
+        } else {
+            return _a.equals( _b );
+        }
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    private static long hashMap( final Map<?,?> _map ) {
+        long h = MAPSEED;
+        for ( Map.Entry<?,?> e: _map.entrySet() ) {
+            h = mix( h * 31 + hash( e.getKey() ) );
+            h = mix( h * 31 + hash( e.getValue() ) );
+        }
+        return ( h == 0 ) ? 1 : h; // 0 means "Not computed", for frozen nodes
+    }
+
+    private static long hashList( final List<?> _list, final long _seed ) {
+        long h = _seed;
+        for ( Object o: _list )
+            h = mix( h * 31 + hash( o ) );
+        return ( h == 0 ) ? 1 : h;
+    }
+
+    /** the finalizer of the SplitMix64 pseudo-random generator */
+    private static long mix( long _z ) {
+        _z = ( _z ^ ( _z >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+        _z = ( _z ^ ( _z >>> 27 ) ) * 0x94D049BB133111EBL;
+        return _z ^ ( _z >>> 31 );
+    }
+
+}
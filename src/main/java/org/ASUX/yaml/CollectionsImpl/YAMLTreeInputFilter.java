@@ -0,0 +1,126 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/** <p>An allow-list for java-deserialization of what this library writes to disk itself (see {@link StepCheckpoints} and {@link LabelStore}): YAML-trees and a few other java.util containers.</p>
+ *  <p>Such files are in a temporary (or user-provided) folder, and so, could be replaced by someone else.  Plain java.io.ObjectInputStream would instantiate ANY class on the classpath (the classic deserialization-gadget attack).
+ *  With this filter, anything other than the classes in {@link #ALLOWED} (and arrays) is rejected, and readObject() throws java.io.InvalidClassException.</p>
+ *  <p>Even with just those classes, a crafted file could exhaust the stack (a very deeply nested tree) or the heap (an array - or a HashMap's table - of a huge declared length, with few bytes behind it).  So, the same is thrown, if:</p><ul>
+ *  <li>the nesting is deeper than {@link #MAXDEPTH}, or</li>
+ *  <li>an array is longer than {@link #ENTRIESPERBYTE} times the # of bytes in the stream.  Every element of a legitimate array takes at least 1 byte in the stream.  A HashMap (or Hashtable) re-computes its table's length from its # of entries, and that's at most {@link #ENTRIESPERBYTE} per byte of the stream.</li>
+ *  <li>there are more object-references than bytes in the stream (each takes at least 1 byte).</li>
+ *  </ul>
+ */
+public final class YAMLTreeInputFilter implements ObjectInputFilter {
+
+    public static final String CLASSNAME = YAMLTreeInputFilter.class.getName();
+
+    /** the names of the classes that may be deserialized (incl. Serializable super-classes, as each of those appear within the stream) */
+    public static final Set<String> ALLOWED = new HashSet<>( Arrays.asList(
+        "java.util.LinkedHashMap", "java.util.HashMap", "java.util.ArrayList", "java.util.LinkedList",
+        "java.util.Properties", "java.util.Hashtable",
+        "java.lang.String", "java.lang.Number", "java.lang.Integer", "java.lang.Long", "java.lang.Double", "java.lang.Float",
+        "java.lang.Short", "java.lang.Byte", "java.lang.Boolean", "java.lang.Character",
+        "java.math.BigInteger", "java.math.BigDecimal",
+        FrozenLinkedHashMap.class.getName(), FrozenArrayList.class.getName()
+    ));
+
+    /** <p>The deepest nesting of objects within the stream.  A YAML-tree nested N levels deep is nested about N levels deep within the stream too.</p>
+     *  <p>Java-deserialization of just ~600 nested Maps overflows a default-sized thread-stack (1MB, on a 64-bit JDK 17).  So, a deeper tree could Not be read back anyway - and this way, it's rejected (like any other unreadable checkpoint) instead of a StackOverflowError.</p>
+     */
+    public static final long MAXDEPTH = 400;
+
+    /** See class-description */
+    public static final long ENTRIESPERBYTE = 4;
+
+    private final long maxArrayLength;
+    private final long maxReferences;
+
+    /** @param _streamBytes the # of bytes to be deserialized */
+    private YAMLTreeInputFilter( final long _streamBytes ) {
+        this.maxArrayLength = ENTRIESPERBYTE * _streamBytes + 16;
+        this.maxReferences = _streamBytes;
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    /**
+     * @param _in the serialized bytes
+     * @param _streamBytes the # of bytes within _in (example: the size of the file).  The limits on arrays and references are based on this.  See class-description
+     * @return a java.io.ObjectInputStream that will ONLY deserialize what's allowed by this filter
+     * @throws IOException see java.io.ObjectInputStream constructor
+     */
+    public static ObjectInputStream newObjectInputStream( final InputStream _in, final long _streamBytes ) throws IOException {
+        final ObjectInputStream ois = new ObjectInputStream( _in );
+        ois.setObjectInputFilter( new YAMLTreeInputFilter( _streamBytes ) );
+        return ois;
+    }
+
+    /**
+     * @param _bytes the serialized bytes
+     * @return same as {@link #newObjectInputStream(InputStream,long)}
+     * @throws IOException see java.io.ObjectInputStream constructor
+     */
+    public static ObjectInputStream newObjectInputStream( final byte[] _bytes ) throws IOException {
+        return newObjectInputStream( new ByteArrayInputStream( _bytes ), _bytes.length );
+    }
+
+    //==============================================================================
+    //@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@@
+    //==============================================================================
+
+    @Override
+    public Status checkInput( final FilterInfo _info ) {
+        // the limits apply to back-references too (for which, serialClass() is null)
+        if ( _info.depth() > MAXDEPTH || _info.references() > this.maxReferences || _info.arrayLength() > this.maxArrayLength )
+            return Status.REJECTED;
+        final Class<?> c = _info.serialClass();
+        if ( c == null ) return Status.UNDECIDED; // Not a new class-descriptor (example: a back-reference)
+        // Arrays: java.util.ArrayList and HashMap check Object[] and Map.Entry[] before allocating their internal arrays.  Whatever is within an array is checked on its own, as it's read.
+        if ( c.isArray() || ALLOWED.contains( c.getName() ) )
+            return Status.ALLOWED;
+        return Status.REJECTED;
+    }
+
+}
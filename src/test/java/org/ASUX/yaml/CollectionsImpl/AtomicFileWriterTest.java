@@ -0,0 +1,94 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Checks that {@link AtomicFileWriter} replaces the final file only at close(), and leaves no temporary file behind. */
+public class AtomicFileWriterTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static String read( final File _f ) throws Exception {
+        return new String( Files.readAllBytes( _f.toPath() ), StandardCharsets.UTF_8 );
+    }
+
+    @Test
+    public void closeReplacesFinalFile() throws Exception {
+        final File f = new File( tmp.getRoot(), "out.yaml" );
+        Files.write( f.toPath(), "old".getBytes( StandardCharsets.UTF_8 ) );
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 50000; i ++ ) sb.append( "é中" ).append( i ); // larger than the buffers, with multi-byte characters across the buffer-boundaries
+        final AtomicFileWriter w = new AtomicFileWriter( f.getPath() );
+        w.write( sb.toString() );
+        w.flush();
+        assertEquals( "old", read( f ) );
+        w.close();
+        w.close(); // harmless
+        assertEquals( sb.toString(), read( f ) );
+        assertEquals( 1, tmp.getRoot().list().length );
+    }
+
+    @Test
+    public void abortLeavesFinalFileUntouched() throws Exception {
+        final File f = new File( tmp.getRoot(), "out.yaml" );
+        Files.write( f.toPath(), "old".getBytes( StandardCharsets.UTF_8 ) );
+        final AtomicFileWriter w = new AtomicFileWriter( f.getPath() );
+        w.write( "new" );
+        w.abort();
+        assertEquals( "old", read( f ) );
+        assertEquals( 1, tmp.getRoot().list().length );
+    }
+
+    @Test
+    public void fsyncIsOptIn() throws Exception {
+        final File f = new File( tmp.getRoot(), "out.yaml" );
+        try {
+            System.setProperty( TuningOptions.FSYNCOUTPUTFILES, "true" );
+            final AtomicFileWriter w = new AtomicFileWriter( f.getPath() );
+            w.write( "synced" );
+            w.close();
+        } finally {
+            System.clearProperty( TuningOptions.FSYNCOUTPUTFILES );
+        }
+        assertEquals( "synced", read( f ) );
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import org.ASUX.yaml.BatchFileGrammer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that a 'foreach' gives the same output with or without a {@link BatchPlan}, and that each iteration gets its own copy of the loop-body. */
+public class BatchPlanTest {
+
+    private static final ArrayList<String> LINES = new ArrayList<>( Arrays.asList( "useAsInput !config", "delete --yamlpath tags.seen -i -", "saveTo !previous" ) );
+
+    /** Stands in for the loop-body: a batch-file whose line-pointer (here, its lines) each iteration changes as it goes */
+    private static class Script extends BatchFileGrammer {
+        private static final long serialVersionUID = 1L;
+        final ArrayList<String> lines = new ArrayList<>( LINES );
+        Script() { super( false ); }
+    }
+
+    /** Outputs the loop-body as this iteration found it - and then, changes it */
+    private static class Body extends BatchYamlProcessor {
+        Body() { super( false, false, true ); }
+        @Override BatchYamlProcessor newParallelWorker() { return new Body(); }
+        @Override
+        protected LinkedHashMap<String, Object> processBatch( final boolean _bInRecursion, final BatchFileGrammer _batchCmds, final LinkedHashMap<String,Object> _input ) throws Exception {
+            final String ix = this.allProps.get( FOREACH_PROPERTIES ).getProperty( FOREACH_INDEX );
+            final Script script = (Script) _batchCmds;
+            final LinkedHashMap<String,Object> outp = new LinkedHashMap<>();
+            outp.put( "item-"+ ix, new ArrayList<Object>( script.lines ) );
+            script.lines.remove( 0 );
+            script.lines.add( "added by iteration #"+ ix );
+            return outp;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty( TuningOptions.COMPILEDBATCHPLANS );
+        System.clearProperty( TuningOptions.FOREACHPARALLELISM );
+    }
+
+    private static LinkedHashMap<String,Object> foreach( final Script _body ) throws Exception {
+        final ArrayList<Object> input = new ArrayList<>();
+        for ( int ix=0; ix < 10; ix ++ ) input.add( "element-"+ ix );
+        final Body processor = new Body();
+        processor.setMemoryAndContext( new CmdInvoker( false, false ).getMemoryAndContext() );
+        return processor.processFOREACH_Step3( new BatchPlan( false, _body ), input.iterator(), input.size() );
+    }
+
+    @Test
+    public void plannedMatchesUnplanned() throws Exception {
+        System.setProperty( TuningOptions.COMPILEDBATCHPLANS, "false" ); // BatchFileGrammer.deepClone() per iteration, as always
+        final LinkedHashMap<String,Object> expected = foreach( new Script() );
+        assertEquals( 10, expected.size() );
+        System.clearProperty( TuningOptions.COMPILEDBATCHPLANS );
+        assertEquals( expected, foreach( new Script() ) );
+        System.setProperty( TuningOptions.FOREACHPARALLELISM, "4" );
+        assertEquals( expected, foreach( new Script() ) );
+    }
+
+    @Test
+    public void iterationsDoNotSeeEachOthersChangesToTheBody() throws Exception {
+        final Script body = new Script();
+        final LinkedHashMap<String,Object> outp = foreach( body );
+        for ( int ix=0; ix < 10; ix ++ )
+            assertEquals( "iteration #"+ ix, LINES, outp.get( "item-"+ ix ) );
+        assertEquals( LINES, body.lines ); // the loop-body itself is Not modified
+    }
+
+    @Test
+    public void eachCursorIsACopyAsOfConstruction() throws Exception {
+        final Script body = new Script();
+        final BatchPlan plan = new BatchPlan( false, body );
+        body.lines.clear(); // after the plan was made
+        final Script c1 = (Script) plan.newCursor();
+        final Script c2 = (Script) plan.newCursor();
+        assertNotSame( c1, c2 );
+        assertNotSame( c1.lines, c2.lines );
+        assertEquals( LINES, c1.lines );
+        assertEquals( LINES, c2.lines );
+    }
+
+}
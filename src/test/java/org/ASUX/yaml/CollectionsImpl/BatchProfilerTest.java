@@ -0,0 +1,133 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Checks that {@link BatchProfiler} nests and aggregates spans, counts cache-hits per span, never reads in lazy content, and writes both kinds of report. */
+public class BatchProfilerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty( TuningOptions.CHECKPOINTDIR, this.tmp.newFolder( "checkpoints" ).getAbsolutePath() );
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty( TuningOptions.PROFILEREPORT );
+        System.clearProperty( TuningOptions.CHECKPOINTDIR );
+    }
+
+    private String profile( final String _reportFileName ) throws Exception {
+        final File report = new File( this.tmp.getRoot(), _reportFileName );
+        System.setProperty( TuningOptions.PROFILEREPORT, report.getAbsolutePath() );
+        final LinkedHashMap<String,Object> input = new LinkedHashMap<>();
+        input.put( "list", new ArrayList<Object>( Arrays.asList( "a", "b" ) ) ); // 4 nodes
+        StepCheckpoints.save( "bp0001", input, false );
+
+        final BatchProfiler.Span batch = BatchProfiler.begin( "batch", input );
+        final BatchProfiler.Span foreach = BatchProfiler.begin( "foreach", null );
+        for ( int ix=0; ix < 3; ix ++ ) {
+            final BatchProfiler.Span cmd = BatchProfiler.begin( "INSERT paths.*", input );
+            if ( ix == 0 ) assertNotNull( StepCheckpoints.load( "bp0001", false ) ); // a cache-hit, within just the 1st iteration
+            BatchProfiler.addMatches( 2 );
+            BatchProfiler.end( cmd, null );
+        }
+        BatchProfiler.end( foreach, null );
+        BatchProfiler.end( batch, input );
+        assertNull( BatchProfiler.currentStack() );
+
+        BatchProfiler.writeReport( false );
+        return new String( Files.readAllBytes( report.toPath() ), StandardCharsets.UTF_8 );
+    }
+
+    @Test
+    public void jsonReportAggregatesNestedSpans() throws Exception {
+        final String json = profile( "report.json" ).replaceAll( "\\s", "" );
+        assertTrue( json, json.contains( "\"stack\":\"batch\",\"count\":1," ) );
+        assertTrue( json, json.contains( "\"stack\":\"batch;foreach\",\"count\":1," ) );
+        assertTrue( json, json.contains( "\"stack\":\"batch;foreach;INSERTpaths.*\",\"count\":3," ) ); // all iterations aggregated
+        assertTrue( json, json.contains( "\"matches\":6,\"cacheHits\":1,\"nodesIn\":12,\"nodesOut\":0" ) );
+        assertTrue( json, json.contains( "\"matches\":0,\"cacheHits\":0,\"nodesIn\":4,\"nodesOut\":4" ) );
+        assertTrue( json, json.contains( "\"caches\":" ) );
+    }
+
+    @Test
+    public void foldedReportHasOneLinePerStack() throws Exception {
+        final String[] lines = profile( "report.folded" ).split( "\n" );
+        assertEquals( 3, lines.length );
+        assertTrue( lines[0], lines[0].matches( "batch \\d+" ) );
+        assertTrue( lines[1], lines[1].matches( "batch;foreach \\d+" ) );
+        assertTrue( lines[2], lines[2].matches( "batch;foreach;INSERT_paths\\.\\* \\d+" ) );
+    }
+
+    @Test
+    public void lazyContentIsNotReadIn() throws Exception {
+        final List<Object> source = Arrays.asList( "doc1", "doc2", "doc3" );
+        final StreamingSequence lazy = new StreamingSequence( source.iterator(), null, "lazyContentIsNotReadIn" );
+        assertEquals( 1, BatchProfiler.countNodes( lazy ) );
+        assertTrue( lazy.isLazy() );
+
+        final StreamingSequence drained = new StreamingSequence( source.iterator(), null, "lazyContentIsNotReadIn" );
+        drained.drain().forEachRemaining( o -> {} );
+        assertEquals( 1, BatchProfiler.countNodes( drained ) ); // and No IllegalStateException
+
+        final StreamingSequence materialized = new StreamingSequence( source.iterator(), null, "lazyContentIsNotReadIn" );
+        assertEquals( 3, materialized.size() );
+        assertEquals( 4, BatchProfiler.countNodes( materialized ) );
+    }
+
+    @Test
+    public void disabledIsANoOp() throws Exception {
+        assertNull( BatchProfiler.begin( "batch", null ) );
+        BatchProfiler.end( null, null );
+        BatchProfiler.addCacheHit();
+        assertNull( BatchProfiler.currentStack() );
+    }
+
+}
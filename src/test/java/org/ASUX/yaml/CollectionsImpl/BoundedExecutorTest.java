@@ -0,0 +1,112 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link BoundedExecutor} never has more than maxConcurrency tasks in-flight, and that merging the Futures in submission-order gives the same output as running serially. */
+public class BoundedExecutorTest {
+
+    private static final int TASKS = 40;
+
+    /** iteration _ix outputs a key of its own, and overwrites a shared key - so, the merged output depends on the order of merging */
+    private static LinkedHashMap<String,Object> iteration( final int _ix ) {
+        final LinkedHashMap<String,Object> out = new LinkedHashMap<>();
+        out.put( "own"+ _ix, String.valueOf( _ix ) );
+        out.put( "shared", String.valueOf( _ix ) );
+        return out;
+    }
+
+    private static void runConcurrently( final boolean _preferVirtualThreads ) throws Exception {
+        final int max = 3;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxSeen = new AtomicInteger();
+        final ArrayList< Future< LinkedHashMap<String,Object> > > futures = new ArrayList<>();
+        try ( BoundedExecutor executor = new BoundedExecutor( false, max, _preferVirtualThreads ) ) {
+            for ( int ix=0; ix < TASKS; ix ++ ) {
+                final int ixf = ix;
+                futures.add( executor.submit( () -> {
+                    maxSeen.accumulateAndGet( inFlight.incrementAndGet(), Math::max );
+                    try {
+                        Thread.sleep( ( TASKS - ixf ) % 5 ); // later iterations tend to complete first
+                        return iteration( ixf );
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                }));
+            }
+            final ForeachAccumulator parallel = new ForeachAccumulator( false, null );
+            for ( int ix=0; ix < TASKS; ix ++ )
+                parallel.merge( futures.get( ix ).get(), ix );
+
+            final ForeachAccumulator serial = new ForeachAccumulator( false, null );
+            for ( int ix=0; ix < TASKS; ix ++ )
+                serial.merge( iteration( ix ), ix );
+
+            assertEquals( serial.getOutput(), parallel.getOutput() );
+            assertEquals( new ArrayList<>( serial.getOutput().keySet() ), new ArrayList<>( parallel.getOutput().keySet() ) );
+            assertEquals( String.valueOf( TASKS - 1 ), parallel.getOutput().get( "shared" ) );
+        }
+        assertTrue( "maxSeen="+ maxSeen.get(), maxSeen.get() <= max );
+    }
+
+    @Test
+    public void platformThreads() throws Exception {
+        runConcurrently( false );
+    }
+
+    @Test
+    public void virtualThreadsOrFallback() throws Exception {
+        runConcurrently( true ); // falls back to platform-threads before Java 21
+    }
+
+    @Test
+    public void failedTaskReleasesItsPermit() throws Exception {
+        try ( BoundedExecutor executor = new BoundedExecutor( false, 1, false ) ) {
+            final Future<Object> failed = executor.submit( () -> { throw new IllegalStateException( "boom" ); } );
+            try {
+                failed.get();
+                fail( "expected an ExecutionException" );
+            } catch( java.util.concurrent.ExecutionException e ) {
+                assertTrue( e.getCause() instanceof IllegalStateException );
+            }
+            assertEquals( "ok", executor.submit( () -> "ok" ).get() ); // would block forever, if the permit was Not released
+        }
+    }
+
+}
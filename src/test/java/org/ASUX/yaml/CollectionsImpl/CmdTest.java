@@ -0,0 +1,145 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+
+import org.ASUX.yaml.CmdLineArgs;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Checks how {@link Cmd} writes out the command's output: to STDOUT via {@link Cmd.StdoutWriter}, or atomically into the output-file - including a null output, exactly as always. */
+public class CmdTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        System.clearProperty( TuningOptions.FASTYAMLEMITTER );
+    }
+
+    /** STDOUT, which must never be closed */
+    private static final class Stdout extends ByteArrayOutputStream {
+        boolean closed = false;
+        @Override public void close() { this.closed = true; }
+        String text() { return new String( this.toByteArray(), StandardCharsets.UTF_8 ); }
+    }
+
+    private static GenericYAMLWriter prepare( final java.io.Writer _javawriter ) throws Exception {
+        System.setProperty( TuningOptions.FASTYAMLEMITTER, "true" ); // this library's own YAML-emitter (whose close() does Not fail, if nothing was written).  See FastYAMLEmitter.java
+        final GenericYAMLWriter w = new GenericYAMLWriter( false );
+        w.setYamlLibrary( org.ASUX.yaml.YAML_Libraries.ESOTERICSOFTWARE_Library );
+        w.prepare( _javawriter );
+        return w;
+    }
+
+    private static LinkedHashMap<String,Object> sampleYAML() {
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        map.put( "name", "vpc" );
+        return map;
+    }
+
+    private static String read( final File _f ) throws Exception {
+        return new String( Files.readAllBytes( _f.toPath() ), StandardCharsets.UTF_8 );
+    }
+
+    @Test
+    public void stdoutWriterNeverClosesStdout() throws Exception {
+        final Stdout stdout = new Stdout();
+        final Cmd.StdoutWriter w = new Cmd.StdoutWriter( stdout );
+        w.write( "é中\n" );
+        assertEquals( "", stdout.text() ); // buffered
+        w.close();
+        assertEquals( "é中\n", stdout.text() ); // UTF-8, regardless of the platform's default
+        assertFalse( stdout.closed );
+        w.write( "more" ); // still usable, as the YAML libraries close() it before we're done
+        w.close();
+        assertEquals( "é中\nmore", stdout.text() );
+    }
+
+    @Test
+    public void outputToStdout() throws Exception {
+        final Stdout stdout = new Stdout();
+        final Cmd.StdoutWriter w = new Cmd.StdoutWriter( stdout );
+        Cmd.writeOutput( CmdLineArgs.CMDTYPES.DELETE, sampleYAML(), prepare( w ), w, true, false );
+        assertTrue( stdout.text(), stdout.text().contains( "name: vpc" ) );
+        assertFalse( stdout.closed );
+    }
+
+    @Test
+    public void nullOutputToStdoutPrintsNullAndFails() throws Exception {
+        final Stdout stdout = new Stdout();
+        final Cmd.StdoutWriter w = new Cmd.StdoutWriter( stdout );
+        try {
+            Cmd.writeOutput( CmdLineArgs.CMDTYPES.DELETE, null, prepare( w ), w, true, false );
+            fail( "the exit-code must be non-zero, as always" );
+        } catch ( java.io.IOException e ) {
+            assertTrue( e.getMessage(), e.getMessage().contains( "null" ) );
+        }
+        assertEquals( "null" + System.lineSeparator(), stdout.text() );
+    }
+
+    @Test
+    public void outputFileIsReplacedAtomically() throws Exception {
+        final File f = new File( tmp.getRoot(), "out.yaml" );
+        Files.write( f.toPath(), "old".getBytes( StandardCharsets.UTF_8 ) );
+        final AtomicFileWriter w = new AtomicFileWriter( f.getPath() );
+        Cmd.writeOutput( CmdLineArgs.CMDTYPES.DELETE, sampleYAML(), prepare( w ), w, false, false );
+        assertTrue( read( f ), read( f ).contains( "name: vpc" ) );
+        assertEquals( 1, tmp.getRoot().list().length ); // No temporary file left behind
+    }
+
+    @Test
+    public void nullOutputDoesNotReplaceOutputFile() throws Exception {
+        final File f = new File( tmp.getRoot(), "out.yaml" );
+        Files.write( f.toPath(), "old".getBytes( StandardCharsets.UTF_8 ) );
+        final AtomicFileWriter w = new AtomicFileWriter( f.getPath() );
+        try {
+            Cmd.writeOutput( CmdLineArgs.CMDTYPES.DELETE, null, prepare( w ), w, false, false );
+            fail( "the exit-code must be non-zero, as always" );
+        } catch ( java.io.IOException e ) {
+            w.abort(); // as Cmd.main() does
+        }
+        assertEquals( "old", read( f ) );
+        assertEquals( 1, tmp.getRoot().list().length );
+    }
+
+}
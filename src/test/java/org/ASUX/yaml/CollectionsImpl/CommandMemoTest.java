@@ -0,0 +1,139 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that a {@link CommandMemo} hit is the same as re-running the command, and that nothing the caller does to the input or output afterwards changes what's cached. */
+public class CommandMemoTest {
+
+    @Before
+    public void setUp() {
+        System.setProperty( TuningOptions.MEMOCACHESIZE, "10" );
+        CommandMemo.clear();
+    }
+
+    @After
+    public void tearDown() {
+        CommandMemo.clear();
+        System.clearProperty( TuningOptions.MEMOCACHESIZE );
+    }
+
+    private static LinkedHashMap<String,Object> sampleYAML() {
+        final LinkedHashMap<String,Object> inner = new LinkedHashMap<>();
+        inner.put( "name", "vpc" );
+        inner.put( "tags", new ArrayList<Object>( Arrays.asList( "a", "b" ) ) );
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        map.put( "inner", inner );
+        map.put( "count", 3 );
+        return map;
+    }
+
+    /** stands in for a pure command (like 'read' or 'table') */
+    @SuppressWarnings("unchecked")
+    private static LinkedHashMap<String,Object> command( final LinkedHashMap<String,Object> _input ) {
+        final LinkedHashMap<String,Object> output = new LinkedHashMap<>();
+        output.put( "result", new LinkedHashMap<String,Object>( (LinkedHashMap<String,Object>) _input.get( "inner" ) ) );
+        return output;
+    }
+
+    /** as CmdInvoker does */
+    private static Object memoized( final LinkedHashMap<String,Object> _input ) throws Exception {
+        final String key = CommandMemo.withInputHash( "read\u0000inner", _input );
+        final Object hit = CommandMemo.get( key, _input );
+        return ( hit != null ) ? hit : CommandMemo.put( key, _input, command( _input ) );
+    }
+
+    @Test
+    public void hitEqualsRecomputation() throws Exception {
+        final LinkedHashMap<String,Object> input = sampleYAML();
+        final String key = CommandMemo.withInputHash( "read\u0000inner", input );
+        memoized( input );
+        assertNull( "a key seen just once must Not be cached", CommandMemo.get( key, input ) );
+        memoized( input );
+        final Object hit = CommandMemo.get( key, sampleYAML() ); // an equal input, Not the same one
+        assertNotNull( hit );
+        assertEquals( command( sampleYAML() ), hit );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void mutationsDoNotCorruptTheCache() throws Exception {
+        final LinkedHashMap<String,Object> input = sampleYAML();
+        final String key = CommandMemo.withInputHash( "read\u0000inner", input );
+        memoized( input );
+        final LinkedHashMap<String,Object> output = (LinkedHashMap<String,Object>) memoized( input ); // this one's cached
+        ((LinkedHashMap<String,Object>) output.get( "result" )).put( "name", "changed-after-put" );
+
+        final LinkedHashMap<String,Object> hit1 = (LinkedHashMap<String,Object>) CommandMemo.get( key, input );
+        assertEquals( command( sampleYAML() ), hit1 );
+        ((ArrayList<Object>) ((LinkedHashMap<String,Object>) hit1.get( "result" )).get( "tags" )).add( "changed-after-get" );
+        hit1.clear();
+        assertEquals( command( sampleYAML() ), CommandMemo.get( key, input ) );
+
+        ((LinkedHashMap<String,Object>) input.get( "inner" )).put( "name", "changed-input" ); // same key (hash is Not re-computed), but no longer the same input
+        assertNull( CommandMemo.get( key, input ) );
+    }
+
+    private static long nodesFrozen() {
+        final java.util.regex.Matcher m = java.util.regex.Pattern.compile( "nodes frozen=(\\d+)" ).matcher( PersistentYAMLTree.getStats() );
+        assertTrue( m.find() );
+        return Long.parseLong( m.group( 1 ) );
+    }
+
+    @Test
+    public void onlyARepeatedNonFrozenInputIsCopied() throws Exception {
+        final long before = nodesFrozen();
+        final LinkedHashMap<String,Object> frozen = PersistentYAMLTree.snapshot( sampleYAML() );
+        final long afterSnapshot = nodesFrozen();
+        assertTrue( afterSnapshot > before );
+        memoized( frozen ); // seen once
+        memoized( frozen );
+        assertEquals( afterSnapshot, nodesFrozen() ); // the frozen input is cached as-is
+
+        final LinkedHashMap<String,Object> other = sampleYAML();
+        other.put( "count", 4 );
+        memoized( other ); // seen once: Nothing copied
+        assertEquals( afterSnapshot, nodesFrozen() );
+        memoized( other ); // seen again: now it's copied
+        assertTrue( nodesFrozen() > afterSnapshot );
+        assertEquals( command( sampleYAML() ), CommandMemo.get( CommandMemo.withInputHash( "read\u0000inner", frozen ), frozen ) );
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link FastYAMLEmitter} writes exactly the same bytes as com.esotericsoftware.yamlbeans.YamlWriter (configured via {@link GenericYAMLWriter#SHARED_YAMLCONFIG}). */
+public class FastYAMLEmitterTest {
+
+    private static String yamlbeans( final Object... _docs ) throws Exception {
+        final StringWriter sw = new StringWriter();
+        final com.esotericsoftware.yamlbeans.YamlWriter writer = new com.esotericsoftware.yamlbeans.YamlWriter( sw, GenericYAMLWriter.SHARED_YAMLCONFIG );
+        for ( Object doc: _docs ) writer.write( doc );
+        writer.close();
+        return sw.toString();
+    }
+
+    private static String fast( final Object... _docs ) throws Exception {
+        final StringWriter sw = new StringWriter();
+        final FastYAMLEmitter emitter = new FastYAMLEmitter( false, sw );
+        for ( Object doc: _docs ) emitter.write( doc );
+        emitter.close();
+        return sw.toString();
+    }
+
+    private static Object load( final File _f ) throws Exception {
+        try ( InputStreamReader rdr = new InputStreamReader( new FileInputStream( _f ), StandardCharsets.UTF_8 ) ) {
+            return new com.esotericsoftware.yamlbeans.YamlReader( rdr, GenericYAMLScanner.SHARED_YAMLCONFIG ).read( LinkedHashMap.class );
+        }
+    }
+
+    @Test
+    public void sameBytesAsYamlbeansForTestFixtures() throws Exception {
+        final File[] fixtures = new File( "src/test" ).listFiles( (dir, name) -> name.endsWith( ".yaml" ) );
+        assertNotNull( fixtures );
+        assertTrue( fixtures.length > 0 );
+        for ( File f: fixtures ) {
+            final Object doc = load( f );
+            assertEquals( f.getName(), yamlbeans( doc ), fast( doc ) );
+        }
+    }
+
+    @Test
+    public void sameBytesAsYamlbeansForTrickyScalars() throws Exception {
+        final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+        m.put( "plain", "hello world" );
+        m.put( "colon", "a: b" );
+        m.put( "hash", "a #comment" );
+        m.put( "leading-indicator", "*star" );
+        m.put( "dash", "- item" );
+        m.put( "doc-start", "--- x" );
+        m.put( "quote", "it's \"quoted\"" );
+        m.put( "spaces", "  padded  " );
+        m.put( "empty", "" );
+        m.put( "multi\nline key", "line1\nline2\n\nline4" );
+        m.put( "tab", "a\tb" );
+        m.put( "unicode", "café 中  " );
+        m.put( "number", 42 );
+        m.put( "bool", Boolean.TRUE );
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 40; i ++ ) sb.append( "word" ).append( i ).append( ' ' );
+        m.put( "long-plain", sb.toString().trim() );
+        m.put( "long-quoted", "'" + sb.toString() + "'" );
+        m.put( "long-escaped", "é " + sb.toString() );
+        final StringBuilder key = new StringBuilder();
+        for ( int i = 0; i < 30; i ++ ) key.append( "longkey" );
+        m.put( key.toString(), "complex key" );
+        assertEquals( yamlbeans( m ), fast( m ) );
+    }
+
+    @Test
+    public void sameBytesAsYamlbeansForCollections() throws Exception {
+        final LinkedHashMap<String, Object> shared = new LinkedHashMap<>();
+        shared.put( "k", "v" );
+        final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+        m.put( "emptyMap", new LinkedHashMap<String, Object>() );
+        m.put( "emptyList", new ArrayList<Object>() );
+        m.put( "list", new ArrayList<Object>( Arrays.asList( "a", new LinkedList<Object>( Arrays.asList( "b", "c" ) ), shared ) ) );
+        m.put( "nested", new LinkedHashMap<String, Object>( shared ) );
+        m.put( "anchored1", shared );
+        m.put( "anchored2", shared );
+        final ArrayList<Object> top = new ArrayList<>( Arrays.asList( m, "scalar", new ArrayList<Object>() ) );
+        assertEquals( yamlbeans( m ), fast( m ) );
+        assertEquals( yamlbeans( top ), fast( top ) );
+        assertEquals( yamlbeans( "just a string" ), fast( "just a string" ) );
+    }
+
+    private static final String ALPHABET = "ab  :#-?'\"\\,[]{}&*!|>%@`\n\t\r\u0085\u00A0\u00e9\u4e2d.0";
+
+    private static String randomScalar( final java.util.Random _r ) {
+        final int len = ( _r.nextInt( 4 ) == 0 ) ? _r.nextInt( 250 ) : _r.nextInt( 12 );
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < len; i ++ )
+            sb.append( ( _r.nextInt( 3 ) == 0 ) ? ALPHABET.charAt( _r.nextInt( ALPHABET.length() ) ) : (char) ( 'a' + _r.nextInt( 26 ) ) );
+        return sb.toString();
+    }
+
+    private static Object randomTree( final java.util.Random _r, final int _depth ) {
+        final int kind = ( _depth <= 0 ) ? 0 : _r.nextInt( 3 );
+        if ( kind == 0 ) return randomScalar( _r );
+        final int n = _r.nextInt( 5 );
+        if ( kind == 1 ) {
+            final ArrayList<Object> list = new ArrayList<>();
+            for ( int i = 0; i < n; i ++ ) list.add( randomTree( _r, _depth - 1 ) );
+            return list;
+        }
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        for ( int i = 0; i < n; i ++ ) map.put( randomScalar( _r ), randomTree( _r, _depth - 1 ) );
+        return map;
+    }
+
+    @Test
+    public void sameBytesAsYamlbeansForRandomTrees() throws Exception {
+        final java.util.Random r = new java.util.Random( 20261019L );
+        for ( int i = 0; i < 2000; i ++ ) {
+            final Object tree = randomTree( r, 4 );
+            assertEquals( "tree #"+ i, yamlbeans( tree ), fast( tree ) );
+        }
+    }
+
+    @Test
+    public void sameBytesAsYamlbeansForMultipleDocuments() throws Exception {
+        final LinkedHashMap<String, Object> d1 = new LinkedHashMap<>();
+        d1.put( "a", "1" );
+        final ArrayList<Object> d2 = new ArrayList<>( Arrays.asList( "x", "y" ) );
+        assertEquals( yamlbeans( d1, d2, "" ), fast( d1, d2, "" ) );
+    }
+
+    @Test
+    public void writesEachDocumentRightAway() throws Exception {
+        final StringWriter sw = new StringWriter();
+        final FastYAMLEmitter emitter = new FastYAMLEmitter( false, sw );
+        final LinkedHashMap<String, Object> d1 = new LinkedHashMap<>();
+        d1.put( "a", "1" );
+        emitter.write( d1 );
+        assertEquals( "a: 1", sw.toString().trim() );
+        emitter.close();
+    }
+
+    @Test
+    public void genericWriterUsesFastEmitterOnlyWhenOptedIn() throws Exception {
+        final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+        m.put( "a", new ArrayList<Object>( Arrays.asList( "1", "2" ) ) );
+        final GenericYAMLWriter writer = new GenericYAMLWriter( false );
+        final StringWriter fastOutput = new StringWriter();
+        try {
+            System.setProperty( TuningOptions.FASTYAMLEMITTER, "true" );
+            writer.prepare( fastOutput );
+            assertNotNull( writer.fastEmitter );
+            assertNull( writer.esotericsoftwareWriter );
+            writer.write( m );
+            writer.close();
+        } finally {
+            System.clearProperty( TuningOptions.FASTYAMLEMITTER );
+        }
+        final StringWriter yamlbeansOutput = new StringWriter();
+        writer.prepare( yamlbeansOutput );
+        assertNull( writer.fastEmitter );
+        assertNotNull( writer.esotericsoftwareWriter );
+        writer.write( m );
+        writer.close();
+        assertEquals( yamlbeansOutput.toString(), fastOutput.toString() );
+    }
+
+}
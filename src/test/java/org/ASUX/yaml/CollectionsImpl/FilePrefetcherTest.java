@@ -0,0 +1,79 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Checks that {@link FilePrefetcher} finds a prefetched file, no matter how its path was spelt within the batch-file. */
+public class FilePrefetcherTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void normalizeMakesEquivalentPathsEqual() throws Exception {
+        final String dir = this.tmp.getRoot().getAbsolutePath();
+        assertEquals( BatchDataflow.normalize( dir +"/x.yaml" ), BatchDataflow.normalize( dir +"/./sub/../x.yaml" ) );
+        assertEquals( BatchDataflow.normalize( "x.yaml" ), BatchDataflow.normalize( "./x.yaml" ) );
+        assertTrue( new File( BatchDataflow.normalize( "x.yaml" ) ).isAbsolute() );
+    }
+
+    @Test
+    public void takeFindsFileViaAnEquivalentPath() throws Exception {
+        final File f = this.tmp.newFile( "x.yaml" );
+        Files.write( f.toPath(), "k: v\n".getBytes( StandardCharsets.UTF_8 ) );
+        this.tmp.newFolder( "sub" );
+        final String dir = this.tmp.getRoot().getAbsolutePath();
+        final String prefetchedAs = BatchDataflow.normalize( dir +"/./x.yaml" );
+        FilePrefetcher.start( false, Collections.singleton( prefetchedAs ), org.ASUX.yaml.YAML_Libraries.ESOTERICSOFTWARE_Library, 1 );
+        try {
+            final Object o = FilePrefetcher.take( dir +"/sub/../x.yaml", org.ASUX.yaml.YAML_Libraries.ESOTERICSOFTWARE_Library, false );
+            assertNotNull( o );
+            final LinkedHashMap<String, Object> expected = new LinkedHashMap<>();
+            expected.put( "k", "v" );
+            assertEquals( expected, o );
+            assertNull( FilePrefetcher.take( f.getPath(), org.ASUX.yaml.YAML_Libraries.ESOTERICSOFTWARE_Library, false ) ); // taken just once
+        } finally {
+            FilePrefetcher.clear( Collections.singleton( prefetchedAs ) );
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks each of the {@link ForeachAccumulator.ConflictPolicy}s, and that deep-merge never modifies any iteration's output. */
+public class ForeachAccumulatorTest {
+
+    private static LinkedHashMap<String,Object> map( final Object... _kv ) {
+        final LinkedHashMap<String,Object> m = new LinkedHashMap<>();
+        for ( int ix=0; ix < _kv.length; ix += 2 ) m.put( (String) _kv[ix], _kv[ix+1] );
+        return m;
+    }
+
+    private static ArrayList<Object> list( final Object... _items ) {
+        return new ArrayList<Object>( Arrays.asList( _items ) );
+    }
+
+    @Test
+    public void lastWinsIsTheDefault() throws Exception {
+        final ForeachAccumulator acc = new ForeachAccumulator( false, null );
+        acc.merge( map( "a", "1", "b", "1" ), 0 );
+        acc.merge( null, 1 );
+        acc.merge( map( "a", "2", "c", "2" ), 2 );
+        assertEquals( map( "a", "2", "b", "1", "c", "2" ), acc.getOutput() );
+        assertEquals( 3, acc.getIterationsMerged() );
+    }
+
+    @Test
+    public void firstWins() throws Exception {
+        final ForeachAccumulator acc = new ForeachAccumulator( false, " First-Wins " );
+        acc.merge( map( "a", "1" ), 0 );
+        acc.merge( map( "a", "2", "b", "2" ), 1 );
+        assertEquals( map( "a", "1", "b", "2" ), acc.getOutput() );
+    }
+
+    @Test
+    public void deepMergeLeavesIterationOutputsAlone() throws Exception {
+        final ForeachAccumulator acc = new ForeachAccumulator( false, "deep-merge" );
+        final LinkedHashMap<String,Object> out0 = map( "m", map( "x", "1", "n", map( "p", "1" ) ), "l", list( "a" ), "s", "1" );
+        final LinkedHashMap<String,Object> out1 = map( "m", map( "y", "2", "n", map( "q", "2" ) ), "l", list( "b" ), "s", "2" );
+        final LinkedHashMap<String,Object> out2 = map( "m", map( "x", "3" ), "l", list( "c" ) );
+        final String before0 = out0.toString(), before1 = out1.toString(), before2 = out2.toString();
+        acc.merge( out0, 0 );
+        acc.merge( out1, 1 );
+        acc.merge( out2, 2 );
+        assertEquals( map( "m", map( "x", "3", "n", map( "p", "1", "q", "2" ), "y", "2" ), "l", list( "a", "b", "c" ), "s", "2" ), acc.getOutput() );
+        assertEquals( before0, out0.toString() );
+        assertEquals( before1, out1.toString() );
+        assertEquals( before2, out2.toString() );
+    }
+
+    @Test
+    public void errorOnlyOnDifferentValues() throws Exception {
+        final ForeachAccumulator acc = new ForeachAccumulator( false, "error" );
+        acc.merge( map( "a", map( "x", "1" ) ), 0 );
+        acc.merge( map( "a", map( "x", "1" ), "b", "2" ), 1 ); // identical: fine
+        try {
+            acc.merge( map( "a", map( "x", "changed" ) ), 2 );
+            fail( "expected a BatchFileException" );
+        } catch( BatchYamlProcessor.BatchFileException e ) {
+            assertTrue( e.getMessage(), e.getMessage().contains( "iteration #2" ) );
+        }
+    }
+
+    @Test( expected = Exception.class )
+    public void invalidPolicy() throws Exception {
+        ForeachAccumulator.parse( "most-wins" );
+    }
+
+}
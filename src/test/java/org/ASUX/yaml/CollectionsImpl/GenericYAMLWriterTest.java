@@ -0,0 +1,111 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that content shared via {@link SharedPayload} is written out in full at every location, while other shared nodes still get anchors - exactly as without {@link TuningOptions#sharedPayloads()}. */
+public class GenericYAMLWriterTest {
+
+    private static String write( final Object _yaml ) throws Exception {
+        final StringWriter sw = new StringWriter();
+        final GenericYAMLWriter writer = new GenericYAMLWriter( false );
+        writer.setYamlLibrary( org.ASUX.yaml.YAML_Libraries.ESOTERICSOFTWARE_Library );
+        writer.prepare( sw );
+        writer.write( _yaml );
+        writer.close();
+        return sw.toString();
+    }
+
+    private static LinkedHashMap<String, Object> payload() {
+        final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+        m.put( "Type", "AWS::EC2::Subnet" );
+        final ArrayList<Object> tags = new ArrayList<>();
+        tags.add( "a" );  tags.add( "b" );
+        m.put( "Tags", tags );
+        return m;
+    }
+
+    /** 'one', 'two' &amp; 'list[0]' hold the (frozen, or deep-cloned) payload.  'alias1' &amp; 'alias2' hold one ordinary (modifiable) Map. */
+    private static LinkedHashMap<String, Object> tree( final boolean _share ) throws Exception {
+        final SharedPayload payload = new SharedPayload( payload() );
+        final LinkedHashMap<String, Object> ordinary = new LinkedHashMap<>();
+        ordinary.put( "k", "v" );
+        final LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+        root.put( "one", payload.next() );
+        root.put( "alias1", ordinary );
+        root.put( "two", payload.next() );
+        root.put( "alias2", ordinary );
+        final ArrayList<Object> list = new ArrayList<>();
+        list.add( payload.next() );
+        root.put( "list", list );
+        if ( _share ) assertSame( root.get( "one" ), root.get( "two" ) );
+        return root;
+    }
+
+    @Test
+    public void sharedPayloadsAreWrittenInFull() throws Exception {
+        final String expected = write( tree( false ) );
+        assertTrue( expected, expected.contains( "&1" ) ); // the ordinary shared Map is still anchored
+        assertEquals( 3, expected.split( "Type: AWS", -1 ).length - 1 ); // written in full, at all 3 locations
+        try {
+            System.setProperty( TuningOptions.SHAREDPAYLOADS, "true" );
+            final LinkedHashMap<String, Object> shared = tree( true );
+            assertEquals( expected, write( shared ) );
+            assertTrue( PersistentYAMLTree.isFrozen( shared.get( "one" ) ) ); // the tree being written is Not modified
+            System.setProperty( TuningOptions.FASTYAMLEMITTER, "true" );
+            assertEquals( expected, write( shared ) );
+        } finally {
+            System.clearProperty( TuningOptions.SHAREDPAYLOADS );
+            System.clearProperty( TuningOptions.FASTYAMLEMITTER );
+        }
+    }
+
+    @Test
+    public void anchorSharedPayloadsIsStillHonored() throws Exception {
+        try {
+            System.setProperty( TuningOptions.SHAREDPAYLOADS, "true" );
+            System.setProperty( TuningOptions.ANCHORSHAREDPAYLOADS, "true" );
+            final String out = write( tree( true ) );
+            assertTrue( out, out.contains( "*2" ) );
+        } finally {
+            System.clearProperty( TuningOptions.SHAREDPAYLOADS );
+            System.clearProperty( TuningOptions.ANCHORSHAREDPAYLOADS );
+        }
+    }
+
+}
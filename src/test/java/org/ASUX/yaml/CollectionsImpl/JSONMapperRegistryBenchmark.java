@@ -0,0 +1,108 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** <p>JMH benchmark of what a JSON-heavy batch-file does in each iteration of a 'foreach': read an '@*.json' file, and save the result to an '@*.json' file.</p>
+ *  <p>The 'perCall' methods are how {@link InputsOutputs} did it before {@link JSONMapperRegistry} (a new ObjectMapper, configured per read/write).  The 'registry' methods are how it does it now.
+ *  The file content is held in memory, so that disk I/O doesn't drown out the difference.</p>
+ *  <p>Run: <code>mvn test-compile</code> and then <code>java -cp target/test-classes:&lt;test-classpath&gt; org.openjdk.jmh.Main JSONMapperRegistryBenchmark</code></p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@State( Scope.Benchmark )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class JSONMapperRegistryBenchmark {
+
+    /** # of top-level entries in the JSON document (each is a small nested object) */
+    @Param({ "10", "1000" })
+    public int entries;
+
+    private byte[] json;
+    private LinkedHashMap<String, Object> tree;
+
+    @Setup
+    public void setup() throws Exception {
+        this.tree = new LinkedHashMap<>();
+        for ( int ix=0; ix < this.entries; ix ++ ) {
+            final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+            m.put( "name", "item"+ ix );
+            m.put( "region", "us-east-"+ (ix % 3) );
+            final ArrayList<Object> tags = new ArrayList<>();
+            tags.add( "a"+ ix );  tags.add( "b"+ ix );
+            m.put( "tags", tags );
+            this.tree.put( "key"+ ix, m );
+        }
+        final StringWriter sw = new StringWriter();
+        JSONMapperRegistry.writeStreaming( sw, this.tree );
+        this.json = sw.toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    @Benchmark
+    public Object readPerCallMapper() throws Exception {
+        final com.fasterxml.jackson.databind.ObjectMapper objMapper = new com.fasterxml.jackson.databind.ObjectMapper();
+        objMapper.configure( com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true );
+        objMapper.configure( com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_SINGLE_QUOTES, true );
+        return objMapper.readValue( new ByteArrayInputStream( this.json ), new com.fasterxml.jackson.core.type.TypeReference< LinkedHashMap<String,Object> >(){} );
+    }
+
+    @Benchmark
+    public Object readRegistry() throws Exception {
+        return JSONMapperRegistry.readMap( new ByteArrayInputStream( this.json ) );
+    }
+
+    @Benchmark
+    public void writePerCallMapper( final Blackhole _bh ) throws Exception {
+        final StringWriter sw = new StringWriter();
+        new com.fasterxml.jackson.databind.ObjectMapper().writeValue( sw, this.tree );
+        _bh.consume( sw );
+    }
+
+    @Benchmark
+    public void writeRegistryStreaming( final Blackhole _bh ) throws Exception {
+        final StringWriter sw = new StringWriter();
+        JSONMapperRegistry.writeStreaming( sw, this.tree );
+        _bh.consume( sw );
+    }
+
+}
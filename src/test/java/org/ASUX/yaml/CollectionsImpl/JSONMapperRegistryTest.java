@@ -0,0 +1,86 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that the shared reader and the streaming writer of {@link JSONMapperRegistry} behave exactly like a Jackson ObjectMapper configured per call (as before). */
+public class JSONMapperRegistryTest {
+
+    private static LinkedHashMap<String, Object> sample() {
+        final LinkedHashMap<String, Object> inner = new LinkedHashMap<>();
+        inner.put( "z", "last-alphabetically but first" );
+        inner.put( "a", new ArrayList<Object>( Arrays.asList( "x", "y\"quoted\"", "" ) ) );
+        inner.put( "n", null );
+        final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+        m.put( "inner", inner );
+        m.put( "list", new LinkedList<Object>( Arrays.asList( "1", "2" ) ) );
+        m.put( "unicode", "é中" );
+        m.put( "number", 42 );
+        return m;
+    }
+
+    @Test
+    public void streamingWriterMatchesDatabindWriter() throws Exception {
+        final StringWriter streaming = new StringWriter();
+        JSONMapperRegistry.writeStreaming( streaming, sample() );
+        final String databind = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString( sample() );
+        assertEquals( databind, streaming.toString() );
+    }
+
+    @Test
+    public void readerAcceptsUnquotedNamesAndSingleQuotesAndKeepsKeyOrder() throws Exception {
+        final String json = "{ zeta: 'z', alpha: { 'beta': [ 'b1', 'b2' ] } }";
+        final LinkedHashMap<String, Object> m = JSONMapperRegistry.readMap( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) );
+        assertEquals( Arrays.asList( "zeta", "alpha" ), new ArrayList<>( m.keySet() ) );
+        assertEquals( "{beta=[b1, b2]}", m.get( "alpha" ).toString() );
+        assertTrue( m.get( "alpha" ) instanceof LinkedHashMap );
+    }
+
+    @Test
+    public void roundTripPreservesTree() throws Exception {
+        final StringWriter sw = new StringWriter();
+        JSONMapperRegistry.writeStreaming( sw, sample() );
+        final LinkedHashMap<String, Object> back = JSONMapperRegistry.readMap( new ByteArrayInputStream( sw.toString().getBytes( StandardCharsets.UTF_8 ) ) );
+        assertEquals( sample().toString(), back.toString() );
+    }
+
+}
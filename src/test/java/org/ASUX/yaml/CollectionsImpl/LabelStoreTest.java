@@ -0,0 +1,262 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link LabelStore} spills and reads back labels transparently, that copies of a label never share its content, and that copying a spilled label does Not read it back. */
+public class LabelStoreTest {
+
+    /** labels that a test does Not otherwise refer to.  Once garbage-collected, a label no longer counts against the budget - and then, nothing else gets spilled. */
+    private final ArrayList<Object> alive = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        System.setProperty( TuningOptions.LABELMEMORYMB, "1" );
+        LabelStore.reset(); // No labels left over from other tests
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty( TuningOptions.LABELMEMORYMB );
+    }
+
+    /** ~400KB (estimated) */
+    private static LinkedHashMap<String,Object> largeYAML( final String _tag ) {
+        final char[] chars = new char[ 400 * 1024 ];
+        Arrays.fill( chars, 'x' );
+        final LinkedHashMap<String,Object> inner = new LinkedHashMap<>();
+        inner.put( "count", 42 );
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        map.put( "tag", _tag );
+        map.put( "big", new String( chars ) );
+        map.put( "list", new ArrayList<Object>( Arrays.asList( "a", inner ) ) );
+        return map;
+    }
+
+    @Test
+    public void smallOrNonMapContentIsSavedAsIs() throws Exception {
+        final LinkedHashMap<String,Object> small = new LinkedHashMap<>();
+        small.put( "k", "v" );
+        assertSame( small, LabelStore.put( small, false ) );
+        final ArrayList<Object> list = new ArrayList<>( Arrays.asList( "a" ) );
+        assertSame( list, LabelStore.put( list, false ) );
+    }
+
+    @Test
+    public void spillsLeastRecentlyUsedAndReadsBack() throws Exception {
+        final LinkedHashMap<String,Object> expected1 = largeYAML( "one" );
+        final Object label1 = LabelStore.put( largeYAML( "one" ), false );
+        final Object label2 = LabelStore.put( largeYAML( "two" ), false );
+        assertTrue( label1 instanceof LinkedHashMap );
+        assertTrue( LabelStore.isOnHeap( label1 ) );
+        final Object label3 = LabelStore.put( largeYAML( "three" ), false ); // beyond 1MB
+        assertFalse( LabelStore.isOnHeap( label1 ) );
+        assertTrue( LabelStore.isOnHeap( label3 ) );
+
+        assertEquals( expected1, label1 ); // read back in
+        assertTrue( LabelStore.isOnHeap( label1 ) );
+        assertFalse( LabelStore.isOnHeap( label2 ) ); // now the least-recently-used
+        assertEquals( "two", ((LinkedHashMap<?,?>) label2).get( "tag" ) );
+    }
+
+    @Test
+    public void modificationsSurviveSpilling() throws Exception {
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> label1 = (LinkedHashMap<String,Object>) LabelStore.put( largeYAML( "one" ), false );
+        label1.put( "added", "yes" );
+        label1.remove( "list" );
+        this.alive.add( LabelStore.put( largeYAML( "two" ), false ) );
+        this.alive.add( LabelStore.put( largeYAML( "three" ), false ) );
+        assertFalse( LabelStore.isOnHeap( label1 ) );
+        System.gc(); // so that, most likely, it's actually read back from disk
+        assertEquals( "yes", label1.get( "added" ) );
+        assertFalse( label1.containsKey( "list" ) );
+    }
+
+    private static byte[] serialize( final Object _o ) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream oos = new ObjectOutputStream( bytes ) ) { oos.writeObject( _o ); }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LinkedHashMap<String,Object> copiedLabel( final byte[] _serialized ) throws Exception {
+        try ( ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( _serialized ) ) ) {
+            return (LinkedHashMap<String,Object>) ((LinkedHashMap<?,?>) ois.readObject()).get( "label" );
+        }
+    }
+
+    @Test
+    public void onHeapLabelIsCopiedAsPlainMap() throws Exception {
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> label = (LinkedHashMap<String,Object>) LabelStore.put( largeYAML( "one" ), false );
+        assertTrue( LabelStore.isOnHeap( label ) );
+        final LinkedHashMap<String,Object> memory = new LinkedHashMap<>(); // stands in for MemoryAndContext
+        memory.put( "label", label );
+
+        final LinkedHashMap<String,Object> copiedLabel = copiedLabel( serialize( memory ) );
+        assertEquals( LinkedHashMap.class, copiedLabel.getClass() );
+        assertEquals( label, copiedLabel );
+        copiedLabel.put( "tag", "changed" );
+        ((ArrayList<?>) copiedLabel.get( "list" )).clear();
+        assertEquals( "one", label.get( "tag" ) );
+        assertEquals( 2, ((ArrayList<?>) label.get( "list" )).size() );
+    }
+
+    @Test
+    public void spilledLabelIsCopiedByReference() throws Exception {
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> label = (LinkedHashMap<String,Object>) LabelStore.put( largeYAML( "one" ), false );
+        this.alive.add( LabelStore.put( largeYAML( "two" ), false ) );
+        this.alive.add( LabelStore.put( largeYAML( "three" ), false ) );
+        assertFalse( LabelStore.isOnHeap( label ) );
+        final LinkedHashMap<String,Object> memory = new LinkedHashMap<>(); // stands in for MemoryAndContext
+        memory.put( "label", label );
+
+        final byte[] serialized = serialize( memory );
+        assertFalse( LabelStore.isOnHeap( label ) ); // Not read back, just to be copied
+        assertTrue( serialized.length +" bytes", serialized.length < 4096 ); // just a reference to the file, Not ~400KB of content
+
+        final LinkedHashMap<String,Object> copy1 = copiedLabel( serialized );
+        final LinkedHashMap<String,Object> copy2 = copiedLabel( serialized ); // the same bytes, de-serialized once more
+        assertTrue( copy1 instanceof LabelStore.LabelMap );
+        assertFalse( LabelStore.isOnHeap( copy1 ) ); // read in, only when used
+
+        assertEquals( largeYAML( "one" ), copy1 );
+        copy1.put( "tag", "changed" );
+        ((ArrayList<?>) copy1.get( "list" )).clear();
+        assertEquals( largeYAML( "one" ), copy2 );
+        assertEquals( largeYAML( "one" ), label );
+        label.put( "tag", "changed in the original" );
+        assertEquals( "changed", copy1.get( "tag" ) );
+        assertEquals( "one", copy2.get( "tag" ) );
+    }
+
+    @Test
+    public void copyOfModifiedLabelIsNotAnOlderVersion() throws Exception {
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> label = (LinkedHashMap<String,Object>) LabelStore.put( largeYAML( "one" ), false );
+        this.alive.add( LabelStore.put( largeYAML( "two" ), false ) );
+        this.alive.add( LabelStore.put( largeYAML( "three" ), false ) );
+        assertFalse( LabelStore.isOnHeap( label ) );
+        final LinkedHashMap<String,Object> memory = new LinkedHashMap<>();
+        memory.put( "label", label );
+        final byte[] older = serialize( memory );
+
+        label.put( "tag", "modified" ); // read back in, and modified.  So, the file that 'older' refers to, is out of date.
+        this.alive.add( LabelStore.put( largeYAML( "four" ), false ) );
+        this.alive.add( LabelStore.put( largeYAML( "five" ), false ) );
+        assertFalse( LabelStore.isOnHeap( label ) ); // spilled once again - into a new file
+        assertEquals( "modified", copiedLabel( serialize( memory ) ).get( "tag" ) );
+        assertEquals( "one", copiedLabel( older ).get( "tag" ) );
+    }
+
+    @Test
+    public void snapshotCopiesOnHeapLabelByReference() throws Exception {
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> label = (LinkedHashMap<String,Object>) LabelStore.put( largeYAML( "one" ), false );
+        final LinkedHashMap<String,Object> memory = new LinkedHashMap<>();
+        memory.put( "label", label );
+
+        final byte[] serialized;
+        try ( LabelStore.Snapshot snapshot = LabelStore.newSnapshot() ) {
+            serialized = snapshot.capture( () -> serialize( memory ) );
+            assertTrue( LabelStore.isOnHeap( label ) );
+            assertTrue( serialized.length +" bytes", serialized.length < 4096 );
+            label.put( "tag", "changed after the snapshot" );
+
+            final LinkedHashMap<String,Object> copy1 = copiedLabel( serialized );
+            final LinkedHashMap<String,Object> copy2 = copiedLabel( serialized );
+            assertFalse( LabelStore.isOnHeap( copy1 ) );
+            assertEquals( largeYAML( "one" ), copy1 );
+            copy1.remove( "list" );
+            assertEquals( largeYAML( "one" ), copy2 );
+        }
+        try {
+            copiedLabel( serialized );
+            fail( "a closed Snapshot's files must be gone" );
+        } catch ( java.io.InvalidObjectException e ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void tooDeepLabelStaysOnHeap() throws Exception {
+        final LinkedHashMap<String,Object> deep = largeYAML( "deep" );
+        LinkedHashMap<String,Object> node = deep;
+        for ( int ix=0; ix <= LabelStore.MAXDEPTH; ix ++ ) {
+            final LinkedHashMap<String,Object> child = new LinkedHashMap<>();
+            node.put( "nested", child );
+            node = child;
+        }
+        final Object label = LabelStore.put( deep, false );
+        this.alive.add( LabelStore.put( largeYAML( "two" ), false ) );
+        this.alive.add( LabelStore.put( largeYAML( "three" ), false ) ); // beyond 1MB: the least-recently-used can Not be spilled
+        assertTrue( LabelStore.isOnHeap( label ) );
+        assertEquals( "deep", ((LinkedHashMap<?,?>) label).get( "tag" ) );
+    }
+
+    private static Object decode( final byte[] _file ) throws Exception {
+        return LabelStore.decode( new java.io.DataInputStream( new ByteArrayInputStream( _file ) ), _file.length, 0 );
+    }
+
+    @Test
+    public void corruptedFileFailsClearly() throws Exception {
+        final byte[] hugeList = { 'L', 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff }; // a list of 2 billion elements, in a 5-byte file
+        final byte[] tooDeep = new byte[ 5 * ( LabelStore.MAXDEPTH + 1 ) + 1 ];
+        for ( int ix=0; ix <= LabelStore.MAXDEPTH; ix ++ ) { tooDeep[ 5*ix ] = 'L'; tooDeep[ 5*ix + 4 ] = 1; } // lists of 1 element, each within the other
+        tooDeep[ tooDeep.length - 1 ] = 'N';
+        for ( byte[] file: Arrays.asList( hugeList, tooDeep ) ) {
+            try {
+                decode( file );
+                fail( "a corrupted file must fail with an IOException - Not OutOfMemoryError or StackOverflowError" );
+            } catch ( java.io.IOException e ) {
+                assertTrue( e.getMessage(), e.getMessage().contains( "corrupted file" ) );
+            }
+        }
+        tooDeep[ 0 ] = 'N'; // now, just a null
+        assertNull( decode( tooDeep ) );
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.LinkedHashMap;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link LazyForLoopProperties} never exposes the placeholder of the lazy value, and that frames restore previous values. */
+public class LazyForLoopPropertiesTest {
+
+    private static final String LAZYKEY = "foreach.iteration.value";
+
+    private static LinkedHashMap<String, Object> input( final String _val ) {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put( "k", _val );
+        return map;
+    }
+
+    private static String yaml( final LinkedHashMap<String, Object> _map ) throws Exception {
+        return new Tools( false ).Map2YAMLString( _map );
+    }
+
+    @Test
+    public void everyReadSeesTheRenderedValue() throws Exception {
+        final String expected = yaml( input( "v" ) );
+        final LazyForLoopProperties[] props = new LazyForLoopProperties[9];
+        for ( int ix=0; ix < props.length; ix ++ ) {
+            props[ix] = new LazyForLoopProperties( false, LAZYKEY );
+            props[ix].setLazyValue( input( "v" ) );
+        }
+        assertEquals( expected, props[0].getProperty( LAZYKEY ) );
+        assertEquals( expected, props[1].get( LAZYKEY ) );
+        assertEquals( expected, props[2].getOrDefault( LAZYKEY, "default" ) );
+        final AtomicReference<Object> seen = new AtomicReference<>();
+        props[3].forEach( (k, v) -> { if ( LAZYKEY.equals( k ) ) seen.set( v ); } );
+        assertEquals( expected, seen.get() );
+        assertTrue( props[4].containsValue( expected ) );
+        assertFalse( props[5].containsValue( "" ) );
+        assertEquals( expected, props[6].entrySet().iterator().next().getValue() );
+        assertTrue( props[7].stringPropertyNames().contains( LAZYKEY ) );
+        assertEquals( expected, props[7].getProperty( LAZYKEY ) );
+        assertEquals( expected + "!", props[8].merge( LAZYKEY, "!", (a, b) -> a.toString() + b ) );
+    }
+
+    /** The same input-object, modified in-place between iterations, must Not be rendered from a stale cache. */
+    @Test
+    public void inPlaceModificationIsNotStale() throws Exception {
+        final LazyForLoopProperties props = new LazyForLoopProperties( false, LAZYKEY );
+        final LinkedHashMap<String, Object> in = input( "before" );
+        props.setLazyValue( in );
+        assertEquals( yaml( input( "before" ) ), props.getProperty( LAZYKEY ) );
+        in.put( "k", "after" );
+        props.setLazyValue( in );
+        assertEquals( yaml( input( "after" ) ), props.getProperty( LAZYKEY ) );
+    }
+
+    /** delete/insert/replace modify their input in-place, BEFORE the loop-body's first reference to the variable.  See CmdInvoker.processCommand() */
+    @Test
+    public void inPlaceChangeBeforeFirstReference() throws Exception {
+        final LinkedHashMap<String,Properties> allProps = new LinkedHashMap<>();
+        final LazyForLoopProperties props = LazyForLoopProperties.installInto( false, allProps, "foreach", LAZYKEY );
+        final LinkedHashMap<String, Object> outer = input( "outer" );
+        props.setLazyValue( outer );
+        props.pushFrame(); // a nested 'foreach'
+        final LinkedHashMap<String, Object> in = input( "before" );
+        props.setLazyValue( in );
+
+        LazyForLoopProperties.beforeInPlaceChange( allProps, in );
+        in.put( "k", "after" ); // example: replace
+        outer.put( "k", "modified" );
+        assertEquals( yaml( input( "before" ) ), props.getProperty( LAZYKEY ) );
+        props.popFrame();
+        assertEquals( yaml( input( "outer" ) ), props.getProperty( LAZYKEY ) );
+    }
+
+    @Test
+    public void frozenInputStaysLazy() throws Exception {
+        final LinkedHashMap<String,Properties> allProps = new LinkedHashMap<>();
+        final LazyForLoopProperties props = LazyForLoopProperties.installInto( false, allProps, "foreach", LAZYKEY );
+        final LinkedHashMap<String, Object> frozen = PersistentYAMLTree.snapshot( input( "v" ) );
+        props.setLazyValue( frozen );
+        LazyForLoopProperties.beforeInPlaceChange( allProps, frozen ); // path-copied, instead of modified.  So, No need to render it now.
+        final LinkedHashMap<String, Object> copy = PersistentYAMLTree.thaw( frozen );
+        copy.put( "k", "changed" );
+        assertEquals( yaml( input( "v" ) ), props.getProperty( LAZYKEY ) );
+    }
+
+    @Test
+    public void popFrameRestoresPreviousValues() throws Exception {
+        final LazyForLoopProperties props = new LazyForLoopProperties( false, LAZYKEY );
+        props.put( "x", "outer" );
+        props.setLazyValue( input( "outer" ) );
+        props.pushFrame();
+        props.put( "x", "inner" );
+        props.put( "y", "new" );
+        props.setLazyValue( input( "inner" ) );
+        assertEquals( yaml( input( "inner" ) ), props.getProperty( LAZYKEY ) );
+        props.popFrame();
+        assertEquals( "outer", props.getProperty( "x" ) );
+        assertFalse( props.containsKey( "y" ) );
+        assertEquals( yaml( input( "outer" ) ), props.getProperty( LAZYKEY ) );
+    }
+
+    /** what a parallel 'foreach' does: each iteration works on its own copy (serialized within an active frame) */
+    @Test
+    public void copiesDoNotShareFramesOrValues() throws Exception {
+        final LazyForLoopProperties props = new LazyForLoopProperties( false, LAZYKEY );
+        props.put( "index", "outer" );
+        props.pushFrame();
+        props.put( "index", "0" );
+
+        final java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try ( java.io.ObjectOutputStream oos = new java.io.ObjectOutputStream( bytes ) ) { oos.writeObject( props ); }
+        final Thread[] threads = new Thread[4];
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for ( int t=0; t < threads.length; t ++ ) {
+            final String iteration = ""+ t;
+            threads[t] = new Thread( () -> {
+                try ( java.io.ObjectInputStream ois = new java.io.ObjectInputStream( new java.io.ByteArrayInputStream( bytes.toByteArray() ) ) ) {
+                    final LazyForLoopProperties copy = (LazyForLoopProperties) ois.readObject();
+                    assertEquals( "0", copy.getProperty( "index" ) );
+                    for ( int ix=0; ix < 200; ix ++ ) {
+                        copy.put( "index", iteration );
+                        copy.pushFrame(); // a nested 'foreach'
+                        copy.put( "index", iteration +"."+ ix );
+                        copy.setLazyValue( input( iteration ) );
+                        assertEquals( iteration +"."+ ix, copy.getProperty( "index" ) );
+                        copy.popFrame();
+                        assertEquals( iteration, copy.getProperty( "index" ) );
+                    }
+                    try {
+                        copy.popFrame();
+                        fail( "frames must Not be copied" );
+                    } catch ( IllegalStateException e ) {
+                        // expected
+                    }
+                } catch ( Throwable e ) {
+                    failure.compareAndSet( null, e );
+                }
+            });
+            threads[t].start();
+        }
+        for ( Thread t: threads ) t.join();
+        if ( failure.get() != null ) throw new AssertionError( failure.get() );
+
+        assertEquals( "0", props.getProperty( "index" ) );
+        assertNull( props.getProperty( LAZYKEY ) );
+        props.popFrame();
+        assertEquals( "outer", props.getProperty( "index" ) );
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/** <p>JMH benchmark of {@link Tools#lintRemoverMap} (a single in-memory walk of the tree) against {@link Tools#lintRemoverMapViaYAMLString} (how it used to be done: write as YAML to a String, and read it back).</p>
+ *  <p>'corpus' uses src/test/lint-corpus.json as-is (run from the project folder).  'generated' uses a tree of the given # of entries - the kind of JSON a batch-file reads in each iteration of a 'foreach'.</p>
+ *  <p>Run: <code>mvn test-compile</code> and then <code>java -cp target/test-classes:&lt;test-classpath&gt; org.openjdk.jmh.Main LintRemoverBenchmark</code></p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@State( Scope.Benchmark )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class LintRemoverBenchmark {
+
+    /** # of top-level entries in the generated tree */
+    @Param({ "10", "1000" })
+    public int entries;
+
+    private final Tools tools = new Tools( false );
+    private LinkedHashMap<String, Object> corpus;
+    private LinkedHashMap<String, Object> generated;
+
+    @Setup
+    public void setup() throws Exception {
+        try ( FileInputStream fis = new FileInputStream( "src/test/lint-corpus.json" ) ) {
+            this.corpus = JSONMapperRegistry.readMap( fis );
+        }
+        this.generated = new LinkedHashMap<>();
+        for ( int ix=0; ix < this.entries; ix ++ ) {
+            final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+            m.put( "name", "item"+ ix );
+            m.put( "port", 8000 + ix );
+            m.put( "enabled", ix % 2 == 0 );
+            final ArrayList<Object> tags = new ArrayList<>();
+            tags.add( "a"+ ix );  tags.add( ix * 1.5 );
+            m.put( "tags", tags );
+            this.generated.put( "key"+ ix, m );
+        }
+    }
+
+    @Benchmark
+    public Object corpusInMemory() throws Exception {
+        return this.tools.lintRemoverMap( this.corpus );
+    }
+
+    @Benchmark
+    public Object corpusViaYAMLString() throws Exception {
+        return this.tools.lintRemoverMapViaYAMLString( this.corpus );
+    }
+
+    @Benchmark
+    public Object generatedInMemory() throws Exception {
+        return this.tools.lintRemoverMap( this.generated );
+    }
+
+    @Benchmark
+    public Object generatedViaYAMLString() throws Exception {
+        return this.tools.lintRemoverMapViaYAMLString( this.generated );
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that the copy-on-write and parallel macroyaml give the same output as always, without any side-effect on its input. */
+public class MacroYamlProcessorTest {
+
+    @After
+    public void tearDown() {
+        System.clearProperty( TuningOptions.MACROCOPYONWRITE );
+        System.clearProperty( TuningOptions.MACROPARALLELISM );
+    }
+
+    private static Properties props() {
+        final Properties props = new Properties();
+        props.setProperty( "env", "prod" );
+        props.setProperty( "region", "us-east-1" );
+        return props;
+    }
+
+    private static LinkedHashMap<String,Object> sampleYAML() {
+        final LinkedHashMap<String,Object> unchanged = new LinkedHashMap<>();
+        unchanged.put( "name", "vpc" );
+        unchanged.put( "cidr", "10.0.0.0/16" );
+        final LinkedHashMap<String,Object> tags = new LinkedHashMap<>();
+        tags.put( "Environment", "${ASUX::env}" );
+        tags.put( "Owner", "ops" );
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        map.put( "unchanged", unchanged );
+        map.put( "bucket-${ASUX::env}", "logs-${ASUX::region}" );
+        map.put( "keyOnly", null );
+        map.put( "tags", tags );
+        map.put( "list", new ArrayList<Object>( Arrays.asList( "a", "${ASUX::region}", unchanged ) ) );
+        return map;
+    }
+
+    private static LinkedHashMap<String,Object> expand( final LinkedHashMap<String,Object> _inp ) throws Exception {
+        final LinkedHashMap<String,Object> outp = new LinkedHashMap<>();
+        new MacroYamlProcessor( false, false ).recursiveSearch( _inp, outp, props(), null );
+        return outp;
+    }
+
+    @Test
+    public void copyOnWriteMatchesSerial() throws Exception {
+        final LinkedHashMap<String,Object> expected = expand( sampleYAML() );
+        assertEquals( "logs-us-east-1", expected.get( "bucket-prod" ) );
+        assertFalse( expected.containsKey( "keyOnly" ) );
+
+        System.setProperty( TuningOptions.MACROCOPYONWRITE, "true" );
+        final LinkedHashMap<String,Object> inp = sampleYAML();
+        final LinkedHashMap<String,Object> outp = expand( inp );
+        assertEquals( expected, outp );
+        assertEquals( sampleYAML(), inp ); // input untouched
+        assertNotSame( inp.get( "unchanged" ), outp.get( "unchanged" ) ); // shared with a frozen snapshot of the input, Not with the input itself
+        assertTrue( PersistentYAMLTree.isFrozen( outp.get( "unchanged" ) ) );
+        assertFalse( PersistentYAMLTree.isFrozen( outp.get( "tags" ) ) );
+    }
+
+    @Test
+    public void recalledLabelStaysModifiable() throws Exception {
+        System.setProperty( TuningOptions.MACROCOPYONWRITE, "true" );
+        final LinkedHashMap<String,Object> label = sampleYAML(); // as recalled via 'useAsInput !label' - the label's content itself, Not a copy
+        final LinkedHashMap<String,Object> outp = expand( label );
+        assertEquals( expand( sampleYAML() ), outp );
+        assertFalse( PersistentYAMLTree.isFrozen( label ) );
+
+        // a later in-place command (example: delete) on the same !label
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> unchanged = (LinkedHashMap<String,Object>) label.get( "unchanged" );
+        unchanged.remove( "name" );
+        label.remove( "tags" );
+        assertFalse( label.containsKey( "tags" ) );
+        assertEquals( expand( sampleYAML() ), outp ); // the earlier output is unaffected
+    }
+
+    @Test
+    public void recalledLabelIsNotModifiedViaTheOutput() throws Exception {
+        System.setProperty( TuningOptions.MACROCOPYONWRITE, "true" );
+        final LinkedHashMap<String,Object> label = PersistentYAMLTree.snapshot( sampleYAML() ); // as recalled via 'useAsInput !label'
+        final LinkedHashMap<String,Object> outp = expand( label );
+        assertEquals( expand( sampleYAML() ), outp );
+
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String,Object> shared = (LinkedHashMap<String,Object>) outp.get( "unchanged" );
+        assertSame( label.get( "unchanged" ), shared );
+        try {
+            shared.remove( "name" );
+            fail( "a sub-tree shared with the !label must be frozen" );
+        } catch ( UnsupportedOperationException e ) {
+            // expected.  delete/insert/replace path-copy instead.  See AbstractYamlEntryProcessor#writable
+        }
+        final LinkedHashMap<String,Object> copy = PersistentYAMLTree.thaw( shared );
+        copy.remove( "name" );
+        assertEquals( sampleYAML(), label );
+    }
+
+    /** Several sub-trees, each large enough to be forked off */
+    private static LinkedHashMap<String,Object> largeYAML() {
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        for ( int ix=0; ix < 6; ix ++ ) {
+            final ArrayList<Object> list = new ArrayList<>();
+            for ( int jx=0; jx < 3000; jx ++ ) {
+                final LinkedHashMap<String,Object> item = new LinkedHashMap<>();
+                item.put( "id-"+ jx, ( jx % 7 == 0 ) ? "${ASUX::env}-"+ ix : "static-"+ jx );
+                list.add( item );
+            }
+            map.put( "section-${ASUX::region}-"+ ix, list );
+            map.put( "small-"+ ix, "${ASUX::env}" );
+        }
+        map.put( "sample", sampleYAML() );
+        return map;
+    }
+
+    @Test
+    public void parallelMatchesSerial() throws Exception {
+        final LinkedHashMap<String,Object> expected = expand( largeYAML() );
+        System.setProperty( TuningOptions.MACROPARALLELISM, "4" );
+        for ( String copyOnWrite: new String[] { "false", "true" } ) {
+            System.setProperty( TuningOptions.MACROCOPYONWRITE, copyOnWrite );
+            final LinkedHashMap<String,Object> inp = largeYAML();
+            for ( int run=0; run < 3; run ++ ) { // the same (shared) ForkJoinPool, each time
+                final LinkedHashMap<String,Object> outp = expand( inp );
+                assertEquals( expected, outp );
+                assertEquals( new ArrayList<>( expected.keySet() ), new ArrayList<>( outp.keySet() ) ); // the same order too
+            }
+            assertEquals( largeYAML(), inp );
+        }
+    }
+
+    @Test
+    public void parallelFailureIsThrownToTheCaller() throws Exception {
+        System.setProperty( TuningOptions.MACROPARALLELISM, "4" );
+        final LinkedHashMap<String,Object> inp = largeYAML();
+        @SuppressWarnings("unchecked")
+        final ArrayList<Object> list = (ArrayList<Object>) inp.get( "section-${ASUX::region}-3" );
+        list.add( 2000, Integer.valueOf( 42 ) ); // Neither a Map nor a String
+        try {
+            expand( inp );
+            fail( "expected a MacroException" );
+        } catch ( MacroYamlProcessor.MacroException e ) {
+            assertTrue( e.getMessage(), e.getMessage().contains( "java.lang.Integer" ) );
+        }
+    }
+
+}
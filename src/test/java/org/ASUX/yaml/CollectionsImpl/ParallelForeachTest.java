@@ -0,0 +1,213 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import org.ASUX.yaml.BatchFileGrammer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that a parallel 'foreach' gives the same output as the sequential one, with each iteration isolated, and without any side-effect on its input. */
+public class ParallelForeachTest {
+
+    private static final AtomicInteger STARTED = new AtomicInteger();
+    private static volatile int startedWhileFirstWasRunning = -1;
+
+    /** Stands in for the loop-body of a batch-file: modifies its input in-place, saves into memory, and outputs a key unique to the iteration */
+    private static class Body extends BatchYamlProcessor {
+        Body() { super( false, false, true ); }
+        @Override BatchYamlProcessor newParallelWorker() { return new Body(); }
+        @Override
+        protected LinkedHashMap<String, Object> processBatch( final boolean _bInRecursion, final BatchFileGrammer _batchCmds, final LinkedHashMap<String,Object> _input ) throws Exception {
+            final String ix = this.allProps.get( FOREACH_PROPERTIES ).getProperty( FOREACH_INDEX );
+            STARTED.incrementAndGet();
+            if ( ix.equals( "0" ) ) { // the earliest iteration is the slowest
+                Thread.sleep( 300 );
+                startedWhileFirstWasRunning = STARTED.get() - 1;
+            }
+            @SuppressWarnings("unchecked")
+            final LinkedHashMap<String,Object> config = (LinkedHashMap<String,Object>) this.memoryAndContext.getDataFromMemory( "config" );
+            if ( config != null ) { // as if 'useAsInput !config' and then, an in-place change
+                if ( config.containsKey( "touchedBy" ) ) throw new Exception( "iteration #"+ ix +" sees another iteration's change to !config" );
+                config.put( "touchedBy", ix );
+            }
+            final Object previous = this.memoryAndContext.getDataFromMemory( "previous" );
+            this.memoryAndContext.saveDataIntoMemory( "previous", ix );
+            _input.put( "visitedBy", ix );
+            @SuppressWarnings("unchecked")
+            final LinkedHashMap<String,Object> tags = (LinkedHashMap<String,Object>) _input.get( "tags" );
+            tags.put( "seen", "true" );
+            final LinkedHashMap<String,Object> outp = new LinkedHashMap<>();
+            outp.put( "item-"+ ix, _input );
+            if ( previous != null ) outp.put( "previous-"+ ix, previous );
+            return outp;
+        }
+    }
+
+    /** A loop-body with a nested 'foreach' within.  The nested one is always sequential. */
+    private static class NestedBody extends BatchYamlProcessor {
+        static final String INDEX = FOREACH_INDEX;
+        static final String PROPS = FOREACH_PROPERTIES;
+        NestedBody() { super( false, false, true ); }
+        @Override BatchYamlProcessor newParallelWorker() { return new NestedBody(); }
+        @Override
+        protected LinkedHashMap<String, Object> processBatch( final boolean _bInRecursion, final BatchFileGrammer _batchCmds, final LinkedHashMap<String,Object> _input ) throws Exception {
+            final Properties props = this.allProps.get( FOREACH_PROPERTIES );
+            final String ix = props.getProperty( FOREACH_INDEX );
+            final LinkedHashMap<String,Object> outp = new LinkedHashMap<>();
+            if ( _input.containsKey( "outer" ) ) { // an iteration of the nested 'foreach'
+                outp.put( _input.get( "outer" ) +"."+ ix, ix );
+                return outp;
+            }
+            final ArrayList<Object> inner = new ArrayList<>();
+            for ( int i=0; i < 3; i ++ ) {
+                final LinkedHashMap<String,Object> elem = new LinkedHashMap<>();
+                elem.put( "outer", ix );
+                inner.add( elem );
+            }
+            outp.putAll( this.processFOREACH_Step3( new BatchPlan( false, null ), inner.iterator(), inner.size() ) );
+            if ( ! ix.equals( props.getProperty( FOREACH_INDEX ) ) )
+                throw new Exception( "the nested 'foreach' leaked "+ FOREACH_INDEX +"="+ props.getProperty( FOREACH_INDEX ) +" into iteration #"+ ix );
+            return outp;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        STARTED.set( 0 );
+        startedWhileFirstWasRunning = -1;
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty( TuningOptions.FOREACHPARALLELISM );
+        System.clearProperty( TuningOptions.LABELMEMORYMB );
+    }
+
+    private static ArrayList<Object> sampleInput( final int _count ) {
+        final ArrayList<Object> list = new ArrayList<>();
+        for ( int ix=0; ix < _count; ix ++ ) {
+            final LinkedHashMap<String,Object> tags = new LinkedHashMap<>();
+            tags.put( "Name", "subnet-"+ ix );
+            final LinkedHashMap<String,Object> elem = new LinkedHashMap<>();
+            elem.put( "cidr", "10.0."+ ix +".0/24" );
+            elem.put( "tags", tags );
+            list.add( elem );
+        }
+        return list;
+    }
+
+    private static LinkedHashMap<String,Object> foreach( final ArrayList<Object> _input ) throws Exception {
+        return foreach( _input, new CmdInvoker( false, false ) );
+    }
+
+    private static LinkedHashMap<String,Object> foreach( final ArrayList<Object> _input, final CmdInvoker _invoker ) throws Exception {
+        final Body body = new Body();
+        body.setMemoryAndContext( _invoker.getMemoryAndContext() );
+        return body.processFOREACH_Step3( new BatchPlan( false, null ), _input.iterator(), _input.size() );
+    }
+
+    @Test
+    public void parallelMatchesSequential() throws Exception {
+        final LinkedHashMap<String,Object> expected = foreach( sampleInput( 12 ) );
+        assertEquals( "10.0.11.0/24", ((LinkedHashMap<?,?>) expected.get( "item-11" )).get( "cidr" ) );
+
+        System.setProperty( TuningOptions.FOREACHPARALLELISM, "4" );
+        final ArrayList<Object> inp = sampleInput( 12 );
+        final LinkedHashMap<String,Object> outp = foreach( inp );
+        assertEquals( sampleInput( 12 ), inp ); // input untouched
+        final ArrayList<String> keys = new ArrayList<>();
+        for ( int ix=0; ix < 12; ix ++ ) {
+            assertEquals( expected.get( "item-"+ ix ), outp.get( "item-"+ ix ) );
+            keys.add( "item-"+ ix );
+        }
+        assertEquals( keys, new ArrayList<>( outp.keySet() ) ); // merged in iteration-order
+        assertTrue( expected.containsKey( "previous-11" ) ); // sequentially, each iteration sees what the previous one saved
+        for ( String key: outp.keySet() )
+            assertFalse( "iterations must Not see each other's memory: "+ key, key.startsWith( "previous-" ) );
+    }
+
+    @Test
+    public void atMostParallelismIterationsAreUnmerged() throws Exception {
+        System.setProperty( TuningOptions.FOREACHPARALLELISM, "3" );
+        final LinkedHashMap<String,Object> outp = foreach( sampleInput( 20 ) );
+        assertEquals( 20, outp.size() );
+        assertTrue( "started "+ startedWhileFirstWasRunning +" other iterations, while the 1st was running", startedWhileFirstWasRunning >= 0 && startedWhileFirstWasRunning <= 2 );
+    }
+
+    @Test
+    public void eachIterationGetsItsOwnCopyOfLabels() throws Exception {
+        System.setProperty( TuningOptions.FOREACHPARALLELISM, "4" );
+        System.setProperty( TuningOptions.LABELMEMORYMB, "1" );
+        final char[] chars = new char[ 200 * 1024 ];
+        java.util.Arrays.fill( chars, 'x' );
+        final LinkedHashMap<String,Object> config = new LinkedHashMap<>();
+        config.put( "big", new String( chars ) );
+        final CmdInvoker invoker = new CmdInvoker( false, false );
+        final Object label = LabelStore.put( config, false ); // as if 'saveTo !config'
+        assertTrue( label instanceof LabelStore.LabelMap );
+        invoker.getMemoryAndContext().saveDataIntoMemory( "config", label );
+
+        final LinkedHashMap<String,Object> outp = foreach( sampleInput( 8 ), invoker );
+        assertEquals( 8, outp.size() );
+        assertFalse( ((LinkedHashMap<?,?>) label).containsKey( "touchedBy" ) );
+    }
+
+    private static LinkedHashMap<String,Object> nestedForeach( final CmdInvoker _invoker ) throws Exception {
+        final NestedBody body = new NestedBody();
+        body.setMemoryAndContext( _invoker.getMemoryAndContext() );
+        final ArrayList<Object> inp = sampleInput( 8 );
+        return body.processFOREACH_Step3( new BatchPlan( false, null ), inp.iterator(), inp.size() );
+    }
+
+    @Test
+    public void nestedAndParallelFramesDoNotLeak() throws Exception {
+        final LinkedHashMap<String,Object> expected = nestedForeach( new CmdInvoker( false, false ) );
+        assertEquals( 24, expected.size() );
+        assertEquals( "2", expected.get( "7.2" ) );
+
+        System.setProperty( TuningOptions.FOREACHPARALLELISM, "4" );
+        final CmdInvoker invoker = new CmdInvoker( false, false );
+        final Properties parentProps = invoker.getMemoryAndContext().getAllPropsRef().get( NestedBody.PROPS );
+        parentProps.setProperty( NestedBody.INDEX, "before the loop" );
+        assertEquals( expected, nestedForeach( invoker ) );
+        assertEquals( "before the loop", invoker.getMemoryAndContext().getAllPropsRef().get( NestedBody.PROPS ).getProperty( NestedBody.INDEX ) );
+    }
+
+}
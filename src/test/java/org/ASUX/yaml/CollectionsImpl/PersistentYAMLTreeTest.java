@@ -0,0 +1,143 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link PersistentYAMLTree#snapshot} leaves the caller's tree alone, and that Delete/Insert/Replace copy frozen nodes only along the paths they actually write to. */
+public class PersistentYAMLTreeTest {
+
+    private static LinkedHashMap<String, Object> map( final Object... _kv ) {
+        final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+        for ( int ix=0; ix < _kv.length; ix += 2 ) m.put( (String) _kv[ix], _kv[ix+1] );
+        return m;
+    }
+
+    private static ArrayList<Object> list( final Object... _items ) {
+        final ArrayList<Object> a = new ArrayList<>();
+        for ( Object o: _items ) a.add( o );
+        return a;
+    }
+
+    /** a: { b: { c: 1, d: 2 } },  e: { f: [ { g: 1 }, { g: 2 } ] },  x: { y: 1 } */
+    private static LinkedHashMap<String, Object> sample() {
+        return map( "a", map( "b", map( "c", "1", "d", "2" ) ),
+                    "e", map( "f", list( map( "g", "1" ), map( "g", "2" ) ) ),
+                    "x", map( "y", "1" ) );
+    }
+
+    @Test
+    public void snapshotDoesNotTouchTheCallersTree() throws Exception {
+        final LinkedHashMap<String, Object> tree = sample();
+        final Object a = tree.get( "a" );
+        final LinkedHashMap<String, Object> snap = PersistentYAMLTree.snapshot( tree );
+        assertTrue( PersistentYAMLTree.isFrozen( snap ) );
+        assertTrue( PersistentYAMLTree.isFrozen( snap.get( "a" ) ) );
+        assertEquals( tree, snap );
+        assertSame( a, tree.get( "a" ) );
+        assertFalse( PersistentYAMLTree.isFrozen( tree.get( "a" ) ) );
+        @SuppressWarnings("unchecked")
+        final LinkedHashMap<String, Object> b = (LinkedHashMap<String, Object>) ((LinkedHashMap<String, Object>) tree.get( "a" )).get( "b" );
+        b.put( "c", "changed" ); // the caller can still modify its own tree
+        assertEquals( sample(), snap );
+    }
+
+    @Test
+    public void snapshotOfSnapshotSharesEverything() throws Exception {
+        final LinkedHashMap<String, Object> snap = PersistentYAMLTree.snapshot( sample() );
+        assertSame( snap, PersistentYAMLTree.snapshot( snap ) );
+        final LinkedHashMap<String, Object> root = PersistentYAMLTree.thaw( snap );
+        final LinkedHashMap<String, Object> snap2 = PersistentYAMLTree.snapshot( root );
+        assertNotSame( snap, snap2 );
+        assertSame( snap.get( "a" ), snap2.get( "a" ) );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void deleteCopiesOnlyThePathWritten() throws Exception {
+        final LinkedHashMap<String, Object> snap = PersistentYAMLTree.snapshot( sample() );
+        final LinkedHashMap<String, Object> root = PersistentYAMLTree.thaw( snap );
+        new DeleteYamlEntry( false, false ).searchYamlForPattern( root, "a.b.c", "." );
+
+        final LinkedHashMap<String, Object> expected = sample();
+        ((LinkedHashMap<String, Object>) ((LinkedHashMap<String, Object>) expected.get( "a" )).get( "b" )).remove( "c" );
+        assertEquals( expected, root );
+        assertEquals( sample(), snap ); // the snapshot is unchanged
+        assertNotSame( snap.get( "a" ), root.get( "a" ) );
+        assertFalse( PersistentYAMLTree.isFrozen( root.get( "a" ) ) );
+        assertSame( snap.get( "e" ), root.get( "e" ) ); // untouched sub-trees remain shared
+        assertSame( snap.get( "x" ), root.get( "x" ) );
+    }
+
+    /** a walk that writes nothing, copies nothing */
+    @Test
+    public void noMatchMeansNoCopies() throws Exception {
+        final LinkedHashMap<String, Object> snap = PersistentYAMLTree.snapshot( sample() );
+        final LinkedHashMap<String, Object> root = PersistentYAMLTree.thaw( snap );
+        new DeleteYamlEntry( false, false ).searchYamlForPattern( root, "a.b.zz", "." );
+        new ReplaceYamlEntry( false, false, "new" ).searchYamlForPattern( root, "e.f.*.zz", "." );
+        assertEquals( sample(), root );
+        for ( String key: snap.keySet() )
+            assertSame( key, snap.get( key ), root.get( key ) );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void replaceWithinArrayCopiesArrayAndElement() throws Exception {
+        final LinkedHashMap<String, Object> snap = PersistentYAMLTree.snapshot( sample() );
+        final LinkedHashMap<String, Object> root = PersistentYAMLTree.thaw( snap );
+        new ReplaceYamlEntry( false, false, "new" ).searchYamlForPattern( root, "e.f.1.g", "." );
+
+        final ArrayList<Object> snapArr = (ArrayList<Object>) ((LinkedHashMap<String, Object>) snap.get( "e" )).get( "f" );
+        final ArrayList<Object> rootArr = (ArrayList<Object>) ((LinkedHashMap<String, Object>) root.get( "e" )).get( "f" );
+        assertEquals( "new", ((LinkedHashMap<String, Object>) rootArr.get( 1 )).get( "g" ) );
+        assertEquals( "2", ((LinkedHashMap<String, Object>) snapArr.get( 1 )).get( "g" ) );
+        assertSame( snapArr.get( 0 ), rootArr.get( 0 ) ); // the other array-element remains shared
+        assertSame( snap.get( "a" ), root.get( "a" ) );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void insertIntoFrozenNode() throws Exception {
+        final LinkedHashMap<String, Object> snap = PersistentYAMLTree.snapshot( sample() );
+        final LinkedHashMap<String, Object> root = PersistentYAMLTree.thaw( snap );
+        new InsertYamlEntry( false, false, "inserted" ).searchYamlForPattern( root, "x.z", "." );
+        assertEquals( "inserted", ((LinkedHashMap<String, Object>) root.get( "x" )).get( "z" ) );
+        assertFalse( ((LinkedHashMap<String, Object>) snap.get( "x" )).containsKey( "z" ) );
+        assertSame( snap.get( "a" ), root.get( "a" ) );
+    }
+
+}
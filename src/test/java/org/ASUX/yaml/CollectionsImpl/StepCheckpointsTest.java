@@ -0,0 +1,130 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/** Checks that {@link StepCheckpoints} round-trips YAML-trees, refuses to deserialize anything else, and keeps its folder within the size-limit. */
+public class StepCheckpointsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        System.setProperty( TuningOptions.CHECKPOINTDIR, this.tmp.getRoot().getAbsolutePath() );
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty( TuningOptions.CHECKPOINTDIR );
+        System.clearProperty( TuningOptions.CHECKPOINTMAXMB );
+    }
+
+    private static LinkedHashMap<String,Object> sampleYAML() {
+        final LinkedHashMap<String,Object> inner = new LinkedHashMap<>();
+        inner.put( "count", 42 );
+        inner.put( "flag", Boolean.TRUE );
+        inner.put( "big", new java.math.BigInteger( "123456789012345678901234567890" ) );
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        map.put( "name", "value" );
+        map.put( "list", new ArrayList<Object>( Arrays.asList( "a", inner, null ) ) );
+        map.put( "linked", new LinkedList<Object>( Arrays.asList( "x", "y" ) ) );
+        return map;
+    }
+
+    @Test
+    public void roundTripsYAMLTrees() throws Exception {
+        final LinkedHashMap<String,Object> map = sampleYAML();
+        StepCheckpoints.save( "ab0001", map, false );
+        assertEquals( map, StepCheckpoints.load( "ab0001", false ) );
+
+        final Properties props = new Properties();
+        props.setProperty( "k", "v" );
+        StepCheckpoints.save( "ab0002", props, false );
+        assertEquals( props, StepCheckpoints.load( "ab0002", false ) );
+    }
+
+    @Test
+    public void roundTripsFrozenTrees() throws Exception {
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        map.put( "frozen", PersistentYAMLTree.frozenCopy( sampleYAML() ) );
+        StepCheckpoints.save( "ab0003", map, false );
+        final Object loaded = StepCheckpoints.load( "ab0003", false );
+        assertEquals( map, loaded );
+        assertTrue( PersistentYAMLTree.isFrozen( ((LinkedHashMap<?,?>) loaded).get( "frozen" ) ) );
+    }
+
+    @Test
+    public void rejectsOtherClasses() throws Exception {
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        map.put( "when", new java.util.Date( 0 ) );
+        StepCheckpoints.save( "ab0004", map, false );
+        assertTrue( new File( this.tmp.getRoot(), "ab/ab0004.ser" ).isFile() );
+        assertNull( StepCheckpoints.load( "ab0004", false ) ); // treated like an unreadable checkpoint
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondLimit() throws Exception {
+        System.setProperty( TuningOptions.CHECKPOINTMAXMB, "1" );
+        final char[] chars = new char[ 400 * 1024 ];
+        Arrays.fill( chars, 'x' );
+        final LinkedHashMap<String,Object> map = new LinkedHashMap<>();
+        map.put( "k", new String( chars ) );
+        final String[] keys = { "cd0001", "cd0002", "cd0003", "cd0004" };
+        final long start = System.currentTimeMillis() - 60000;
+        for ( int ix=0; ix < keys.length; ix ++ ) {
+            StepCheckpoints.save( keys[ix], map, false );
+            assertTrue( new File( this.tmp.getRoot(), "cd/"+ keys[ix] +".ser" ).setLastModified( start + ix * 1000 ) ); // so that the order is certain
+        }
+        long total = 0;
+        int remaining = 0;
+        for ( File f: new File( this.tmp.getRoot(), "cd" ).listFiles() ) { total += f.length(); remaining ++; }
+        assertTrue( "total="+ total, total <= 1024 * 1024 );
+        assertTrue( remaining < keys.length );
+        assertFalse( new File( this.tmp.getRoot(), "cd/"+ keys[0] +".ser" ).exists() ); // the least-recently-used
+        assertNotNull( StepCheckpoints.load( keys[ keys.length - 1 ], false ) ); // the latest is never evicted
+    }
+
+}
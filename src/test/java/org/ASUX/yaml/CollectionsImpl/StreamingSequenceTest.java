@@ -0,0 +1,146 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that a {@link StreamingSequence} reads each element just once - whether drained by a 'foreach' or materialized by anything else - and fails clearly once it can't. */
+public class StreamingSequenceTest {
+
+    /** Counts how often each element is read, and whether the source was closed */
+    private static final class Source implements Iterator<Object>, AutoCloseable {
+        final List<Object> elements;
+        final int failAt; // -1 means never
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+        int next = 0;
+        Source( final int _failAt, final Object... _elements ) { this.elements = Arrays.asList( _elements ); this.failAt = _failAt; }
+        public boolean hasNext() { return this.next < this.elements.size(); }
+        public Object next() {
+            if ( this.next == this.failAt ) throw new RuntimeException( new java.io.IOException( "YAML syntax error within document #"+ this.next ) );
+            this.reads.incrementAndGet();
+            return this.elements.get( this.next ++ );
+        }
+        public void close() { this.closed.incrementAndGet(); }
+    }
+
+    private static StreamingSequence seq( final Source _src ) {
+        return new StreamingSequence( _src, _src, "StreamingSequenceTest" );
+    }
+
+    @Test
+    public void drainYieldsEachElementOnce() {
+        final Source src = new Source( -1, "a", "b", "c" );
+        final StreamingSequence s = seq( src );
+        assertTrue( s.isLazy() );
+        final ArrayList<Object> seen = new ArrayList<>();
+        final Iterator<Object> it = s.drain();
+        assertFalse( s.isLazy() );
+        assertEquals( 0, src.reads.get() ); // one at a time, Not all upfront
+        while ( it.hasNext() ) seen.add( it.next() );
+        assertEquals( Arrays.asList( "a", "b", "c" ), seen );
+        assertEquals( 3, src.reads.get() );
+        assertEquals( 1, src.closed.get() );
+        assertFalse( s.isMaterialized() );
+    }
+
+    @Test
+    public void anyAccessAfterDrainFailsClearly() {
+        final StreamingSequence s = seq( new Source( -1, "a", "b" ) );
+        s.drain().forEachRemaining( o -> {} );
+        for ( Runnable r: Arrays.<Runnable>asList( () -> s.drain(), () -> s.iterator(), () -> s.size(), () -> s.get( 0 ), () -> new LinkedList<Object>( s ) ) ) {
+            try {
+                r.run();
+                fail( "using a drained StreamingSequence must fail" );
+            } catch ( IllegalStateException e ) {
+                assertTrue( e.getMessage(), e.getMessage().contains( "StreamingSequenceTest" ) && e.getMessage().contains( "already consumed" ) );
+            }
+        }
+    }
+
+    @Test
+    public void nonDrainAccessMaterializes() {
+        final Source src = new Source( -1, "a", "b", "c" );
+        final StreamingSequence s = seq( src );
+        assertEquals( "b", s.get( 1 ) );
+        assertTrue( s.isMaterialized() );
+        assertEquals( 3, src.reads.get() );
+        assertEquals( 1, src.closed.get() );
+        assertEquals( Arrays.asList( "a", "b", "c" ), s );
+        s.add( "d" );
+        assertEquals( 4, s.size() );
+        assertEquals( 3, src.reads.get() ); // read just once
+
+        final ArrayList<Object> seen = new ArrayList<>(); // a 'foreach' after materializing: just iterates over the list
+        s.drain().forEachRemaining( seen::add );
+        assertEquals( Arrays.asList( "a", "b", "c", "d" ), seen );
+    }
+
+    @Test
+    public void producerFailureReachesTheConsumer() {
+        final Source src = new Source( 1, "a", "b", "c" );
+        final Iterator<Object> it = seq( src ).drain();
+        assertEquals( "a", it.next() );
+        try {
+            it.next();
+            fail( "the failure to read the 2nd element must be thrown to the 'foreach'" );
+        } catch ( RuntimeException e ) {
+            assertTrue( e.getCause() instanceof java.io.IOException );
+        }
+        assertEquals( 1, src.closed.get() );
+
+        final Source src2 = new Source( 1, "a", "b", "c" );
+        final StreamingSequence s2 = seq( src2 );
+        try {
+            s2.size();
+            fail( "the failure to read the 2nd element must be thrown" );
+        } catch ( RuntimeException e ) {
+            assertTrue( e.getCause() instanceof java.io.IOException );
+        }
+        assertEquals( 1, src2.closed.get() );
+        try {
+            s2.size();
+            fail( "Not all elements were read in.  So, what's there must Not pass off as the entire list" );
+        } catch ( IllegalStateException e ) {
+            assertTrue( e.getCause().getCause() instanceof java.io.IOException );
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link StreamingYAMLSink} writes out exactly what the buffered output (one LinkedList, written in one shot) would have. */
+public class StreamingYAMLSinkTest {
+
+    private static LinkedList<Object> matches() {
+        final LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+        m.put( "email", "sarma@ussmoso.com" );
+        m.put( "tags", new ArrayList<Object>( Arrays.asList( "a", "b: c", "" ) ) );
+        return new LinkedList<Object>( Arrays.asList( "plain", m, new ArrayList<Object>( Arrays.asList( "x", new LinkedHashMap<String, Object>() ) ), "multi\nline" ) );
+    }
+
+    private static String buffered( final LinkedList<Object> _list ) throws Exception {
+        final StringWriter sw = new StringWriter();
+        final GenericYAMLWriter writer = new GenericYAMLWriter( false );
+        writer.prepare( sw );
+        writer.write( _list );
+        writer.close();
+        return sw.toString();
+    }
+
+    private static String streamed( final LinkedList<Object> _list ) throws Exception {
+        final StringWriter sw = new StringWriter();
+        final StreamingYAMLSink sink = new StreamingYAMLSink( false, new GenericYAMLWriter( false ), sw );
+        for ( Object match: _list ) sink.onMatch( match );
+        sink.close();
+        assertEquals( _list.size(), sink.getCount() );
+        return sw.toString();
+    }
+
+    @Test
+    public void sameOutputAsBuffered() throws Exception {
+        assertEquals( buffered( matches() ), streamed( matches() ) );
+    }
+
+    @Test
+    public void sameOutputAsBufferedForZeroMatches() throws Exception {
+        assertEquals( buffered( new LinkedList<Object>() ), streamed( new LinkedList<Object>() ) );
+    }
+
+    @Test
+    public void sameOutputAsBufferedWithFastEmitter() throws Exception {
+        try {
+            System.setProperty( TuningOptions.FASTYAMLEMITTER, "true" );
+            assertEquals( buffered( matches() ), streamed( matches() ) );
+        } finally {
+            System.clearProperty( TuningOptions.FASTYAMLEMITTER );
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link Tools#lintRemoverMap} (the in-memory walk) gives exactly what {@link Tools#lintRemoverMapViaYAMLString} (the YAML round-trip) gives. */
+public class ToolsLintTest {
+
+    private final Tools tools = new Tools( false );
+
+    private LinkedHashMap<String, Object> oneEntry( final String _key, final Object _val ) {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put( _key, _val );
+        return map;
+    }
+
+    @Test
+    public void sameAsRoundTripForEachCorpusEntry() throws Exception {
+        final LinkedHashMap<String, Object> corpus;
+        try ( FileInputStream fis = new FileInputStream( "src/test/lint-corpus.json" ) ) {
+            corpus = JSONMapperRegistry.readMap( fis );
+        }
+        assertFalse( corpus.isEmpty() );
+        for ( String testcase: corpus.keySet() ) {
+            final LinkedHashMap<String, Object> input = oneEntry( testcase, corpus.get( testcase ) );
+            assertEquals( testcase, this.tools.lintRemoverMapViaYAMLString( input ), this.tools.lintRemoverMap( input ) );
+        }
+        assertEquals( this.tools.lintRemoverMapViaYAMLString( corpus ), this.tools.lintRemoverMap( corpus ) );
+    }
+
+    @Test
+    public void nullValuesStayNull() throws Exception {
+        final LinkedHashMap<String, Object> inner = oneEntry( "x", null );
+        final LinkedHashMap<String, Object> input = oneEntry( "nullValue", null );
+        input.put( "list", new ArrayList<Object>( Arrays.asList( "a", null, 3 ) ) );
+        input.put( "inner", inner );
+        input.put( "nullText", "null" );
+        final LinkedHashMap<String, Object> fast = this.tools.lintRemoverMap( input );
+        assertEquals( this.tools.lintRemoverMapViaYAMLString( input ), fast );
+        assertTrue( fast.containsKey( "nullValue" ) );
+        assertNull( fast.get( "nullValue" ) );
+        assertEquals( "null", fast.get( "nullText" ) );
+    }
+
+    @Test
+    public void nonStringKeysBecomeStrings() throws Exception {
+        final LinkedHashMap<Object, Object> keys = new LinkedHashMap<>();
+        keys.put( 7, "seven" );
+        keys.put( true, "t" );
+        keys.put( 'c', 1.5 );
+        final LinkedHashMap<String, Object> input = oneEntry( "keys", keys );
+        assertEquals( this.tools.lintRemoverMapViaYAMLString( input ), this.tools.lintRemoverMap( input ) );
+    }
+
+    /** YAMLBeans can Not write a null map-key.  lintRemoverMap() must fail the same way (and Not quietly invent a "null" key). */
+    @Test
+    public void nullKeyFailsJustLikeRoundTrip() throws Exception {
+        final LinkedHashMap<Object, Object> nullKey = new LinkedHashMap<>();
+        nullKey.put( null, "v" );
+        final LinkedHashMap<String, Object> input = oneEntry( "nullKey", nullKey );
+        Class<?> roundTrip = null, inMemory = null;
+        try { this.tools.lintRemoverMapViaYAMLString( input ); } catch ( Exception e ) { roundTrip = e.getClass(); }
+        try { this.tools.lintRemoverMap( input ); } catch ( Exception e ) { inMemory = e.getClass(); }
+        assertNotNull( roundTrip );
+        assertEquals( roundTrip, inMemory );
+    }
+
+    /** YAMLBeans 1.17 mangles characters outside the Basic Multilingual Plane (it escapes the code-point, and then the low-surrogate again).  The in-memory walk leaves Strings alone. */
+    @Test
+    public void supplementaryCharactersSurvive() throws Exception {
+        final String emoji = "smile \uD83D\uDE00";
+        final LinkedHashMap<String, Object> input = oneEntry( "emoji", emoji );
+        assertEquals( emoji, this.tools.lintRemoverMap( input ).get( "emoji" ) );
+    }
+
+    @Test
+    public void sharedSubtreesStayShared() throws Exception {
+        final LinkedHashMap<String, Object> shared = oneEntry( "k", 1 );
+        final LinkedHashMap<String, Object> input = oneEntry( "a", shared );
+        input.put( "b", shared );
+        final LinkedHashMap<String, Object> fast = this.tools.lintRemoverMap( input );
+        assertEquals( this.tools.lintRemoverMapViaYAMLString( input ), fast );
+        assertSame( fast.get( "a" ), fast.get( "b" ) );
+    }
+
+}
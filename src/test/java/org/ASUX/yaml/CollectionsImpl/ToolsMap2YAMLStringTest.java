@@ -0,0 +1,141 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link Tools#Map2YAMLString}, which re-uses a pool of writers, gives exactly what a brand-new GenericYAMLWriter + java.io.StringWriter gives - on repeated, re-entrant and concurrent invocations. */
+public class ToolsMap2YAMLStringTest {
+
+    private static final Tools TOOLS = new Tools( false );
+
+    /** The original (un-pooled) implementation of {@link Tools#Map2YAMLString} */
+    private static String unpooled( final Object _yaml ) throws Exception {
+        final StringWriter sw = new StringWriter();
+        final GenericYAMLWriter writer = new GenericYAMLWriter( false );
+        writer.setYamlLibrary( org.ASUX.yaml.YAML_Libraries.ESOTERICSOFTWARE_Library );
+        writer.prepare( sw );
+        writer.write( _yaml );
+        writer.close();
+        return sw.toString();
+    }
+
+    private static LinkedHashMap<String, Object> tree( final int _ix, final int _count ) {
+        final LinkedHashMap<String, Object> root = new LinkedHashMap<>();
+        final ArrayList<Object> subnets = new ArrayList<>();
+        for ( int i=0; i < _count; i ++ ) {
+            final LinkedHashMap<String, Object> subnet = new LinkedHashMap<>();
+            subnet.put( "CidrBlock", "10."+ _ix +"."+ i +".0/24" );
+            subnet.put( "Tags", new ArrayList<Object>( java.util.Arrays.asList( "Name", "subnet-"+ i ) ) );
+            subnets.add( subnet );
+        }
+        root.put( "VPC-"+ _ix, subnets );
+        return root;
+    }
+
+    /** A bean that - while yamlbeans is writing it out - invokes {@link Tools#Map2YAMLString} again, on the same thread. */
+    public static class Reentrant {
+        static volatile String inner;
+        public Reentrant() {}
+        public String getInner() throws Exception {
+            final String s = TOOLS.Map2YAMLString( tree( 7, 3 ) );
+            inner = s;
+            return s;
+        }
+        public void setInner( final String _s ) {} // yamlbeans writes only read-write properties
+    }
+
+    @Test
+    public void repeatedCallsMatchUnpooled() throws Exception {
+        for ( int round=0; round < 3; round ++ )
+            for ( int ix=0; ix < 20; ix ++ ) {
+                final LinkedHashMap<String, Object> yaml = tree( ix, ix % 5 );
+                assertEquals( "round "+ round +" tree #"+ ix, unpooled( yaml ), TOOLS.Map2YAMLString( yaml ) );
+            }
+    }
+
+    /** Beyond 1M chars, the pooled buffer is dropped.  The next (small) output must Not carry anything over. */
+    @Test
+    public void hugeThenSmall() throws Exception {
+        final LinkedHashMap<String, Object> huge = tree( 1, 20000 );
+        final String s = TOOLS.Map2YAMLString( huge );
+        assertTrue( s.length() > 1024 * 1024 );
+        assertEquals( unpooled( huge ), s );
+        final LinkedHashMap<String, Object> small = tree( 2, 1 );
+        assertEquals( unpooled( small ), TOOLS.Map2YAMLString( small ) );
+    }
+
+    @Test
+    public void reentrantCallsMatchUnpooled() throws Exception {
+        final LinkedHashMap<String, Object> outer = tree( 3, 2 );
+        outer.put( "reentrant", new Reentrant() );
+        final String expectedOuter = unpooled( outer );
+        final String expectedInner = unpooled( tree( 7, 3 ) );
+        for ( int round=0; round < 3; round ++ ) {
+            Reentrant.inner = null;
+            assertEquals( "round "+ round, expectedOuter, TOOLS.Map2YAMLString( outer ) );
+            assertEquals( "round "+ round, expectedInner, Reentrant.inner );
+        }
+        final LinkedHashMap<String, Object> after = tree( 4, 2 );
+        assertEquals( unpooled( after ), TOOLS.Map2YAMLString( after ) );
+    }
+
+    @Test
+    public void concurrentCallsMatchUnpooled() throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool( 8 );
+        try {
+            final ArrayList<Future<?>> futures = new ArrayList<>();
+            for ( int t=0; t < 8; t ++ ) {
+                final int seed = t;
+                futures.add( pool.submit( () -> {
+                    for ( int ix=0; ix < 200; ix ++ ) {
+                        final LinkedHashMap<String, Object> yaml = tree( seed, ix % 7 );
+                        assertEquals( unpooled( yaml ), TOOLS.Map2YAMLString( yaml ) );
+                    }
+                    return null;
+                } ) );
+            }
+            for ( Future<?> f: futures ) f.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ BSD 3-Clause License
+ 
+ Copyright (c) 2019, Udaybhaskar Sarma Seetamraju
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ 
+ * Redistributions of source code must retain the above copyright notice, this
+ list of conditions and the following disclaimer.
+ 
+ * Redistributions in binary form must reproduce the above copyright notice,
+ this list of conditions and the following disclaimer in the documentation
+ and/or other materials provided with the distribution.
+ 
+ * Neither the name of the copyright holder nor the names of its
+ contributors may be used to endorse or promote products derived from
+ this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ASUX.yaml.CollectionsImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Checks that {@link YAMLTreeInputFilter} reads back legitimate YAML-trees, and rejects whatever could exhaust the stack or heap. */
+public class YAMLTreeInputFilterTest {
+
+    private static byte[] serialize( final Object _o ) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream oos = new ObjectOutputStream( bytes ) ) { oos.writeObject( _o ); }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize( final byte[] _bytes ) throws Exception {
+        try ( ObjectInputStream ois = YAMLTreeInputFilter.newObjectInputStream( _bytes ) ) {
+            return ois.readObject();
+        }
+    }
+
+    /** @return Maps (and Lists) nested _depth levels deep */
+    private static LinkedHashMap<String,Object> nested( final int _depth ) throws Exception {
+        final LinkedHashMap<String,Object> root = new LinkedHashMap<>();
+        LinkedHashMap<String,Object> node = root;
+        for ( int ix=1; ix < _depth; ix += 2 ) {
+            final LinkedHashMap<String,Object> child = new LinkedHashMap<>();
+            node.put( "level-"+ ix, new ArrayList<Object>( Arrays.asList( "x", child ) ) );
+            node = child;
+        }
+        return root;
+    }
+
+    @Test
+    public void legitimateTreesAreReadBack() throws Exception {
+        final LinkedHashMap<String,Object> wide = new LinkedHashMap<>();
+        for ( int ix=0; ix < 10000; ix ++ ) wide.put( "k"+ ix, ( ix % 2 == 0 ) ? "v"+ ix : null );
+        wide.put( "list", new ArrayList<Object>( java.util.Collections.nCopies( 10000, "same" ) ) );
+        wide.put( "frozen", PersistentYAMLTree.snapshot( nested( 10 ) ) );
+        assertEquals( wide, deserialize( serialize( wide ) ) );
+
+        final LinkedHashMap<String,Object> deep = nested( (int) YAMLTreeInputFilter.MAXDEPTH - 10 );
+        assertEquals( deep, deserialize( serialize( deep ) ) );
+        final LinkedHashMap<String,Object> frozen = PersistentYAMLTree.snapshot( deep );
+        assertEquals( frozen, deserialize( serialize( frozen ) ) );
+    }
+
+    @Test
+    public void tooDeepIsRejected() throws Exception {
+        try {
+            deserialize( serialize( nested( (int) YAMLTreeInputFilter.MAXDEPTH + 10 ) ) );
+            fail( "must be rejected - Not a StackOverflowError (which is what a few hundred more levels would cause)" );
+        } catch ( InvalidClassException e ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void hugeDeclaredArrayIsRejected() throws Exception {
+        final byte[] bytes = serialize( new long[ 8 ] );
+        // the array's length (8) is followed by its 8 elements (64 zero-bytes).  Make it 2 billion.
+        int at = -1;
+        for ( int ix = bytes.length - 68; ix >= 0 && at < 0; ix -- )
+            if ( bytes[ix] == 0 && bytes[ix+1] == 0 && bytes[ix+2] == 0 && bytes[ix+3] == 8 ) at = ix;
+        assertTrue( at >= 0 );
+        bytes[ at ] = 0x7f;
+        bytes[ at+1 ] = (byte) 0xff;
+        try {
+            deserialize( bytes );
+            fail( "must be rejected - Not an OutOfMemoryError" );
+        } catch ( InvalidClassException e ) {
+            // expected
+        }
+    }
+
+}